@@ -1,25 +1,21 @@
 package com.steitz.ga;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-
-import org.apache.commons.math3.util.MathArrays;
 
 /**
  * Compute fitness of the partition by negative sum of squared pairwise
  * euclidean distances among elements of partition pieces.
  * Universe is set of dimension-dimensional vectors.
  */
-public class ClusterPartitionFitness implements PartitionFitness {
+public class ClusterPartitionFitness
+        implements PartitionFitness, BatchPartitionFitness, IncrementalPartitionFitness {
 
     /** dimension of the space that the points to be clustered come from. */
     private final int dimension;
 
     /**
      * universe is a two-dimensional array of doubles.
-     * 
+     *
      * Rows are elements of the universe represented as dimension-dimensional
      * arrays.
      */
@@ -33,47 +29,204 @@ public class ClusterPartitionFitness implements PartitionFitness {
     /**
      * Compute the fitness of the partition by negative summing the within-cluster
      * distances between points over all clusters.
-     * 
+     *
      * Clusters are defined by partition pieces.
      */
     @Override
     public double fitness(List<Integer> partition) {
+        return fitness(partition.stream().mapToInt(i -> i).toArray());
+    }
 
-        // Pieces is a map keyed on partition piece number with value a set of indexes
-        // of elements in the piece.
-        final Map<Integer, Set<Integer>> pieces = getPieces(partition);
+    /**
+     * Compute the fitness of the partition by negative summing the within-cluster
+     * distances between points over all clusters.
+     * <p>
+     * Pairwise sums run over the piece members of the partition's PieceIndex, so
+     * evaluation allocates only the index.
+     */
+    @Override
+    public double fitness(int[] partition) {
+        return fitness(PieceIndex.of(partition));
+    }
 
-        // Sum of squared pairwise distances within partition piece
+    /**
+     * Compute the fitness of a batch of partitions.
+     * <p>
+     * All piece indexes are built in the same scratch arrays, so the batch
+     * allocates a single index.
+     */
+    @Override
+    public double[] fitness(int[][] partitions) {
+        final double[] out = new double[partitions.length];
+        PieceIndex pieces = null;
+        for (int p = 0; p < partitions.length; p++) {
+            pieces = PieceIndex.of(partitions[p], Partition.maxLabel(partitions[p]) + 1, pieces);
+            out[p] = fitness(pieces);
+        }
+        return out;
+    }
+
+    /**
+     * Negative sum of squared pairwise distances within the pieces of a piece
+     * index.
+     */
+    private double fitness(PieceIndex pieces) {
         double ssto = 0;
+        for (int piece = 0; piece < pieces.getM(); piece++) {
+            final int start = pieces.start(piece);
+            final int end = pieces.end(piece);
+            for (int i = start; i < end; i++) {
+                final double[] vi = universe[pieces.member(i)];
+                for (int j = start; j < i; j++) {
+                    ssto += squaredDistance(vi, universe[pieces.member(j)]);
+                }
+            }
+        }
+        return -ssto;
+    }
 
-        // For each entry of pieces, compute sum of squared distances
-        // between universe elements pointed to by the integers in the values set.
-        for (Entry<Integer, Set<Integer>> entry : pieces.entrySet()) {
-            // Load universe vectors included in this piece to vectors array
-            final int pieceSize = entry.getValue().size();
-            final double[][] vectors = new double[pieceSize][dimension];
-            int ct = 0;
-            for (Integer index : entry.getValue()) {
-                vectors[ct++] = universe[index];
+    /**
+     * Build the per-piece state of a partition: the size of each piece, the sum
+     * of its vectors and the sum of their squared norms.
+     * <p>
+     * The sum of squared distances from a vector x to the members of a piece
+     * with size c, vector sum s and squared norm sum q is c|x|^2 - 2x.s + q, so
+     * the delta of a single-element move costs O(dimension) instead of the
+     * O(n^2 * dimension) of a full evaluation.
+     */
+    @Override
+    public PieceState state(int[] partition) {
+        final int m = Partition.maxLabel(partition) + 1;
+        final int[] counts = new int[m];
+        final double[][] sums = new double[m][dimension];
+        final double[] squares = new double[m];
+        for (int i = 0; i < partition.length; i++) {
+            final int piece = partition[i];
+            final double[] v = universe[i];
+            counts[piece]++;
+            for (int k = 0; k < dimension; k++) {
+                sums[piece][k] += v[k];
             }
+            squares[piece] += squaredNorm(v);
+        }
+        final PieceSums[] pieces = new PieceSums[m];
+        for (int piece = 0; piece < m; piece++) {
+            pieces[piece] = new PieceSums(counts[piece], sums[piece], squares[piece]);
+        }
+        return new ClusterPieceState(pieces);
+    }
 
-            // Loop over vectors to compute sum of pairwise squared distances
-            for (int i = 0; i < pieceSize; i++) {
-                for (int j = 0; j < i; j++) {
-                    final double dist = MathArrays.distance(vectors[i], vectors[j]);
-                    ssto += dist * dist;
-                }
+    /**
+     * Size, vector sum and squared norm sum of one piece. Rows are never
+     * changed, so states of related partitions share the rows of the pieces
+     * they agree on.
+     */
+    private static final class PieceSums {
+
+        /** Number of elements in the piece */
+        final int count;
+
+        /** Sum of the vectors in the piece */
+        final double[] sum;
+
+        /** Sum of the squared norms of the vectors in the piece */
+        final double square;
+
+        PieceSums(int count, double[] sum, double square) {
+            this.count = count;
+            this.sum = sum;
+            this.square = square;
+        }
+
+        /**
+         * @return the row of this piece with x, whose squared norm is norm,
+         *         added (sign 1) or removed (sign -1)
+         */
+        PieceSums plus(double[] x, double norm, int sign) {
+            final double[] moved = sum.clone();
+            for (int k = 0; k < moved.length; k++) {
+                moved[k] += sign * x[k];
             }
+            return new PieceSums(count + sign, moved, square + sign * norm);
         }
+    }
 
-        return -ssto;
+    /**
+     * Rows of piece sums of the pieces of a partition.
+     * <p>
+     * A move copies the array of row references and replaces the two rows it
+     * touches, so it costs O(m + dimension) rather than O(m * dimension).
+     */
+    private class ClusterPieceState implements PieceState {
+
+        /** Sums of each piece, by label */
+        private final PieceSums[] pieces;
+
+        ClusterPieceState(PieceSums[] pieces) {
+            this.pieces = pieces;
+        }
+
+        /**
+         * Fitness is the negative within-piece sum, so moving x from a to b adds
+         * its distances to a and subtracts its distances to b.
+         */
+        @Override
+        public double delta(int element, int from, int to) {
+            if (from == to) {
+                return 0;
+            }
+            final double[] x = universe[element];
+            final double norm = squaredNorm(x);
+            return distances(x, norm, from) - distances(x, norm, to);
+        }
+
+        @Override
+        public PieceState move(int element, int from, int to) {
+            if (from == to) {
+                return this;
+            }
+            final double[] x = universe[element];
+            final double norm = squaredNorm(x);
+            final PieceSums[] moved = pieces.clone();
+            moved[from] = pieces[from].plus(x, norm, -1);
+            moved[to] = pieces[to].plus(x, norm, 1);
+            return new ClusterPieceState(moved);
+        }
+
+        /**
+         * Sum of squared distances from x to the members of a piece.
+         */
+        private double distances(double[] x, double norm, int piece) {
+            final PieceSums sums = pieces[piece];
+            double dot = 0;
+            for (int k = 0; k < dimension; k++) {
+                dot += x[k] * sums.sum[k];
+            }
+            return sums.count * norm - 2 * dot + sums.square;
+        }
     }
 
-    private Map<Integer, Set<Integer>> getPieces(List<Integer> partition) {
-        // Create a partition from the input list
-        final Partition partitionInstance = new Partition(partition);
-        // Get the partition pieces
-        return partitionInstance.asSets();
+    /**
+     * Squared euclidean norm of a vector.
+     */
+    private static double squaredNorm(double[] v) {
+        double sum = 0;
+        for (int k = 0; k < v.length; k++) {
+            sum += v[k] * v[k];
+        }
+        return sum;
+    }
+
+    /**
+     * Squared euclidean distance between two vectors of the same length.
+     */
+    private static double squaredDistance(double[] a, double[] b) {
+        double sum = 0;
+        for (int k = 0; k < a.length; k++) {
+            final double diff = a[k] - b[k];
+            sum += diff * diff;
+        }
+        return sum;
     }
 
 }
@@ -1,13 +1,9 @@
 package com.steitz.ga;
 
-import java.util.List;
-
 import org.apache.commons.math3.genetics.ElitisticListPopulation;
-import org.apache.commons.math3.genetics.FixedGenerationCount;
 import org.apache.commons.math3.genetics.GeneticAlgorithm;
 import org.apache.commons.math3.genetics.Population;
 import org.apache.commons.math3.genetics.StoppingCondition;
-import org.apache.commons.math3.genetics.TournamentSelection;
 
 import org.json.simple.parser.JSONParser;
 import org.json.simple.JSONObject;
@@ -15,6 +11,7 @@ import org.json.simple.JSONObject;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -46,11 +43,23 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
 
     private final double[][] universe;
 
+    /**
+     * Fitness function shared by all chromosomes
+     */
+    private final ClusterPartitionFitness fitness;
+
+    /**
+     * fitness, counting evaluations for the evaluation budget
+     */
+    private final CountingPartitionFitness countingFitness;
+
     public ClusterPartitionOptimizer(PartitionOptimizerConfig partitionOptimizerConfig, ClusterProblem clusterProblem,
             double[][] universe) {
         this.partionOptimizerConfig = partitionOptimizerConfig;
         this.clusterProblem = clusterProblem;
         this.universe = universe;
+        this.fitness = new ClusterPartitionFitness(universe[0].length, universe);
+        this.countingFitness = new CountingPartitionFitness(newFitnessFunction(partitionOptimizerConfig, fitness));
     }
 
     @Override
@@ -59,11 +68,10 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
         final int numClusters = clusterProblem.getNumClusters();
         final int populationSize = partitionOptimizerConfig.getPopulationSize();
 
-        final ClusterPartitionChromosome[] chromosomes = new ClusterPartitionChromosome[populationSize];
+        final IntPartitionChromosome[] chromosomes = new IntPartitionChromosome[populationSize];
         for (int i = 0; i < populationSize; i++) {
             final Partition randomPartition = Partition.randomPartition(universeSize, numClusters);
-            final List<Integer> representation = randomPartition.getRepresentation();
-            chromosomes[i] = new ClusterPartitionChromosome(representation, universe[0].length, universe);
+            chromosomes[i] = new IntPartitionChromosome(randomPartition.getPartition(), countingFitness);
         }
         final Population out = new ElitisticListPopulation(populationSize, partitionOptimizerConfig.getElitismRate());
         for (int i = 0; i < populationSize; i++) {
@@ -74,19 +82,20 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
 
     @Override
     public StoppingCondition getStoppingCondition() {
-        return new FixedGenerationCount(partionOptimizerConfig.getNumGenerations());
+        return newStoppingCondition(partionOptimizerConfig, countingFitness::getCount);
     }
 
     @Override
     public GeneticAlgorithm createGeneticAlgorithm(PartitionOptimizerConfig config) {
         // initialize a new genetic algorithm
-        final ClusterPartitionFitness fitness = new ClusterPartitionFitness(universe[0].length, universe);
-        return new GeneticAlgorithm(
-                new PartitionChromosomeCrossover(fitness),
-                partionOptimizerConfig.getCrossoverRate(),
-                new PartitionChromosomeMutation(fitness),
-                partionOptimizerConfig.getMutationRate(),
-                new TournamentSelection(partionOptimizerConfig.getTournamentArity()));
+        return newGeneticAlgorithm(partionOptimizerConfig,
+                newCrossoverPolicy(partionOptimizerConfig, fitness),
+                newMutationPolicy(partionOptimizerConfig, fitness));
+    }
+
+    @Override
+    public IntPartitionFitness getFitnessFunction() {
+        return countingFitness;
     }
 
     @Override
@@ -110,7 +119,8 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
     /**
      * Main method for the ClusterPartitionOptimizer.
      * 
-     * Takes two command-line arguments: universeFilePath and configFilePath
+     * Takes two command-line arguments: universeFilePath and configFilePath,
+     * and optionally a third, the path of a checkpoint to resume the run from
      * 
      * universefilePath is file path to a CSV file
      * containing the universe.
@@ -125,6 +135,63 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
      * populationSize, numGenerations, tournamentArity,
      * mutationRate, crossoverRate, elitismRate
      * 
+     * and these optional fields:
+     * canonicalLabels (default false),
+     * evaluationParallelism (default 0, lazy evaluation),
+     * ioConcurrency (default 0; if set, evaluate on virtual threads with at most
+     * this many evaluations in flight per fitness backend),
+     * batchEvaluation (default false; if true, evaluate each generation with one
+     * batch fitness call),
+     * pipelineInFlight (default 0; if set, breed each generation while the
+     * previous one is evaluated, with at most this many evaluations in flight),
+     * stagnationGenerations (default 0; if set, stop when the best fitness has not
+     * improved by more than stagnationTolerance (default 0) for this many
+     * generations),
+     * maxElapsedSeconds (default 0; if set, stop after this many seconds),
+     * maxEvaluations (default 0; if set, stop after this many fitness
+     * evaluations),
+     * targetFitness (default none; if set, stop when the best fitness reaches it),
+     * localSearchMoves (default 0; if set, improve each child by hill climbing,
+     * scoring at most this many moves), localSearchEvaluations (default 0; moves
+     * local search may score by full evaluation when the fitness function is
+     * not incremental), localSearchFirstImprovement (default
+     * false, best improvement), localSearchElites (default false; if true, improve
+     * the elites instead of the children),
+     * crossover (default "interleave"; "aligned" matches the parents' pieces by
+     * overlap before interleaving and "grouping" injects whole pieces of one
+     * parent into the other),
+     * deduplication (default "none"; "mutated" or "random" replaces children that
+     * duplicate a partition already in their generation with a mutant or a random
+     * partition),
+     * selection (default "tournament"; "rank" selects parents by linear ranking
+     * with selectionPressure (default 2) in [1, 2]),
+     * seed (default 0, unseeded; if set, seeds all random choices so runs are
+     * reproducible),
+     * mutationOperators (default "", single element moves; weights such as
+     * "move:1,kmove:1,split:1,merge:1,swap:1" choose among several operators),
+     * mutationK (default 3, the number of elements moved by kmove),
+     * adaptiveMutation (default false; if true, the mutation rate follows the
+     * 1/5th success rule and operator weights adapt to mutant success),
+     * checkpointFile (default none; if set, the population is checkpointed to this
+     * file every checkpointInterval (default 1) generations),
+     * initialPopulationFile (default none; if set, runs start from the population
+     * in this checkpoint file instead of random partitions),
+     * islands (default 1; if more, the population is split into this many islands
+     * evolving on separate threads), migrationTopology (default "ring", or
+     * "full"), migrationInterval (default 10, generations between migrations),
+     * migrants (default 2, chromosomes each island receives per migration),
+     * migrationPeers (default none; if set, comma-separated "host:port" or
+     * "unix:path" addresses of the processes of a multi-process island run, the
+     * first of which hosts the migration coordinator), migrationRank (default 0,
+     * this process's position in migrationPeers), fitnessWorkers (default none;
+     * if set, comma-separated "host:port" or "unix:path" addresses of fitness
+     * workers to evaluate on), fitnessChunkSize (default 0 for automatic,
+     * partitions sent to a worker at a time), fitnessConnectTimeoutMillis
+     * (default 10000), fitnessReadTimeoutMillis (default 300000, time a worker
+     * has to answer before its chunk is re-dispatched), statisticsFile
+     * (default none; if set, a CSV file that gets a row of fitness, evaluation
+     * and timing statistics per generation)
+     * 
      * Here is an example of a JSON config file:
      * {
      * "ClusterProblem": {
@@ -144,6 +211,10 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
      * the universe from universe.csv and the config from config.json and runs the
      * optimization.
      * 
+     * ```java ClusterPartitionOptimizer universe.csv --worker host:port [parallelism]```
+     * instead runs a FitnessWorker for the universe in universe.csv, to be listed
+     * in the fitnessWorkers of an optimizer run on the same universe.
+     * 
      * @param args command line arguments
      * 
      */
@@ -197,6 +268,21 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
             throw new RuntimeException("Error reading universe file", e);
         }
 
+        // Serve fitness evaluations instead of optimizing if asked to
+        if ("--worker".equals(configFilePath)) {
+            final int parallelism = args.length > 3 ? Integer.parseInt(args[3])
+                    : Runtime.getRuntime().availableProcessors();
+            try {
+                final FitnessWorker worker = new FitnessWorker(SocketMigrationTransport.parseAddress(args[2]),
+                        new ClusterPartitionFitness(dimension, universe), parallelism);
+                logger.info("Fitness worker listening on " + worker.getAddress());
+                worker.run();
+            } catch (IOException e) {
+                throw new RuntimeException("Error starting fitness worker", e);
+            }
+            return;
+        }
+
         // Load the ClusterProblem and PartitionOptimizerConfig from the JSON file
         ClusterProblem clusterProblem = null;
         PartitionOptimizerConfig partitionOptimizerConfig = null;
@@ -226,6 +312,47 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
                         .parseDouble(partitionOptimizerConfigJson.get("crossoverRate").toString());
                 final double elitismRate = Double
                         .parseDouble(partitionOptimizerConfigJson.get("elitismRate").toString());
+                final boolean canonicalLabels = getBoolean(partitionOptimizerConfigJson, "canonicalLabels", false);
+                final int evaluationParallelism = getInt(partitionOptimizerConfigJson, "evaluationParallelism", 0);
+                final int ioConcurrency = getInt(partitionOptimizerConfigJson, "ioConcurrency", 0);
+                final boolean batchEvaluation = getBoolean(partitionOptimizerConfigJson, "batchEvaluation", false);
+                final int pipelineInFlight = getInt(partitionOptimizerConfigJson, "pipelineInFlight", 0);
+                final int stagnationGenerations = getInt(partitionOptimizerConfigJson, "stagnationGenerations", 0);
+                final double stagnationTolerance = getDouble(partitionOptimizerConfigJson, "stagnationTolerance",
+                        0);
+                final long maxElapsedSeconds = getLong(partitionOptimizerConfigJson, "maxElapsedSeconds", 0);
+                final long maxEvaluations = getLong(partitionOptimizerConfigJson, "maxEvaluations", 0);
+                final double targetFitness = getDouble(partitionOptimizerConfigJson, "targetFitness", Double.NaN);
+                final int localSearchMoves = getInt(partitionOptimizerConfigJson, "localSearchMoves", 0);
+                final int localSearchEvaluations = getInt(partitionOptimizerConfigJson, "localSearchEvaluations", 0);
+                final boolean localSearchFirstImprovement = getBoolean(partitionOptimizerConfigJson,
+                        "localSearchFirstImprovement", false);
+                final boolean localSearchElites = getBoolean(partitionOptimizerConfigJson, "localSearchElites", false);
+                final String crossover = getString(partitionOptimizerConfigJson, "crossover", "interleave");
+                final String deduplication = getString(partitionOptimizerConfigJson, "deduplication", "none");
+                final String selection = getString(partitionOptimizerConfigJson, "selection", "tournament");
+                final double selectionPressure = getDouble(partitionOptimizerConfigJson, "selectionPressure", 2);
+                final long seed = getLong(partitionOptimizerConfigJson, "seed", 0);
+                final String mutationOperators = getString(partitionOptimizerConfigJson, "mutationOperators", "");
+                final int mutationK = getInt(partitionOptimizerConfigJson, "mutationK", 3);
+                final boolean adaptiveMutation = getBoolean(partitionOptimizerConfigJson, "adaptiveMutation", false);
+                final String checkpointFile = getString(partitionOptimizerConfigJson, "checkpointFile", "");
+                final int checkpointInterval = getInt(partitionOptimizerConfigJson, "checkpointInterval", 1);
+                final String initialPopulationFile = getString(partitionOptimizerConfigJson, "initialPopulationFile",
+                        "");
+                final int islands = getInt(partitionOptimizerConfigJson, "islands", 1);
+                final String migrationTopology = getString(partitionOptimizerConfigJson, "migrationTopology", "ring");
+                final int migrationInterval = getInt(partitionOptimizerConfigJson, "migrationInterval", 10);
+                final int migrants = getInt(partitionOptimizerConfigJson, "migrants", 2);
+                final String migrationPeers = getString(partitionOptimizerConfigJson, "migrationPeers", "");
+                final int migrationRank = getInt(partitionOptimizerConfigJson, "migrationRank", 0);
+                final String fitnessWorkers = getString(partitionOptimizerConfigJson, "fitnessWorkers", "");
+                final int fitnessChunkSize = getInt(partitionOptimizerConfigJson, "fitnessChunkSize", 0);
+                final int fitnessConnectTimeoutMillis = getInt(partitionOptimizerConfigJson,
+                        "fitnessConnectTimeoutMillis", RemotePartitionFitness.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+                final int fitnessReadTimeoutMillis = getInt(partitionOptimizerConfigJson, "fitnessReadTimeoutMillis",
+                        RemotePartitionFitness.DEFAULT_READ_TIMEOUT_MILLIS);
+                final String statisticsFile = getString(partitionOptimizerConfigJson, "statisticsFile", "");
                 // Create the partition optimizer config
                 partitionOptimizerConfig = new PartitionOptimizerConfig.Builder()
                         .populationSize(populationSize)
@@ -234,6 +361,42 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
                         .mutationRate(mutationRate)
                         .crossoverRate(crossoverRate)
                         .elitismRate(elitismRate)
+                        .canonicalLabels(canonicalLabels)
+                        .evaluationParallelism(evaluationParallelism)
+                        .ioConcurrency(ioConcurrency)
+                        .batchEvaluation(batchEvaluation)
+                        .pipelineInFlight(pipelineInFlight)
+                        .stagnationGenerations(stagnationGenerations)
+                        .stagnationTolerance(stagnationTolerance)
+                        .maxElapsedSeconds(maxElapsedSeconds)
+                        .maxEvaluations(maxEvaluations)
+                        .targetFitness(targetFitness)
+                        .localSearchMoves(localSearchMoves)
+                        .localSearchEvaluations(localSearchEvaluations)
+                        .localSearchFirstImprovement(localSearchFirstImprovement)
+                        .localSearchElites(localSearchElites)
+                        .crossover(crossover)
+                        .deduplication(deduplication)
+                        .selection(selection)
+                        .selectionPressure(selectionPressure)
+                        .seed(seed)
+                        .mutationOperators(mutationOperators)
+                        .mutationK(mutationK)
+                        .adaptiveMutation(adaptiveMutation)
+                        .checkpointFile(checkpointFile)
+                        .checkpointInterval(checkpointInterval)
+                        .initialPopulationFile(initialPopulationFile)
+                        .islands(islands)
+                        .migrationTopology(migrationTopology)
+                        .migrationInterval(migrationInterval)
+                        .migrants(migrants)
+                        .migrationPeers(migrationPeers)
+                        .migrationRank(migrationRank)
+                        .fitnessWorkers(fitnessWorkers)
+                        .fitnessChunkSize(fitnessChunkSize)
+                        .fitnessConnectTimeoutMillis(fitnessConnectTimeoutMillis)
+                        .fitnessReadTimeoutMillis(fitnessReadTimeoutMillis)
+                        .statisticsFile(statisticsFile)
                         .build();
             } catch (Exception e) {
                 e.printStackTrace();
@@ -249,8 +412,77 @@ public class ClusterPartitionOptimizer extends PartitionOptimizer {
 
         logger.info("Executing ClusterPartitionOptimizer");
         logger.info(clusterPartitionOptimizer.toString());
-        // Execute the optimization
-        clusterPartitionOptimizer.execute();
+        // Execute the optimization, resuming from a checkpoint if one is given
+        if (args.length > 2) {
+            clusterPartitionOptimizer.resume(Paths.get(args[2]));
+        } else {
+            clusterPartitionOptimizer.execute();
+        }
+    }
+
+    /**
+     * Get an optional boolean field from a JSON object.
+     * 
+     * @param json         JSON object
+     * @param key          field name
+     * @param defaultValue value to return if the field is absent
+     * @return the value of the field, or defaultValue if it is absent
+     */
+    private static boolean getBoolean(JSONObject json, String key, boolean defaultValue) {
+        final Object value = json.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * Get an optional int field from a JSON object.
+     * 
+     * @param json         JSON object
+     * @param key          field name
+     * @param defaultValue value to return if the field is absent
+     * @return the value of the field, or defaultValue if it is absent
+     */
+    private static int getInt(JSONObject json, String key, int defaultValue) {
+        final Object value = json.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * Get an optional long field from a JSON object.
+     * 
+     * @param json         JSON object
+     * @param key          field name
+     * @param defaultValue value to return if the field is absent
+     * @return the value of the field, or defaultValue if it is absent
+     */
+    private static long getLong(JSONObject json, String key, long defaultValue) {
+        final Object value = json.get(key);
+        return value == null ? defaultValue : Long.parseLong(value.toString());
+    }
+
+    /**
+     * Get an optional double field from a JSON object.
+     * 
+     * @param json         JSON object
+     * @param key          field name
+     * @param defaultValue value to return if the field is absent
+     * @return the value of the field, or defaultValue if it is absent
+     */
+    private static double getDouble(JSONObject json, String key, double defaultValue) {
+        final Object value = json.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value.toString());
+    }
+
+    /**
+     * Get an optional string field from a JSON object.
+     * 
+     * @param json         JSON object
+     * @param key          field name
+     * @param defaultValue value to return if the field is absent
+     * @return the value of the field, or defaultValue if it is absent
+     */
+    private static String getString(JSONObject json, String key, String defaultValue) {
+        final Object value = json.get(key);
+        return value == null ? defaultValue : value.toString();
     }
 
 }
@@ -1,6 +1,8 @@
 package com.steitz.ga;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.util.Arrays;
@@ -11,6 +13,7 @@ import org.apache.commons.math3.genetics.Chromosome;
 import org.apache.commons.math3.genetics.ElitisticListPopulation;
 import org.apache.commons.math3.genetics.FixedGenerationCount;
 import org.apache.commons.math3.genetics.GeneticAlgorithm;
+import org.apache.commons.math3.genetics.MutationPolicy;
 import org.apache.commons.math3.genetics.Population;
 import org.apache.commons.math3.genetics.StoppingCondition;
 import org.apache.commons.math3.genetics.TournamentSelection;
@@ -78,4 +81,54 @@ public class TestClusterPartitionChromosome {
         assertEquals(-15, clusterPartitionChromosome.fitness(), 1e-12);
     }
 
+    /**
+     * Mutants of IntPartitionChromosomes evaluated by ClusterPartitionFitness get
+     * their fitness from the incremental delta, which must agree with a full
+     * evaluation along a chain of mutations.
+     */
+    @Test
+    public void testIncrementalMutation() {
+        final RandomDataGenerator random = new RandomDataGenerator();
+        final double[][] points = new double[50][4];
+        for (double[] point : points) {
+            for (int k = 0; k < point.length; k++) {
+                point[k] = random.nextUniform(-10, 10);
+            }
+        }
+        final ClusterPartitionFitness fitness = new ClusterPartitionFitness(4, points);
+        for (boolean canonical : new boolean[] { false, true }) {
+            final PartitionChromosomeMutation mutation = new PartitionChromosomeMutation(fitness, canonical);
+            IntPartitionChromosome chromosome = new IntPartitionChromosome(
+                    Partition.randomPartition(points.length, 5).getPartition(), fitness);
+            // An unevaluated original, like a crossover child, is not evaluated to
+            // derive its mutant's fitness
+            assertFalse(((IntPartitionChromosome) mutation.mutate(chromosome)).isEvaluated());
+            assertFalse(chromosome.isEvaluated());
+            chromosome.fitness();
+            for (int i = 0; i < 500; i++) {
+                chromosome = (IntPartitionChromosome) mutation.mutate(chromosome);
+                assertTrue(chromosome.isEvaluated());
+                final double expected = fitness.fitness(chromosome.getRepresentation());
+                assertEquals(expected, chromosome.getFitness(), 1e-9 * Math.abs(expected));
+            }
+        }
+        // Multi-element operators other than split also derive fitness incrementally
+        for (boolean canonical : new boolean[] { false, true }) {
+            final MutationPolicy mutation = new CompositePartitionMutation(fitness, canonical, 3,
+                    CompositePartitionMutation.parseWeights("move:1,kmove:2,merge:0.2,swap:2"));
+            IntPartitionChromosome chromosome = new IntPartitionChromosome(
+                    Partition.randomPartition(points.length, 5).getPartition(), fitness);
+            // An unevaluated original, like a crossover child, is not evaluated to
+            // derive its mutant's fitness
+            assertFalse(((IntPartitionChromosome) mutation.mutate(chromosome)).isEvaluated());
+            assertFalse(chromosome.isEvaluated());
+            chromosome.fitness();
+            for (int i = 0; i < 500; i++) {
+                chromosome = (IntPartitionChromosome) mutation.mutate(chromosome);
+                assertTrue(chromosome.isEvaluated());
+                final double expected = fitness.fitness(chromosome.getRepresentation());
+                assertEquals(expected, chromosome.getFitness(), 1e-9 * Math.abs(expected));
+            }
+        }
+    }
 }
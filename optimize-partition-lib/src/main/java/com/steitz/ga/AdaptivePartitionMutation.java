@@ -0,0 +1,250 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * CompositePartitionMutation that tunes its operator probabilities and the
+ * mutation rate from the success of the mutants it produces.
+ * <p>
+ * A mutant is successful if it is fitter than the chromosome it was mutated
+ * from when that chromosome's fitness is already known (for example, when it
+ * was not crossed over or its fitness was derived incrementally), and
+ * otherwise if it is fitter than the mean of the generation its parents were
+ * selected from. Mutants whose fitness is still unknown when the generation
+ * ends, such as those replaced by duplicate elimination, are not counted.
+ * <p>
+ * At the end of each generation:
+ * <ul>
+ * <li>the mutation rate follows the 1/5th success rule: it is divided by
+ * 0.85 if more than a fifth of the mutants succeeded and multiplied by 0.85
+ * if fewer did, within [minRate, maxRate]</li>
+ * <li>operator probabilities follow probability matching: each operator's
+ * success rate is smoothed into a quality estimate, and each operator with a
+ * positive initial weight is chosen with a minimum probability plus a share
+ * of the rest proportional to its quality</li>
+ * </ul>
+ * PartitionGeneticAlgorithm calls beginGeneration and endGeneration and reads
+ * the mutation rate from getMutationRate. Outcomes are only recorded between
+ * beginGeneration and endGeneration.
+ */
+public class AdaptivePartitionMutation extends CompositePartitionMutation {
+
+    /** Success ratio targeted by the 1/5th rule */
+    private static final double TARGET_SUCCESS = 0.2;
+
+    /** Factor the mutation rate is scaled by */
+    private static final double RATE_FACTOR = 0.85;
+
+    /** Smoothing of operator quality estimates */
+    private static final double ADAPTATION = 0.3;
+
+    /** Minimum probability of each enabled operator */
+    private static final double MIN_PROBABILITY = 0.05;
+
+    /** Fitness function for PartitionChromosome mutants */
+    private final PartitionFitness fitness;
+
+    /** Whether mutants are relabeled in canonical form */
+    private final boolean canonical;
+
+    /** Initial operator weights */
+    private final double[] initialWeights;
+
+    /** Initial mutation rate */
+    private final double initialRate;
+
+    /** Smallest mutation rate */
+    private final double minRate;
+
+    /** Largest mutation rate */
+    private final double maxRate;
+
+    /** Whether each operator may be chosen, indexed by Operator ordinal */
+    private final boolean[] enabled;
+
+    /** Operator quality estimates, indexed by Operator ordinal */
+    private final double[] quality;
+
+    /** Current mutation rate */
+    private volatile double rate;
+
+    /** Mutants recorded in the current generation, or null between generations */
+    private List<Trial> trials;
+
+    /** Mean fitness of the parents of the current generation */
+    private double parentMean;
+
+    /** Success ratio of the last completed generation, NaN if none */
+    private double lastSuccessRatio = Double.NaN;
+
+    /**
+     * @param fitness   fitness function for PartitionChromosome mutants
+     * @param canonical whether to relabel mutants in canonical form
+     * @param k         number of elements moved by KMOVE
+     * @param weights   nonnegative initial operator weights, indexed by Operator
+     *                  ordinal, at least one positive; operators with weight 0
+     *                  are never chosen
+     * @param rate      initial mutation rate
+     * @param minRate   smallest mutation rate
+     * @param maxRate   largest mutation rate
+     * @throws IllegalArgumentException if the weights are not valid or the
+     *                                  rates are not 0 &lt;= minRate &lt;= rate
+     *                                  &lt;= maxRate &lt;= 1
+     */
+    public AdaptivePartitionMutation(PartitionFitness fitness, boolean canonical, int k, double[] weights,
+            double rate, double minRate, double maxRate) {
+        super(fitness, canonical, k, weights);
+        if (!(0 <= minRate && minRate <= rate && rate <= maxRate && maxRate <= 1)) {
+            throw new IllegalArgumentException("Mutation rates must satisfy 0 <= min <= rate <= max <= 1: "
+                    + minRate + ", " + rate + ", " + maxRate);
+        }
+        this.fitness = fitness;
+        this.canonical = canonical;
+        this.initialWeights = weights.clone();
+        this.initialRate = rate;
+        this.rate = rate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        quality = getProbabilities();
+        enabled = new boolean[quality.length];
+        for (int i = 0; i < quality.length; i++) {
+            enabled[i] = quality[i] > 0;
+        }
+    }
+
+    /**
+     * Create a policy with this one's initial settings and no adaptation
+     * history, for a separate population such as an island.
+     *
+     * @return a new AdaptivePartitionMutation
+     */
+    public AdaptivePartitionMutation copy() {
+        return new AdaptivePartitionMutation(fitness, canonical, getK(), initialWeights, initialRate, minRate,
+                maxRate);
+    }
+
+    /**
+     * Start recording mutants for a new generation.
+     *
+     * @param parents population the generation's parents are selected from
+     */
+    public synchronized void beginGeneration(Population parents) {
+        double sum = 0;
+        int count = 0;
+        for (Chromosome chromosome : parents) {
+            sum += chromosome.getFitness();
+            count++;
+        }
+        parentMean = count == 0 ? Double.NEGATIVE_INFINITY : sum / count;
+        trials = new ArrayList<>();
+    }
+
+    /**
+     * Stop recording and adapt the mutation rate and operator probabilities to
+     * the success of the mutants recorded since beginGeneration. Should be
+     * called after the generation has been evaluated. Does nothing if no
+     * generation was begun.
+     */
+    public synchronized void endGeneration() {
+        if (trials == null) {
+            return;
+        }
+        final int operators = quality.length;
+        final int[] attempts = new int[operators];
+        final int[] successes = new int[operators];
+        int total = 0;
+        int succeeded = 0;
+        for (Trial trial : trials) {
+            if (!trial.mutant.isEvaluated()) {
+                continue;
+            }
+            final double reference = Double.isNaN(trial.reference) ? parentMean : trial.reference;
+            final int i = trial.operator.ordinal();
+            attempts[i]++;
+            total++;
+            if (trial.mutant.fitness() > reference) {
+                successes[i]++;
+                succeeded++;
+            }
+        }
+        trials = null;
+        if (total == 0) {
+            return;
+        }
+        lastSuccessRatio = (double) succeeded / total;
+        if (lastSuccessRatio > TARGET_SUCCESS) {
+            rate = Math.min(maxRate, rate / RATE_FACTOR);
+        } else if (lastSuccessRatio < TARGET_SUCCESS) {
+            rate = Math.max(minRate, rate * RATE_FACTOR);
+        }
+        int enabledCount = 0;
+        double qualitySum = 0;
+        for (int i = 0; i < operators; i++) {
+            if (!enabled[i]) {
+                continue;
+            }
+            if (attempts[i] > 0) {
+                quality[i] += ADAPTATION * ((double) successes[i] / attempts[i] - quality[i]);
+            }
+            enabledCount++;
+            qualitySum += quality[i];
+        }
+        final double floor = Math.min(MIN_PROBABILITY, 1d / enabledCount);
+        final double[] p = new double[operators];
+        for (int i = 0; i < operators; i++) {
+            if (enabled[i]) {
+                p[i] = floor + (1 - enabledCount * floor)
+                        * (qualitySum > 0 ? quality[i] / qualitySum : 1d / enabledCount);
+            }
+        }
+        setProbabilities(p);
+    }
+
+    @Override
+    synchronized void mutated(IntPartitionChromosome original, Chromosome mutant, Operator operator) {
+        if (trials != null && mutant instanceof IntPartitionChromosome) {
+            trials.add(new Trial((IntPartitionChromosome) mutant,
+                    original.isEvaluated() ? original.fitness() : Double.NaN, operator));
+        }
+    }
+
+    /**
+     * @return the current mutation rate
+     */
+    public double getMutationRate() {
+        return rate;
+    }
+
+    /**
+     * @return the fraction of counted mutants that succeeded in the last
+     *         completed generation, or NaN if none has completed
+     */
+    public synchronized double getLastSuccessRatio() {
+        return lastSuccessRatio;
+    }
+
+    /**
+     * A recorded mutation.
+     */
+    private static final class Trial {
+
+        /** Mutant */
+        final IntPartitionChromosome mutant;
+
+        /** Fitness of the mutated chromosome, NaN if it was not known */
+        final double reference;
+
+        /** Operator applied */
+        final Operator operator;
+
+        Trial(IntPartitionChromosome mutant, double reference, Operator operator) {
+            this.mutant = mutant;
+            this.reference = reference;
+            this.operator = operator;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.steitz.ga;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+
+/**
+ * Interleaving crossover that first aligns the second parent's labels with the
+ * first parent's.
+ * <p>
+ * Labels are arbitrary, so interleaving two parents by raw label mixes
+ * unrelated pieces. This policy matches each piece of the second parent to the
+ * piece of the first parent it overlaps most, relabels the second parent
+ * accordingly and then interleaves, so corresponding pieces are mixed. Two
+ * parents that represent the same partition under different labels produce
+ * children equal to that partition.
+ * <p>
+ * Matching is greedy by decreasing overlap over the piece contingency table,
+ * with the table's cells bucket-sorted by count, so it runs in O(n + m^2) time
+ * on int arrays.
+ */
+public class AlignedPartitionCrossover extends PartitionChromosomeCrossover {
+
+    public AlignedPartitionCrossover(PartitionFitness fitness) {
+        this(fitness, false);
+    }
+
+    /**
+     * @param fitness   fitness function for PartitionChromosome children
+     * @param canonical whether to relabel children in canonical form
+     */
+    public AlignedPartitionCrossover(PartitionFitness fitness, boolean canonical) {
+        super(fitness, canonical);
+    }
+
+    /**
+     * Cross two partition chromosomes by aligning the second parent's labels with
+     * the first's and interleaving the aligned labels.
+     *
+     * @see PartitionChromosomeCrossover#interleave(int[], int[], int[], int[])
+     */
+    @Override
+    public ChromosomePair crossover(Chromosome first, Chromosome second) {
+        final int[] parent1 = labels(first);
+        final int[] parent2 = labels(second);
+        if (parent1.length != parent2.length) {
+            throw new IllegalArgumentException("List sizes must be equal.");
+        }
+        final int m1 = Partition.maxLabel(parent1) + 1;
+        final int m2 = Partition.maxLabel(parent2) + 1;
+        final int[] aligned = align(parent1, m1, parent2, m2);
+
+        final int n = parent1.length;
+        final int[] child1 = new int[n];
+        final int[] child2 = new int[n];
+        interleave(parent1, aligned, child1, child2);
+
+        final int m = Math.max(m1, m2);
+        return newChildren(first, second, relabel(child1, m), relabel(child2, m));
+    }
+
+    /**
+     * Relabel the second of two partitions so that its pieces carry the labels of
+     * the pieces of the first that they overlap most.
+     * <p>
+     * Pairs of pieces are matched greedily in order of decreasing overlap.
+     * Pieces of the second partition left unmatched take the unused labels of
+     * the first in order, and then new labels m1, m1 + 1, ...
+     *
+     * @param parent1 labels of the first partition
+     * @param m1      number of pieces of parent1
+     * @param parent2 labels of the second partition
+     * @param m2      number of pieces of parent2
+     * @return new array with the aligned labels of parent2, less than
+     *         max(m1, m2)
+     */
+    static int[] align(int[] parent1, int m1, int[] parent2, int m2) {
+        final int n = parent1.length;
+        // Contingency table: overlap[a * m2 + b] = |piece a of parent1 & piece b of parent2|
+        final int[] overlap = new int[m1 * m2];
+        for (int i = 0; i < n; i++) {
+            overlap[parent1[i] * m2 + parent2[i]]++;
+        }
+
+        // Bucket sort the nonzero cells by decreasing overlap
+        final int[] bucketStart = new int[n + 2];
+        int cells = 0;
+        for (int cell = 0; cell < overlap.length; cell++) {
+            if (overlap[cell] > 0) {
+                bucketStart[n - overlap[cell] + 1]++;
+                cells++;
+            }
+        }
+        for (int k = 1; k < bucketStart.length; k++) {
+            bucketStart[k] += bucketStart[k - 1];
+        }
+        final int[] sorted = new int[cells];
+        for (int cell = 0; cell < overlap.length; cell++) {
+            if (overlap[cell] > 0) {
+                sorted[bucketStart[n - overlap[cell]]++] = cell;
+            }
+        }
+
+        // Match greedily
+        final int[] map = new int[m2];
+        Arrays.fill(map, -1);
+        final boolean[] used = new boolean[m1];
+        for (int cell : sorted) {
+            final int a = cell / m2;
+            final int b = cell % m2;
+            if (map[b] < 0 && !used[a]) {
+                map[b] = a;
+                used[a] = true;
+            }
+        }
+        int next = 0;
+        for (int b = 0; b < m2; b++) {
+            if (map[b] < 0) {
+                while (next < m1 && used[next]) {
+                    next++;
+                }
+                map[b] = next++;
+            }
+        }
+
+        final int[] aligned = new int[n];
+        for (int i = 0; i < n; i++) {
+            aligned[i] = map[parent2[i]];
+        }
+        return aligned;
+    }
+}
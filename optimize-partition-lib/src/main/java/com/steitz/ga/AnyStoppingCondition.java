@@ -0,0 +1,49 @@
+package com.steitz.ga;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.StoppingCondition;
+
+/**
+ * Stops when any of a list of stopping conditions is satisfied.
+ * <p>
+ * Every condition is checked on every call, without short-circuiting, because
+ * conditions such as FixedGenerationCount and FitnessStagnation count calls.
+ */
+public class AnyStoppingCondition implements StoppingCondition {
+
+    /** Conditions to check */
+    private final List<StoppingCondition> conditions;
+
+    /**
+     * @param conditions conditions, any of which stops the algorithm
+     */
+    public AnyStoppingCondition(StoppingCondition... conditions) {
+        this(Arrays.asList(conditions));
+    }
+
+    /**
+     * @param conditions conditions, any of which stops the algorithm
+     */
+    public AnyStoppingCondition(List<StoppingCondition> conditions) {
+        this.conditions = List.copyOf(conditions);
+    }
+
+    @Override
+    public boolean isSatisfied(Population population) {
+        boolean satisfied = false;
+        for (StoppingCondition condition : conditions) {
+            satisfied |= condition.isSatisfied(population);
+        }
+        return satisfied;
+    }
+
+    /**
+     * @return the conditions, any of which stops the algorithm
+     */
+    public List<StoppingCondition> getConditions() {
+        return conditions;
+    }
+}
@@ -0,0 +1,31 @@
+package com.steitz.ga;
+
+/**
+ * IntPartitionFitness that can evaluate many partitions in one call.
+ * <p>
+ * Implementations override fitness(int[][]) to amortize per-call costs over a
+ * batch: process spawns, HTTP round trips, scratch allocation. The default
+ * implementation evaluates the partitions one at a time.
+ * <p>
+ * BatchPopulationEvaluator gathers the unevaluated chromosomes of a generation
+ * and passes them to fitness(int[][]) in a single call.
+ */
+public interface BatchPartitionFitness extends IntPartitionFitness {
+
+    /**
+     * Compute the fitness of each of a batch of partitions.
+     * <p>
+     * The partition arrays are chromosome representations and must not be
+     * modified.
+     *
+     * @param partitions partitions represented as arrays of ints
+     * @return array whose ith entry is the fitness of partitions[i]
+     */
+    default double[] fitness(int[][] partitions) {
+        final double[] out = new double[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            out[i] = fitness(partitions[i]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,58 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * PopulationEvaluator that evaluates each generation with one
+ * BatchPartitionFitness call per fitness function.
+ * <p>
+ * Unevaluated IntPartitionChromosomes are grouped by fitness function. Groups
+ * whose function implements BatchPartitionFitness are evaluated with a single
+ * fitness(int[][]) call and the results are stored in the chromosomes. Other
+ * chromosomes are evaluated one at a time.
+ */
+public class BatchPopulationEvaluator implements PopulationEvaluator {
+
+    @Override
+    public void evaluate(Population population) {
+        // Gather the unevaluated chromosomes of each batch fitness function
+        final Map<BatchPartitionFitness, List<IntPartitionChromosome>> batches = new IdentityHashMap<>();
+        for (Chromosome chromosome : population) {
+            if (chromosome instanceof IntPartitionChromosome) {
+                final IntPartitionChromosome intChromosome = (IntPartitionChromosome) chromosome;
+                if (intChromosome.isEvaluated()) {
+                    continue;
+                }
+                if (intChromosome.getFitnessFunction() instanceof BatchPartitionFitness) {
+                    batches.computeIfAbsent((BatchPartitionFitness) intChromosome.getFitnessFunction(),
+                            f -> new ArrayList<>()).add(intChromosome);
+                    continue;
+                }
+            }
+            chromosome.getFitness();
+        }
+
+        // Evaluate each batch in one call
+        for (Map.Entry<BatchPartitionFitness, List<IntPartitionChromosome>> batch : batches.entrySet()) {
+            final List<IntPartitionChromosome> chromosomes = batch.getValue();
+            final int[][] partitions = new int[chromosomes.size()][];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = chromosomes.get(i).getRepresentation();
+            }
+            final double[] fitness = batch.getKey().fitness(partitions);
+            if (fitness.length != partitions.length) {
+                throw new IllegalStateException(
+                        "Batch fitness returned " + fitness.length + " values for " + partitions.length + " partitions");
+            }
+            for (int i = 0; i < fitness.length; i++) {
+                chromosomes.get(i).setFitness(fitness[i]);
+            }
+        }
+    }
+}
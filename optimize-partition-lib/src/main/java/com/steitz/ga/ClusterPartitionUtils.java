@@ -2,9 +2,9 @@ package com.steitz.ga;
 
 import java.io.PrintWriter;
 import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.io.File;
 
-import org.apache.commons.math3.random.RandomDataGenerator;
 import org.apache.commons.math3.util.MathArrays;
 
 public class ClusterPartitionUtils {
@@ -23,6 +23,9 @@ public class ClusterPartitionUtils {
      * centroidSeparation should be at least 10 * sigma to ensure that centroids
      * plus deviates are the unique best solution to the clustering problem.
      * 
+     * Random values come from PartitionRandom, so seeding it makes the universe
+     * reproducible.
+     * 
      * @param clusterSize        size of each cluster
      * @param numClusters        number of clusters
      * @param centroidSeparation minimum distance between centroids
@@ -34,7 +37,7 @@ public class ClusterPartitionUtils {
     public static double[][] randomClusteredUniverse(int clusterSize, int numClusters, double centroidSeparation,
             double sigma,
             int dimension) {
-        final RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        final SplittableRandom random = PartitionRandom.current();
 
         final double[][] out = new double[numClusters * clusterSize][dimension];
 
@@ -55,7 +58,7 @@ public class ClusterPartitionUtils {
             while (!done) {
                 // Fill candidate new centroid with random values
                 for (int j = 0; j < dimension; j++) {
-                    centroids[i][j] = randomDataGenerator.nextUniform(-sepSquared, sepSquared);
+                    centroids[i][j] = random.nextDouble(-sepSquared, sepSquared);
                 }
                 // Compare centroids[i] with the other ones defined so far
                 // Reject if it is too close to any of them
@@ -107,7 +110,7 @@ public class ClusterPartitionUtils {
                 // Create deviate vector to add to centroid
                 final double[] deviate = new double[dimension];
                 for (int k = 0; k < dimension; k++) {
-                    deviate[k] = randomDataGenerator.nextGaussian(0, sigma) + centroids[i][k];
+                    deviate[k] = sigma * random.nextGaussian() + centroids[i][k];
                 }
                 out[outIndex++] = deviate;
             }
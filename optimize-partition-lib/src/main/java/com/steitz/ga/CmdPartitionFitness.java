@@ -2,80 +2,230 @@ package com.steitz.ga;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Calculate the fitness of a partition by executing a command in a bash shell
  * with the partition as csv list as argument.
- * 
+ *
  * The command should return string representation of double that is the fitness
  * of the partition.
- * 
- * Maintains a cache of computed fitness values
+ *
+ * Maintains a cache of computed fitness values keyed by partition fingerprint,
+ * so cache lookups do not need to build the command line.
+ *
+ * Batches of partitions are evaluated by running up to batchConcurrency
+ * commands at once.
  */
-public class CmdPartitionFitness implements PartitionFitness {
+public class CmdPartitionFitness implements PartitionFitness, FingerprintedPartitionFitness, BatchPartitionFitness {
     /**
      * Cache size for fitness history
      */
     protected static final int FITNESS_CACHE_SIZE = 10000;
 
     /**
-     * Cache of fitness <args, fitness> pairs where fitness is what is returned by
-     * `command "args"`
+     * Cache of fitness <fingerprint, fitness> pairs where fitness is what is
+     * returned by `command args` for the partition with the given fingerprint
      */
-    protected final Map<String, Double> fitnessCache = new ConcurrentHashMap<>();
+    protected final Map<Long, Double> fitnessCache = new ConcurrentHashMap<>();
 
     // Command to execute
     private final String command;
 
+    // Maximum number of commands running at once in a batch evaluation
+    private final int batchConcurrency;
+
     /**
-     * History
+     * Create a new CmdPartitionFitness that runs up to one command per available
+     * processor at once in batch evaluations.
      */
     public CmdPartitionFitness(String command) {
+        this(command, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new CmdPartitionFitness.
+     *
+     * @param command          command to execute
+     * @param batchConcurrency maximum number of commands running at once in a
+     *                         batch evaluation
+     */
+    public CmdPartitionFitness(String command, int batchConcurrency) {
+        if (batchConcurrency < 1) {
+            throw new IllegalArgumentException("Batch concurrency must be positive: " + batchConcurrency);
+        }
         this.command = command;
+        this.batchConcurrency = batchConcurrency;
     }
 
     /**
      * Compute fitness by executing command in a bash shell with the partition as
      * csv list as argument.
-     * 
+     *
      * Forks an OS process to execute command with partition as quoted command line
      * argument.
-     * 
+     *
      * @param partition partition to calculate fitness of
      * @return fitness of partition
      */
     @Override
     public double fitness(List<Integer> partition) {
-        // Execute command in a bash shell with space delimited list of values in
-        // partiton as command line arguments.
-        //
-        // Parse the shell output as a double and return it.
-
-        // Strip [ and ] from toString output and replace commas with spaces
-        final String args = partition.toString().replaceAll("[\\[\\]]", "").replaceAll(",", " ");
+        return fitness(Partition.toIntArray(partition));
+    }
 
+    /**
+     * Compute fitness by executing command with the partition as space delimited
+     * command line arguments, unless the fitness of a partition with the same
+     * fingerprint is cached.
+     *
+     * @param partition   partition to calculate fitness of
+     * @param fingerprint fingerprint of partition
+     * @return fitness of partition
+     */
+    @Override
+    public double fitness(int[] partition, long fingerprint) {
         // See if we have the value in cache. If so, return it.
-        final Double getCached = fitnessCache.get(command + " " + '"' + args + '"');
+        final Double getCached = fitnessCache.get(fingerprint);
         if (getCached != null) {
             return getCached;
         }
+        final double ret = readFitness(start(partition));
+        cache(fingerprint, ret);
+        return ret;
+    }
 
-        // Execute command in a bash shell with space delimited list of partition values
-        // as command-line arguments.
-        //
-        // Capture the output of the command and parse it as a double.
+    /**
+     * Compute the fitness of a batch of partitions.
+     * <p>
+     * Cached values are used where available. Each remaining distinct partition
+     * gets one process, and up to batchConcurrency processes run at once, a new
+     * one starting as soon as any finishes, so the batch takes about
+     * (misses / batchConcurrency) command latencies instead of one per miss. If
+     * a command fails, the processes still running are destroyed.
+     *
+     * @param partitions partitions to calculate fitness of
+     * @return fitness of each partition
+     */
+    @Override
+    public double[] fitness(int[][] partitions) {
+        final double[] out = new double[partitions.length];
+        final long[] fingerprints = new long[partitions.length];
+        // Index of the first partition with each uncached fingerprint
+        final Map<Long, Integer> misses = new LinkedHashMap<>();
+        for (int i = 0; i < partitions.length; i++) {
+            fingerprints[i] = PartitionFingerprint.of(partitions[i]);
+            final Double cached = fitnessCache.get(fingerprints[i]);
+            if (cached != null) {
+                out[i] = cached;
+            } else {
+                misses.putIfAbsent(fingerprints[i], i);
+            }
+        }
 
-        // OS process
-        final Process process;
-        // Output of the process
-        final StringBuilder output = new StringBuilder();
+        // Run the commands for the misses, batchConcurrency at a time
+        if (!misses.isEmpty()) {
+            runMisses(partitions, fingerprints, misses.values(), out);
+        }
+
+        // Fill in duplicates of the misses
+        for (int i = 0; i < partitions.length; i++) {
+            final Integer first = misses.get(fingerprints[i]);
+            if (first != null && first != i) {
+                out[i] = out[first];
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Run the command for each partition index in misses on a pool of
+     * batchConcurrency threads, storing and caching the results.
+     */
+    private void runMisses(int[][] partitions, long[] fingerprints, Iterable<Integer> misses, double[] out) {
+        // Processes started and not yet read, and whether the batch has failed
+        final List<Process> running = new ArrayList<>();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final ExecutorService executor = Executors.newFixedThreadPool(batchConcurrency);
+        boolean complete = false;
+        try {
+            final Map<Integer, Future<Double>> results = new LinkedHashMap<>();
+            for (int i : misses) {
+                results.put(i, executor.submit(() -> {
+                    final Process process = start(partitions[i]);
+                    synchronized (running) {
+                        if (failed.get()) {
+                            process.destroyForcibly();
+                            throw new CancellationException("Batch failed");
+                        }
+                        running.add(process);
+                    }
+                    try {
+                        return readFitness(process);
+                    } finally {
+                        synchronized (running) {
+                            running.remove(process);
+                        }
+                    }
+                }));
+            }
+            for (Map.Entry<Integer, Future<Double>> result : results.entrySet()) {
+                final int i = result.getKey();
+                out[i] = result.getValue().get();
+                cache(fingerprints[i], out[i]);
+            }
+            complete = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted running command: " + command, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to execute command: " + command, e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (!complete) {
+                synchronized (running) {
+                    failed.set(true);
+                    for (Process process : running) {
+                        process.destroyForcibly();
+                    }
+                }
+            }
+        }
+    }
 
+    /**
+     * Start the command with the partition as space delimited command line
+     * arguments.
+     */
+    private Process start(int[] partition) {
         try {
             /// Get OS process for command with args
-            process = Runtime.getRuntime().exec(command + " " + args);
+            return Runtime.getRuntime().exec(command + " " + toArgs(partition));
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to execute command: " + command);
+        }
+    }
+
+    /**
+     * Wait for a command to finish and parse its output as a double.
+     */
+    private double readFitness(Process process) {
+        // Output of the process
+        final StringBuilder output = new StringBuilder();
+        try {
             // Read command output into output
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                 String line;
@@ -88,34 +238,53 @@ public class CmdPartitionFitness implements PartitionFitness {
             e.printStackTrace();
             throw new RuntimeException("Failed to execute command: " + command);
         }
-        double ret;
         try {
             // output should be a double
-            ret = Double.parseDouble(output.toString());
+            return Double.parseDouble(output.toString());
         } catch (NumberFormatException e) {
             System.out.println(dumpFitnessCache());
             e.printStackTrace();
             throw new RuntimeException("Failed to parse output as double: " + output.toString());
         }
-        if (fitnessCache.size() == FITNESS_CACHE_SIZE) {
+    }
+
+    /**
+     * Add a fitness value to the cache, evicting an entry if it is full.
+     */
+    private void cache(long fingerprint, double fitness) {
+        if (fitnessCache.size() >= FITNESS_CACHE_SIZE) {
             // Remove the oldest entry in the fitness cache
             fitnessCache.remove(fitnessCache.keySet().iterator().next());
         }
         // Update fitness cache with new activation reccord
-        fitnessCache.put(command + " " + '"' + args + '"', ret);
-        return ret;
+        fitnessCache.put(fingerprint, fitness);
+    }
+
+    /**
+     * @param partition partition represented as an array of ints
+     * @return space delimited list of the values in partition
+     */
+    static String toArgs(int[] partition) {
+        final StringBuilder sb = new StringBuilder(partition.length * 3);
+        for (int i = 0; i < partition.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(partition[i]);
+        }
+        return sb.toString();
     }
 
     /**
      * Dump the fitness cache to a string with one entry per line.
-     * Entries are of the form "partition -> fitness"
-     * where fitness is a double and partition is a comma separated list of integers
-     * surrounded by square brackets.
+     * Entries are of the form "fingerprint -> fitness"
+     * where fitness is a double and fingerprint is the hexadecimal fingerprint
+     * of the partition.
      */
     public String dumpFitnessCache() {
         final StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String, Double> entry : fitnessCache.entrySet()) {
-            sb.append(entry.getKey()).append(" -> ").append(entry.getValue()).append("\n");
+        for (Map.Entry<Long, Double> entry : fitnessCache.entrySet()) {
+            sb.append(Long.toHexString(entry.getKey())).append(" -> ").append(entry.getValue()).append("\n");
         }
         return sb.toString();
     }
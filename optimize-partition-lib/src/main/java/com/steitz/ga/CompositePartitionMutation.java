@@ -0,0 +1,249 @@
+package com.steitz.ga;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.InvalidRepresentationException;
+import org.apache.commons.math3.genetics.MutationPolicy;
+
+/**
+ * Mutation policy that applies one of several operators, drawn at random in
+ * proportion to their weights, to each IntPartitionChromosome it mutates.
+ * <p>
+ * The operators are:
+ * <ul>
+ * <li>MOVE: move one random element to a random piece, as
+ * PartitionChromosomeMutation does</li>
+ * <li>KMOVE: move k random elements to random pieces</li>
+ * <li>SPLIT: split a random piece in two</li>
+ * <li>MERGE: merge two random pieces</li>
+ * <li>SWAP: swap two random elements in different pieces</li>
+ * </ul>
+ * Mutants are compacted, or relabeled in canonical form if the policy is
+ * canonical. If the fitness function is an IncrementalPartitionFitness, the
+ * fitness of a MOVE, KMOVE, MERGE or SWAP mutant of an evaluated original is
+ * derived from the original's by applying the changed elements as a sequence
+ * of moves instead of being evaluated. Chromosomes that are not IntPartitionChromosomes are
+ * mutated by MOVE.
+ */
+public class CompositePartitionMutation implements MutationPolicy {
+
+    /** Mutation operators */
+    public enum Operator {
+        /** Move one element to a random piece */
+        MOVE,
+        /** Move k elements to random pieces */
+        KMOVE,
+        /** Split a piece in two */
+        SPLIT,
+        /** Merge two pieces */
+        MERGE,
+        /** Swap two elements in different pieces */
+        SWAP
+    }
+
+    /** Single-element mutation, also used to relabel mutants */
+    private final PartitionChromosomeMutation move;
+
+    /** Number of elements moved by KMOVE */
+    private final int k;
+
+    /** Operator selection probabilities, indexed by Operator ordinal */
+    private volatile double[] probabilities;
+
+    /**
+     * @param fitness   fitness function for PartitionChromosome mutants
+     * @param canonical whether to relabel mutants in canonical form
+     * @param k         number of elements moved by KMOVE
+     * @param weights   nonnegative operator weights, indexed by Operator
+     *                  ordinal, at least one positive
+     * @throws IllegalArgumentException if k is not positive or the weights are
+     *                                  not valid
+     */
+    public CompositePartitionMutation(PartitionFitness fitness, boolean canonical, int k, double[] weights) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of elements to move must be positive: " + k);
+        }
+        this.move = new PartitionChromosomeMutation(fitness, canonical);
+        this.k = k;
+        setProbabilities(weights);
+    }
+
+    /**
+     * Parse operator weights of the form "move:1,kmove:0.5,swap:2". Operators
+     * that are not listed have weight 0.
+     *
+     * @param spec comma-separated operator:weight pairs, operator names in any
+     *             case
+     * @return weights indexed by Operator ordinal
+     * @throws IllegalArgumentException if an operator name is not recognized or
+     *                                  a weight is not a number
+     */
+    public static double[] parseWeights(String spec) {
+        final double[] weights = new double[Operator.values().length];
+        for (String entry : spec.split(",")) {
+            final String[] pair = entry.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Operator weight must be operator:weight: " + entry);
+            }
+            final Operator operator;
+            try {
+                operator = Operator.valueOf(pair[0].trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown mutation operator: " + pair[0].trim());
+            }
+            weights[operator.ordinal()] = Double.parseDouble(pair[1].trim());
+        }
+        return weights;
+    }
+
+    /**
+     * Mutate a chromosome with an operator drawn by weight.
+     */
+    @Override
+    public Chromosome mutate(Chromosome original) throws InvalidRepresentationException {
+        if (!(original instanceof IntPartitionChromosome)) {
+            return move.mutate(original);
+        }
+        final IntPartitionChromosome chromosome = (IntPartitionChromosome) original;
+        final Operator operator = choose();
+        final Chromosome mutant = mutate(chromosome, operator);
+        mutated(chromosome, mutant, operator);
+        return mutant;
+    }
+
+    /**
+     * Mutate a chromosome with the given operator.
+     *
+     * @param chromosome chromosome to mutate
+     * @param operator   operator to apply
+     * @return mutant
+     */
+    Chromosome mutate(IntPartitionChromosome chromosome, Operator operator) {
+        if (operator == Operator.MOVE) {
+            return move.mutate(chromosome);
+        }
+        final int[] original = chromosome.getRepresentation();
+        final int[] representation = original.clone();
+        final int m = Partition.maxLabel(representation) + 1;
+        int bound = m;
+        switch (operator) {
+            case KMOVE:
+                PartitionChromosomeMutation.moveK(representation, m, k);
+                break;
+            case SPLIT:
+                bound = PartitionChromosomeMutation.split(representation, m);
+                break;
+            case MERGE:
+                PartitionChromosomeMutation.merge(representation, m);
+                break;
+            case SWAP:
+                PartitionChromosomeMutation.swap(representation);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected operator: " + operator);
+        }
+        // SPLIT uses a label the parent's state does not know, and an
+        // unevaluated parent has no fitness to derive from
+        IncrementalPartitionFitness.PieceState state = bound == m && chromosome.isEvaluated()
+                ? chromosome.pieceState()
+                : null;
+        double fitness = 0;
+        if (state != null) {
+            // Replay the changed elements as single moves
+            fitness = chromosome.fitness();
+            for (int i = 0; i < representation.length; i++) {
+                if (representation[i] != original[i]) {
+                    fitness += state.delta(i, original[i], representation[i]);
+                    state = state.move(i, original[i], representation[i]);
+                }
+            }
+        }
+        final boolean relabeled = move.relabel(representation, bound);
+        final IntPartitionChromosome mutant = chromosome.newChromosome(representation);
+        if (state != null) {
+            mutant.setFitness(fitness);
+            if (!relabeled) {
+                mutant.setPieceState(state);
+            }
+        }
+        return mutant;
+    }
+
+    /**
+     * Called after each IntPartitionChromosome is mutated. Does nothing here;
+     * adaptive subclasses record the outcome.
+     *
+     * @param original chromosome that was mutated
+     * @param mutant   mutant
+     * @param operator operator applied
+     */
+    void mutated(IntPartitionChromosome original, Chromosome mutant, Operator operator) {
+    }
+
+    /**
+     * @return an operator drawn at random by probability
+     */
+    private Operator choose() {
+        final double[] p = probabilities;
+        double u = PartitionRandom.nextDouble();
+        final Operator[] operators = Operator.values();
+        int last = 0;
+        for (int i = 0; i < p.length; i++) {
+            if (p[i] > 0) {
+                last = i;
+                u -= p[i];
+                if (u < 0) {
+                    return operators[i];
+                }
+            }
+        }
+        // Rounding left u slightly positive
+        return operators[last];
+    }
+
+    /**
+     * Replace the operator selection probabilities with normalized weights.
+     *
+     * @param weights nonnegative weights indexed by Operator ordinal, at least
+     *                one positive
+     * @throws IllegalArgumentException if the weights are not valid
+     */
+    void setProbabilities(double[] weights) {
+        if (weights.length != Operator.values().length) {
+            throw new IllegalArgumentException("Expected " + Operator.values().length + " operator weights: "
+                    + weights.length);
+        }
+        double sum = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Operator weights must be finite and nonnegative: "
+                        + Arrays.toString(weights));
+            }
+            sum += weight;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("At least one operator weight must be positive");
+        }
+        final double[] p = new double[weights.length];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = weights[i] / sum;
+        }
+        probabilities = p;
+    }
+
+    /**
+     * @return a copy of the operator selection probabilities, indexed by
+     *         Operator ordinal
+     */
+    public double[] getProbabilities() {
+        return probabilities.clone();
+    }
+
+    /**
+     * @return the number of elements moved by KMOVE
+     */
+    public int getK() {
+        return k;
+    }
+}
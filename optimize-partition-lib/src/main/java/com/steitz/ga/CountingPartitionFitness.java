@@ -0,0 +1,113 @@
+package com.steitz.ga;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps an IntPartitionFitness and counts the partitions it evaluates.
+ * <p>
+ * The wrapper passes fingerprints and batches through to the wrapped function
+ * when it can use them, so wrapping does not change how partitions are
+ * evaluated. It asks for fingerprints only if the wrapped function uses them,
+ * so chromosomes do not hash partitions for functions that ignore the hash. A
+ * batch of k partitions counts as k evaluations and an incremental delta counts
+ * as one evaluation.
+ *
+ * @see FixedEvaluationCount
+ */
+public class CountingPartitionFitness
+        implements FingerprintedPartitionFitness, BatchPartitionFitness, IncrementalPartitionFitness {
+
+    /** Wrapped fitness function */
+    private final IntPartitionFitness fitness;
+
+    /** Number of partitions evaluated */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * @param fitness fitness function to count evaluations of
+     */
+    public CountingPartitionFitness(IntPartitionFitness fitness) {
+        this.fitness = fitness;
+    }
+
+    @Override
+    public double fitness(int[] partition) {
+        count.incrementAndGet();
+        return fitness.fitness(partition);
+    }
+
+    @Override
+    public double fitness(int[] partition, long fingerprint) {
+        if (fitness instanceof FingerprintedPartitionFitness) {
+            count.incrementAndGet();
+            return ((FingerprintedPartitionFitness) fitness).fitness(partition, fingerprint);
+        }
+        return fitness(partition);
+    }
+
+    @Override
+    public boolean usesFingerprint() {
+        return fitness instanceof FingerprintedPartitionFitness
+                && ((FingerprintedPartitionFitness) fitness).usesFingerprint();
+    }
+
+    @Override
+    public double[] fitness(int[][] partitions) {
+        if (fitness instanceof BatchPartitionFitness) {
+            count.addAndGet(partitions.length);
+            return ((BatchPartitionFitness) fitness).fitness(partitions);
+        }
+        return BatchPartitionFitness.super.fitness(partitions);
+    }
+
+    /**
+     * Build the state of the wrapped function, if it is incremental. Building a
+     * state is not counted; each delta computed from it is.
+     */
+    @Override
+    public PieceState state(int[] partition) {
+        if (fitness instanceof IncrementalPartitionFitness) {
+            final PieceState state = ((IncrementalPartitionFitness) fitness).state(partition);
+            return state == null ? null : new CountingPieceState(state);
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of partitions evaluated so far
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the wrapped fitness function
+     */
+    public IntPartitionFitness getFitness() {
+        return fitness;
+    }
+
+    /**
+     * PieceState that counts the deltas computed by a wrapped state.
+     */
+    private class CountingPieceState implements PieceState {
+
+        /** Wrapped state */
+        private final PieceState state;
+
+        CountingPieceState(PieceState state) {
+            this.state = state;
+        }
+
+        @Override
+        public double delta(int element, int from, int to) {
+            count.incrementAndGet();
+            return state.delta(element, from, to);
+        }
+
+        @Override
+        public PieceState move(int element, int from, int to) {
+            return new CountingPieceState(state.move(element, from, to));
+        }
+    }
+}
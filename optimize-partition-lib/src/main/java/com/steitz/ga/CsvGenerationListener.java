@@ -0,0 +1,83 @@
+package com.steitz.ga;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * GenerationListener that writes a CSV row per generation, with a header row:
+ * <pre>
+ * generation,population_size,best_fitness,mean_fitness,worst_fitness,evaluations,already_evaluated,
+ * evaluations_per_second,select_ns,breed_ns,evaluate_ns,wall_ns
+ * </pre>
+ * Rows are appended to a buffer without formatting and flushed after each
+ * generation, so the file can be followed while the run is in progress.
+ */
+public class CsvGenerationListener implements GenerationListener, Closeable {
+
+    /** Header row */
+    static final String HEADER = "generation,population_size,best_fitness,mean_fitness,worst_fitness,evaluations,"
+            + "already_evaluated,evaluations_per_second,select_ns,breed_ns,evaluate_ns,wall_ns";
+
+    /** Destination */
+    private final Writer out;
+
+    /** Row being built */
+    private final StringBuilder row = new StringBuilder();
+
+    /**
+     * Write to a file, replacing it if it exists.
+     *
+     * @param file CSV file
+     * @throws IOException if the file cannot be created
+     */
+    public CsvGenerationListener(Path file) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param out writer to write to; closed by close
+     * @throws IOException if the header cannot be written
+     */
+    public CsvGenerationListener(Writer out) throws IOException {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        this.out.write(HEADER);
+        this.out.write('\n');
+    }
+
+    /**
+     * @throws UncheckedIOException if the row cannot be written
+     */
+    @Override
+    public void generationEvaluated(int generation, GenerationStatistics statistics) {
+        row.setLength(0);
+        row.append(generation).append(',')
+                .append(statistics.getPopulationSize()).append(',')
+                .append(statistics.getBestFitness()).append(',')
+                .append(statistics.getMeanFitness()).append(',')
+                .append(statistics.getWorstFitness()).append(',')
+                .append(statistics.getEvaluations()).append(',')
+                .append(statistics.getAlreadyEvaluated()).append(',')
+                .append(statistics.getEvaluationsPerSecond()).append(',')
+                .append(statistics.getSelectNanos()).append(',')
+                .append(statistics.getBreedNanos()).append(',')
+                .append(statistics.getEvaluateNanos()).append(',')
+                .append(statistics.getWallNanos()).append('\n');
+        try {
+            out.append(row);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write generation statistics", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,146 @@
+package com.steitz.ga;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.MutationPolicy;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * Per-generation duplicate elimination for populations of
+ * IntPartitionChromosomes.
+ * <p>
+ * Chromosomes are keyed by the fingerprint of their canonical form, so
+ * different labelings of the same partition are duplicates. A generation is
+ * built by calling beginGeneration with the chromosomes carried over from the
+ * previous one and then passing each new child through unique, which replaces
+ * a child that duplicates one already in the generation with a mutated copy or
+ * a fresh random partition with the same number of pieces.
+ * <p>
+ * Instances keep per-generation state and must be used by one thread at a
+ * time.
+ */
+public class DuplicateElimination {
+
+    /** How duplicates are replaced */
+    public enum Replacement {
+        /** Replace a duplicate with a mutant of it that is not a duplicate */
+        MUTATED,
+        /** Replace a duplicate with a random partition */
+        RANDOM
+    }
+
+    /** Number of mutants tried before falling back to a random partition */
+    private static final int MUTATION_ATTEMPTS = 10;
+
+    /** How duplicates are replaced */
+    private final Replacement replacement;
+
+    /** Mutation policy used to replace duplicates with mutants */
+    private final MutationPolicy mutation;
+
+    /** Canonical fingerprints of the chromosomes in the current generation */
+    private final Set<Long> seen = new HashSet<>();
+
+    /** Scratch label table for canonical fingerprints */
+    private int[] scratch;
+
+    /** Number of duplicates eliminated from the current generation */
+    private int eliminated;
+
+    /** Number of duplicates eliminated since this instance was created */
+    private long totalEliminated;
+
+    /**
+     * @param replacement how duplicates are replaced
+     * @param mutation    mutation policy used to replace duplicates with mutants
+     */
+    public DuplicateElimination(Replacement replacement, MutationPolicy mutation) {
+        this.replacement = replacement;
+        this.mutation = mutation;
+    }
+
+    /**
+     * Start a new generation.
+     * <p>
+     * The chromosomes already in the generation (typically its elites) are
+     * recorded but not replaced, even if some of them are duplicates.
+     *
+     * @param carriedOver chromosomes already in the new generation
+     */
+    public void beginGeneration(Population carriedOver) {
+        seen.clear();
+        eliminated = 0;
+        for (Chromosome chromosome : carriedOver) {
+            if (chromosome instanceof IntPartitionChromosome) {
+                seen.add(fingerprint((IntPartitionChromosome) chromosome));
+            }
+        }
+    }
+
+    /**
+     * Get a chromosome to add to the current generation in place of a child.
+     *
+     * @param child child to add to the current generation
+     * @return child if it is not a duplicate or not an IntPartitionChromosome,
+     *         otherwise its replacement
+     */
+    public Chromosome unique(Chromosome child) {
+        if (!(child instanceof IntPartitionChromosome)) {
+            return child;
+        }
+        final IntPartitionChromosome chromosome = (IntPartitionChromosome) child;
+        if (seen.add(fingerprint(chromosome))) {
+            return chromosome;
+        }
+        eliminated++;
+        totalEliminated++;
+        if (replacement == Replacement.MUTATED) {
+            for (int attempt = 0; attempt < MUTATION_ATTEMPTS; attempt++) {
+                final Chromosome mutant = mutation.mutate(chromosome);
+                if (mutant instanceof IntPartitionChromosome
+                        && seen.add(fingerprint((IntPartitionChromosome) mutant))) {
+                    return mutant;
+                }
+            }
+        }
+        final int[] representation = chromosome.getRepresentation();
+        final int m = Partition.maxLabel(representation) + 1;
+        final IntPartitionChromosome random = chromosome
+                .newChromosome(Partition.randomPartition(representation.length, m).getPartition());
+        seen.add(fingerprint(random));
+        return random;
+    }
+
+    /**
+     * @return canonical fingerprint of chromosome
+     */
+    private long fingerprint(IntPartitionChromosome chromosome) {
+        final int[] representation = chromosome.getRepresentation();
+        final int m = Partition.maxLabel(representation) + 1;
+        scratch = Partition.scratch(scratch, m);
+        return PartitionFingerprint.ofCanonical(representation, m, scratch);
+    }
+
+    /**
+     * @return the number of duplicates eliminated from the current generation
+     */
+    public int getEliminated() {
+        return eliminated;
+    }
+
+    /**
+     * @return the number of duplicates eliminated since this instance was created
+     */
+    public long getTotalEliminated() {
+        return totalEliminated;
+    }
+
+    /**
+     * @return how duplicates are replaced
+     */
+    public Replacement getReplacement() {
+        return replacement;
+    }
+}
@@ -0,0 +1,174 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * PopulationEvaluator for I/O-bound fitness functions, such as
+ * CmdPartitionFitness and HttpPartitionFitness, that spend most of their time
+ * waiting on a process or a remote service.
+ * <p>
+ * Each chromosome of a generation is evaluated in its own task on an
+ * ExecutorService. Each fitness backend gets its own semaphore capping its
+ * evaluations in flight at maxConcurrency, so a backend is never sent more
+ * concurrent requests than it is configured to take, however many backends a
+ * population uses. The backend of an IntPartitionChromosome is its fitness
+ * function, seen through any CountingPartitionFitness wrapper, so each
+ * HttpPartitionFitness url and each CmdPartitionFitness command is capped
+ * separately; other chromosomes share a cap per class. A task is only
+ * submitted once its backend has a free permit, so an executor that creates
+ * threads on demand never runs more than maxConcurrency threads per backend.
+ * Chromosomes are submitted in population order, so a saturated backend
+ * delays the submission of later chromosomes.
+ * <p>
+ * virtualThreads() uses a virtual-thread-per-task executor when the runtime
+ * has one (Java 21 and later) and a cached pool of daemon platform threads
+ * otherwise.
+ */
+public class ExecutorPopulationEvaluator implements PopulationEvaluator {
+
+    /** Executor that evaluation tasks run on */
+    private final ExecutorService executor;
+
+    /** Permits for evaluations in flight, per backend */
+    private final Map<Object, Semaphore> permits = new ConcurrentHashMap<>();
+
+    /** Maximum number of evaluations in flight per backend */
+    private final int maxConcurrency;
+
+    /**
+     * Create an evaluator that runs evaluations on executor, at most
+     * maxConcurrency at a time per backend.
+     *
+     * @param executor       executor to run evaluation tasks on
+     * @param maxConcurrency maximum number of evaluations in flight per backend
+     */
+    public ExecutorPopulationEvaluator(ExecutorService executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Maximum concurrency must be positive: " + maxConcurrency);
+        }
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Create an evaluator that runs each evaluation on a virtual thread if the
+     * runtime supports them, at most maxConcurrency at a time per backend.
+     *
+     * @param maxConcurrency maximum number of evaluations in flight per backend
+     * @return population evaluator
+     */
+    public static ExecutorPopulationEvaluator virtualThreads(int maxConcurrency) {
+        return new ExecutorPopulationEvaluator(newThreadPerTaskExecutor(), maxConcurrency);
+    }
+
+    @Override
+    public void evaluate(Population population) {
+        final List<Future<?>> futures = new ArrayList<>(population.getPopulationSize());
+        for (Chromosome chromosome : population) {
+            // Wait for a permit before submitting, so no more than maxConcurrency
+            // tasks (and threads) exist at once per backend
+            final Semaphore backendPermits = permits.computeIfAbsent(backend(chromosome),
+                    b -> new Semaphore(maxConcurrency));
+            backendPermits.acquireUninterruptibly();
+            try {
+                futures.add(executor.submit(() -> {
+                    try {
+                        chromosome.getFitness();
+                    } finally {
+                        backendPermits.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                backendPermits.release();
+                throw e;
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted evaluating population", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Fitness evaluation failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Get the backend a chromosome is evaluated by, which keys its concurrency
+     * cap.
+     *
+     * @param chromosome chromosome
+     * @return the unwrapped fitness function of an IntPartitionChromosome,
+     *         otherwise the chromosome's class
+     */
+    static Object backend(Chromosome chromosome) {
+        if (!(chromosome instanceof IntPartitionChromosome)) {
+            return chromosome.getClass();
+        }
+        IntPartitionFitness fitness = ((IntPartitionChromosome) chromosome).getFitnessFunction();
+        while (fitness instanceof CountingPartitionFitness) {
+            fitness = ((CountingPartitionFitness) fitness).getFitness();
+        }
+        return fitness;
+    }
+
+    /**
+     * @return the maximum number of evaluations in flight per backend
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Shut down the executor.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Shut down the executor.
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * Get a virtual-thread-per-task executor if this runtime has one, otherwise an
+     * unbounded cached pool of daemon threads.
+     * <p>
+     * Executors.newVirtualThreadPerTaskExecutor is looked up reflectively so the
+     * library still runs on Java 17.
+     *
+     * @return executor that starts a thread per task as needed
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final AtomicInteger count = new AtomicInteger();
+            final ThreadFactory factory = runnable -> {
+                final Thread thread = new Thread(runnable, "fitness-evaluator-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.steitz.ga;
+
+/**
+ * IntPartitionFitness that can make use of a precomputed partition
+ * fingerprint, for example as a cache key.
+ * <p>
+ * Chromosomes that carry a fingerprint pass it to fitness(int[], long) instead
+ * of calling fitness(int[]), so implementations do not need to hash the
+ * partition themselves.
+ *
+ * @see PartitionFingerprint
+ */
+public interface FingerprintedPartitionFitness extends IntPartitionFitness {
+
+    /**
+     * Compute the fitness of a partition whose fingerprint is already known.
+     *
+     * @param partition   partition represented as an array of ints
+     * @param fingerprint PartitionFingerprint.of(partition)
+     * @return fitness of partition
+     */
+    double fitness(int[] partition, long fingerprint);
+
+    /**
+     * Whether fitness(int[], long) makes use of the fingerprint. Chromosomes
+     * compute the O(n) fingerprint only for functions that return true;
+     * wrappers return false when the function they wrap has no use for it.
+     *
+     * @return true if callers should pass a fingerprint
+     */
+    default boolean usesFingerprint() {
+        return true;
+    }
+
+    @Override
+    default double fitness(int[] partition) {
+        return fitness(partition, PartitionFingerprint.of(partition));
+    }
+}
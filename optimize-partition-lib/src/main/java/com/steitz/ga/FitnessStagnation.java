@@ -0,0 +1,64 @@
+package com.steitz.ga;
+
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.StoppingCondition;
+
+/**
+ * Stops when the best fitness has not improved for a number of generations.
+ * <p>
+ * Each call to isSatisfied is one generation. The best fitness counts as
+ * improved if it exceeds the best seen so far by more than tolerance.
+ */
+public class FitnessStagnation implements StoppingCondition {
+
+    /** Number of generations without improvement to stop after */
+    private final int window;
+
+    /** Minimum increase in best fitness that counts as an improvement */
+    private final double tolerance;
+
+    /** Best fitness seen so far */
+    private double best = Double.NEGATIVE_INFINITY;
+
+    /** Number of generations since the best fitness last improved */
+    private int stagnant;
+
+    /**
+     * Create a stagnation condition.
+     *
+     * @param window    number of consecutive generations without improvement
+     *                  after which to stop
+     * @param tolerance minimum increase in best fitness that counts as an
+     *                  improvement
+     */
+    public FitnessStagnation(int window, double tolerance) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Stagnation window must be positive: " + window);
+        }
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Stagnation tolerance must be non-negative: " + tolerance);
+        }
+        this.window = window;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public boolean isSatisfied(Population population) {
+        final double fitness = population.getFittestChromosome().getFitness();
+        if (fitness > best + tolerance || best == Double.NEGATIVE_INFINITY) {
+            best = fitness;
+            stagnant = 0;
+            return false;
+        }
+        best = Math.max(best, fitness);
+        stagnant++;
+        return stagnant >= window;
+    }
+
+    /**
+     * @return the number of generations since the best fitness last improved
+     */
+    public int getStagnantGenerations() {
+        return stagnant;
+    }
+}
@@ -0,0 +1,236 @@
+package com.steitz.ga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Daemon that evaluates partitions for RemotePartitionFitness clients over TCP
+ * or a Unix domain socket.
+ * <p>
+ * Each connection is served on its own thread. A request is a SocketFrames
+ * frame holding a batch of partitions, which are evaluated in parallel on a
+ * ForkJoinPool of the given parallelism and answered with their fitness.
+ * <pre>
+ * request: int count, then count PackedPartitions
+ * reply:   byte 0, then count doubles
+ *          or byte 1, then the UTF-8 message of the fitness function's error
+ * </pre>
+ * A fitness function that throws, or a request that cannot be decoded, does
+ * not end the connection; the client gets the error instead of the batch's
+ * fitness.
+ */
+public class FitnessWorker implements Runnable, Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(FitnessWorker.class);
+
+    /** Reply status of a batch that was evaluated */
+    static final byte OK = 0;
+
+    /** Reply status of a batch whose evaluation failed */
+    static final byte ERROR = 1;
+
+    /** Listening channel */
+    private final ServerSocketChannel server;
+
+    /** Bound address */
+    private final SocketAddress address;
+
+    /** Fitness function evaluated */
+    private final IntPartitionFitness fitness;
+
+    /** Pool partitions are evaluated on */
+    private final ForkJoinPool pool;
+
+    /** Number of partitions evaluated */
+    private final AtomicLong evaluated = new AtomicLong();
+
+    /**
+     * Bind a worker to an address. A stale Unix domain socket file at the
+     * address is removed.
+     *
+     * @param address     address to listen on; a TCP port of 0 picks a free port
+     * @param fitness     fitness function to evaluate; it is called from several
+     *                    threads at once
+     * @param parallelism number of partitions evaluated at once
+     * @throws IOException if the address cannot be bound
+     */
+    public FitnessWorker(SocketAddress address, IntPartitionFitness fitness, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.fitness = fitness;
+        this.pool = new ForkJoinPool(parallelism);
+        this.server = SocketFrames.bind(address);
+        this.address = server.getLocalAddress();
+    }
+
+    /**
+     * @return the address the worker listens on
+     */
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * @return the number of partitions evaluated
+     */
+    public long getEvaluated() {
+        return evaluated.get();
+    }
+
+    /**
+     * Run the worker on a new daemon thread.
+     *
+     * @return the thread
+     */
+    public Thread start() {
+        final Thread thread = new Thread(this, "fitness-worker");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Accept connections until the worker is closed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                final SocketChannel channel = server.accept();
+                final Thread thread = new Thread(() -> serve(channel), "fitness-worker-connection");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (ClosedChannelException e) {
+            // closed
+        } catch (IOException e) {
+            LOGGER.error("Fitness worker failed", e);
+        }
+    }
+
+    /**
+     * Stop accepting connections. Connections already accepted are served
+     * until their clients close them.
+     */
+    @Override
+    public void close() throws IOException {
+        SocketFrames.unbind(server, address);
+        pool.shutdown();
+    }
+
+    /**
+     * Answer requests on a connection until the client closes it.
+     */
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            ByteBuffer request;
+            while ((request = SocketFrames.read(channel)) != null) {
+                SocketFrames.write(channel, evaluate(request));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Fitness worker connection failed", e);
+        }
+    }
+
+    /**
+     * Evaluate a request.
+     *
+     * @param request request frame
+     * @return reply frame
+     */
+    private ByteBuffer evaluate(ByteBuffer request) {
+        final int[][] partitions;
+        try {
+            partitions = decode(request);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Malformed fitness request", e);
+            return error(e);
+        }
+        final int count = partitions.length;
+        final double[] out = new double[count];
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(i -> out[i] = fitness.fitness(partitions[i]))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(e);
+        } catch (ExecutionException e) {
+            LOGGER.warn("Fitness evaluation failed", e.getCause());
+            return error(e.getCause());
+        }
+        evaluated.addAndGet(count);
+        final ByteBuffer reply = ByteBuffer.allocate(1 + count * Double.BYTES);
+        reply.put(OK);
+        for (double value : out) {
+            reply.putDouble(value);
+        }
+        return reply.flip();
+    }
+
+    /**
+     * @param request request frame
+     * @return partitions of the request
+     * @throws RuntimeException if the frame is not a valid request
+     */
+    private static int[][] decode(ByteBuffer request) {
+        final int count = request.getInt();
+        if (count < 0 || count > request.remaining()) {
+            throw new IllegalArgumentException("Invalid partition count " + count + " in a request of "
+                    + request.limit() + " bytes");
+        }
+        final int[][] partitions = new int[count][];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = PackedPartition.readFrom(request).unpack();
+        }
+        if (request.hasRemaining()) {
+            throw new IllegalArgumentException(request.remaining() + " bytes after the last partition");
+        }
+        return partitions;
+    }
+
+    private static ByteBuffer error(Throwable cause) {
+        final byte[] message = String.valueOf(cause).getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + message.length).put(ERROR).put(message).flip();
+    }
+
+    /**
+     * Run a worker until the JVM is stopped.
+     *
+     * @param args address ("host:port" or "unix:path"), the name of an
+     *             IntPartitionFitness or PartitionFitness class with a public
+     *             no-argument constructor, and optionally the parallelism
+     *             (default: available processors)
+     * @throws Exception if the fitness class cannot be instantiated or the
+     *                   address cannot be bound
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: FitnessWorker <host:port | unix:path> <fitness class> [parallelism]");
+            System.exit(1);
+        }
+        final Object instance = Class.forName(args[1]).getDeclaredConstructor().newInstance();
+        final IntPartitionFitness fitness = instance instanceof IntPartitionFitness
+                ? (IntPartitionFitness) instance
+                : PartitionFitnessAdapter.adapt((PartitionFitness) instance);
+        final int parallelism = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        final FitnessWorker worker = new FitnessWorker(SocketMigrationTransport.parseAddress(args[0]), fitness,
+                parallelism);
+        LOGGER.info("Fitness worker listening on " + worker.getAddress());
+        worker.run();
+    }
+}
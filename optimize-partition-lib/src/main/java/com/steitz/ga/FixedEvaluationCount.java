@@ -0,0 +1,40 @@
+package com.steitz.ga;
+
+import java.util.function.LongSupplier;
+
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.StoppingCondition;
+
+/**
+ * Stops once a number of fitness evaluations have been made.
+ * <p>
+ * The evaluation count comes from a supplier, typically
+ * CountingPartitionFitness::getCount for the fitness function shared by the
+ * population. The generation that crosses the budget is completed, so the
+ * final count can exceed the budget by up to one generation.
+ */
+public class FixedEvaluationCount implements StoppingCondition {
+
+    /** Number of evaluations made so far */
+    private final LongSupplier evaluationCount;
+
+    /** Number of evaluations to stop after */
+    private final long maxEvaluations;
+
+    /**
+     * @param evaluationCount supplier of the number of evaluations made so far
+     * @param maxEvaluations  number of evaluations to stop after
+     */
+    public FixedEvaluationCount(LongSupplier evaluationCount, long maxEvaluations) {
+        if (maxEvaluations < 1) {
+            throw new IllegalArgumentException("Maximum evaluations must be positive: " + maxEvaluations);
+        }
+        this.evaluationCount = evaluationCount;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    @Override
+    public boolean isSatisfied(Population population) {
+        return evaluationCount.getAsLong() >= maxEvaluations;
+    }
+}
@@ -0,0 +1,105 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * PopulationEvaluator that evaluates the chromosomes of a population in
+ * parallel in a ForkJoinPool.
+ * <p>
+ * The population is split recursively down to single chromosomes, since a
+ * fitness evaluation is assumed to be much more expensive than a task. evaluate
+ * returns when every chromosome is evaluated, and the fitness values cached by
+ * the worker threads are visible to the caller.
+ * <p>
+ * close shuts down the pool if the evaluator created it.
+ */
+public class ForkJoinPopulationEvaluator implements PopulationEvaluator {
+
+    /** Pool to evaluate in */
+    private final ForkJoinPool pool;
+
+    /** Whether the pool was created by this evaluator */
+    private final boolean ownsPool;
+
+    /**
+     * Create an evaluator that runs in its own pool.
+     *
+     * @param parallelism number of worker threads
+     */
+    public ForkJoinPopulationEvaluator(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+    }
+
+    /**
+     * Create an evaluator that runs in the given pool, which close leaves
+     * running.
+     *
+     * @param pool pool to evaluate in
+     */
+    public ForkJoinPopulationEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    @Override
+    public void evaluate(Population population) {
+        final List<Chromosome> chromosomes = new ArrayList<>(population.getPopulationSize());
+        for (Chromosome chromosome : population) {
+            chromosomes.add(chromosome);
+        }
+        pool.invoke(new EvaluateTask(chromosomes, 0, chromosomes.size()));
+    }
+
+    /**
+     * Shut down the pool if this evaluator created it.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return the pool that chromosomes are evaluated in
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Evaluate chromosomes[start, end)
+     */
+    private static final class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Chromosome> chromosomes;
+        private final int start;
+        private final int end;
+
+        EvaluateTask(List<Chromosome> chromosomes, int start, int end) {
+            this.chromosomes = chromosomes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1) {
+                if (end > start) {
+                    chromosomes.get(start).getFitness();
+                }
+                return;
+            }
+            final int mid = (start + end) >>> 1;
+            invokeAll(new EvaluateTask(chromosomes, start, mid), new EvaluateTask(chromosomes, mid, end));
+        }
+    }
+}
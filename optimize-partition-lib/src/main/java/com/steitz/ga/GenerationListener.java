@@ -0,0 +1,20 @@
+package com.steitz.ga;
+
+/**
+ * Listener told about each generation evaluated by a PartitionGeneticAlgorithm
+ * or IslandGeneticAlgorithm, including the initial population.
+ * <p>
+ * Listeners are called on the thread running evolve, between generations, so
+ * a slow listener slows the run.
+ *
+ * @see CsvGenerationListener
+ */
+public interface GenerationListener {
+
+    /**
+     * @param generation number of generations evolved by the current call to
+     *                   evolve, 0 for the initial population
+     * @param statistics summary of the generation
+     */
+    void generationEvaluated(int generation, GenerationStatistics statistics);
+}
@@ -0,0 +1,272 @@
+package com.steitz.ga;
+
+import java.util.List;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * Summary of an evaluated generation, reported to GenerationListeners.
+ * <p>
+ * Evaluations are the fitness function calls made for the generation. An
+ * algorithm given an evaluation count, such as
+ * CountingPartitionFitness::getCount, takes them from its increase over the
+ * generation, which includes calls made while breeding by local search,
+ * mutation operators that score their children and duplicate elimination's
+ * replacements. Without one, they are the chromosomes the evaluator had to
+ * score. Already evaluated are the chromosomes whose fitness was known when the
+ * generation was handed to the evaluator, such as elites, mutants whose fitness
+ * was derived incrementally and children scored while breeding. Chromosomes
+ * that are not IntPartitionChromosomes are never counted as already evaluated.
+ * <p>
+ * Times are in nanoseconds. Select time is spent in the selection policy and
+ * breed time in the rest of creating the generation: crossover, mutation, local
+ * search of children and duplicate elimination, including the fitness calls
+ * they make. Evaluate time covers the evaluator and summarizing the generation,
+ * which scores any chromosomes a lazy evaluator left. Wall time is the whole
+ * generation, including work outside the three phases such as migration.
+ */
+public final class GenerationStatistics {
+
+    /** Number of chromosomes */
+    private final int populationSize;
+
+    /** Best fitness */
+    private final double bestFitness;
+
+    /** Mean fitness */
+    private final double meanFitness;
+
+    /** Worst fitness */
+    private final double worstFitness;
+
+    /** Number of fitness evaluations */
+    private final int evaluations;
+
+    /** Number of chromosomes whose fitness was known before evaluation */
+    private final int alreadyEvaluated;
+
+    /** Time spent selecting parents */
+    private final long selectNanos;
+
+    /** Time spent breeding children */
+    private final long breedNanos;
+
+    /** Time spent evaluating */
+    private final long evaluateNanos;
+
+    /** Wall time of the generation */
+    private final long wallNanos;
+
+    /**
+     * @param populationSize   number of chromosomes
+     * @param bestFitness      best fitness
+     * @param meanFitness      mean fitness
+     * @param worstFitness     worst fitness
+     * @param evaluations      number of fitness evaluations
+     * @param alreadyEvaluated number of chromosomes whose fitness was known
+     *                         before evaluation
+     * @param selectNanos      time spent selecting parents
+     * @param breedNanos       time spent breeding children
+     * @param evaluateNanos    time spent evaluating
+     * @param wallNanos        wall time of the generation
+     */
+    public GenerationStatistics(int populationSize, double bestFitness, double meanFitness, double worstFitness,
+            int evaluations, int alreadyEvaluated, long selectNanos, long breedNanos, long evaluateNanos,
+            long wallNanos) {
+        this.populationSize = populationSize;
+        this.bestFitness = bestFitness;
+        this.meanFitness = meanFitness;
+        this.worstFitness = worstFitness;
+        this.evaluations = evaluations;
+        this.alreadyEvaluated = alreadyEvaluated;
+        this.selectNanos = selectNanos;
+        this.breedNanos = breedNanos;
+        this.evaluateNanos = evaluateNanos;
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * Count the chromosomes of a population whose fitness is not yet known.
+     * Call before evaluating the population.
+     *
+     * @param population population
+     * @return number of chromosomes that are not evaluated IntPartitionChromosomes
+     */
+    public static int unevaluated(Population population) {
+        int count = 0;
+        for (Chromosome chromosome : population) {
+            if (!(chromosome instanceof IntPartitionChromosome)
+                    || !((IntPartitionChromosome) chromosome).isEvaluated()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Summarize an evaluated population.
+     *
+     * @param population    population, evaluated or left to lazy evaluation
+     * @param unevaluated   number of chromosomes that needed evaluation, from
+     *                      unevaluated
+     * @param evaluations   number of fitness evaluations
+     * @param selectNanos   time spent selecting parents
+     * @param breedNanos    time spent breeding children
+     * @param evaluateNanos time spent evaluating, not counting this summary
+     * @param start         System.nanoTime() when the generation started; the
+     *                      summary's time is added to the evaluate and wall time
+     * @return statistics of the population
+     */
+    public static GenerationStatistics summarize(Population population, int unevaluated, int evaluations,
+            long selectNanos, long breedNanos, long evaluateNanos, long start) {
+        final long summaryStart = System.nanoTime();
+        double best = Double.NEGATIVE_INFINITY;
+        double worst = Double.POSITIVE_INFINITY;
+        double sum = 0;
+        int size = 0;
+        for (Chromosome chromosome : population) {
+            final double fitness = chromosome.getFitness();
+            best = Math.max(best, fitness);
+            worst = Math.min(worst, fitness);
+            sum += fitness;
+            size++;
+        }
+        final long end = System.nanoTime();
+        return new GenerationStatistics(size, size == 0 ? Double.NaN : best, size == 0 ? Double.NaN : sum / size,
+                size == 0 ? Double.NaN : worst, evaluations, size - unevaluated, selectNanos, breedNanos,
+                evaluateNanos + end - summaryStart, end - start);
+    }
+
+    /**
+     * Combine the statistics of populations evolved side by side, such as
+     * islands. Counts and phase times are summed, so phase times are the total
+     * work of all populations and may exceed the wall time.
+     *
+     * @param parts     statistics of each population
+     * @param wallNanos wall time of the combined generation
+     * @return combined statistics
+     */
+    public static GenerationStatistics combine(List<GenerationStatistics> parts, long wallNanos) {
+        int size = 0;
+        double best = Double.NEGATIVE_INFINITY;
+        double worst = Double.POSITIVE_INFINITY;
+        double sum = 0;
+        int evaluations = 0;
+        int alreadyEvaluated = 0;
+        long select = 0;
+        long breed = 0;
+        long evaluate = 0;
+        for (GenerationStatistics part : parts) {
+            if (part.populationSize > 0) {
+                best = Math.max(best, part.bestFitness);
+                worst = Math.min(worst, part.worstFitness);
+                sum += part.meanFitness * part.populationSize;
+            }
+            size += part.populationSize;
+            evaluations += part.evaluations;
+            alreadyEvaluated += part.alreadyEvaluated;
+            select += part.selectNanos;
+            breed += part.breedNanos;
+            evaluate += part.evaluateNanos;
+        }
+        return new GenerationStatistics(size, size == 0 ? Double.NaN : best, size == 0 ? Double.NaN : sum / size,
+                size == 0 ? Double.NaN : worst, evaluations, alreadyEvaluated, select, breed, evaluate, wallNanos);
+    }
+
+    /**
+     * @param count number of fitness evaluations
+     * @return these statistics with count evaluations, for combined statistics
+     *         whose parts could not tell their evaluations apart
+     */
+    public GenerationStatistics withEvaluations(int count) {
+        return new GenerationStatistics(populationSize, bestFitness, meanFitness, worstFitness, count,
+                alreadyEvaluated, selectNanos, breedNanos, evaluateNanos, wallNanos);
+    }
+
+    /**
+     * @return the number of chromosomes in the generation
+     */
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    /**
+     * @return the best fitness, NaN if the generation is empty
+     */
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * @return the mean fitness, NaN if the generation is empty
+     */
+    public double getMeanFitness() {
+        return meanFitness;
+    }
+
+    /**
+     * @return the worst fitness, NaN if the generation is empty
+     */
+    public double getWorstFitness() {
+        return worstFitness;
+    }
+
+    /**
+     * @return the number of fitness evaluations
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the number of chromosomes whose fitness was known before the
+     *         generation was handed to the evaluator
+     */
+    public int getAlreadyEvaluated() {
+        return alreadyEvaluated;
+    }
+
+    /**
+     * @return evaluations per second of wall time
+     */
+    public double getEvaluationsPerSecond() {
+        return wallNanos == 0 ? 0 : evaluations * 1e9 / wallNanos;
+    }
+
+    /**
+     * @return nanoseconds spent selecting parents
+     */
+    public long getSelectNanos() {
+        return selectNanos;
+    }
+
+    /**
+     * @return nanoseconds spent breeding children
+     */
+    public long getBreedNanos() {
+        return breedNanos;
+    }
+
+    /**
+     * @return nanoseconds spent evaluating
+     */
+    public long getEvaluateNanos() {
+        return evaluateNanos;
+    }
+
+    /**
+     * @return wall time of the generation in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Population size: " + populationSize + ", Best fitness: " + bestFitness + ", Mean fitness: "
+                + meanFitness + ", Worst fitness: " + worstFitness + ", Evaluations: " + evaluations
+                + ", Already evaluated: " + alreadyEvaluated + ", Select ns: " + selectNanos + ", Breed ns: "
+                + breedNanos + ", Evaluate ns: " + evaluateNanos + ", Wall ns: " + wallNanos;
+    }
+}
@@ -0,0 +1,131 @@
+package com.steitz.ga;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+
+/**
+ * Grouping crossover in the spirit of Falkenauer's grouping genetic algorithm.
+ * <p>
+ * Interleaving crossover mixes parents label by label, but labels are
+ * arbitrary, so the children of two good parents rarely keep the pieces that
+ * made them good. This policy crosses pieces instead of labels: each child
+ * receives a random crossing section of whole pieces from one parent (the
+ * donor), and keeps the pieces of the other parent (the receiver) minus the
+ * elements now in injected pieces.
+ * <p>
+ * If that leaves the child with more pieces than the receiver had, the
+ * smallest of the receiver's remaining pieces are dissolved and their elements
+ * reassigned to random surviving pieces, so a child never has more pieces than
+ * the parent with more pieces.
+ */
+public class GroupingPartitionCrossover extends PartitionChromosomeCrossover {
+
+    public GroupingPartitionCrossover(PartitionFitness fitness) {
+        this(fitness, false);
+    }
+
+    /**
+     * @param fitness   fitness function for PartitionChromosome children
+     * @param canonical whether to relabel children in canonical form
+     */
+    public GroupingPartitionCrossover(PartitionFitness fitness, boolean canonical) {
+        super(fitness, canonical);
+    }
+
+    /**
+     * Cross two partition chromosomes by injecting a crossing section of the
+     * second parent's pieces into the first parent to make the first child, and
+     * vice versa for the second child.
+     */
+    @Override
+    public ChromosomePair crossover(Chromosome first, Chromosome second) {
+        final int[] parent1 = labels(first);
+        final int[] parent2 = labels(second);
+        if (parent1.length != parent2.length) {
+            throw new IllegalArgumentException("List sizes must be equal.");
+        }
+        final int m1 = Partition.maxLabel(parent1) + 1;
+        final int m2 = Partition.maxLabel(parent2) + 1;
+        final int[] child1 = inject(parent1, m1, parent2, m2);
+        final int[] child2 = inject(parent2, m2, parent1, m1);
+        return newChildren(first, second, relabel(child1, m1 + m2), relabel(child2, m1 + m2));
+    }
+
+    /**
+     * Inject a random crossing section of the donor's pieces into the receiver.
+     * <p>
+     * The crossing section is a cyclic range of between 1 and mDonor - 1 donor
+     * labels, or the donor's only piece if it has one. Injected pieces get labels
+     * 0, ..., s - 1 in the child and receiver piece r gets label s + r.
+     *
+     * @param receiver  labels of the parent that receives pieces
+     * @param mReceiver number of pieces of receiver
+     * @param donor     labels of the parent that donates pieces
+     * @param mDonor    number of pieces of donor
+     * @return labels of the child, less than mReceiver + mDonor, possibly with
+     *         empty pieces
+     */
+    static int[] inject(int[] receiver, int mReceiver, int[] donor, int mDonor) {
+        final int n = receiver.length;
+        // Choose the crossing section and map its labels to 0, ..., s - 1
+        final int s = mDonor == 1 ? 1 : 1 + PartitionRandom.nextInt(mDonor - 1);
+        final int start = PartitionRandom.nextInt(mDonor);
+        final int[] injected = new int[mDonor];
+        Arrays.fill(injected, -1);
+        for (int k = 0; k < s; k++) {
+            injected[(start + k) % mDonor] = k;
+        }
+
+        // Injected pieces take precedence over the receiver's pieces
+        final int[] child = new int[n];
+        final int[] sizes = new int[s + mReceiver];
+        for (int i = 0; i < n; i++) {
+            final int label = injected[donor[i]] >= 0 ? injected[donor[i]] : s + receiver[i];
+            child[i] = label;
+            sizes[label]++;
+        }
+
+        // Dissolve the smallest receiver pieces until at most mReceiver remain
+        int pieces = s;
+        for (int label = s; label < s + mReceiver; label++) {
+            if (sizes[label] > 0) {
+                pieces++;
+            }
+        }
+        final boolean[] dissolved = new boolean[s + mReceiver];
+        boolean dissolving = false;
+        while (pieces > mReceiver) {
+            int smallest = -1;
+            for (int label = s; label < s + mReceiver; label++) {
+                if (sizes[label] > 0 && !dissolved[label] && (smallest < 0 || sizes[label] < sizes[smallest])) {
+                    smallest = label;
+                }
+            }
+            if (smallest < 0) {
+                // Only injected pieces are left
+                break;
+            }
+            dissolved[smallest] = true;
+            dissolving = true;
+            pieces--;
+        }
+        if (dissolving) {
+            // Surviving labels, to reassign the elements of dissolved pieces to
+            final int[] survivors = new int[pieces];
+            int count = 0;
+            for (int label = 0; label < s + mReceiver; label++) {
+                if (sizes[label] > 0 && !dissolved[label]) {
+                    survivors[count++] = label;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (dissolved[child[i]]) {
+                    child[i] = survivors[PartitionRandom.nextInt(count)];
+                }
+            }
+        }
+        return child;
+    }
+}
@@ -1,20 +1,38 @@
 package com.steitz.ga;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 
 import com.google.common.util.concurrent.AtomicDouble;
 
-public class HttpPartitionFitness implements PartitionFitness {
+/**
+ * Calculate the fitness of a partition by sending a GET request to a url with
+ * the partition as query string parameter.
+ * <p>
+ * Batches of partitions are sent concurrently over a pooled asynchronous
+ * client, with up to batchConcurrency requests in flight. The client is created
+ * by the first batch and shared by the later ones until close is called.
+ */
+public class HttpPartitionFitness implements PartitionFitness, BatchPartitionFitness, Closeable {
     /**
      * Maximum number of history entries.
      */
@@ -28,14 +46,40 @@ public class HttpPartitionFitness implements PartitionFitness {
      */
     protected final Map<String, Double> history = new HashMap<String, Double>();
 
+    /**
+     * Default maximum number of requests in flight in a batch evaluation
+     */
+    protected static final int DEFAULT_BATCH_CONCURRENCY = 16;
+
     // URL to send GET request to
     private final String url;
 
+    // Maximum number of requests in flight in a batch evaluation
+    private final int batchConcurrency;
+
+    // Client for batch evaluations, null until the first batch or after close
+    private CloseableHttpAsyncClient asyncClient;
+
     /**
      * Create a new CmdPartitionFitness with the given command.
      */
     public HttpPartitionFitness(String url) {
+        this(url, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Create a new HttpPartitionFitness.
+     *
+     * @param url              url to send GET requests to
+     * @param batchConcurrency maximum number of requests in flight in a batch
+     *                         evaluation
+     */
+    public HttpPartitionFitness(String url, int batchConcurrency) {
+        if (batchConcurrency < 1) {
+            throw new IllegalArgumentException("Batch concurrency must be positive: " + batchConcurrency);
+        }
         this.url = url;
+        this.batchConcurrency = batchConcurrency;
     }
 
     /**
@@ -51,23 +95,11 @@ public class HttpPartitionFitness implements PartitionFitness {
         // parameter. URL encode the request. Parse the response body as a double and
         // return it.
 
-        // Construct the url qith the partition as a query string parameter
-        final String baseUrl = url + "?partition=";
-
-        // Encode the partition list
-        String encodedPartition = null;
-        try {
-            encodedPartition = URLEncoder.encode(partition.toString(), "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            // encoding failed - stack trace, throw RTE
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
         final AtomicDouble result = new AtomicDouble();
 
         try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
             ClassicHttpRequest httpGet = ClassicRequestBuilder
-                    .get(baseUrl + encodedPartition).build();
+                    .get(requestUrl(partition)).build();
             httpclient.execute(httpGet, response -> {
                 final InputStream contentStream = response.getEntity().getContent();
                 // Serialize the response content into a string
@@ -86,4 +118,98 @@ public class HttpPartitionFitness implements PartitionFitness {
         }
         return result.get();
     }
-}
\ No newline at end of file
+
+    @Override
+    public double fitness(int[] partition) {
+        return fitness(PartitionFitnessAdapter.asList(partition));
+    }
+
+    /**
+     * Compute the fitness of a batch of partitions by sending all of the requests
+     * over the asynchronous client, with up to batchConcurrency requests in
+     * flight, and then collecting the responses.
+     *
+     * @param partitions partitions to calculate fitness of
+     * @return fitness of each partition
+     * @throws RuntimeException if a request fails or a response does not have
+     *                          status 200
+     */
+    @Override
+    public double[] fitness(int[][] partitions) {
+        final double[] out = new double[partitions.length];
+        final CloseableHttpAsyncClient httpclient = asyncClient();
+        try {
+            // The connection pool queues requests beyond batchConcurrency
+            final List<Future<SimpleHttpResponse>> responses = new ArrayList<>(partitions.length);
+            for (int[] partition : partitions) {
+                responses.add(httpclient.execute(
+                        SimpleRequestBuilder.get(requestUrl(PartitionFitnessAdapter.asList(partition))).build(), null));
+            }
+            for (int i = 0; i < out.length; i++) {
+                final SimpleHttpResponse response = responses.get(i).get();
+                if (response.getCode() != HttpStatus.SC_OK) {
+                    throw new RuntimeException("Fitness request failed with status " + response.getCode() + ": "
+                            + response.getBodyText());
+                }
+                out[i] = Double.parseDouble(response.getBodyText());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for fitness responses", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return out;
+    }
+
+    /**
+     * Close the batch client. A later batch creates a new one.
+     */
+    @Override
+    public synchronized void close() {
+        if (asyncClient != null) {
+            asyncClient.close(CloseMode.GRACEFUL);
+            asyncClient = null;
+        }
+    }
+
+    /**
+     * Get the batch client, creating and starting it if necessary.
+     */
+    private synchronized CloseableHttpAsyncClient asyncClient() {
+        if (asyncClient == null) {
+            asyncClient = HttpAsyncClients.custom()
+                    .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                            .setMaxConnPerRoute(batchConcurrency)
+                            .setMaxConnTotal(batchConcurrency)
+                            .build())
+                    .build();
+            asyncClient.start();
+        }
+        return asyncClient;
+    }
+
+    /**
+     * Get the url for a GET request for the fitness of a partition.
+     *
+     * @param partition partition to calculate fitness of
+     * @return url with the url-encoded partition as query string parameter
+     */
+    private String requestUrl(List<Integer> partition) {
+        // Construct the url qith the partition as a query string parameter
+        final String baseUrl = url + "?partition=";
+
+        // Encode the partition list
+        String encodedPartition = null;
+        try {
+            encodedPartition = URLEncoder.encode(partition.toString(), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // encoding failed - stack trace, throw RTE
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+        return baseUrl + encodedPartition;
+    }
+}
@@ -0,0 +1,57 @@
+package com.steitz.ga;
+
+/**
+ * IntPartitionFitness that can compute the fitness change of moving a single
+ * element from one piece to another.
+ * <p>
+ * PartitionChromosomeMutation moves one element per mutant. When the parent's
+ * fitness function is incremental, the mutant's fitness is the parent's
+ * fitness plus the delta of the move, so the mutant is never evaluated from
+ * scratch. Implementations keep whatever per-piece data they need in a
+ * PieceState, which is built once per parent and carried over to mutants.
+ * <p>
+ * Deltas are computed in floating point, so a fitness derived through a chain
+ * of moves can differ from a full evaluation of the same partition by rounding
+ * error.
+ */
+public interface IncrementalPartitionFitness extends IntPartitionFitness {
+
+    /**
+     * Per-piece state of one partition.
+     * <p>
+     * States are immutable, so a parent's state can be shared by threads
+     * mutating the parent concurrently.
+     */
+    interface PieceState {
+
+        /**
+         * Compute the fitness change of moving an element to another piece.
+         *
+         * @param element index of the element to move
+         * @param from    label of the piece that contains element
+         * @param to      label of the piece to move element to
+         * @return fitness after the move minus fitness before it
+         */
+        double delta(int element, int from, int to);
+
+        /**
+         * Create the state of the partition obtained by moving an element to
+         * another piece. This state is not changed.
+         *
+         * @param element index of the element to move
+         * @param from    label of the piece that contains element
+         * @param to      label of the piece to move element to
+         * @return state of the partition after the move
+         */
+        PieceState move(int element, int from, int to);
+    }
+
+    /**
+     * Build the per-piece state of a partition.
+     *
+     * @param partition partition represented as an array of ints
+     * @return state of partition, or null if this function cannot evaluate
+     *         moves incrementally
+     */
+    PieceState state(int[] partition);
+}
@@ -0,0 +1,48 @@
+package com.steitz.ga;
+
+/**
+ * Sorting of index arrays by primitive keys, used to rank chromosomes by
+ * fitness without boxing or comparator calls.
+ */
+final class IndexSort {
+
+    private IndexSort() {
+    }
+
+    /**
+     * Sort indexes[lo..hi] in place by decreasing keys[indexes[i]].
+     *
+     * @param keys    sort key of each index
+     * @param indexes indexes into keys
+     * @param lo      first position to sort
+     * @param hi      last position to sort, inclusive
+     */
+    static void sortDescending(double[] keys, int[] indexes, int lo, int hi) {
+        while (lo < hi) {
+            final double pivot = keys[indexes[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[indexes[i]] > pivot) {
+                    i++;
+                }
+                while (keys[indexes[j]] < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int tmp = indexes[i];
+                    indexes[i++] = indexes[j];
+                    indexes[j--] = tmp;
+                }
+            }
+            // Recurse into the smaller half to bound stack depth
+            if (j - lo < hi - i) {
+                sortDescending(keys, indexes, lo, j);
+                lo = i;
+            } else {
+                sortDescending(keys, indexes, i, hi);
+                hi = j;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.steitz.ga;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+import org.apache.commons.math3.genetics.ListPopulation;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.SelectionPolicy;
+
+/**
+ * Tournament selection that draws population indexes instead of copying
+ * chromosomes.
+ * <p>
+ * commons-math TournamentSelection builds a new ListPopulation for every
+ * tournament and moves chromosome references between lists. This policy has
+ * the same semantics (each tournament draws arity distinct chromosomes and the
+ * fittest wins) but draws the contestants with a partial Fisher-Yates shuffle
+ * of a per-thread index permutation, reading the cached fitness of each
+ * contestant from the population's own chromosome list. After the permutation
+ * has been allocated for a population size, selection allocates only the
+ * returned pair.
+ * <p>
+ * The permutation is reset to the identity the first time a thread selects
+ * from a population, so the parents drawn from a generation depend only on the
+ * generation and the thread's random stream, not on earlier generations. A
+ * run resumed from a checkpoint therefore selects as the original run did.
+ */
+public class IndexTournamentSelection implements SelectionPolicy {
+
+    /** Number of chromosomes in each tournament */
+    private final int arity;
+
+    /** Per-thread permutation of population indexes */
+    private final ThreadLocal<Permutation> permutation = new ThreadLocal<>();
+
+    /**
+     * @param arity number of chromosomes in each tournament
+     */
+    public IndexTournamentSelection(int arity) {
+        if (arity < 1) {
+            throw new IllegalArgumentException("Tournament arity must be positive: " + arity);
+        }
+        this.arity = arity;
+    }
+
+    /**
+     * Select two parents, each the winner of a tournament of arity distinct
+     * chromosomes.
+     *
+     * @param population population to select from, a ListPopulation with at least
+     *                   arity chromosomes
+     * @throws IllegalArgumentException if population is not a ListPopulation or
+     *                                  has fewer than arity chromosomes
+     */
+    @Override
+    public ChromosomePair select(Population population) {
+        if (!(population instanceof ListPopulation)) {
+            throw new IllegalArgumentException("Population must be a ListPopulation");
+        }
+        final List<Chromosome> chromosomes = ((ListPopulation) population).getChromosomes();
+        final int size = chromosomes.size();
+        if (size < arity) {
+            throw new IllegalArgumentException("Tournament arity " + arity + " exceeds population size " + size);
+        }
+        final int[] indexes = indexes(population, size);
+        final SplittableRandom random = PartitionRandom.current();
+        return new ChromosomePair(tournament(chromosomes, indexes, random),
+                tournament(chromosomes, indexes, random));
+    }
+
+    /**
+     * Run one tournament.
+     *
+     * @param chromosomes chromosomes of the population
+     * @param indexes     a permutation of 0, ..., chromosomes.size() - 1; it is
+     *                    shuffled in place and remains a permutation
+     * @param random      random generator
+     * @return the fittest of arity distinct chromosomes
+     */
+    private Chromosome tournament(List<Chromosome> chromosomes, int[] indexes, SplittableRandom random) {
+        final int size = chromosomes.size();
+        Chromosome winner = null;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < arity; k++) {
+            // Swap a random index from the unused tail into position k
+            final int j = k + random.nextInt(size - k);
+            final int index = indexes[j];
+            indexes[j] = indexes[k];
+            indexes[k] = index;
+            final Chromosome contestant = chromosomes.get(index);
+            final double fitness = contestant.getFitness();
+            if (winner == null || fitness > best) {
+                winner = contestant;
+                best = fitness;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * @param population population selected from
+     * @param size       population size
+     * @return this thread's permutation of 0, ..., size - 1, the identity if
+     *         population was not the last population selected from
+     */
+    private int[] indexes(Population population, int size) {
+        Permutation current = permutation.get();
+        if (current == null || current.indexes.length != size) {
+            current = new Permutation(size);
+            permutation.set(current);
+        }
+        if (current.population != population) {
+            final int[] indexes = current.indexes;
+            for (int i = 0; i < size; i++) {
+                indexes[i] = i;
+            }
+            current.population = population;
+        }
+        return current.indexes;
+    }
+
+    /**
+     * A thread's index permutation and the population it was last used for.
+     */
+    private static final class Permutation {
+
+        /** Permutation of population indexes */
+        final int[] indexes;
+
+        /** Population last selected from */
+        Population population;
+
+        Permutation(int size) {
+            indexes = new int[size];
+        }
+    }
+
+    /**
+     * @return the number of chromosomes in each tournament
+     */
+    public int getArity() {
+        return arity;
+    }
+}
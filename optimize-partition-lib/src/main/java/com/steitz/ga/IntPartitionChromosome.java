@@ -0,0 +1,270 @@
+package com.steitz.ga;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.InvalidRepresentationException;
+
+/**
+ * Partition chromosome backed by a primitive int array.
+ * <p>
+ * PartitionChromosome stores its representation as a List of Integers, so
+ * every crossover, mutation and fitness evaluation boxes and unboxes each
+ * element. This chromosome keeps piece labels in an int[] and evaluates them
+ * with an IntPartitionFitness, so the GA hot path runs on primitive arrays.
+ * <p>
+ * Instances are immutable. The representation array is owned by the
+ * chromosome and must not be modified by callers.
+ */
+public class IntPartitionChromosome extends Chromosome {
+
+    /** Piece labels, one per element of the universe */
+    private final int[] representation;
+
+    /** Fitness function */
+    private final IntPartitionFitness fitnessFunction;
+
+    /** Cached fitness, NaN until computed */
+    private volatile double cachedFitness = Double.NaN;
+
+    /** Fingerprint of representation, valid once fingerprinted is true */
+    private volatile long fingerprint;
+
+    /** Whether fingerprint has been computed */
+    private volatile boolean fingerprinted;
+
+    /** Per-piece state for incremental fitness, null until built */
+    private volatile IncrementalPartitionFitness.PieceState pieceState;
+
+    /** Whether LocalSearch has already searched this chromosome */
+    private volatile boolean searched;
+
+    /**
+     * Create a new IntPartitionChromosome from a copy of the given
+     * representation.
+     *
+     * @param representation partition represented as an array of ints
+     * @param fitness        fitness function
+     * @throws InvalidRepresentationException if representation is not a valid
+     *                                        partition
+     */
+    public IntPartitionChromosome(int[] representation, IntPartitionFitness fitness) {
+        this(representation.clone(), fitness, true);
+    }
+
+    /**
+     * Create a chromosome that takes ownership of representation.
+     *
+     * @param representation partition represented as an array of ints, not copied
+     * @param fitness        fitness function
+     * @param validate       whether to check the validity of representation
+     */
+    IntPartitionChromosome(int[] representation, IntPartitionFitness fitness, boolean validate) {
+        if (validate) {
+            checkValidity(representation);
+        }
+        this.representation = representation;
+        this.fitnessFunction = fitness;
+    }
+
+    /**
+     * Create a new chromosome with the same fitness function as this one.
+     * <p>
+     * The new chromosome takes ownership of representation, which must be a
+     * valid partition with no empty pieces (for example, the output of
+     * Partition.getPartition()).
+     *
+     * @param representation partition represented as an array of ints
+     * @return new chromosome sharing this chromosome's fitness function
+     */
+    public IntPartitionChromosome newChromosome(int[] representation) {
+        return new IntPartitionChromosome(representation, fitnessFunction, false);
+    }
+
+    /**
+     * Create a new chromosome with the same fitness function as this one and a
+     * known fingerprint.
+     *
+     * @param representation partition represented as an array of ints
+     * @param fingerprint    PartitionFingerprint.of(representation)
+     * @return new chromosome sharing this chromosome's fitness function
+     * @see #newChromosome(int[])
+     */
+    public IntPartitionChromosome newChromosome(int[] representation, long fingerprint) {
+        final IntPartitionChromosome chromosome = newChromosome(representation);
+        chromosome.fingerprint = fingerprint;
+        chromosome.fingerprinted = true;
+        return chromosome;
+    }
+
+    /**
+     * Compute the fitness of the chromosome.
+     * <p>
+     * The value is computed at most once per chromosome (modulo benign races
+     * between threads that evaluate the same chromosome concurrently).
+     */
+    @Override
+    public double fitness() {
+        double result = cachedFitness;
+        if (Double.isNaN(result)) {
+            if (fitnessFunction instanceof FingerprintedPartitionFitness
+                    && ((FingerprintedPartitionFitness) fitnessFunction).usesFingerprint()) {
+                result = ((FingerprintedPartitionFitness) fitnessFunction).fitness(representation, getFingerprint());
+            } else {
+                result = fitnessFunction.fitness(representation);
+            }
+            cachedFitness = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the fitness of this chromosome is already known
+     */
+    public boolean isEvaluated() {
+        return !Double.isNaN(cachedFitness);
+    }
+
+    /**
+     * Set the fitness of this chromosome, computed outside of fitness(), for
+     * example by a batch evaluation.
+     *
+     * @param fitness fitness of this chromosome's representation
+     */
+    void setFitness(double fitness) {
+        cachedFitness = fitness;
+    }
+
+    /**
+     * Get the per-piece state of this chromosome's representation, building it
+     * if the fitness function is incremental.
+     *
+     * @return piece state, or null if the fitness function is not incremental
+     */
+    IncrementalPartitionFitness.PieceState pieceState() {
+        IncrementalPartitionFitness.PieceState state = pieceState;
+        if (state == null && fitnessFunction instanceof IncrementalPartitionFitness) {
+            state = ((IncrementalPartitionFitness) fitnessFunction).state(representation);
+            pieceState = state;
+        }
+        return state;
+    }
+
+    /**
+     * Set the per-piece state of this chromosome, derived from a parent's state.
+     *
+     * @param state state of this chromosome's representation
+     */
+    void setPieceState(IncrementalPartitionFitness.PieceState state) {
+        pieceState = state;
+    }
+
+    /**
+     * @return true if LocalSearch has already searched this chromosome
+     */
+    boolean isSearched() {
+        return searched;
+    }
+
+    /**
+     * Record that LocalSearch has searched this chromosome, so it is not
+     * searched again.
+     */
+    void setSearched() {
+        searched = true;
+    }
+
+    /**
+     * Get the 64-bit fingerprint of this chromosome's representation.
+     * <p>
+     * The fingerprint is computed at most once per chromosome and is inherited
+     * in O(1) by single-element mutants. It is label-invariant if the
+     * representation is in canonical form.
+     *
+     * @return PartitionFingerprint.of(getRepresentation())
+     */
+    public long getFingerprint() {
+        if (!fingerprinted) {
+            fingerprint = PartitionFingerprint.of(representation);
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return true if the fingerprint of this chromosome is already known
+     */
+    public boolean hasFingerprint() {
+        return fingerprinted;
+    }
+
+    /**
+     * Get the partition represented as an array of ints.
+     * <p>
+     * The returned array is the chromosome's own representation and must not be
+     * modified.
+     *
+     * @return piece labels, one per element of the universe
+     */
+    public int[] getRepresentation() {
+        return representation;
+    }
+
+    /**
+     * @return the size of the universe
+     */
+    public int getLength() {
+        return representation.length;
+    }
+
+    /**
+     * @return the fitness function
+     */
+    public IntPartitionFitness getFitnessFunction() {
+        return fitnessFunction;
+    }
+
+    /**
+     * Two IntPartitionChromosomes are the same if they have identical
+     * representations.
+     */
+    @Override
+    protected boolean isSame(Chromosome another) {
+        if (!(another instanceof IntPartitionChromosome)) {
+            return false;
+        }
+        return Arrays.equals(representation, ((IntPartitionChromosome) another).representation);
+    }
+
+    /**
+     * Check the validity of the chromosome representation.
+     * Values must be {0, ... , n} for some n.
+     */
+    protected void checkValidity(int[] chromosomeRepresentation) throws InvalidRepresentationException {
+        // Make sure they are all non-negative and capture the maximum value.
+        int max = 0;
+        for (int i : chromosomeRepresentation) {
+            if (i < 0) {
+                throw new IllegalArgumentException("Invalid representation: " + i);
+            }
+            if (i > max) {
+                max = i;
+            }
+        }
+        // Now verify that each value from 0 to max is present.
+        final boolean[] present = new boolean[max + 1];
+        for (int i : chromosomeRepresentation) {
+            present[i] = true;
+        }
+        for (int i = 0; i < max; i++) {
+            if (!present[i]) {
+                throw new IllegalArgumentException("Missing partition piece: " + i);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(f=%s %s)", getFitness(), Arrays.toString(representation));
+    }
+}
@@ -0,0 +1,14 @@
+package com.steitz.ga;
+
+/**
+ * Interface for calculating the fitness of a partition represented as an array
+ * of ints.
+ * <p>
+ * This is the primitive counterpart of PartitionFitness. Implementations are
+ * called with the chromosome's own label array, so they must not modify it.
+ *
+ * @see PartitionFitnessAdapter
+ */
+public interface IntPartitionFitness {
+    double fitness(int[] partition);
+}
@@ -0,0 +1,535 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.GeneticAlgorithm;
+import org.apache.commons.math3.genetics.ListPopulation;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.SelectionPolicy;
+import org.apache.commons.math3.genetics.StoppingCondition;
+import org.apache.commons.math3.genetics.TournamentSelection;
+
+/**
+ * Island-model genetic algorithm: K sub-populations evolve independently on
+ * their own threads and periodically exchange their best chromosomes.
+ * <p>
+ * Each island is a PartitionGeneticAlgorithm with its own selection,
+ * evaluation and duplicate elimination state, run on its own thread. The
+ * initial population is dealt to the islands round-robin. Islands evolve one
+ * generation each in parallel, and every migrationInterval generations each
+ * island receives copies of migrants top chromosomes from its neighbors, which
+ * replace its least fit chromosomes:
+ * <ul>
+ * <li>RING: island i receives the top chromosomes of island i - 1</li>
+ * <li>FULL: island i receives the fittest of the top chromosomes of all other
+ * islands</li>
+ * </ul>
+ * Migrations go through a MigrationTransport: a LocalMigrationTransport for
+ * islands that all run in this JVM, or a SocketMigrationTransport that
+ * exchanges emigrants with islands in other processes through a
+ * MigrationCoordinator.
+ * <p>
+ * The stopping condition and the optional checkpointer see the union of the
+ * islands, interleaved so that dealing it round-robin again restores the
+ * islands, which is how a resumed run rebuilds them.
+ * <p>
+ * Each island draws from its own PartitionRandom stream, split from the root
+ * when evolution starts and again after each checkpoint, so seeded island runs
+ * are reproducible and can be resumed like single-population runs.
+ */
+public class IslandGeneticAlgorithm extends GeneticAlgorithm {
+
+    /** Migration topologies */
+    public enum Topology {
+        /** Each island sends migrants to the next one */
+        RING,
+        /** Each island sends migrants to all others */
+        FULL;
+
+        /**
+         * Route emigrants to islands.
+         *
+         * @param <T>       type of the emigrants
+         * @param emigrants emigrants of each island, fittest first
+         * @param migrants  number of immigrants each island receives
+         * @param fitness   fitness of an emigrant
+         * @return immigrants of each island
+         */
+        public <T> List<List<T>> route(List<List<T>> emigrants, int migrants, ToDoubleFunction<T> fitness) {
+            final int k = emigrants.size();
+            final List<List<T>> immigrants = new ArrayList<>();
+            for (int i = 0; i < k; i++) {
+                if (k == 1) {
+                    immigrants.add(new ArrayList<>());
+                } else if (this == RING) {
+                    immigrants.add(emigrants.get((i + k - 1) % k));
+                } else {
+                    final List<T> candidates = new ArrayList<>();
+                    for (int j = 0; j < k; j++) {
+                        if (j != i) {
+                            candidates.addAll(emigrants.get(j));
+                        }
+                    }
+                    immigrants.add(fittest(candidates, migrants, fitness));
+                }
+            }
+            return immigrants;
+        }
+    }
+
+    /** Islands */
+    private final List<PartitionGeneticAlgorithm> islands;
+
+    /** Transport that routes emigrants to islands */
+    private final MigrationTransport transport;
+
+    /** Number of generations between migrations */
+    private final int migrationInterval;
+
+    /** Number of chromosomes each island receives per migration */
+    private final int migrants;
+
+    /** Checkpointer applied to the union of the islands, or null for none */
+    private final PopulationCheckpointer checkpointer;
+
+    /** Generation number of the initial population */
+    private final int startGeneration;
+
+    /** Number of generations evolved by the last call to evolve */
+    private int generationsEvolved;
+
+    /** Listeners told about each evaluated generation of the union */
+    private final List<GenerationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Count of fitness evaluations, or null to count chromosomes evaluated */
+    private LongSupplier evaluationCount;
+
+    /**
+     * Create an island model whose islands all run in this JVM.
+     *
+     * @param islands           algorithms evolving each island, at least two;
+     *                          they must not share stateful policies
+     * @param topology          migration topology
+     * @param migrationInterval number of generations between migrations
+     * @param migrants          number of chromosomes each island receives per
+     *                          migration
+     * @param checkpointer      checkpointer applied to the union of the islands
+     *                          after each generation, or null for none
+     * @param startGeneration   generation number of the initial population, 0
+     *                          unless resuming from a checkpoint; migrations
+     *                          happen when the generation number is a multiple
+     *                          of migrationInterval
+     * @throws IllegalArgumentException if there are fewer than two islands, the
+     *                                  interval is not positive or migrants is
+     *                                  negative
+     */
+    public IslandGeneticAlgorithm(List<PartitionGeneticAlgorithm> islands, Topology topology, int migrationInterval,
+            int migrants, PopulationCheckpointer checkpointer, int startGeneration) {
+        this(islands, new LocalMigrationTransport(topology, migrants), migrationInterval, migrants, checkpointer,
+                startGeneration);
+        if (islands.size() < 2) {
+            throw new IllegalArgumentException("An island model needs at least two islands: " + islands.size());
+        }
+    }
+
+    /**
+     * Create an island model whose migrations go through a transport, which may
+     * connect the islands of this JVM to islands in other processes.
+     *
+     * @param islands           algorithms evolving this JVM's islands, at least
+     *                          one; they must not share stateful policies
+     * @param transport         transport that routes emigrants to islands
+     * @param migrationInterval number of generations between migrations
+     * @param migrants          number of chromosomes each island sends per
+     *                          migration
+     * @param checkpointer      checkpointer applied to the union of this JVM's
+     *                          islands after each generation, or null for none
+     * @param startGeneration   generation number of the initial population, 0
+     *                          unless resuming from a checkpoint
+     * @throws IllegalArgumentException if there are no islands, the interval is
+     *                                  not positive or migrants is negative
+     */
+    public IslandGeneticAlgorithm(List<PartitionGeneticAlgorithm> islands, MigrationTransport transport,
+            int migrationInterval, int migrants, PopulationCheckpointer checkpointer, int startGeneration) {
+        super(firstIsland(islands).getCrossoverPolicy(), firstIsland(islands).getCrossoverRate(),
+                firstIsland(islands).getMutationPolicy(), firstIsland(islands).getMutationRate(),
+                firstIsland(islands).getSelectionPolicy());
+        if (migrationInterval < 1) {
+            throw new IllegalArgumentException("Migration interval must be positive: " + migrationInterval);
+        }
+        if (migrants < 0) {
+            throw new IllegalArgumentException("Number of migrants must not be negative: " + migrants);
+        }
+        this.islands = new ArrayList<>(islands);
+        this.transport = transport;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        this.checkpointer = checkpointer;
+        this.startGeneration = startGeneration;
+    }
+
+    /**
+     * @return the first island, whose policies this algorithm reports
+     * @throws IllegalArgumentException if there are no islands
+     */
+    private static PartitionGeneticAlgorithm firstIsland(List<PartitionGeneticAlgorithm> islands) {
+        if (islands.isEmpty()) {
+            throw new IllegalArgumentException("An island model needs at least one island");
+        }
+        return islands.get(0);
+    }
+
+    /**
+     * Evolve the islands until the stopping condition is satisfied by their
+     * union.
+     *
+     * @param initial   initial population, dealt to the islands round-robin
+     * @param condition stopping condition, checked once per generation
+     * @return the union of the islands that satisfies the stopping condition
+     * @throws IllegalArgumentException if an island would get fewer chromosomes
+     *                                  than its tournament selection's arity
+     */
+    @Override
+    public Population evolve(Population initial, StoppingCondition condition) {
+        final double elitismRate = initial instanceof ElitisticListPopulation
+                ? ((ElitisticListPopulation) initial).getElitismRate()
+                : 0;
+        final Population[] populations = deal(initial, elitismRate);
+        for (int i = 0; i < populations.length; i++) {
+            final int arity = arity(islands.get(i).getSelectionPolicy());
+            if (populations[i].getPopulationSize() < arity) {
+                throw new IllegalArgumentException("Island " + i + " gets " + populations[i].getPopulationSize()
+                        + " chromosomes, fewer than tournament arity " + arity);
+            }
+        }
+        final ExecutorService[] executors = newExecutors();
+        try {
+            final long start = System.nanoTime();
+            final long before = evaluationCount == null ? 0 : evaluationCount.getAsLong();
+            final int unevaluated = GenerationStatistics.unevaluated(initial);
+            SplittableRandom[] streams = newStreams();
+            runIslands(executors, i -> {
+                islands.get(i).getEvaluator().evaluate(populations[i]);
+                return populations[i];
+            }, streams, populations);
+            generationsEvolved = 0;
+            Population union = union(populations, initial.getPopulationLimit(), elitismRate);
+            if (!listeners.isEmpty()) {
+                fireGenerationEvaluated(0, GenerationStatistics.summarize(union, unevaluated,
+                        evaluationCount == null ? unevaluated : (int) (evaluationCount.getAsLong() - before), 0, 0,
+                        System.nanoTime() - start, start));
+            }
+            while (!condition.isSatisfied(union)) {
+                final long generationStart = System.nanoTime();
+                final long generationBefore = evaluationCount == null ? 0 : evaluationCount.getAsLong();
+                runIslands(executors, i -> islands.get(i).evolveGeneration(populations[i]), streams, populations);
+                generationsEvolved++;
+                final int generation = startGeneration + generationsEvolved;
+                if (migrants > 0 && generation % migrationInterval == 0) {
+                    migrate(populations, elitismRate, generation);
+                }
+                union = union(populations, initial.getPopulationLimit(), elitismRate);
+                if (checkpointer != null && checkpointer.generationEvaluated(generationsEvolved, union)) {
+                    // The checkpoint reseeded PartitionRandom, so a resumed run splits new streams here
+                    streams = newStreams();
+                }
+                if (!listeners.isEmpty()) {
+                    final List<GenerationStatistics> parts = new ArrayList<>();
+                    for (PartitionGeneticAlgorithm island : islands) {
+                        parts.add(island.getLastStatistics());
+                    }
+                    GenerationStatistics statistics = GenerationStatistics.combine(parts,
+                            System.nanoTime() - generationStart);
+                    if (evaluationCount != null) {
+                        // Islands share the count, so only the whole generation's increase is theirs
+                        statistics = statistics.withEvaluations(
+                                (int) (evaluationCount.getAsLong() - generationBefore));
+                    }
+                    fireGenerationEvaluated(generationsEvolved, statistics);
+                }
+            }
+            return union;
+        } finally {
+            for (ExecutorService executor : executors) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Tell the listeners about an evaluated generation.
+     */
+    private void fireGenerationEvaluated(int generation, GenerationStatistics statistics) {
+        for (GenerationListener listener : listeners) {
+            listener.generationEvaluated(generation, statistics);
+        }
+    }
+
+    /**
+     * Add a listener to be told about each generation of the union of the
+     * islands evolved by evolve. The statistics of a generation combine the
+     * islands' statistics from before migration, so phase times are summed
+     * over the islands.
+     *
+     * @param listener listener
+     */
+    public void addGenerationListener(GenerationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener listener to stop telling about generations
+     */
+    public void removeGenerationListener(GenerationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Count the evaluations of each generation of the union with a count of
+     * fitness function calls shared by the islands, instead of summing the
+     * chromosomes their evaluators had to score. Call before evolve.
+     *
+     * @param evaluationCount count of fitness function calls, such as
+     *                        CountingPartitionFitness::getCount, or null
+     * @see PartitionGeneticAlgorithm#setEvaluationCount
+     */
+    public void setEvaluationCount(LongSupplier evaluationCount) {
+        this.evaluationCount = evaluationCount;
+    }
+
+    /**
+     * Task run for one island.
+     */
+    private interface IslandTask {
+        /**
+         * @param island island index
+         * @return the island's new population
+         */
+        Population run(int island);
+    }
+
+    /**
+     * Run a task for every island in parallel, each on its island's thread,
+     * replacing each island's population with the task's result.
+     */
+    private void runIslands(ExecutorService[] executors, IslandTask task, SplittableRandom[] streams,
+            Population[] populations) {
+        final List<Future<Population>> futures = new ArrayList<>();
+        for (int i = 0; i < populations.length; i++) {
+            final int island = i;
+            final Callable<Population> callable = () -> {
+                PartitionRandom.setCurrent(streams[island]);
+                return task.run(island);
+            };
+            futures.add(executors[i].submit(callable));
+        }
+        try {
+            for (int i = 0; i < populations.length; i++) {
+                populations[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evolving islands", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Island evolution failed", e.getCause());
+        }
+    }
+
+    /**
+     * Deal a population to the islands round-robin. Island i's population limit
+     * is its share of initial's limit, with earlier islands taking the
+     * remainder.
+     */
+    private Population[] deal(Population initial, double elitismRate) {
+        final int k = islands.size();
+        final int limit = initial.getPopulationLimit();
+        final Population[] populations = new Population[k];
+        for (int i = 0; i < k; i++) {
+            populations[i] = new ElitisticListPopulation(limit / k + (i < limit % k ? 1 : 0), elitismRate);
+        }
+        int i = 0;
+        for (Chromosome chromosome : initial) {
+            populations[i++ % k].addChromosome(chromosome);
+        }
+        return populations;
+    }
+
+    /**
+     * @return the number of chromosomes each tournament of a tournament
+     *         selection draws, or 1 for other selection policies
+     */
+    private static int arity(SelectionPolicy selection) {
+        if (selection instanceof IndexTournamentSelection) {
+            return ((IndexTournamentSelection) selection).getArity();
+        }
+        if (selection instanceof TournamentSelection) {
+            return ((TournamentSelection) selection).getArity();
+        }
+        return 1;
+    }
+
+    /**
+     * Interleave the islands' chromosomes into one population, the inverse of
+     * deal for full islands.
+     */
+    private static Population union(Population[] populations, int limit, double elitismRate) {
+        final List<List<Chromosome>> lists = new ArrayList<>();
+        int longest = 0;
+        for (Population population : populations) {
+            final List<Chromosome> chromosomes = ((ListPopulation) population).getChromosomes();
+            lists.add(chromosomes);
+            longest = Math.max(longest, chromosomes.size());
+        }
+        final List<Chromosome> all = new ArrayList<>();
+        for (int j = 0; j < longest; j++) {
+            for (List<Chromosome> chromosomes : lists) {
+                if (j < chromosomes.size()) {
+                    all.add(chromosomes.get(j));
+                }
+            }
+        }
+        return new ElitisticListPopulation(all, Math.max(limit, all.size()), elitismRate);
+    }
+
+    /**
+     * Send the fittest chromosomes of each island through the transport and
+     * replace the least fit chromosomes of each island with its immigrants.
+     */
+    private void migrate(Population[] populations, double elitismRate, int generation) {
+        final List<List<Chromosome>> emigrants = new ArrayList<>();
+        for (Population population : populations) {
+            emigrants.add(fittest(((ListPopulation) population).getChromosomes(), migrants, Chromosome::getFitness));
+        }
+        final List<List<Chromosome>> immigrants = transport.exchange(generation, emigrants);
+        for (int i = 0; i < populations.length; i++) {
+            populations[i] = receive((ListPopulation) populations[i], immigrants.get(i), elitismRate);
+        }
+    }
+
+    /**
+     * Replace the least fit chromosomes of a population with immigrants, keeping
+     * the positions of the other chromosomes.
+     */
+    private static Population receive(ListPopulation population, List<Chromosome> immigrants,
+            double elitismRate) {
+        final List<Chromosome> chromosomes = new ArrayList<>(population.getChromosomes());
+        final int[] order = byFitness(chromosomes, Chromosome::getFitness);
+        final int count = Math.min(immigrants.size(), chromosomes.size());
+        for (int j = 0; j < count; j++) {
+            chromosomes.set(order[order.length - 1 - j], immigrants.get(j));
+        }
+        return new ElitisticListPopulation(chromosomes, population.getPopulationLimit(), elitismRate);
+    }
+
+    /**
+     * @return the count fittest of items, fittest first
+     */
+    static <T> List<T> fittest(List<T> items, int count, ToDoubleFunction<T> fitness) {
+        final int[] order = byFitness(items, fitness);
+        final List<T> out = new ArrayList<>();
+        for (int j = 0; j < Math.min(count, order.length); j++) {
+            out.add(items.get(order[j]));
+        }
+        return out;
+    }
+
+    /**
+     * @return indexes of items, fittest first
+     */
+    private static <T> int[] byFitness(List<T> items, ToDoubleFunction<T> fitness) {
+        final int size = items.size();
+        final double[] keys = new double[size];
+        final int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = fitness.applyAsDouble(items.get(i));
+            order[i] = i;
+        }
+        if (size > 1) {
+            IndexSort.sortDescending(keys, order, 0, size - 1);
+        }
+        return order;
+    }
+
+    /**
+     * @return one new PartitionRandom stream per island
+     */
+    private SplittableRandom[] newStreams() {
+        final SplittableRandom[] streams = new SplittableRandom[islands.size()];
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = PartitionRandom.newStream();
+        }
+        return streams;
+    }
+
+    /**
+     * Create one single-thread executor per island. Pinning each island to a
+     * thread keeps per-thread state, such as the permutation of an
+     * IndexTournamentSelection, with the island, so seeded runs do not depend
+     * on thread scheduling.
+     *
+     * @return an executor with one daemon thread for each island
+     */
+    private ExecutorService[] newExecutors() {
+        final ExecutorService[] executors = new ExecutorService[islands.size()];
+        for (int i = 0; i < executors.length; i++) {
+            final String name = "island-" + i;
+            executors[i] = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executors;
+    }
+
+    /**
+     * @return the number of generations evolved by the last call to evolve
+     */
+    @Override
+    public int getGenerationsEvolved() {
+        return generationsEvolved;
+    }
+
+    /**
+     * @return the islands' algorithms
+     */
+    public List<PartitionGeneticAlgorithm> getIslands() {
+        return new ArrayList<>(islands);
+    }
+
+    /**
+     * @return the transport that routes emigrants to islands
+     */
+    public MigrationTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * @return the number of generations between migrations
+     */
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    /**
+     * @return the number of chromosomes each island receives per migration
+     */
+    public int getMigrants() {
+        return migrants;
+    }
+}
@@ -0,0 +1,39 @@
+package com.steitz.ga;
+
+import java.util.List;
+
+import org.apache.commons.math3.genetics.Chromosome;
+
+/**
+ * MigrationTransport for islands that all run in this JVM. Immigrants are the
+ * emigrant chromosomes themselves, routed by topology.
+ */
+public class LocalMigrationTransport implements MigrationTransport {
+
+    /** Migration topology */
+    private final IslandGeneticAlgorithm.Topology topology;
+
+    /** Number of chromosomes each island receives per migration */
+    private final int migrants;
+
+    /**
+     * @param topology migration topology
+     * @param migrants number of chromosomes each island receives per migration
+     */
+    public LocalMigrationTransport(IslandGeneticAlgorithm.Topology topology, int migrants) {
+        this.topology = topology;
+        this.migrants = migrants;
+    }
+
+    @Override
+    public List<List<Chromosome>> exchange(int generation, List<List<Chromosome>> emigrants) {
+        return topology.route(emigrants, migrants, Chromosome::getFitness);
+    }
+
+    /**
+     * @return the migration topology
+     */
+    public IslandGeneticAlgorithm.Topology getTopology() {
+        return topology;
+    }
+}
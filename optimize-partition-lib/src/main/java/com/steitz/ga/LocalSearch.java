@@ -0,0 +1,215 @@
+package com.steitz.ga;
+
+import org.apache.commons.math3.genetics.Chromosome;
+
+/**
+ * Hill climbing on single-element relocation moves, used as the local search
+ * stage of a memetic PartitionGeneticAlgorithm.
+ * <p>
+ * A relocation move takes one element out of its piece and puts it in another
+ * existing piece. Moves that would empty a piece are not considered, so the
+ * number of pieces never changes. Best-improvement search scans all moves and
+ * applies the best one; first-improvement search applies the first improving
+ * move it finds, scanning from a random element. Either way the search repeats
+ * until no move improves fitness or the move budget is spent.
+ * <p>
+ * Moves are scored with the chromosome's IncrementalPartitionFitness state
+ * when it has one, and otherwise by evaluating the moved partition in full.
+ * Full evaluations are far more expensive than deltas, so without a state at
+ * most maxEvaluations moves are scored; by default none are, and chromosomes
+ * whose fitness function is not incremental are returned unchanged.
+ * <p>
+ * Only IntPartitionChromosomes are searched, and each at most once: the
+ * chromosomes returned by improve are marked as searched and returned
+ * unchanged if improved again, so elites carried over for several generations
+ * are not searched every generation.
+ */
+public class LocalSearch {
+
+    /** Maximum number of moves to score per chromosome */
+    private final int maxMoves;
+
+    /**
+     * Maximum number of moves to score by full evaluation per chromosome without
+     * an incremental state
+     */
+    private final int maxEvaluations;
+
+    /** Whether to apply the first improving move instead of the best one */
+    private final boolean firstImprovement;
+
+    /** Whether improved chromosomes are relabeled in canonical form */
+    private final boolean canonical;
+
+    /**
+     * Create a local search that only searches chromosomes whose fitness function
+     * is incremental.
+     *
+     * @param maxMoves         maximum number of moves to score per chromosome
+     * @param firstImprovement whether to apply the first improving move found
+     *                         instead of the best one
+     * @param canonical        whether to relabel improved chromosomes in
+     *                         canonical form
+     */
+    public LocalSearch(int maxMoves, boolean firstImprovement, boolean canonical) {
+        this(maxMoves, 0, firstImprovement, canonical);
+    }
+
+    /**
+     * @param maxMoves         maximum number of moves to score per chromosome
+     * @param maxEvaluations   maximum number of moves to score by full
+     *                         evaluation per chromosome whose fitness function
+     *                         is not incremental, or 0 to leave them unchanged
+     * @param firstImprovement whether to apply the first improving move found
+     *                         instead of the best one
+     * @param canonical        whether to relabel improved chromosomes in
+     *                         canonical form
+     */
+    public LocalSearch(int maxMoves, int maxEvaluations, boolean firstImprovement, boolean canonical) {
+        if (maxMoves < 1) {
+            throw new IllegalArgumentException("Move budget must be positive: " + maxMoves);
+        }
+        if (maxEvaluations < 0) {
+            throw new IllegalArgumentException("Evaluation budget must not be negative: " + maxEvaluations);
+        }
+        this.maxMoves = maxMoves;
+        this.maxEvaluations = maxEvaluations;
+        this.firstImprovement = firstImprovement;
+        this.canonical = canonical;
+    }
+
+    /**
+     * Improve a chromosome by hill climbing.
+     * <p>
+     * The chromosome is evaluated if it has not been already and any move can
+     * be scored. The improved chromosome shares its fitness function and
+     * carries its fitness, so it is not evaluated again.
+     *
+     * @param chromosome chromosome to improve
+     * @return improved chromosome, or chromosome itself if no move improves it,
+     *         no move can be scored, it has already been searched or it is not
+     *         an IntPartitionChromosome
+     */
+    public Chromosome improve(Chromosome chromosome) {
+        if (!(chromosome instanceof IntPartitionChromosome) || ((IntPartitionChromosome) chromosome).isSearched()) {
+            return chromosome;
+        }
+        final IntPartitionChromosome original = (IntPartitionChromosome) chromosome;
+        original.setSearched();
+        IncrementalPartitionFitness.PieceState state = original.pieceState();
+        final int budget = state != null ? maxMoves : Math.min(maxMoves, maxEvaluations);
+        if (budget == 0) {
+            return original;
+        }
+        final IntPartitionFitness function = original.getFitnessFunction();
+        final int[] labels = original.getRepresentation().clone();
+        final int n = labels.length;
+        final int m = Partition.maxLabel(labels) + 1;
+        final int[] sizes = new int[m];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        double fitness = original.fitness();
+        boolean moved = false;
+        int scored = 0;
+        while (scored < budget) {
+            double bestDelta = 0;
+            int bestElement = -1;
+            int bestPiece = -1;
+            final int start = PartitionRandom.nextInt(n);
+            search: for (int k = 0; k < n && scored < budget; k++) {
+                final int element = (start + k) % n;
+                final int from = labels[element];
+                if (sizes[from] == 1) {
+                    continue;
+                }
+                for (int to = 0; to < m && scored < budget; to++) {
+                    if (to == from) {
+                        continue;
+                    }
+                    final double delta;
+                    if (state != null) {
+                        delta = state.delta(element, from, to);
+                    } else {
+                        labels[element] = to;
+                        delta = function.fitness(labels) - fitness;
+                        labels[element] = from;
+                    }
+                    scored++;
+                    if (delta > bestDelta) {
+                        bestDelta = delta;
+                        bestElement = element;
+                        bestPiece = to;
+                        if (firstImprovement) {
+                            break search;
+                        }
+                    }
+                }
+            }
+            if (bestElement < 0) {
+                break;
+            }
+            final int from = labels[bestElement];
+            if (state != null) {
+                state = state.move(bestElement, from, bestPiece);
+            }
+            labels[bestElement] = bestPiece;
+            sizes[from]--;
+            sizes[bestPiece]++;
+            fitness += bestDelta;
+            moved = true;
+        }
+        if (!moved) {
+            return original;
+        }
+        if (canonical && relabel(labels, m)) {
+            // Piece labels changed, so the state no longer applies
+            state = null;
+        }
+        final IntPartitionChromosome improved = original.newChromosome(labels);
+        improved.setFitness(fitness);
+        improved.setSearched();
+        if (state != null) {
+            improved.setPieceState(state);
+        }
+        return improved;
+    }
+
+    /**
+     * Relabel labels in canonical form in place.
+     *
+     * @return true if any label changed
+     */
+    private static boolean relabel(int[] labels, int m) {
+        final int[] table = new int[m];
+        Partition.canonicalize(labels, m, table);
+        for (int label = 0; label < m; label++) {
+            if (table[label] != label) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the maximum number of moves scored per chromosome
+     */
+    public int getMaxMoves() {
+        return maxMoves;
+    }
+
+    /**
+     * @return the maximum number of moves scored by full evaluation per
+     *         chromosome whose fitness function is not incremental
+     */
+    public int getMaxEvaluations() {
+        return maxEvaluations;
+    }
+
+    /**
+     * @return true if the first improving move is applied instead of the best
+     */
+    public boolean isFirstImprovement() {
+        return firstImprovement;
+    }
+}
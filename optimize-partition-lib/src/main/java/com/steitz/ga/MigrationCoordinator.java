@@ -0,0 +1,277 @@
+package com.steitz.ga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.steitz.ga.IslandGeneticAlgorithm.Topology;
+import com.steitz.ga.SocketMigrationTransport.Migrant;
+
+/**
+ * Routes migrants between the islands of several processes, each connected
+ * through a SocketMigrationTransport.
+ * <p>
+ * The coordinator accepts a fixed number of processes and orders their
+ * islands by process rank, then island, into one global list of islands.
+ * Connections that send no valid hello within helloTimeoutMillis, such as port
+ * probes, or that announce a rank outside [0, processes) or a rank already
+ * taken are closed, and the coordinator keeps waiting for the missing ranks. At
+ * each migration it waits for the emigrants of every connected process, routes
+ * them along the topology over the global list, as IslandGeneticAlgorithm does
+ * within a process, and replies to each process with its islands' immigrants.
+ * A process that disconnects drops out of later migrations; the coordinator
+ * stops when all have disconnected. Migrants are forwarded in their binary
+ * form without being unpacked.
+ * <p>
+ * The coordinator can run on a thread of one of the processes, as
+ * PartitionOptimizer does for rank 0, or on its own with main.
+ */
+public class MigrationCoordinator implements Runnable, Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(MigrationCoordinator.class);
+
+    /** Default time a new connection has to send its hello */
+    static final long DEFAULT_HELLO_TIMEOUT_MILLIS = 10_000;
+
+    /** Listening channel */
+    private final ServerSocketChannel server;
+
+    /** Bound address */
+    private final SocketAddress address;
+
+    /** Number of processes to accept */
+    private final int processes;
+
+    /** Migration topology over the global island list */
+    private final Topology topology;
+
+    /** Number of migrants each island receives */
+    private final int migrants;
+
+    /** Time a new connection has to send its hello */
+    private long helloTimeoutMillis = DEFAULT_HELLO_TIMEOUT_MILLIS;
+
+    /**
+     * Bind a coordinator to an address. A stale Unix domain socket file at the
+     * address is removed.
+     *
+     * @param address   address to listen on; a TCP port of 0 picks a free port
+     * @param processes number of processes that will connect
+     * @param topology  migration topology
+     * @param migrants  number of migrants each island receives
+     * @throws IOException if the address cannot be bound
+     */
+    public MigrationCoordinator(SocketAddress address, int processes, Topology topology, int migrants)
+            throws IOException {
+        if (processes < 1) {
+            throw new IllegalArgumentException("Number of processes must be positive: " + processes);
+        }
+        if (migrants < 0) {
+            throw new IllegalArgumentException("Number of migrants must be nonnegative: " + migrants);
+        }
+        this.processes = processes;
+        this.topology = topology;
+        this.migrants = migrants;
+        server = SocketFrames.bind(address);
+        this.address = server.getLocalAddress();
+    }
+
+    /**
+     * @return the address the coordinator listens on
+     */
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * @param helloTimeoutMillis time a new connection has to send its hello
+     *                           before it is closed; set before run
+     */
+    void setHelloTimeoutMillis(long helloTimeoutMillis) {
+        this.helloTimeoutMillis = helloTimeoutMillis;
+    }
+
+    /**
+     * Run the coordinator on a new daemon thread.
+     *
+     * @return the thread
+     */
+    public Thread start() {
+        final Thread thread = new Thread(this, "migration-coordinator");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Accept the processes and route their migrants until all have
+     * disconnected, then close. Errors are logged and end the run, which
+     * disconnects every process.
+     */
+    @Override
+    public void run() {
+        final List<Peer> peers = new ArrayList<>();
+        try {
+            final boolean[] ranks = new boolean[processes];
+            while (peers.size() < processes) {
+                final Peer peer = accept(server.accept());
+                if (peer == null) {
+                    continue;
+                }
+                if (peer.rank < 0 || peer.rank >= processes || ranks[peer.rank]) {
+                    LOGGER.warn("Rejecting process with " + (peer.rank < 0 || peer.rank >= processes ? "invalid"
+                            : "duplicate") + " rank " + peer.rank);
+                    peer.channel.close();
+                    continue;
+                }
+                ranks[peer.rank] = true;
+                peers.add(peer);
+            }
+            peers.sort(Comparator.comparingInt(p -> p.rank));
+            LOGGER.info("Coordinating migration between " + processes + " processes");
+            while (!peers.isEmpty()) {
+                migrate(peers);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Migration coordinator failed", e);
+        } finally {
+            for (Peer peer : peers) {
+                closeQuietly(peer.channel);
+            }
+            closeQuietly(this);
+        }
+    }
+
+    /**
+     * Stop accepting connections, removing the Unix domain socket file if
+     * there is one.
+     */
+    @Override
+    public void close() throws IOException {
+        SocketFrames.unbind(server, address);
+    }
+
+    /**
+     * Read a process's hello, closing the connection if it sends none within
+     * helloTimeoutMillis or an invalid one.
+     *
+     * @return the process, or null if the connection was closed
+     */
+    private Peer accept(SocketChannel channel) {
+        try {
+            final ByteBuffer hello = SocketFrames.read(channel, 3 * Integer.BYTES, helloTimeoutMillis);
+            if (hello != null && hello.remaining() == 3 * Integer.BYTES
+                    && hello.getInt() == SocketMigrationTransport.MAGIC) {
+                return new Peer(channel, hello.getInt(), hello.getInt());
+            }
+            LOGGER.warn("Rejecting connection without a valid hello");
+        } catch (IOException e) {
+            LOGGER.warn("Rejecting connection whose hello failed: " + e);
+        }
+        closeQuietly(channel);
+        return null;
+    }
+
+    /**
+     * Run one migration: collect every connected process's emigrants, route
+     * them and reply. Processes that have disconnected are removed.
+     */
+    private void migrate(List<Peer> peers) throws IOException {
+        final List<List<Migrant>> emigrants = new ArrayList<>();
+        final List<Peer> senders = new ArrayList<>();
+        Integer generation = null;
+        for (Iterator<Peer> it = peers.iterator(); it.hasNext();) {
+            final Peer peer = it.next();
+            final ByteBuffer message = SocketFrames.read(peer.channel);
+            if (message == null) {
+                peer.channel.close();
+                it.remove();
+                continue;
+            }
+            final int peerGeneration = message.getInt();
+            if (generation != null && peerGeneration != generation) {
+                throw new IOException("Process " + peer.rank + " migrates at generation " + peerGeneration
+                        + ", expected " + generation);
+            }
+            generation = peerGeneration;
+            final List<List<Migrant>> islands = SocketMigrationTransport.decode(message);
+            if (islands.size() != peer.islands) {
+                throw new IOException("Process " + peer.rank + " sent " + islands.size() + " islands, expected "
+                        + peer.islands);
+            }
+            emigrants.addAll(islands);
+            senders.add(peer);
+        }
+        if (senders.isEmpty()) {
+            return;
+        }
+        final List<List<Migrant>> immigrants = topology.route(emigrants, migrants, m -> m.fitness);
+        int first = 0;
+        for (Peer peer : senders) {
+            SocketFrames.write(peer.channel,
+                    SocketMigrationTransport.encode(generation, immigrants.subList(first, first + peer.islands)));
+            first += peer.islands;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close " + closeable, e);
+        }
+    }
+
+    /**
+     * Run a coordinator until all processes have disconnected.
+     *
+     * @param args address ("host:port" or "unix:path"), number of processes,
+     *             and optionally topology ("ring" or "full", default "ring")
+     *             and number of migrants per island (default 2)
+     * @throws IOException if the address cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(
+                    "Usage: MigrationCoordinator <host:port | unix:path> <processes> [ring | full] [migrants]");
+            System.exit(1);
+        }
+        final Topology topology = args.length > 2 ? Topology.valueOf(args[2].toUpperCase(Locale.ROOT))
+                : Topology.RING;
+        final int migrants = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        new MigrationCoordinator(SocketMigrationTransport.parseAddress(args[0]), Integer.parseInt(args[1]),
+                topology, migrants).run();
+    }
+
+    /**
+     * A connected process.
+     */
+    private static final class Peer {
+
+        /** Connection */
+        final SocketChannel channel;
+
+        /** Process rank */
+        final int rank;
+
+        /** Number of islands in the process */
+        final int islands;
+
+        Peer(SocketChannel channel, int rank, int islands) {
+            this.channel = channel;
+            this.rank = rank;
+            this.islands = islands;
+        }
+    }
+}
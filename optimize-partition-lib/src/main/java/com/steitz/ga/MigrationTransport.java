@@ -0,0 +1,32 @@
+package com.steitz.ga;
+
+import java.io.Closeable;
+import java.util.List;
+
+import org.apache.commons.math3.genetics.Chromosome;
+
+/**
+ * Routes the emigrants of an IslandGeneticAlgorithm's islands to the islands
+ * that receive them, which may run in other processes.
+ */
+public interface MigrationTransport extends Closeable {
+
+    /**
+     * Exchange emigrants for immigrants. Islands of all processes taking part
+     * must call this at the same generations.
+     *
+     * @param generation generation number of the migration
+     * @param emigrants  emigrants of each of this process's islands, fittest
+     *                   first
+     * @return immigrants of each of this process's islands, fittest first, with
+     *         their fitness known
+     */
+    List<List<Chromosome>> exchange(int generation, List<List<Chromosome>> emigrants);
+
+    /**
+     * Release the transport's resources. Does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
+}
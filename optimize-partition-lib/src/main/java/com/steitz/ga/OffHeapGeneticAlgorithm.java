@@ -0,0 +1,189 @@
+package com.steitz.ga;
+
+import java.util.SplittableRandom;
+
+/**
+ * Genetic algorithm over an OffHeapPopulation.
+ * <p>
+ * Follows the same scheme as GeneticAlgorithm with ElitisticListPopulation,
+ * TournamentSelection, PartitionChromosomeCrossover and
+ * PartitionChromosomeMutation, but works on rows of the population matrix
+ * instead of chromosome objects. Each generation:
+ * <ol>
+ * <li>evaluates the rows whose fitness is not known,</li>
+ * <li>copies the fittest elitismRate fraction of rows to the next
+ * generation,</li>
+ * <li>fills the remaining rows of the next generation with children of parents
+ * chosen by tournament, crossed over with probability crossoverRate and mutated
+ * with probability mutationRate,</li>
+ * <li>swaps the generations.</li>
+ * </ol>
+ * Breeding uses a fixed set of row-length scratch arrays, so a generation
+ * allocates nothing per chromosome. A BatchPartitionFitness evaluates each
+ * generation's new rows in one call.
+ * <p>
+ * This is a standalone API: it is driven directly with an OffHeapPopulation
+ * rather than configured through PartitionOptimizer.
+ */
+public class OffHeapGeneticAlgorithm {
+
+    /** Fitness function */
+    private final IntPartitionFitness fitnessFunction;
+
+    /** Probability that parents are crossed over */
+    private final double crossoverRate;
+
+    /** Probability that a child is mutated */
+    private final double mutationRate;
+
+    /** Number of rows in each selection tournament */
+    private final int tournamentArity;
+
+    /** Fraction of the fittest rows copied unchanged to the next generation */
+    private final double elitismRate;
+
+    /** Whether children are relabeled in canonical form */
+    private final boolean canonical;
+
+    /** Number of generations evolved so far */
+    private int generationsEvolved;
+
+    /**
+     * Create an off-heap genetic algorithm.
+     *
+     * @param fitnessFunction fitness function
+     * @param crossoverRate   probability that parents are crossed over
+     * @param mutationRate    probability that a child is mutated
+     * @param tournamentArity number of rows in each selection tournament
+     * @param elitismRate     fraction of the fittest rows kept in each generation
+     * @param canonical       whether children are relabeled in canonical form
+     */
+    public OffHeapGeneticAlgorithm(IntPartitionFitness fitnessFunction, double crossoverRate, double mutationRate,
+            int tournamentArity, double elitismRate, boolean canonical) {
+        if (crossoverRate < 0 || crossoverRate > 1) {
+            throw new IllegalArgumentException("Crossover rate must be in [0, 1]: " + crossoverRate);
+        }
+        if (mutationRate < 0 || mutationRate > 1) {
+            throw new IllegalArgumentException("Mutation rate must be in [0, 1]: " + mutationRate);
+        }
+        if (elitismRate < 0 || elitismRate > 1) {
+            throw new IllegalArgumentException("Elitism rate must be in [0, 1]: " + elitismRate);
+        }
+        if (tournamentArity < 1) {
+            throw new IllegalArgumentException("Tournament arity must be positive: " + tournamentArity);
+        }
+        this.fitnessFunction = fitnessFunction;
+        this.crossoverRate = crossoverRate;
+        this.mutationRate = mutationRate;
+        this.tournamentArity = tournamentArity;
+        this.elitismRate = elitismRate;
+        this.canonical = canonical;
+    }
+
+    /**
+     * Evolve the population for the given number of generations. On return the
+     * current generation of population is the last one and is fully evaluated.
+     *
+     * @param population  population to evolve in place
+     * @param generations number of generations
+     * @return population
+     */
+    public OffHeapPopulation evolve(OffHeapPopulation population, int generations) {
+        generationsEvolved = 0;
+        population.evaluate(fitnessFunction);
+        for (int g = 0; g < generations; g++) {
+            nextGeneration(population);
+            population.evaluate(fitnessFunction);
+            generationsEvolved++;
+        }
+        return population;
+    }
+
+    /**
+     * Breed the next generation of an evaluated population and make it current.
+     * Rows of the new generation other than the elite are not evaluated.
+     *
+     * @param population evaluated population
+     */
+    public void nextGeneration(OffHeapPopulation population) {
+        final int size = population.getPopulationSize();
+        final int n = population.getN();
+        final int[] parent1 = new int[n];
+        final int[] parent2 = new int[n];
+        final int[] child1 = new int[n];
+        final int[] child2 = new int[n];
+        int[] scratch = null;
+
+        // Copy the elite
+        final int elite = (int) Math.floor(elitismRate * size);
+        if (elite > 0) {
+            final int[] ranked = population.rowsByFitness();
+            for (int i = 0; i < elite; i++) {
+                population.copyToNext(ranked[i], i, child1);
+            }
+        }
+
+        // Breed the rest
+        int row = elite;
+        while (row < size) {
+            population.readRow(tournament(population), parent1);
+            population.readRow(tournament(population), parent2);
+            if (PartitionRandom.nextDouble() < crossoverRate) {
+                PartitionChromosomeCrossover.interleave(parent1, parent2, child1, child2);
+            } else {
+                System.arraycopy(parent1, 0, child1, 0, n);
+                System.arraycopy(parent2, 0, child2, 0, n);
+            }
+            final int m = Math.max(Partition.maxLabel(child1), Partition.maxLabel(child2)) + 1;
+            scratch = Partition.scratch(scratch, m);
+            population.writeNextRow(row++, child1, breed(child1, m, scratch));
+            if (row < size) {
+                population.writeNextRow(row++, child2, breed(child2, m, scratch));
+            }
+        }
+        population.swap();
+    }
+
+    /**
+     * Mutate a child in place with probability mutationRate, then remove empty
+     * pieces or relabel it in canonical form.
+     *
+     * @param child   labels of the child, less than m
+     * @param m       one more than the largest label in child
+     * @param scratch label table of length at least m
+     * @return number of pieces in child
+     */
+    private int breed(int[] child, int m, int[] scratch) {
+        if (PartitionRandom.nextDouble() < mutationRate) {
+            PartitionChromosomeMutation.mutate(child, m);
+        }
+        return canonical ? Partition.canonicalize(child, m, scratch) : Partition.compact(child, m, scratch);
+    }
+
+    /**
+     * Select a row by tournament: the fittest of tournamentArity rows chosen
+     * uniformly at random, with replacement.
+     *
+     * @param population evaluated population
+     * @return index of the selected row
+     */
+    int tournament(OffHeapPopulation population) {
+        final int size = population.getPopulationSize();
+        final SplittableRandom random = PartitionRandom.current();
+        int best = random.nextInt(size);
+        for (int i = 1; i < tournamentArity; i++) {
+            final int candidate = random.nextInt(size);
+            if (population.getFitness(candidate) > population.getFitness(best)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of generations evolved by the last call to evolve
+     */
+    public int getGenerationsEvolved() {
+        return generationsEvolved;
+    }
+}
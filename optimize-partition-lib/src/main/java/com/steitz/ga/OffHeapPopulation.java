@@ -0,0 +1,328 @@
+package com.steitz.ga;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays population of partitions stored off heap.
+ * <p>
+ * The labels of all chromosomes in a generation are kept in one contiguous int
+ * matrix in direct memory, one row per chromosome, with fitness values and
+ * numbers of pieces in parallel on-heap arrays. Chromosomes are addressed by row
+ * index, so selection, crossover and mutation can work without creating a
+ * chromosome object per individual.
+ * <p>
+ * The population is double-buffered: rows of the next generation are written
+ * with the write methods while the current generation is read, and swap()
+ * makes the next generation current.
+ * <p>
+ * A single direct buffer cannot exceed 2GB, so large matrices are split into
+ * chunks of whole rows.
+ */
+public class OffHeapPopulation {
+
+    /** Maximum number of ints in one direct buffer */
+    private static final int MAX_CHUNK_INTS = Integer.MAX_VALUE / Integer.BYTES;
+
+    /** Number of chromosomes */
+    private final int populationSize;
+
+    /** Size of the universe = length of each row */
+    private final int n;
+
+    /** Number of rows in each chunk */
+    private final int rowsPerChunk;
+
+    /** Labels of the current generation */
+    private IntBuffer[] current;
+
+    /** Labels of the next generation */
+    private IntBuffer[] next;
+
+    /** Fitness of each row of the current generation, NaN if not evaluated */
+    private double[] fitness;
+
+    /** Fitness of each row of the next generation */
+    private double[] nextFitness;
+
+    /** Number of pieces in each row of the current generation */
+    private int[] pieceNumbers;
+
+    /** Number of pieces in each row of the next generation */
+    private int[] nextPieceNumbers;
+
+    /**
+     * Create a population of populationSize partitions of a universe of size n.
+     * All rows start out as the partition with a single piece.
+     *
+     * @param populationSize number of chromosomes
+     * @param n              size of the universe
+     * @throws IllegalArgumentException if either size is not positive or a row
+     *                                  of n labels does not fit in one direct
+     *                                  buffer
+     */
+    public OffHeapPopulation(int populationSize, int n) {
+        if (populationSize <= 0 || n <= 0) {
+            throw new IllegalArgumentException(
+                    "Population size and universe size must be positive: " + populationSize + ", " + n);
+        }
+        if (n > MAX_CHUNK_INTS) {
+            throw new IllegalArgumentException("Universe size must be at most " + MAX_CHUNK_INTS + ": " + n);
+        }
+        this.populationSize = populationSize;
+        this.n = n;
+        this.rowsPerChunk = Math.min(populationSize, MAX_CHUNK_INTS / n);
+        this.current = allocate();
+        this.next = allocate();
+        this.fitness = new double[populationSize];
+        this.nextFitness = new double[populationSize];
+        this.pieceNumbers = new int[populationSize];
+        this.nextPieceNumbers = new int[populationSize];
+        Arrays.fill(fitness, Double.NaN);
+        Arrays.fill(nextFitness, Double.NaN);
+        Arrays.fill(pieceNumbers, 1);
+        Arrays.fill(nextPieceNumbers, 1);
+    }
+
+    /**
+     * Create a population of random partitions.
+     *
+     * @param populationSize number of chromosomes
+     * @param n              size of the universe
+     * @param m              maximum number of pieces in each partition
+     * @return population of random partitions
+     */
+    public static OffHeapPopulation random(int populationSize, int n, int m) {
+        final OffHeapPopulation population = new OffHeapPopulation(populationSize, n);
+        for (int row = 0; row < populationSize; row++) {
+            final Partition partition = Partition.randomPartition(n, m);
+            population.setRow(row, partition.getPartition(), partition.getM());
+        }
+        return population;
+    }
+
+    private IntBuffer[] allocate() {
+        final int chunks = (populationSize + rowsPerChunk - 1) / rowsPerChunk;
+        final IntBuffer[] out = new IntBuffer[chunks];
+        for (int c = 0; c < chunks; c++) {
+            final int rows = Math.min(rowsPerChunk, populationSize - c * rowsPerChunk);
+            out[c] = ByteBuffer.allocateDirect(rows * n * Integer.BYTES).order(ByteOrder.nativeOrder())
+                    .asIntBuffer();
+        }
+        return out;
+    }
+
+    /**
+     * Copy the labels of a row of the current generation into dst.
+     *
+     * @param row row index
+     * @param dst array of length at least n
+     * @return dst
+     */
+    public int[] readRow(int row, int[] dst) {
+        current[row / rowsPerChunk].get((row % rowsPerChunk) * n, dst, 0, n);
+        return dst;
+    }
+
+    /**
+     * Get the label of a single element of a row of the current generation.
+     *
+     * @param row     row index
+     * @param element index of an element of the universe
+     * @return piece label of element in row
+     */
+    public int get(int row, int element) {
+        return current[row / rowsPerChunk].get((row % rowsPerChunk) * n + element);
+    }
+
+    /**
+     * Replace a row of the current generation. The row's fitness is reset.
+     *
+     * @param row    row index
+     * @param labels partition with no empty pieces
+     * @param m      number of pieces in labels
+     */
+    public void setRow(int row, int[] labels, int m) {
+        current[row / rowsPerChunk].put((row % rowsPerChunk) * n, labels, 0, n);
+        pieceNumbers[row] = m;
+        fitness[row] = Double.NaN;
+    }
+
+    /**
+     * Write a row of the next generation. The row's fitness is not known.
+     *
+     * @param row    row index in the next generation
+     * @param labels partition with no empty pieces
+     * @param m      number of pieces in labels
+     */
+    public void writeNextRow(int row, int[] labels, int m) {
+        next[row / rowsPerChunk].put((row % rowsPerChunk) * n, labels, 0, n);
+        nextPieceNumbers[row] = m;
+        nextFitness[row] = Double.NaN;
+    }
+
+    /**
+     * Copy a row of the current generation, including its fitness, to a row of
+     * the next generation.
+     *
+     * @param row     row index in the current generation
+     * @param nextRow row index in the next generation
+     * @param scratch array of length at least n used for the copy
+     */
+    public void copyToNext(int row, int nextRow, int[] scratch) {
+        readRow(row, scratch);
+        writeNextRow(nextRow, scratch, pieceNumbers[row]);
+        nextFitness[nextRow] = fitness[row];
+    }
+
+    /**
+     * Make the next generation current. The old current generation's storage is
+     * reused for the following generation.
+     */
+    public void swap() {
+        final IntBuffer[] labels = current;
+        current = next;
+        next = labels;
+        final double[] f = fitness;
+        fitness = nextFitness;
+        nextFitness = f;
+        final int[] numbers = pieceNumbers;
+        pieceNumbers = nextPieceNumbers;
+        nextPieceNumbers = numbers;
+    }
+
+    /**
+     * @param row row index
+     * @return fitness of row in the current generation, NaN if not evaluated
+     */
+    public double getFitness(int row) {
+        return fitness[row];
+    }
+
+    /**
+     * @param row     row index
+     * @param fitness fitness of row in the current generation
+     */
+    public void setFitness(int row, double fitness) {
+        this.fitness[row] = fitness;
+    }
+
+    /**
+     * @param row row index
+     * @return true if the fitness of row in the current generation is known
+     */
+    public boolean isEvaluated(int row) {
+        return !Double.isNaN(fitness[row]);
+    }
+
+    /**
+     * @param row row index
+     * @return number of pieces in row of the current generation
+     */
+    public int getPieceCount(int row) {
+        return pieceNumbers[row];
+    }
+
+    /**
+     * Evaluate the rows of the current generation whose fitness is not known.
+     * <p>
+     * If fitnessFunction is a BatchPartitionFitness, the rows are copied to
+     * heap arrays and evaluated with a single fitness(int[][]) call; otherwise
+     * they are evaluated one at a time through one scratch array.
+     *
+     * @param fitnessFunction fitness function
+     * @return number of rows evaluated
+     */
+    public int evaluate(IntPartitionFitness fitnessFunction) {
+        if (fitnessFunction instanceof BatchPartitionFitness) {
+            return evaluate((BatchPartitionFitness) fitnessFunction);
+        }
+        final int[] labels = new int[n];
+        int evaluated = 0;
+        for (int row = 0; row < populationSize; row++) {
+            if (!isEvaluated(row)) {
+                fitness[row] = fitnessFunction.fitness(readRow(row, labels));
+                evaluated++;
+            }
+        }
+        return evaluated;
+    }
+
+    private int evaluate(BatchPartitionFitness fitnessFunction) {
+        final int[] rows = new int[populationSize];
+        int evaluated = 0;
+        for (int row = 0; row < populationSize; row++) {
+            if (!isEvaluated(row)) {
+                rows[evaluated++] = row;
+            }
+        }
+        if (evaluated == 0) {
+            return 0;
+        }
+        final int[][] partitions = new int[evaluated][];
+        for (int i = 0; i < evaluated; i++) {
+            partitions[i] = readRow(rows[i], new int[n]);
+        }
+        final double[] values = fitnessFunction.fitness(partitions);
+        for (int i = 0; i < evaluated; i++) {
+            fitness[rows[i]] = values[i];
+        }
+        return evaluated;
+    }
+
+    /**
+     * @return index of the row with the highest fitness among evaluated rows, or
+     *         -1 if no row is evaluated
+     */
+    public int fittestRow() {
+        int best = -1;
+        for (int row = 0; row < populationSize; row++) {
+            if (isEvaluated(row) && (best < 0 || fitness[row] > fitness[best])) {
+                best = row;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the row indexes of the current generation ordered by decreasing
+     * fitness. All rows must be evaluated.
+     *
+     * @return row indexes, fittest first
+     */
+    public int[] rowsByFitness() {
+        final int[] rows = new int[populationSize];
+        for (int row = 0; row < populationSize; row++) {
+            rows[row] = row;
+        }
+        IndexSort.sortDescending(fitness, rows, 0, populationSize - 1);
+        return rows;
+    }
+
+    /**
+     * Create a chromosome from a row of the current generation.
+     *
+     * @param row             row index
+     * @param fitnessFunction fitness function for the chromosome
+     * @return chromosome with a copy of the row's labels
+     */
+    public IntPartitionChromosome toChromosome(int row, IntPartitionFitness fitnessFunction) {
+        return new IntPartitionChromosome(readRow(row, new int[n]), fitnessFunction, false);
+    }
+
+    /**
+     * @return the number of chromosomes
+     */
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    /**
+     * @return the size of the universe
+     */
+    public int getN() {
+        return n;
+    }
+}
@@ -0,0 +1,246 @@
+package com.steitz.ga;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact, immutable encoding of a partition.
+ * <p>
+ * Each piece label is packed into ceil(log2 m) bits of a long array, where m is
+ * the number of pieces, so a partition of n elements into m pieces takes about
+ * n * ceil(log2 m) / 8 bytes. For comparison, Partition.toBinaryString uses 16
+ * chars (32 bytes) per element.
+ * <p>
+ * Equality and hash codes are computed on the packed words, so packed
+ * partitions can be used directly as cache keys. Two packed partitions are
+ * equal if and only if they have the same labels and bits per label. Pack the
+ * canonical form of a partition to get a key that does not depend on the
+ * labeling.
+ * <p>
+ * The binary form written by writeTo is two ints (n and m) followed by the
+ * packed words, in the byte order of the buffer.
+ */
+public final class PackedPartition {
+
+    /** Size of the universe */
+    private final int n;
+
+    /** Number of pieces; all labels are less than m */
+    private final int m;
+
+    /** Number of bits used for each label */
+    private final int bits;
+
+    /** Packed labels, bits bits per element, little end first */
+    private final long[] words;
+
+    /** Cached hash code, 0 until computed */
+    private int hash;
+
+    private PackedPartition(int n, int m, long[] words) {
+        this.n = n;
+        this.m = m;
+        this.bits = bitsPerLabel(m);
+        this.words = words;
+    }
+
+    /**
+     * Pack a partition array.
+     *
+     * @param partition partition represented as an array of ints
+     * @return packed partition
+     */
+    public static PackedPartition pack(int[] partition) {
+        return pack(partition, Partition.maxLabel(partition) + 1);
+    }
+
+    /**
+     * Pack a partition array whose labels are all less than m.
+     *
+     * @param partition partition represented as an array of ints
+     * @param m         one more than the largest label in partition
+     * @return packed partition
+     */
+    public static PackedPartition pack(int[] partition, int m) {
+        final int n = partition.length;
+        final int bits = bitsPerLabel(m);
+        final long[] words = new long[wordCount(n, bits)];
+        long bitPos = 0;
+        for (int i = 0; i < n; i++, bitPos += bits) {
+            final long label = partition[i];
+            final int word = (int) (bitPos >>> 6);
+            final int offset = (int) (bitPos & 63);
+            words[word] |= label << offset;
+            if (offset + bits > 64) {
+                // Label straddles two words
+                words[word + 1] |= label >>> (64 - offset);
+            }
+        }
+        return new PackedPartition(n, m, words);
+    }
+
+    /**
+     * Get the label of a single element.
+     *
+     * @param i index of an element of the universe
+     * @return the piece that element i is in
+     */
+    public int get(int i) {
+        final long bitPos = (long) i * bits;
+        final int word = (int) (bitPos >>> 6);
+        final int offset = (int) (bitPos & 63);
+        long value = words[word] >>> offset;
+        if (offset + bits > 64) {
+            value |= words[word + 1] << (64 - offset);
+        }
+        return (int) (value & mask());
+    }
+
+    /**
+     * Unpack into a new partition array.
+     *
+     * @return partition represented as an array of ints
+     */
+    public int[] unpack() {
+        return unpack(new int[n]);
+    }
+
+    /**
+     * Unpack into the given array.
+     *
+     * @param out array of length at least n to fill with labels
+     * @return out
+     */
+    public int[] unpack(int[] out) {
+        final long mask = mask();
+        long bitPos = 0;
+        for (int i = 0; i < n; i++, bitPos += bits) {
+            final int word = (int) (bitPos >>> 6);
+            final int offset = (int) (bitPos & 63);
+            long value = words[word] >>> offset;
+            if (offset + bits > 64) {
+                value |= words[word + 1] << (64 - offset);
+            }
+            out[i] = (int) (value & mask);
+        }
+        return out;
+    }
+
+    /**
+     * @return the number of bytes that writeTo writes
+     */
+    public int getEncodedSize() {
+        return 2 * Integer.BYTES + words.length * Long.BYTES;
+    }
+
+    /**
+     * Write the binary form of this packed partition to buffer, advancing its
+     * position.
+     *
+     * @param buffer buffer with at least getEncodedSize() bytes remaining
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(n);
+        buffer.putInt(m);
+        buffer.asLongBuffer().put(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+    }
+
+    /**
+     * Read a packed partition written by writeTo from buffer, advancing its
+     * position.
+     *
+     * @param buffer buffer positioned at the start of a packed partition
+     * @return packed partition
+     * @throws IllegalArgumentException if the header is invalid or announces
+     *                                  more labels than the buffer holds
+     */
+    public static PackedPartition readFrom(ByteBuffer buffer) {
+        final int n = buffer.getInt();
+        final int m = buffer.getInt();
+        if (n < 0 || m < 0) {
+            throw new IllegalArgumentException("Invalid packed partition header: n = " + n + ", m = " + m);
+        }
+        final int count = wordCount(n, bitsPerLabel(m));
+        if (count > buffer.remaining() / Long.BYTES) {
+            throw new IllegalArgumentException("Packed partition of " + n + " labels needs " + count * 8L
+                    + " bytes, but only " + buffer.remaining() + " remain");
+        }
+        final long[] words = new long[count];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+        return new PackedPartition(n, m, words);
+    }
+
+    /**
+     * @return the size of the universe
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * @return the number of pieces the labels were packed for
+     */
+    public int getM() {
+        return m;
+    }
+
+    /**
+     * @return the number of bits used for each label
+     */
+    public int getBitsPerLabel() {
+        return bits;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PackedPartition)) {
+            return false;
+        }
+        final PackedPartition that = (PackedPartition) other;
+        return n == that.n && bits == that.bits && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * n + bits) + Arrays.hashCode(words);
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(unpack());
+    }
+
+    /**
+     * @return mask selecting the low bits bits of a long
+     */
+    private long mask() {
+        return (1L << bits) - 1;
+    }
+
+    /**
+     * @param m number of pieces
+     * @return ceil(log2 m), and at least 1
+     */
+    static int bitsPerLabel(int m) {
+        return m <= 2 ? 1 : 32 - Integer.numberOfLeadingZeros(m - 1);
+    }
+
+    /**
+     * @param n    number of labels
+     * @param bits bits per label
+     * @return number of longs needed to hold n labels of bits bits each
+     */
+    private static int wordCount(int n, int bits) {
+        return (int) (((long) n * bits + 63) >>> 6);
+    }
+}
@@ -6,8 +6,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a partition of a set.
@@ -54,6 +52,21 @@ public class Partition {
      */
     int[] partition;
 
+    /**
+     * Fingerprint of partition, computed on first use
+     */
+    private volatile long fingerprint;
+
+    /**
+     * Whether fingerprint has been computed
+     */
+    private volatile boolean fingerprinted;
+
+    /**
+     * Piece membership index, computed on first use
+     */
+    private volatile PieceIndex pieceIndex;
+
     /**
      * Create a partition of the universe of size n into m pieces
      * from the given partition array.
@@ -64,19 +77,11 @@ public class Partition {
 
         this.n = partition.length;
 
-        // Find the maximum value in the partition array
-        int max = 0;
-        for (int i = 0; i < n; i++) {
-            if (partition[i] > max) {
-                max = partition[i];
-            }
-        }
-
         // The number of pieces is one more than the maximum value in the partition
         // array. Values are 0, ..., m - 1.
         //
         // This value might be reduced if there are empty pieces.
-        this.m = max + 1;
+        this.m = maxLabel(partition) + 1;
 
         // copy the input partition array
         this.partition = new int[n];
@@ -92,7 +97,22 @@ public class Partition {
      * @param representation the partition represented as a list of integers
      */
     public Partition(List<Integer> representation) {
-        this(representation.stream().mapToInt(i -> i).toArray());
+        this(toIntArray(representation));
+    }
+
+    /**
+     * Unbox a list representation of a partition.
+     * 
+     * @param representation partition represented as a list of integers
+     * @return partition represented as an array of ints
+     */
+    public static int[] toIntArray(List<Integer> representation) {
+        final int[] out = new int[representation.size()];
+        int i = 0;
+        for (Integer label : representation) {
+            out[i++] = label;
+        }
+        return out;
     }
 
     /**
@@ -105,7 +125,7 @@ public class Partition {
     public static Partition randomPartition(int n, int m) {
         final int[] partition = new int[n];
         for (int i = 0; i < n; i++) {
-            partition[i] = (int) (Math.random() * m);
+            partition[i] = PartitionRandom.nextInt(m);
         }
         return new Partition(partition);
     }
@@ -119,6 +139,7 @@ public class Partition {
      * the corresponding element of the universe is in.
      * 
      * @return a binary string representation of the partition
+     * @see #toPacked() for a compact binary encoding
      */
 
     public String toBinaryString() {
@@ -138,7 +159,7 @@ public class Partition {
     /**
      * Create a partition from a binary string representation.
      */
-    public Partition fromBinaryString(String binaryString) {
+    public static Partition fromBinaryString(String binaryString) {
         final int n = binaryString.length() / 16;
         final int[] partition = new int[n];
         for (int i = 0; i < n; i++) {
@@ -147,6 +168,56 @@ public class Partition {
         return new Partition(partition);
     }
 
+    /**
+     * Get the 64-bit fingerprint of this partition's labels, computing it on first
+     * use.
+     * 
+     * @return PartitionFingerprint.of(getPartition())
+     * @see PartitionFingerprint
+     */
+    public long fingerprint() {
+        if (!fingerprinted) {
+            fingerprint = PartitionFingerprint.of(partition);
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Get the elements of each piece in compressed sparse row form, computing the
+     * index on first use.
+     * 
+     * @return piece index of this partition, with m pieces
+     * @see PieceIndex
+     */
+    public PieceIndex pieceIndex() {
+        PieceIndex index = pieceIndex;
+        if (index == null) {
+            index = PieceIndex.of(partition, m);
+            pieceIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Pack this partition into ceil(log2 m) bits per element.
+     * 
+     * @return compact encoding of this partition
+     */
+    public PackedPartition toPacked() {
+        return PackedPartition.pack(partition, m);
+    }
+
+    /**
+     * Create a partition from its packed encoding.
+     * 
+     * @param packed packed partition
+     * @return the partition encoded by packed
+     */
+    public static Partition fromPacked(PackedPartition packed) {
+        return new Partition(packed.unpack());
+    }
+
     /**
      * Given an element of the range of the partion, return the number of elements
      * in the universe that the partition maps to that element.
@@ -175,60 +246,179 @@ public class Partition {
     /**
      * When creating partitions by mutation, we may can end up with empty pieces.
      * Empty pieces make no sense, so we need to remove them. We remove them by
-     * creating a new partition that is the same as the old partition but with
-     * the empty pieces removed so m is the number of non-empty pieces.
+     * relabeling the partition so that m is the number of non-empty pieces,
+     * preserving the relative order of the remaining labels. For example,
+     * [0, 0, 2] becomes [0, 0, 1].
      * 
-     * If this partition has no empty pieces, this method returns a reference to
-     * this; otherwise a new partion is created and returned.
+     * @see #compact(int[], int, int[])
      */
     protected void removeEmptyPieces() {
-        final int[] counts = pieceCounts();
-        // Count the number of non-empty pieces
-        int numNonEmptyPieces = 0;
-        for (int i = 0; i < m; i++) {
-            if (counts[i] > 0) {
-                numNonEmptyPieces++;
+        // The constructor owns partition, so it can be relabeled in place
+        m = compact(partition, m, new int[m]);
+    }
+
+    /**
+     * Remove empty pieces from a partition array in place, preserving the
+     * relative order of the remaining labels.
+     * <p>
+     * Runs in O(n + m) time using scratch as a flat table mapping old labels to
+     * new ones. Callers that relabel many partitions (for example, every child in
+     * a generation) can reuse the same scratch table for all of them.
+     * 
+     * @param partition partition represented as an array of ints with labels less
+     *                  than m, relabeled in place
+     * @param m         one more than the largest label in partition
+     * @param scratch   label table of length at least m; its contents are
+     *                  overwritten
+     * @return the number of non-empty pieces
+     */
+    public static int compact(int[] partition, int m, int[] scratch) {
+        // Mark the labels that are used
+        Arrays.fill(scratch, 0, m, 0);
+        for (int i = 0; i < partition.length; i++) {
+            scratch[partition[i]] = 1;
+        }
+        // Assign new labels to the used ones in order
+        int next = 0;
+        for (int label = 0; label < m; label++) {
+            if (scratch[label] != 0) {
+                scratch[label] = next++;
             }
         }
-        if (numNonEmptyPieces == m) {
+        if (next == m) {
             // No empty pieces to remove
-            return;
+            return m;
         }
-        final int[] newPartition = new int[n];
-        int j = 0;
-        for (int i = 0; i < n; i++) {
-            if (counts[partition[i]] > 0) {
-                newPartition[j++] = partition[i];
+        for (int i = 0; i < partition.length; i++) {
+            partition[i] = scratch[partition[i]];
+        }
+        return next;
+    }
+
+    /**
+     * Get a scratch label table of length at least m, reusing buffer if it is
+     * large enough.
+     * 
+     * @param buffer previously used scratch table, possibly null
+     * @param m      required length
+     * @return buffer if its length is at least m; otherwise a new table
+     */
+    public static int[] scratch(int[] buffer, int m) {
+        return buffer != null && buffer.length >= m ? buffer : new int[m];
+    }
+
+    /**
+     * @param partition partition represented as an array of ints
+     * @return the largest label in partition, or 0 if it is empty
+     */
+    public static int maxLabel(int[] partition) {
+        int max = 0;
+        for (int label : partition) {
+            if (label > max) {
+                max = label;
             }
         }
+        return max;
+    }
 
-        // Now collapse partition values so that they are contiguous
+    /**
+     * Get the canonical form of this partition.
+     * <p>
+     * Partitions that differ only by a permutation of piece labels have the same
+     * canonical form. In canonical form, pieces are labeled in order of first
+     * occurrence: the first element is in piece 0 and each element is either in
+     * a piece that contains an earlier element or in the piece whose label is
+     * one more than the largest label used so far. For example, [2, 2, 0, 1, 0]
+     * has canonical form [0, 0, 1, 2, 1].
+     *
+     * @return a new partition in canonical form, or this if this partition is
+     *         already canonical
+     */
+    public Partition canonical() {
+        if (isCanonical()) {
+            return this;
+        }
+        final int[] canonical = partition.clone();
+        canonicalize(canonical, new int[m]);
+        return new Partition(canonical);
+    }
 
-        // Fill sorted hashmap with universe id, label pairs.
-        final TreeMap<Integer, Set<Integer>> values = new TreeMap<>();
+    /**
+     * @return true if this partition's labels are in canonical form
+     * @see #canonical()
+     */
+    public boolean isCanonical() {
+        // Canonical iff each label is at most one more than the largest label seen
+        int next = 0;
         for (int i = 0; i < n; i++) {
-            if (!values.containsKey(partition[i])) {
-                values.put(partition[i], new HashSet<>());
+            final int label = partition[i];
+            if (label > next) {
+                return false;
+            }
+            if (label == next) {
+                next++;
             }
-            values.get(partition[i]).add(i);
         }
+        return true;
+    }
 
-        // Create a map with keys equal to old piece numbers and values equal to new
-        final HashMap<Integer, Integer> pieceUpdateMap = new HashMap<>();
-        final AtomicInteger nDistinct = new AtomicInteger(0);
-        values.descendingKeySet().forEach((Integer key) -> {
-            pieceUpdateMap.put(key, nDistinct.getAndIncrement());
-        });
-
-        // update m - some pieces may have been removed
-        m = numNonEmptyPieces;
+    /**
+     * Relabel a partition array in place so that pieces are labeled in order of
+     * first occurrence.
+     * <p>
+     * This is done in one linear pass using scratch as a table mapping old labels
+     * to new ones, so scratch must be longer than the largest label in
+     * partition. Its contents are overwritten. Labels of empty pieces are never
+     * assigned, so the result has no empty pieces.
+     *
+     * @param partition partition represented as an array of ints, relabeled in
+     *                  place
+     * @param scratch   label table, longer than the largest label in partition
+     * @return the number of pieces in the partition
+     * @see #canonical()
+     */
+    public static int canonicalize(int[] partition, int[] scratch) {
+        return canonicalize(partition, scratch.length, scratch);
+    }
 
-        // Now go through the partition and replace old values with new values
-        for (int i = 0; i < n; i++) {
-            newPartition[i] = pieceUpdateMap.get(partition[i]);
+    /**
+     * Relabel a partition array in place so that pieces are labeled in order of
+     * first occurrence, using only the first m entries of scratch.
+     *
+     * @param partition partition represented as an array of ints with labels less
+     *                  than m, relabeled in place
+     * @param m         one more than the largest label in partition
+     * @param scratch   label table of length at least m; its contents are
+     *                  overwritten
+     * @return the number of pieces in the partition
+     * @see #canonicalize(int[], int[])
+     */
+    public static int canonicalize(int[] partition, int m, int[] scratch) {
+        Arrays.fill(scratch, 0, m, -1);
+        int next = 0;
+        for (int i = 0; i < partition.length; i++) {
+            final int label = partition[i];
+            int canonical = scratch[label];
+            if (canonical < 0) {
+                canonical = next++;
+                scratch[label] = canonical;
+            }
+            partition[i] = canonical;
         }
+        return next;
+    }
 
-        this.partition = newPartition;
+    /**
+     * Relabel a partition array in place so that pieces are labeled in order of
+     * first occurrence.
+     *
+     * @param partition partition represented as an array of ints, relabeled in
+     *                  place
+     * @return the number of pieces in the partition
+     * @see #canonicalize(int[], int[])
+     */
+    public static int canonicalize(int[] partition) {
+        return canonicalize(partition, new int[maxLabel(partition) + 1]);
     }
 
     /**
@@ -264,16 +454,18 @@ public class Partition {
      * 
      * @return Map with keys partition piece numbers and values sets of elements in
      *         that piece.
+     * @see #pieceIndex()
      */
     public HashMap<Integer, Set<Integer>> asSets() {
+        final PieceIndex index = pieceIndex();
         final HashMap<Integer, Set<Integer>> sets = new HashMap<>();
         // For each piece, create a set of the elements in that piece
-        for (int i = 0; i < n; i++) {
-            final int piece = partition[i];
-            if (!sets.containsKey(piece)) {
-                sets.put(piece, new HashSet<>());
+        for (int piece = 0; piece < m; piece++) {
+            final Set<Integer> set = new HashSet<>();
+            for (int k = index.start(piece); k < index.end(piece); k++) {
+                set.add(index.member(k));
             }
-            sets.get(piece).add(i);
+            sets.put(piece, set);
         }
         return sets;
     }
@@ -15,6 +15,12 @@ public class PartitionChromosome extends AbstractListChromosome<Integer> {
 
     private ReentrantReadWriteLock fitnessLock = new ReentrantReadWriteLock();
 
+    /** Fingerprint of the representation, valid once fingerprinted is true */
+    private volatile long fingerprint;
+
+    /** Whether fingerprint has been computed */
+    private volatile boolean fingerprinted;
+
     public PartitionChromosome(Integer[] representation, PartitionFitness fitness) {
         super(representation);
         checkValidity(getRepresentation());
@@ -56,7 +62,7 @@ public class PartitionChromosome extends AbstractListChromosome<Integer> {
             fitnessLock.writeLock().lock();
             try {
                 if (Double.isNaN(cachedFitness)) {
-                    cachedFitness = fitnessFunction.fitness(getRepresentation());
+                    cachedFitness = computeFitness();
                     // System.out.println("representation " + getRepresentation());
                     // System.out.println("computed fitness " + cachedFitness);
                 }
@@ -69,6 +75,39 @@ public class PartitionChromosome extends AbstractListChromosome<Integer> {
         return result;
     }
 
+    /**
+     * Evaluate the fitness function, passing the fingerprint if the function can
+     * use it.
+     */
+    private double computeFitness() {
+        if (fitnessFunction instanceof FingerprintedPartitionFitness
+                && ((FingerprintedPartitionFitness) fitnessFunction).usesFingerprint()) {
+            final int[] labels = Partition.toIntArray(getRepresentation());
+            return ((FingerprintedPartitionFitness) fitnessFunction).fitness(labels, getFingerprint());
+        }
+        return fitnessFunction.fitness(getRepresentation());
+    }
+
+    /**
+     * Get the 64-bit fingerprint of this chromosome's representation, computing
+     * it on first use.
+     *
+     * @return fingerprint of the representation
+     * @see PartitionFingerprint
+     */
+    public long getFingerprint() {
+        if (!fingerprinted) {
+            long fp = 0;
+            int i = 0;
+            for (Integer label : getRepresentation()) {
+                fp ^= PartitionFingerprint.key(i++, label);
+            }
+            fingerprint = fp;
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
     /**
      * Check the validity of the chromosome representation.
      * Values must be {0, ... , n} for some n.
@@ -1,6 +1,7 @@
 
 package com.steitz.ga;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.math3.genetics.Chromosome;
@@ -12,51 +13,156 @@ public class PartitionChromosomeCrossover implements CrossoverPolicy {
     /** Fitness function */
     final PartitionFitness fitness;
 
+    /** Whether children are relabeled in canonical form */
+    final boolean canonical;
+
+    /** Per-thread scratch label table, reused across crossovers */
+    private final ThreadLocal<int[]> scratch = new ThreadLocal<>();
+
     public PartitionChromosomeCrossover(PartitionFitness fitness) {
+        this(fitness, false);
+    }
+
+    /**
+     * Create a crossover policy that optionally relabels children in canonical
+     * form, so that children representing the same partition have identical
+     * representations.
+     *
+     * @param fitness   fitness function for PartitionChromosome children
+     * @param canonical whether to relabel children in canonical form
+     * @see Partition#canonical()
+     */
+    public PartitionChromosomeCrossover(PartitionFitness fitness, boolean canonical) {
         this.fitness = fitness;
+        this.canonical = canonical;
     }
 
     /**
      * Cross two PartitionChromosome instances by creating two children as follows:
      * The first child takes the value of the first parent for even indices,
      * and the second parent for odd indices. The second child does the opposite.
+     * <p>
+     * If both parents are IntPartitionChromosomes, the children are
+     * IntPartitionChromosomes sharing the first parent's fitness function and
+     * the cross is done entirely on int arrays. Otherwise the children are
+     * PartitionChromosomes using this policy's fitness function.
      */
     @Override
     public ChromosomePair crossover(Chromosome first, Chromosome second) {
-        final List<Integer> list1 = ((PartitionChromosome) first).getRepresentation();
-        final List<Integer> list2 = ((PartitionChromosome) second).getRepresentation();
+        final int[] parent1 = labels(first);
+        final int[] parent2 = labels(second);
 
         // If lists have different sizes, chromosomes can't be crossed. Throw IAE.
-        if (list1.size() != list2.size()) {
+        if (parent1.length != parent2.length) {
             throw new IllegalArgumentException("List sizes must be equal.");
         }
 
-        // Find the smaller of the two partition lengths
-        final int n = list1.size();
-
-        // Cross the two partitions
-
         // Create arrays to hold the crossover chldren
+        final int n = parent1.length;
         final int[] child1 = new int[n];
         final int[] child2 = new int[n];
+        interleave(parent1, parent2, child1, child2);
+
+        // Children labels are parent labels, so they are less than m
+        final int m = Math.max(Partition.maxLabel(parent1), Partition.maxLabel(parent2)) + 1;
+        return newChildren(first, second, relabel(child1, m), relabel(child2, m));
+    }
+
+    /**
+     * Remove empty pieces from a child in place, relabeling it in canonical form
+     * if this policy is canonical.
+     * <p>
+     * Relabeling uses a per-thread scratch table, so it allocates only when a
+     * larger table is needed.
+     *
+     * @param child labels of a child, possibly with empty pieces
+     * @param m     one more than the largest label in child
+     * @return child, relabeled with no empty pieces
+     */
+    int[] relabel(int[] child, int m) {
+        final int[] table = Partition.scratch(scratch.get(), m);
+        scratch.set(table);
+        if (canonical) {
+            Partition.canonicalize(child, m, table);
+        } else {
+            Partition.compact(child, m, table);
+        }
+        return child;
+    }
+
+    /**
+     * Create the pair of children of two parents from their labels.
+     * <p>
+     * If both parents are IntPartitionChromosomes, the children are
+     * IntPartitionChromosomes sharing the first parent's fitness function.
+     * Otherwise they are PartitionChromosomes using this policy's fitness
+     * function.
+     *
+     * @param first  first parent
+     * @param second second parent
+     * @param child1 labels of the first child, with no empty pieces
+     * @param child2 labels of the second child, with no empty pieces
+     * @return the children
+     */
+    ChromosomePair newChildren(Chromosome first, Chromosome second, int[] child1, int[] child2) {
+        if (first instanceof IntPartitionChromosome && second instanceof IntPartitionChromosome) {
+            final IntPartitionChromosome intFirst = (IntPartitionChromosome) first;
+            return new ChromosomePair(intFirst.newChromosome(child1), intFirst.newChromosome(child2));
+        }
+        return new ChromosomePair(new PartitionChromosome(toList(child1), fitness),
+                new PartitionChromosome(toList(child2), fitness));
+    }
+
+    /**
+     * @param labels piece labels
+     * @return labels as a List of Integers
+     */
+    static List<Integer> toList(int[] labels) {
+        final List<Integer> out = new ArrayList<>(labels.length);
+        for (int label : labels) {
+            out.add(label);
+        }
+        return out;
+    }
 
-        // Make the first chlld take the value of first parent for even indices, and the
-        // second parent for odd indices.
-        // Do the opposite for the second child
-        for (int i = 0; i < n; i++) {
-            if (i % 2 == 0) {
-                child1[i] = list1.get(i);
-                child2[i] = list2.get(i);
-            } else {
-                child1[i] = list2.get(i);
-                child2[i] = list1.get(i);
-            }
+    /**
+     * Interleave two parent label arrays into two children.
+     * <p>
+     * The first child takes the value of the first parent for even indices and the
+     * second parent for odd indices. The second child does the opposite. The
+     * children may have empty pieces.
+     *
+     * @param parent1 labels of the first parent
+     * @param parent2 labels of the second parent
+     * @param child1  array to fill with the labels of the first child
+     * @param child2  array to fill with the labels of the second child
+     */
+    public static void interleave(int[] parent1, int[] parent2, int[] child1, int[] child2) {
+        final int n = parent1.length;
+        for (int i = 0; i < n; i += 2) {
+            child1[i] = parent1[i];
+            child2[i] = parent2[i];
+        }
+        for (int i = 1; i < n; i += 2) {
+            child1[i] = parent2[i];
+            child2[i] = parent1[i];
         }
-        Partition p1 = new Partition(child1);
-        Partition p2 = new Partition(child2);
+    }
 
-        return new ChromosomePair(new PartitionChromosome(p1.getRepresentation(), fitness),
-                new PartitionChromosome(p2.getRepresentation(), fitness));
+    /**
+     * Get the piece labels of a partition chromosome as an int array.
+     * <p>
+     * For IntPartitionChromosomes this is the chromosome's own array, which must
+     * not be modified.
+     *
+     * @param chromosome an IntPartitionChromosome or PartitionChromosome
+     * @return piece labels of chromosome
+     */
+    static int[] labels(Chromosome chromosome) {
+        if (chromosome instanceof IntPartitionChromosome) {
+            return ((IntPartitionChromosome) chromosome).getRepresentation();
+        }
+        return Partition.toIntArray(((PartitionChromosome) chromosome).getRepresentation());
     }
 
-}
\ No newline at end of file
+}
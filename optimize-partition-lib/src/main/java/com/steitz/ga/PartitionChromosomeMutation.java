@@ -2,6 +2,7 @@ package com.steitz.ga;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import org.apache.commons.math3.genetics.Chromosome;
 import org.apache.commons.math3.genetics.InvalidRepresentationException;
@@ -14,8 +15,31 @@ public class PartitionChromosomeMutation implements MutationPolicy {
      */
     final PartitionFitness fitness;
 
+    /** Whether mutants are relabeled in canonical form */
+    final boolean canonical;
+
+    /** Number of pairs of elements swap draws before giving up */
+    private static final int SWAP_ATTEMPTS = 16;
+
+    /** Per-thread scratch label table, reused across mutations */
+    private final ThreadLocal<int[]> scratch = new ThreadLocal<>();
+
     public PartitionChromosomeMutation(PartitionFitness fitness) {
+        this(fitness, false);
+    }
+
+    /**
+     * Create a mutation policy that optionally relabels mutants in canonical
+     * form, so that mutants representing the same partition have identical
+     * representations.
+     *
+     * @param fitness   fitness function for PartitionChromosome mutants
+     * @param canonical whether to relabel mutants in canonical form
+     * @see Partition#canonical()
+     */
+    public PartitionChromosomeMutation(PartitionFitness fitness, boolean canonical) {
         this.fitness = fitness;
+        this.canonical = canonical;
     }
 
     /**
@@ -24,9 +48,45 @@ public class PartitionChromosomeMutation implements MutationPolicy {
      * in {0, ..., max} where max is the maximum value in the representation. Could
      * be no-op if the random value
      * happens to be the same as the current value.
+     * <p>
+     * IntPartitionChromosomes are mutated on a copy of their int array and the
+     * mutant shares the original's fitness function. If that function is an
+     * IncrementalPartitionFitness and the original has been evaluated, the
+     * mutant's fitness is derived from the original's fitness and the delta of
+     * the move instead of being evaluated. Unevaluated originals, such as
+     * crossover children, are not evaluated here.
      */
     @Override
     public Chromosome mutate(Chromosome original) throws InvalidRepresentationException {
+        if (original instanceof IntPartitionChromosome) {
+            final IntPartitionChromosome chromosome = (IntPartitionChromosome) original;
+            final int[] representation = chromosome.getRepresentation().clone();
+            final int m = Partition.maxLabel(representation) + 1;
+            final int index = mutate(representation, m);
+            final int oldLabel = chromosome.getRepresentation()[index];
+            final int newLabel = representation[index];
+            final boolean relabeled = relabel(representation, m);
+            final IntPartitionChromosome mutant;
+            if (relabeled || !chromosome.hasFingerprint()) {
+                mutant = chromosome.newChromosome(representation);
+            } else {
+                // Only one element changed, so the fingerprint can be updated in O(1)
+                mutant = chromosome.newChromosome(representation,
+                        PartitionFingerprint.update(chromosome.getFingerprint(), index, oldLabel, newLabel));
+            }
+            final IncrementalPartitionFitness.PieceState state = chromosome.isEvaluated()
+                    ? chromosome.pieceState()
+                    : null;
+            if (state != null) {
+                // Derive the mutant's fitness from the parent's
+                mutant.setFitness(chromosome.fitness() + state.delta(index, oldLabel, newLabel));
+                if (!relabeled) {
+                    // Piece labels are unchanged, so the parent's state carries over
+                    mutant.setPieceState(state.move(index, oldLabel, newLabel));
+                }
+            }
+            return mutant;
+        }
         PartitionChromosome chromosome = (PartitionChromosome) original;
         // Make a copy of the representation
         List<Integer> representation = new ArrayList<>(chromosome.getRepresentation());
@@ -38,13 +98,145 @@ public class PartitionChromosomeMutation implements MutationPolicy {
             }
         }
         // Choose a random index to mutate
-        int index = (int) (Math.random() * representation.size());
+        int index = PartitionRandom.nextInt(representation.size());
         // Choose a random value in {0, ..., max} to replace the current value
-        int value = (int) (Math.random() * (max + 1));
+        int value = PartitionRandom.nextInt(max + 1);
         representation.set(index, value);
         // Create a new partition so empty pieces can be removed
         final Partition partition = new Partition(representation);
-        representation = partition.getRepresentation();
+        representation = canonical ? partition.canonical().getRepresentation() : partition.getRepresentation();
         return new PartitionChromosome(representation, fitness);
     }
-}
\ No newline at end of file
+
+    /**
+     * Remove empty pieces from a mutant in place, relabeling it in canonical form
+     * if this policy is canonical.
+     *
+     * @param mutant labels of a mutant, possibly with an empty piece
+     * @param m      one more than the largest label in mutant
+     * @return true if any label changed
+     */
+    boolean relabel(int[] mutant, int m) {
+        final int[] table = Partition.scratch(scratch.get(), m);
+        scratch.set(table);
+        if (!canonical) {
+            return Partition.compact(mutant, m, table) < m;
+        }
+        Partition.canonicalize(mutant, m, table);
+        // table maps old labels to new ones, or to -1 for unused labels
+        for (int label = 0; label < m; label++) {
+            if (table[label] >= 0 && table[label] != label) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mutate a label array in place by replacing the value at a random index with
+     * a random value in {0, ..., max} where max is the maximum value in the
+     * array. The result may have an empty piece.
+     *
+     * @param representation piece labels to mutate
+     * @return the index of the mutated element
+     */
+    public static int mutate(int[] representation) {
+        return mutate(representation, Partition.maxLabel(representation) + 1);
+    }
+
+    /**
+     * Mutate a label array in place by replacing the value at a random index with
+     * a random value in {0, ..., m - 1}. The result may have an empty piece.
+     *
+     * @param representation piece labels to mutate
+     * @param m              one more than the largest label in representation
+     * @return the index of the mutated element
+     */
+    public static int mutate(int[] representation, int m) {
+        // Choose a random index to mutate
+        final int index = PartitionRandom.nextInt(representation.length);
+        // Choose a random value in {0, ..., m - 1} to replace the current value
+        representation[index] = PartitionRandom.nextInt(m);
+        return index;
+    }
+
+    /**
+     * Move k random elements to random pieces in {0, ..., m - 1}, in place. The
+     * result may have empty pieces.
+     *
+     * @param representation piece labels to mutate
+     * @param m              one more than the largest label in representation
+     * @param k              number of elements to move
+     */
+    public static void moveK(int[] representation, int m, int k) {
+        for (int i = 0; i < k; i++) {
+            mutate(representation, m);
+        }
+    }
+
+    /**
+     * Split the piece of a random element in place: every other member of that
+     * piece moves to the new piece m with probability 1/2. The chosen element
+     * stays, so the original piece is never emptied. The new piece may be empty
+     * if no member moves.
+     *
+     * @param representation piece labels to mutate
+     * @param m              one more than the largest label in representation
+     * @return one more than the largest label after the split, at most m + 1
+     */
+    public static int split(int[] representation, int m) {
+        final SplittableRandom random = PartitionRandom.current();
+        final int keep = random.nextInt(representation.length);
+        final int piece = representation[keep];
+        for (int i = 0; i < representation.length; i++) {
+            if (i != keep && representation[i] == piece && random.nextBoolean()) {
+                representation[i] = m;
+            }
+        }
+        return m + 1;
+    }
+
+    /**
+     * Merge two random pieces in place by relabeling the members of one with the
+     * label of the other. The result has an empty piece. No-op if there is only
+     * one piece.
+     *
+     * @param representation piece labels to mutate
+     * @param m              one more than the largest label in representation
+     */
+    public static void merge(int[] representation, int m) {
+        if (m < 2) {
+            return;
+        }
+        final SplittableRandom random = PartitionRandom.current();
+        final int into = random.nextInt(m);
+        // A random label other than into
+        final int from = (into + 1 + random.nextInt(m - 1)) % m;
+        for (int i = 0; i < representation.length; i++) {
+            if (representation[i] == from) {
+                representation[i] = into;
+            }
+        }
+    }
+
+    /**
+     * Swap the labels of two random elements in different pieces, in place, so
+     * piece sizes do not change. Gives up after a few draws of elements in the
+     * same piece.
+     *
+     * @param representation piece labels to mutate
+     */
+    public static void swap(int[] representation) {
+        final SplittableRandom random = PartitionRandom.current();
+        for (int attempt = 0; attempt < SWAP_ATTEMPTS; attempt++) {
+            final int i = random.nextInt(representation.length);
+            final int j = random.nextInt(representation.length);
+            if (representation[i] != representation[j]) {
+                final int label = representation[i];
+                representation[i] = representation[j];
+                representation[j] = label;
+                return;
+            }
+        }
+    }
+}
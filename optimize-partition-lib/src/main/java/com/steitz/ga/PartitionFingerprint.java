@@ -0,0 +1,108 @@
+package com.steitz.ga;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit Zobrist-style fingerprints of partitions.
+ * <p>
+ * The fingerprint of a partition array is the XOR over all elements i of a
+ * random-looking 64-bit key for the pair (i, label of i). Keys are computed on
+ * the fly with a SplitMix64 finalizer, so no n x m key table is needed.
+ * <p>
+ * Because the fingerprint is an XOR of per-element keys, moving one element
+ * from one piece to another updates it in O(1) (see update). Fingerprints
+ * depend on labels, so permuted labelings of the same partition have different
+ * fingerprints unless the partitions are in canonical form. ofCanonical
+ * computes the fingerprint of the canonical form without relabeling, which
+ * gives a label-invariant key.
+ * <p>
+ * Distinct partitions collide with probability about 2^-64 per pair.
+ */
+public final class PartitionFingerprint {
+
+    private PartitionFingerprint() {
+    }
+
+    /**
+     * Compute the fingerprint of a partition array.
+     *
+     * @param partition partition represented as an array of ints
+     * @return fingerprint of partition
+     */
+    public static long of(int[] partition) {
+        long fingerprint = 0;
+        for (int i = 0; i < partition.length; i++) {
+            fingerprint ^= key(i, partition[i]);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Compute the fingerprint of the canonical form of a partition array, without
+     * modifying it. Label permutations of the same partition have the same
+     * canonical fingerprint.
+     *
+     * @param partition partition represented as an array of ints
+     * @return fingerprint of the canonical form of partition
+     * @see Partition#canonical()
+     */
+    public static long ofCanonical(int[] partition) {
+        final int m = Partition.maxLabel(partition) + 1;
+        return ofCanonical(partition, m, new int[m]);
+    }
+
+    /**
+     * Compute the fingerprint of the canonical form of a partition array using a
+     * caller-supplied scratch table.
+     *
+     * @param partition partition represented as an array of ints with labels less
+     *                  than m
+     * @param m         one more than the largest label in partition
+     * @param scratch   label table of length at least m; its contents are
+     *                  overwritten
+     * @return fingerprint of the canonical form of partition
+     */
+    public static long ofCanonical(int[] partition, int m, int[] scratch) {
+        Arrays.fill(scratch, 0, m, -1);
+        int next = 0;
+        long fingerprint = 0;
+        for (int i = 0; i < partition.length; i++) {
+            int canonical = scratch[partition[i]];
+            if (canonical < 0) {
+                canonical = next++;
+                scratch[partition[i]] = canonical;
+            }
+            fingerprint ^= key(i, canonical);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Update a fingerprint for moving one element to another piece.
+     *
+     * @param fingerprint fingerprint before the move
+     * @param element     index of the element that moved
+     * @param oldLabel    label of the element before the move
+     * @param newLabel    label of the element after the move
+     * @return fingerprint after the move
+     */
+    public static long update(long fingerprint, int element, int oldLabel, int newLabel) {
+        if (oldLabel == newLabel) {
+            return fingerprint;
+        }
+        return fingerprint ^ key(element, oldLabel) ^ key(element, newLabel);
+    }
+
+    /**
+     * Key for element i being in the piece with the given label.
+     * <p>
+     * SplitMix64 finalizer applied to the pair packed into a long. The finalizer
+     * is a bijection, so distinct pairs have distinct keys.
+     */
+    static long key(int element, int label) {
+        long z = (((long) element << 32) | (label & 0xffffffffL)) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,74 @@
+package com.steitz.ga;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Adapts a list-based PartitionFitness to the IntPartitionFitness interface.
+ * <p>
+ * The int array is presented to the wrapped fitness function as a read-only
+ * List view, so no copy of the representation is made. Elements are still
+ * boxed as the wrapped function reads them.
+ */
+public class PartitionFitnessAdapter implements IntPartitionFitness {
+
+    /** The wrapped list-based fitness function */
+    private final PartitionFitness fitness;
+
+    /**
+     * Create an adapter for the given list-based fitness function.
+     *
+     * @param fitness fitness function to adapt
+     */
+    public PartitionFitnessAdapter(PartitionFitness fitness) {
+        this.fitness = fitness;
+    }
+
+    /**
+     * Return an IntPartitionFitness for the given fitness function.
+     * <p>
+     * If fitness already implements IntPartitionFitness, it is returned as is;
+     * otherwise it is wrapped in a PartitionFitnessAdapter.
+     *
+     * @param fitness fitness function
+     * @return int array fitness function computing the same values as fitness
+     */
+    public static IntPartitionFitness adapt(PartitionFitness fitness) {
+        if (fitness instanceof IntPartitionFitness) {
+            return (IntPartitionFitness) fitness;
+        }
+        return new PartitionFitnessAdapter(fitness);
+    }
+
+    @Override
+    public double fitness(int[] partition) {
+        return fitness.fitness(asList(partition));
+    }
+
+    /**
+     * @return the wrapped fitness function
+     */
+    public PartitionFitness getPartitionFitness() {
+        return fitness;
+    }
+
+    /**
+     * Get a read-only List view of an int array.
+     *
+     * @param partition partition represented as an array of ints
+     * @return List view backed by partition
+     */
+    static List<Integer> asList(int[] partition) {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return partition[index];
+            }
+
+            @Override
+            public int size() {
+                return partition.length;
+            }
+        };
+    }
+}
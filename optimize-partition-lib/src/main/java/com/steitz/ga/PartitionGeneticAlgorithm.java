@@ -0,0 +1,404 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+import org.apache.commons.math3.genetics.CrossoverPolicy;
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.GeneticAlgorithm;
+import org.apache.commons.math3.genetics.MutationPolicy;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.SelectionPolicy;
+import org.apache.commons.math3.genetics.StoppingCondition;
+
+/**
+ * GeneticAlgorithm that evaluates each generation eagerly with a
+ * PopulationEvaluator before the stopping condition and selection look at it.
+ * <p>
+ * With PopulationEvaluator.LAZY this behaves like GeneticAlgorithm. With a
+ * ForkJoinPopulationEvaluator all new chromosomes of a generation are evaluated
+ * in parallel, and selection and elitism then only read cached fitness values.
+ * <p>
+ * An optional LocalSearch makes the algorithm memetic: either every child is
+ * improved by hill climbing before it joins the next generation, or the elites
+ * carried over to the next generation are. An optional DuplicateElimination
+ * replaces children that duplicate partitions already in their generation, so
+ * the evaluator does not re-score clones.
+ * <p>
+ * If the mutation policy is an AdaptivePartitionMutation, its mutation rate
+ * replaces the fixed one and it is told when each generation begins and, once
+ * the generation has been evaluated, ends.
+ * <p>
+ * An optional PopulationCheckpointer writes evaluated generations to disk so a
+ * run can be resumed.
+ * <p>
+ * Each generation's select, breed and evaluate times are measured and
+ * summarized with its fitness in GenerationStatistics, which are reported to
+ * the GenerationListeners added with addGenerationListener. Evaluations are
+ * counted with the evaluation count set by setEvaluationCount, if any.
+ */
+public class PartitionGeneticAlgorithm extends GeneticAlgorithm {
+
+    /** Evaluator applied to each generation */
+    private final PopulationEvaluator evaluator;
+
+    /** Local search applied to children or elites, or null for none */
+    private final LocalSearch localSearch;
+
+    /** Whether local search is applied to the elites instead of the children */
+    private final boolean searchElites;
+
+    /** Duplicate elimination applied to each generation, or null for none */
+    private final DuplicateElimination duplicateElimination;
+
+    /** Checkpointer applied to each evaluated generation, or null for none */
+    private final PopulationCheckpointer checkpointer;
+
+    /** Number of generations evolved by the last call to evolve */
+    private int generationsEvolved;
+
+    /** Listeners told about each evaluated generation */
+    private final List<GenerationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Time spent in the selection policy by the last nextGeneration */
+    private long selectNanos;
+
+    /** Count of fitness evaluations, or null to count chromosomes evaluated */
+    private LongSupplier evaluationCount;
+
+    /** Statistics of the last generation evolved, or null */
+    private volatile GenerationStatistics lastStatistics;
+
+    /**
+     * Create a new genetic algorithm.
+     *
+     * @param crossoverPolicy crossover policy
+     * @param crossoverRate   crossover rate
+     * @param mutationPolicy  mutation policy
+     * @param mutationRate    mutation rate
+     * @param selectionPolicy selection policy
+     * @param evaluator       evaluator applied to each generation
+     */
+    public PartitionGeneticAlgorithm(CrossoverPolicy crossoverPolicy, double crossoverRate,
+            MutationPolicy mutationPolicy, double mutationRate, SelectionPolicy selectionPolicy,
+            PopulationEvaluator evaluator) {
+        this(crossoverPolicy, crossoverRate, mutationPolicy, mutationRate, selectionPolicy, evaluator, null, false);
+    }
+
+    /**
+     * Create a new memetic genetic algorithm.
+     *
+     * @param crossoverPolicy crossover policy
+     * @param crossoverRate   crossover rate
+     * @param mutationPolicy  mutation policy
+     * @param mutationRate    mutation rate
+     * @param selectionPolicy selection policy
+     * @param evaluator       evaluator applied to each generation
+     * @param localSearch     local search, or null for none
+     * @param searchElites    whether local search is applied to the elites of
+     *                        each generation instead of the children
+     */
+    public PartitionGeneticAlgorithm(CrossoverPolicy crossoverPolicy, double crossoverRate,
+            MutationPolicy mutationPolicy, double mutationRate, SelectionPolicy selectionPolicy,
+            PopulationEvaluator evaluator, LocalSearch localSearch, boolean searchElites) {
+        this(crossoverPolicy, crossoverRate, mutationPolicy, mutationRate, selectionPolicy, evaluator, localSearch,
+                searchElites, null);
+    }
+
+    /**
+     * Create a new memetic genetic algorithm with duplicate elimination.
+     *
+     * @param crossoverPolicy      crossover policy
+     * @param crossoverRate        crossover rate
+     * @param mutationPolicy       mutation policy
+     * @param mutationRate         mutation rate
+     * @param selectionPolicy      selection policy
+     * @param evaluator            evaluator applied to each generation
+     * @param localSearch          local search, or null for none
+     * @param searchElites         whether local search is applied to the elites
+     *                             of each generation instead of the children
+     * @param duplicateElimination duplicate elimination applied to each
+     *                             generation, or null for none
+     */
+    public PartitionGeneticAlgorithm(CrossoverPolicy crossoverPolicy, double crossoverRate,
+            MutationPolicy mutationPolicy, double mutationRate, SelectionPolicy selectionPolicy,
+            PopulationEvaluator evaluator, LocalSearch localSearch, boolean searchElites,
+            DuplicateElimination duplicateElimination) {
+        this(crossoverPolicy, crossoverRate, mutationPolicy, mutationRate, selectionPolicy, evaluator, localSearch,
+                searchElites, duplicateElimination, null);
+    }
+
+    /**
+     * Create a new memetic genetic algorithm with duplicate elimination and
+     * checkpoints.
+     *
+     * @param crossoverPolicy      crossover policy
+     * @param crossoverRate        crossover rate
+     * @param mutationPolicy       mutation policy
+     * @param mutationRate         mutation rate
+     * @param selectionPolicy      selection policy
+     * @param evaluator            evaluator applied to each generation
+     * @param localSearch          local search, or null for none
+     * @param searchElites         whether local search is applied to the elites
+     *                             of each generation instead of the children
+     * @param duplicateElimination duplicate elimination applied to each
+     *                             generation, or null for none
+     * @param checkpointer         checkpointer applied to each evaluated
+     *                             generation, or null for none
+     */
+    public PartitionGeneticAlgorithm(CrossoverPolicy crossoverPolicy, double crossoverRate,
+            MutationPolicy mutationPolicy, double mutationRate, SelectionPolicy selectionPolicy,
+            PopulationEvaluator evaluator, LocalSearch localSearch, boolean searchElites,
+            DuplicateElimination duplicateElimination, PopulationCheckpointer checkpointer) {
+        super(crossoverPolicy, crossoverRate, mutationPolicy, mutationRate, selectionPolicy);
+        this.evaluator = evaluator;
+        this.localSearch = localSearch;
+        this.searchElites = searchElites;
+        this.duplicateElimination = duplicateElimination;
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * Evolve the given population until the stopping condition is satisfied,
+     * evaluating every generation, including the initial and final ones, with the
+     * evaluator.
+     *
+     * @param initial   initial population
+     * @param condition stopping condition
+     * @return the population that satisfies the stopping condition
+     */
+    @Override
+    public Population evolve(Population initial, StoppingCondition condition) {
+        Population current = initial;
+        generationsEvolved = 0;
+        final long start = System.nanoTime();
+        final long before = evaluationCount();
+        final int unevaluated = GenerationStatistics.unevaluated(current);
+        evaluator.evaluate(current);
+        if (!listeners.isEmpty()) {
+            fireGenerationEvaluated(0, GenerationStatistics.summarize(current, unevaluated,
+                    evaluationsSince(before, unevaluated), 0, 0, System.nanoTime() - start, start));
+        }
+        while (!condition.isSatisfied(current)) {
+            current = evolveGeneration(current);
+            generationsEvolved++;
+            if (checkpointer != null) {
+                checkpointer.generationEvaluated(generationsEvolved, current);
+            }
+            fireGenerationEvaluated(generationsEvolved, lastStatistics);
+        }
+        return current;
+    }
+
+    /**
+     * Create and evaluate the next generation, ending the generation of an
+     * AdaptivePartitionMutation once it has been evaluated, and record its
+     * statistics for getLastStatistics.
+     *
+     * @param current the current population, already evaluated
+     * @return the evaluated next generation
+     */
+    public Population evolveGeneration(Population current) {
+        final long start = System.nanoTime();
+        final long before = evaluationCount();
+        final Population next = nextGeneration(current);
+        final long evaluateStart = System.nanoTime();
+        final int unevaluated = GenerationStatistics.unevaluated(next);
+        evaluator.evaluate(next);
+        final long evaluateNanos = System.nanoTime() - evaluateStart;
+        if (getMutationPolicy() instanceof AdaptivePartitionMutation) {
+            ((AdaptivePartitionMutation) getMutationPolicy()).endGeneration();
+        }
+        lastStatistics = GenerationStatistics.summarize(next, unevaluated, evaluationsSince(before, unevaluated),
+                selectNanos, evaluateStart - start - selectNanos, evaluateNanos, start);
+        return next;
+    }
+
+    /**
+     * @return the evaluation count, or 0 if there is none
+     */
+    private long evaluationCount() {
+        return evaluationCount == null ? 0 : evaluationCount.getAsLong();
+    }
+
+    /**
+     * @param before      evaluationCount() at the start of the generation
+     * @param unevaluated chromosomes the evaluator had to score
+     * @return evaluations of the generation: the increase of the evaluation
+     *         count, or unevaluated if there is none
+     */
+    private int evaluationsSince(long before, int unevaluated) {
+        return evaluationCount == null ? unevaluated : (int) (evaluationCount.getAsLong() - before);
+    }
+
+    /**
+     * Tell the listeners about an evaluated generation.
+     */
+    private void fireGenerationEvaluated(int generation, GenerationStatistics statistics) {
+        for (GenerationListener listener : listeners) {
+            listener.generationEvaluated(generation, statistics);
+        }
+    }
+
+    /**
+     * Create the next generation, as GeneticAlgorithm does, applying the local
+     * search and duplicate elimination if there are any.
+     * <p>
+     * Crossover and mutation are decided with the calling thread's PartitionRandom
+     * stream instead of GeneticAlgorithm's shared generator.
+     * <p>
+     * Local search evaluates the chromosomes it improves on the calling thread,
+     * so children searched before the evaluator runs are evaluated sequentially.
+     * Elites are searched only if current is an ElitisticListPopulation. Children
+     * are checked for duplicates after local search.
+     *
+     * @param current the current population
+     * @return the next generation
+     */
+    @Override
+    public Population nextGeneration(Population current) {
+        selectNanos = 0;
+        Population next = current.nextGeneration();
+        if (localSearch != null && searchElites && current instanceof ElitisticListPopulation) {
+            final List<Chromosome> elites = new ArrayList<>();
+            for (Chromosome elite : next) {
+                elites.add(localSearch.improve(elite));
+            }
+            next = new ElitisticListPopulation(elites, next.getPopulationLimit(),
+                    ((ElitisticListPopulation) current).getElitismRate());
+        }
+        if (duplicateElimination != null) {
+            duplicateElimination.beginGeneration(next);
+        }
+        if (getMutationPolicy() instanceof AdaptivePartitionMutation) {
+            ((AdaptivePartitionMutation) getMutationPolicy()).beginGeneration(current);
+        }
+        final SplittableRandom random = PartitionRandom.current();
+        while (next.getPopulationSize() < next.getPopulationLimit()) {
+            final long selectStart = System.nanoTime();
+            ChromosomePair pair = getSelectionPolicy().select(current);
+            selectNanos += System.nanoTime() - selectStart;
+            if (random.nextDouble() < getCrossoverRate()) {
+                pair = getCrossoverPolicy().crossover(pair.getFirst(), pair.getSecond());
+            }
+            if (random.nextDouble() < getMutationRate()) {
+                pair = new ChromosomePair(getMutationPolicy().mutate(pair.getFirst()),
+                        getMutationPolicy().mutate(pair.getSecond()));
+            }
+            next.addChromosome(child(pair.getFirst()));
+            if (next.getPopulationSize() < next.getPopulationLimit()) {
+                next.addChromosome(child(pair.getSecond()));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Apply the local search, unless it is applied to elites, and duplicate
+     * elimination to a child.
+     *
+     * @param child child produced by selection, crossover and mutation
+     * @return the chromosome to add to the next generation
+     */
+    private Chromosome child(Chromosome child) {
+        Chromosome out = child;
+        if (localSearch != null && !searchElites) {
+            out = localSearch.improve(out);
+        }
+        if (duplicateElimination != null) {
+            out = duplicateElimination.unique(out);
+        }
+        return out;
+    }
+
+    /**
+     * @return the current rate of the AdaptivePartitionMutation if that is the
+     *         mutation policy, otherwise the fixed mutation rate
+     */
+    @Override
+    public double getMutationRate() {
+        if (getMutationPolicy() instanceof AdaptivePartitionMutation) {
+            return ((AdaptivePartitionMutation) getMutationPolicy()).getMutationRate();
+        }
+        return super.getMutationRate();
+    }
+
+    /**
+     * @return the number of generations evolved by the last call to evolve
+     */
+    @Override
+    public int getGenerationsEvolved() {
+        return generationsEvolved;
+    }
+
+    /**
+     * Add a listener to be told about each generation evaluated by evolve.
+     *
+     * @param listener listener
+     */
+    public void addGenerationListener(GenerationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener listener to stop telling about generations
+     */
+    public void removeGenerationListener(GenerationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Count the evaluations of each generation with a count of fitness function
+     * calls, so that calls made while breeding, by local search, mutation
+     * operators and duplicate elimination, are included. Call before evolve.
+     *
+     * @param evaluationCount count of fitness function calls, such as
+     *                        CountingPartitionFitness::getCount for the fitness
+     *                        function of the chromosomes, or null to count the
+     *                        chromosomes the evaluator has to score
+     */
+    public void setEvaluationCount(LongSupplier evaluationCount) {
+        this.evaluationCount = evaluationCount;
+    }
+
+    /**
+     * @return statistics of the last generation created by evolveGeneration, or
+     *         null if there has been none
+     */
+    public GenerationStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    /**
+     * @return the evaluator applied to each generation
+     */
+    public PopulationEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * @return the local search, or null if there is none
+     */
+    public LocalSearch getLocalSearch() {
+        return localSearch;
+    }
+
+    /**
+     * @return the duplicate elimination, or null if there is none
+     */
+    public DuplicateElimination getDuplicateElimination() {
+        return duplicateElimination;
+    }
+
+    /**
+     * @return the checkpointer, or null if there is none
+     */
+    public PopulationCheckpointer getCheckpointer() {
+        return checkpointer;
+    }
+}
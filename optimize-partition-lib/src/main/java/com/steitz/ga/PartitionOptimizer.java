@@ -1,9 +1,23 @@
 package com.steitz.ga;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
 import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.CrossoverPolicy;
+import org.apache.commons.math3.genetics.FixedElapsedTime;
+import org.apache.commons.math3.genetics.FixedGenerationCount;
 import org.apache.commons.math3.genetics.GeneticAlgorithm;
+import org.apache.commons.math3.genetics.MutationPolicy;
 import org.apache.commons.math3.genetics.Population;
 import org.apache.commons.math3.genetics.StoppingCondition;
+import org.apache.commons.math3.genetics.SelectionPolicy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -15,6 +29,27 @@ import org.apache.logging.log4j.Logger;
  */
 public abstract class PartitionOptimizer {
 
+    /** Smallest rate an adaptive mutation rate is lowered to */
+    private static final double MIN_ADAPTIVE_MUTATION_RATE = 0.01;
+
+    /** How long to keep trying to connect to the migration coordinator */
+    private static final long MIGRATION_CONNECT_MILLIS = 30_000;
+
+    /**
+     * How long rank 0 waits at the end of a run for the other processes to
+     * disconnect from its migration coordinator
+     */
+    private static final long MIGRATION_FINISH_MILLIS = 300_000;
+
+    /** Generation number of the population the current run starts from */
+    private int startGeneration;
+
+    /** Thread running this process's migration coordinator, if it runs one */
+    private Thread migrationCoordinator;
+
+    /** RemotePartitionFitness created by newFitnessFunction, if any */
+    private RemotePartitionFitness remoteFitness;
+
     /**
      * Get the configuration for the partition optimization algorithm.
      */
@@ -41,6 +76,362 @@ public abstract class PartitionOptimizer {
      */
     public abstract GeneticAlgorithm createGeneticAlgorithm(PartitionOptimizerConfig config);
 
+    /**
+     * Get the fitness function used to rebuild chromosomes read from checkpoints
+     * or received from other processes.
+     * <p>
+     * Subclasses that read checkpoints or migrate over sockets must override
+     * this; the default throws, so other subclasses need not.
+     *
+     * @return fitness function of the chromosomes in getInitialPopulation
+     * @throws UnsupportedOperationException if not overridden
+     */
+    public IntPartitionFitness getFitnessFunction() {
+        throw new UnsupportedOperationException(
+                getClass().getName() + " must override getFitnessFunction to read checkpoints or migrate over sockets");
+    }
+
+    /**
+     * Create the stopping condition for the given config.
+     * <p>
+     * The algorithm stops after numGenerations generations, or earlier when any
+     * of the optional conditions set in the config is satisfied: stagnation of
+     * the best fitness, a wall-clock deadline, a number of fitness evaluations or
+     * a target fitness. After resume, numGenerations counts the generations
+     * evolved before the checkpoint.
+     *
+     * @param config          optimizer config
+     * @param evaluationCount supplier of the number of fitness evaluations made so
+     *                        far, used if the config sets maxEvaluations
+     */
+    public StoppingCondition newStoppingCondition(PartitionOptimizerConfig config, LongSupplier evaluationCount) {
+        final List<StoppingCondition> conditions = new ArrayList<>();
+        // A resumed run has already evolved startGeneration generations
+        conditions.add(new FixedGenerationCount(Math.max(config.getNumGenerations() - startGeneration, 1)));
+        if (config.getStagnationGenerations() > 0) {
+            conditions.add(new FitnessStagnation(config.getStagnationGenerations(), config.getStagnationTolerance()));
+        }
+        if (config.getMaxElapsedSeconds() > 0) {
+            conditions.add(new FixedElapsedTime(config.getMaxElapsedSeconds()));
+        }
+        if (config.getMaxEvaluations() > 0) {
+            conditions.add(new FixedEvaluationCount(evaluationCount, config.getMaxEvaluations()));
+        }
+        if (!Double.isNaN(config.getTargetFitness())) {
+            conditions.add(new TargetFitness(config.getTargetFitness()));
+        }
+        return conditions.size() == 1 ? conditions.get(0) : new AnyStoppingCondition(conditions);
+    }
+
+    /**
+     * Create a genetic algorithm for the given config and operators, using
+     * newSelectionPolicy(config).
+     * <p>
+     * If the config sets pipelineInFlight, the result is a
+     * PipelinedGeneticAlgorithm that evaluates on a thread per task with at most
+     * that many evaluations in flight, on an executor shut down when evolve
+     * returns. Otherwise it is a PartitionGeneticAlgorithm
+     * using createPopulationEvaluator(config) and, if the config sets
+     * localSearchMoves, a LocalSearch applied to children or elites and, if it
+     * sets deduplication, a DuplicateElimination and, if it sets checkpointFile,
+     * a PopulationCheckpointer. Local search, duplicate elimination and
+     * checkpoints are not applied by the pipelined algorithm; a warning is
+     * logged if the config sets checkpointFile with pipelineInFlight.
+     * <p>
+     * If the config sets more than one island, the result is an
+     * IslandGeneticAlgorithm whose islands are PartitionGeneticAlgorithms built
+     * as above, each with its own selection policy, evaluator, duplicate
+     * elimination and, if the mutation is adaptive, mutation policy. The
+     * checkpointer applies to the union of the islands.
+     * <p>
+     * If the config sets migrationPeers, the result is an IslandGeneticAlgorithm
+     * with at least one island whose migrations go through
+     * newMigrationTransport, exchanging migrants with the islands of the other
+     * peers.
+     * <p>
+     * If getFitnessFunction() is a CountingPartitionFitness, the generation
+     * statistics of a PartitionGeneticAlgorithm or IslandGeneticAlgorithm count
+     * its evaluations, including those made while breeding.
+     *
+     * @throws IllegalArgumentException if tournament selection is configured
+     *                                  with fewer chromosomes per island than
+     *                                  the tournament arity
+     */
+    public GeneticAlgorithm newGeneticAlgorithm(PartitionOptimizerConfig config, CrossoverPolicy crossover,
+            MutationPolicy mutation) {
+        final SelectionPolicy selection = newSelectionPolicy(config);
+        if (config.getPipelineInFlight() > 0) {
+            if (!config.getCheckpointFile().isEmpty()) {
+                logger.warn("Checkpoints are not written in pipelined mode; ignoring checkpointFile "
+                        + config.getCheckpointFile());
+            }
+            return new PipelinedGeneticAlgorithm(crossover, config.getCrossoverRate(), mutation,
+                    config.getMutationRate(), selection, config.getPipelineInFlight(),
+                    Math.max(config.getTournamentArity(), 2));
+        }
+        final LocalSearch localSearch = config.getLocalSearchMoves() > 0
+                ? new LocalSearch(config.getLocalSearchMoves(), config.getLocalSearchEvaluations(),
+                        config.isLocalSearchFirstImprovement(), config.isCanonicalLabels())
+                : null;
+        final PopulationCheckpointer checkpointer = config.getCheckpointFile().isEmpty() ? null
+                : new PopulationCheckpointer(Paths.get(config.getCheckpointFile()), config.getCheckpointInterval(),
+                        startGeneration);
+        final boolean distributed = !config.getMigrationPeers().isEmpty();
+        if (config.getIslands() > 1 || distributed) {
+            final int islandCount = Math.max(config.getIslands(), 1);
+            if ("tournament".equals(config.getSelection())
+                    && config.getPopulationSize() / islandCount < config.getTournamentArity()) {
+                throw new IllegalArgumentException("Population size " + config.getPopulationSize() + " over "
+                        + islandCount + " islands leaves fewer chromosomes per island than tournament arity "
+                        + config.getTournamentArity());
+            }
+            final List<PartitionGeneticAlgorithm> islands = new ArrayList<>();
+            for (int i = 0; i < islandCount; i++) {
+                // Adaptive mutation, selection and deduplication keep per-population state
+                final MutationPolicy islandMutation = mutation instanceof AdaptivePartitionMutation
+                        ? ((AdaptivePartitionMutation) mutation).copy()
+                        : mutation;
+                islands.add(new PartitionGeneticAlgorithm(crossover, config.getCrossoverRate(), islandMutation,
+                        config.getMutationRate(), newSelectionPolicy(config),
+                        createPopulationEvaluator(config), localSearch, config.isLocalSearchElites(),
+                        newDuplicateElimination(config, islandMutation)));
+            }
+            final IslandGeneticAlgorithm ga = distributed
+                    ? new IslandGeneticAlgorithm(islands, newMigrationTransport(config, islandCount),
+                            config.getMigrationInterval(), config.getMigrants(), checkpointer, startGeneration)
+                    : new IslandGeneticAlgorithm(islands, newMigrationTopology(config),
+                            config.getMigrationInterval(), config.getMigrants(), checkpointer, startGeneration);
+            ga.setEvaluationCount(evaluationCount());
+            return ga;
+        }
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(crossover, config.getCrossoverRate(),
+                mutation, config.getMutationRate(), selection, createPopulationEvaluator(config), localSearch,
+                config.isLocalSearchElites(), newDuplicateElimination(config, mutation), checkpointer);
+        ga.setEvaluationCount(evaluationCount());
+        return ga;
+    }
+
+    /**
+     * @return CountingPartitionFitness::getCount of getFitnessFunction(), or
+     *         null if it is not overridden or does not count its evaluations
+     */
+    private LongSupplier evaluationCount() {
+        final IntPartitionFitness fitness;
+        try {
+            fitness = getFitnessFunction();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        return fitness instanceof CountingPartitionFitness ? ((CountingPartitionFitness) fitness)::getCount : null;
+    }
+
+    /**
+     * Get the island migration topology named by the config: "ring" or "full".
+     *
+     * @param config optimizer config
+     * @throws IllegalArgumentException if the topology name is not recognized
+     */
+    public IslandGeneticAlgorithm.Topology newMigrationTopology(PartitionOptimizerConfig config) {
+        switch (config.getMigrationTopology()) {
+            case "ring":
+                return IslandGeneticAlgorithm.Topology.RING;
+            case "full":
+                return IslandGeneticAlgorithm.Topology.FULL;
+            default:
+                throw new IllegalArgumentException("Unknown migration topology: " + config.getMigrationTopology());
+        }
+    }
+
+    /**
+     * Connect this process to the migration coordinator of a multi-process
+     * island run, at the first of the config's migrationPeers. The number of
+     * peers is the number of processes; if the config's migrationRank is 0,
+     * this process starts the coordinator on a daemon thread first.
+     *
+     * @param config  optimizer config
+     * @param islands number of islands in this process
+     * @return transport connected to the coordinator
+     * @throws IllegalArgumentException if the peers or rank are not valid
+     * @throws UncheckedIOException     if the coordinator cannot be bound or
+     *                                  reached
+     */
+    public MigrationTransport newMigrationTransport(PartitionOptimizerConfig config, int islands) {
+        final String[] peers = config.getMigrationPeers().split(",");
+        final int rank = config.getMigrationRank();
+        if (rank < 0 || rank >= peers.length) {
+            throw new IllegalArgumentException("Migration rank must be in [0, " + peers.length + "): " + rank);
+        }
+        final SocketAddress coordinator = SocketMigrationTransport.parseAddress(peers[0]);
+        try {
+            if (rank == 0) {
+                migrationCoordinator = new MigrationCoordinator(coordinator, peers.length,
+                        newMigrationTopology(config), config.getMigrants()).start();
+            }
+            return new SocketMigrationTransport(coordinator, rank, islands, getFitnessFunction(),
+                    MIGRATION_CONNECT_MILLIS);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to connect to migration coordinator " + peers[0], ex);
+        }
+    }
+
+    /**
+     * Create the duplicate elimination named by the config's deduplication:
+     * "none", "mutated" or "random".
+     *
+     * @param config   optimizer config
+     * @param mutation mutation policy used to replace duplicates with mutants
+     * @return duplicate elimination, or null for "none"
+     * @throws IllegalArgumentException if the deduplication name is not
+     *                                  recognized
+     */
+    public DuplicateElimination newDuplicateElimination(PartitionOptimizerConfig config, MutationPolicy mutation) {
+        switch (config.getDeduplication()) {
+            case "none":
+                return null;
+            case "mutated":
+                return new DuplicateElimination(DuplicateElimination.Replacement.MUTATED, mutation);
+            case "random":
+                return new DuplicateElimination(DuplicateElimination.Replacement.RANDOM, mutation);
+            default:
+                throw new IllegalArgumentException("Unknown deduplication: " + config.getDeduplication());
+        }
+    }
+
+    /**
+     * Create the selection policy named by the config.
+     * <p>
+     * "tournament" selects IndexTournamentSelection with the config's
+     * tournamentArity, and "rank" selects RankSelection with its
+     * selectionPressure.
+     *
+     * @param config optimizer config
+     * @throws IllegalArgumentException if the selection name is not recognized
+     */
+    public SelectionPolicy newSelectionPolicy(PartitionOptimizerConfig config) {
+        switch (config.getSelection()) {
+            case "tournament":
+                return new IndexTournamentSelection(config.getTournamentArity());
+            case "rank":
+                return new RankSelection(config.getSelectionPressure());
+            default:
+                throw new IllegalArgumentException("Unknown selection: " + config.getSelection());
+        }
+    }
+
+    /**
+     * Create the crossover policy named by the config.
+     * <p>
+     * "interleave" selects PartitionChromosomeCrossover, which interleaves the
+     * parents' labels, "aligned" selects AlignedPartitionCrossover, which aligns
+     * the parents' labels by piece overlap before interleaving, and "grouping"
+     * selects GroupingPartitionCrossover, which injects whole pieces of one
+     * parent into the other. All relabel children in canonical form if the
+     * config sets canonicalLabels.
+     *
+     * @param config  optimizer config
+     * @param fitness fitness function for PartitionChromosome children
+     * @throws IllegalArgumentException if the crossover name is not recognized
+     */
+    public CrossoverPolicy newCrossoverPolicy(PartitionOptimizerConfig config, PartitionFitness fitness) {
+        switch (config.getCrossover()) {
+            case "interleave":
+                return new PartitionChromosomeCrossover(fitness, config.isCanonicalLabels());
+            case "aligned":
+                return new AlignedPartitionCrossover(fitness, config.isCanonicalLabels());
+            case "grouping":
+                return new GroupingPartitionCrossover(fitness, config.isCanonicalLabels());
+            default:
+                throw new IllegalArgumentException("Unknown crossover: " + config.getCrossover());
+        }
+    }
+
+    /**
+     * Create the mutation policy described by the config.
+     * <p>
+     * If the config sets adaptiveMutation, the result is an
+     * AdaptivePartitionMutation starting from the config's mutation rate and
+     * operator weights (single element moves only if mutationOperators is
+     * empty), with the rate kept in [0.01, 1]. Otherwise, if it sets
+     * mutationOperators, the result is a CompositePartitionMutation, and if not,
+     * a PartitionChromosomeMutation. All relabel mutants in canonical form if
+     * the config sets canonicalLabels.
+     *
+     * @param config  optimizer config
+     * @param fitness fitness function for PartitionChromosome mutants
+     * @throws IllegalArgumentException if mutationOperators names an unknown
+     *                                  operator or has no positive weight
+     */
+    public MutationPolicy newMutationPolicy(PartitionOptimizerConfig config, PartitionFitness fitness) {
+        final String operators = config.getMutationOperators();
+        if (config.isAdaptiveMutation()) {
+            return new AdaptivePartitionMutation(fitness, config.isCanonicalLabels(), config.getMutationK(),
+                    CompositePartitionMutation.parseWeights(operators.isEmpty() ? "move:1" : operators),
+                    config.getMutationRate(), Math.min(MIN_ADAPTIVE_MUTATION_RATE, config.getMutationRate()), 1);
+        }
+        if (!operators.isEmpty()) {
+            return new CompositePartitionMutation(fitness, config.isCanonicalLabels(), config.getMutationK(),
+                    CompositePartitionMutation.parseWeights(operators));
+        }
+        return new PartitionChromosomeMutation(fitness, config.isCanonicalLabels());
+    }
+
+    /**
+     * Create the evaluator applied to each generation by a
+     * PartitionGeneticAlgorithm.
+     * <p>
+     * If the config sets batchEvaluation or fitnessWorkers, each generation is
+     * evaluated with one BatchPartitionFitness call. Otherwise, if it sets ioConcurrency, evaluations
+     * run on virtual threads with at most that many in flight, and if not,
+     * evaluationParallelism selects lazy, sequential or ForkJoinPool evaluation.
+     */
+    public PopulationEvaluator createPopulationEvaluator(PartitionOptimizerConfig config) {
+        if (config.isBatchEvaluation() || !config.getFitnessWorkers().isEmpty()) {
+            return new BatchPopulationEvaluator();
+        }
+        if (config.getIoConcurrency() > 0) {
+            return ExecutorPopulationEvaluator.virtualThreads(config.getIoConcurrency());
+        }
+        return PopulationEvaluator.forParallelism(config.getEvaluationParallelism());
+    }
+
+    /**
+     * Get the fitness function chromosomes should use: fitness itself, or if the
+     * config sets fitnessWorkers, a RemotePartitionFitness that evaluates on
+     * those workers, which must host the same function. Its connections are
+     * closed at the end of each run and reopened by the next.
+     *
+     * @param config  optimizer config
+     * @param fitness fitness function evaluated in this process
+     * @return fitness, or a RemotePartitionFitness
+     */
+    public IntPartitionFitness newFitnessFunction(PartitionOptimizerConfig config, IntPartitionFitness fitness) {
+        if (config.getFitnessWorkers().isEmpty()) {
+            return fitness;
+        }
+        remoteFitness = new RemotePartitionFitness(
+                RemotePartitionFitness.parseWorkers(config.getFitnessWorkers()), config.getFitnessChunkSize(),
+                config.getFitnessConnectTimeoutMillis(), config.getFitnessReadTimeoutMillis());
+        return remoteFitness;
+    }
+
+    /**
+     * Make PartitionRandom the source of randomness for this run.
+     * <p>
+     * Seeds PartitionRandom if the config sets a seed, offset by the config's
+     * migrationRank so the processes of a multi-process run differ, and
+     * installs it as
+     * GeneticAlgorithm's random generator so commons-math policies draw from the
+     * same per-thread streams as the partition operators.
+     *
+     * @param config optimizer config
+     */
+    public void seedRandom(PartitionOptimizerConfig config) {
+        if (config.getSeed() != 0) {
+            PartitionRandom.setSeed(config.getSeed() + config.getMigrationRank());
+        }
+        GeneticAlgorithm.setRandomGenerator(PartitionRandom.generator());
+    }
+
     /**
      * Get the logger for this class
      */
@@ -49,21 +440,109 @@ public abstract class PartitionOptimizer {
     /**
      * Execute the partition optimization algorithm.
      * <p>
-     * Default implementation writes the best fitness and partition to the console.
+     * The run starts from the population in the config's initialPopulationFile
+     * if it sets one, and otherwise from getInitialPopulation. Default
+     * implementation writes the best fitness and partition to the console and,
+     * if the config sets statisticsFile, per-generation statistics to that CSV
+     * file.
+     *
+     * @throws UncheckedIOException if the initial population file cannot be read
      */
     public void execute() {
+        // Route randomness through PartitionRandom, seeded if the config asks
+        seedRandom(getPartionOptimizerConfig());
+        startGeneration = 0;
+
         // Generate initial population
-        final Population initialPopulation = getInitialPopulation(getPartionOptimizerConfig());
+        final Population initialPopulation;
+        if (getPartionOptimizerConfig().getInitialPopulationFile().isEmpty()) {
+            initialPopulation = getInitialPopulation(getPartionOptimizerConfig());
+        } else {
+            initialPopulation = readCheckpoint(Paths.get(getPartionOptimizerConfig().getInitialPopulationFile()))
+                    .toPopulation(getFitnessFunction(), getPartionOptimizerConfig().getPopulationSize(),
+                            getPartionOptimizerConfig().getElitismRate());
+        }
+        run(initialPopulation);
+    }
 
-        // Set stopping condition
-        final StoppingCondition stoppingCondition = getStoppingCondition();
+    /**
+     * Resume an interrupted run from a checkpoint written by a run with the same
+     * problem and config.
+     * <p>
+     * Evolution continues from the checkpointed population and generation with
+     * the checkpointed PartitionRandom seed, and stops when numGenerations
+     * generations have been evolved in total. Other stopping conditions, such as
+     * maxEvaluations, maxElapsedSeconds or stagnation, restart from zero, as does
+     * the other run state listed in PopulationCheckpoint.
+     *
+     * @param checkpoint checkpoint file
+     * @throws UncheckedIOException if the checkpoint cannot be read
+     */
+    public void resume(Path checkpoint) {
+        seedRandom(getPartionOptimizerConfig());
+        final PopulationCheckpoint saved = readCheckpoint(checkpoint);
+        final Population population = saved.toPopulation(getFitnessFunction(),
+                getPartionOptimizerConfig().getPopulationSize(), getPartionOptimizerConfig().getElitismRate());
+        startGeneration = saved.getGeneration();
+        PartitionRandom.setSeed(saved.getSeed());
+        logger.info("Resuming from " + checkpoint + " at generation " + startGeneration);
+        run(population);
+    }
+
+    /**
+     * @param file checkpoint file
+     * @return checkpoint read from file
+     * @throws UncheckedIOException if the checkpoint cannot be read
+     */
+    private static PopulationCheckpoint readCheckpoint(Path file) {
+        try {
+            return PopulationCheckpoint.read(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read checkpoint " + file, ex);
+        }
+    }
 
+    /**
+     * Evolve a start population and report the best chromosome.
+     *
+     * @param initialPopulation start population, at generation startGeneration
+     */
+    private void run(Population initialPopulation) {
         // Display configuration
         System.out.println("Executing PartitionOptimzer with config " + getPartionOptimizerConfig());
 
+        if (startGeneration >= getPartionOptimizerConfig().getNumGenerations()) {
+            logger.info("Checkpoint is already at generation " + startGeneration);
+            final Chromosome best = initialPopulation.getFittestChromosome();
+            logger.info("Best fitness: " + best.fitness());
+            logger.info("Best Partition:");
+            logger.info(best);
+            return;
+        }
+
+        // Set stopping condition
+        final StoppingCondition stoppingCondition = getStoppingCondition();
+
         // run the algorithm
-        final Population finalPopulation = createGeneticAlgorithm(
-                getPartionOptimizerConfig()).evolve(initialPopulation, stoppingCondition);
+        final GeneticAlgorithm ga = createGeneticAlgorithm(getPartionOptimizerConfig());
+        final CsvGenerationListener statistics = newStatisticsListener(getPartionOptimizerConfig(), ga);
+        final Population finalPopulation;
+        try {
+            finalPopulation = ga.evolve(initialPopulation, stoppingCondition);
+        } finally {
+            closeMigration(ga);
+            closeEvaluators(ga);
+            if (remoteFitness != null) {
+                remoteFitness.close();
+            }
+            if (statistics != null) {
+                try {
+                    statistics.close();
+                } catch (IOException ex) {
+                    logger.warn("Failed to close statistics file", ex);
+                }
+            }
+        }
 
         // best chromosome from the final population
         final Chromosome bestFinal = finalPopulation.getFittestChromosome();
@@ -72,5 +551,79 @@ public abstract class PartitionOptimizer {
         logger.info("Best fitness: " + bestFinal.fitness());
         logger.info("Best Partition:");
         logger.info(bestFinal);
+        if (ga instanceof PartitionGeneticAlgorithm
+                && ((PartitionGeneticAlgorithm) ga).getDuplicateElimination() != null) {
+            logger.info("Duplicates eliminated: "
+                    + ((PartitionGeneticAlgorithm) ga).getDuplicateElimination().getTotalEliminated());
+        }
+    }
+
+    /**
+     * Add a CsvGenerationListener writing to the config's statisticsFile to a
+     * PartitionGeneticAlgorithm or IslandGeneticAlgorithm.
+     *
+     * @return the listener, or null if the config sets no statisticsFile or
+     *         the algorithm does not report generations
+     * @throws UncheckedIOException if the file cannot be created
+     */
+    private static CsvGenerationListener newStatisticsListener(PartitionOptimizerConfig config,
+            GeneticAlgorithm ga) {
+        if (config.getStatisticsFile().isEmpty()) {
+            return null;
+        }
+        if (!(ga instanceof PartitionGeneticAlgorithm) && !(ga instanceof IslandGeneticAlgorithm)) {
+            logger.warn(ga.getClass().getSimpleName() + " does not report generation statistics");
+            return null;
+        }
+        final CsvGenerationListener listener;
+        try {
+            listener = new CsvGenerationListener(Paths.get(config.getStatisticsFile()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create statistics file " + config.getStatisticsFile(), ex);
+        }
+        if (ga instanceof PartitionGeneticAlgorithm) {
+            ((PartitionGeneticAlgorithm) ga).addGenerationListener(listener);
+        } else {
+            ((IslandGeneticAlgorithm) ga).addGenerationListener(listener);
+        }
+        return listener;
+    }
+
+    /**
+     * Close the evaluators of a PartitionGeneticAlgorithm or of the islands of
+     * an IslandGeneticAlgorithm, shutting down the pools they own.
+     */
+    private static void closeEvaluators(GeneticAlgorithm ga) {
+        if (ga instanceof PartitionGeneticAlgorithm) {
+            ((PartitionGeneticAlgorithm) ga).getEvaluator().close();
+        } else if (ga instanceof IslandGeneticAlgorithm) {
+            for (PartitionGeneticAlgorithm island : ((IslandGeneticAlgorithm) ga).getIslands()) {
+                island.getEvaluator().close();
+            }
+        }
+    }
+
+    /**
+     * Close the migration transport of an island model, which tells the
+     * coordinator this process has finished, and wait for this process's
+     * coordinator, if it runs one, to finish routing the other processes'
+     * migrants, for at most MIGRATION_FINISH_MILLIS.
+     */
+    private void closeMigration(GeneticAlgorithm ga) {
+        if (ga instanceof IslandGeneticAlgorithm) {
+            ((IslandGeneticAlgorithm) ga).getTransport().close();
+        }
+        if (migrationCoordinator != null) {
+            try {
+                migrationCoordinator.join(MIGRATION_FINISH_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (migrationCoordinator.isAlive()) {
+                logger.warn("Other processes are still connected to the migration coordinator after "
+                        + MIGRATION_FINISH_MILLIS / 1000 + " seconds; exiting without them");
+            }
+            migrationCoordinator = null;
+        }
     }
 }
@@ -11,6 +11,42 @@ public class PartitionOptimizerConfig {
     private final double mutationRate;
     private final double crossoverRate;
     private final double elitismRate;
+    private final boolean canonicalLabels;
+    private final int evaluationParallelism;
+    private final int ioConcurrency;
+    private final boolean batchEvaluation;
+    private final int pipelineInFlight;
+    private final int stagnationGenerations;
+    private final double stagnationTolerance;
+    private final long maxElapsedSeconds;
+    private final long maxEvaluations;
+    private final double targetFitness;
+    private final int localSearchMoves;
+    private final boolean localSearchFirstImprovement;
+    private final boolean localSearchElites;
+    private final String crossover;
+    private final String deduplication;
+    private final String selection;
+    private final double selectionPressure;
+    private final long seed;
+    private final String mutationOperators;
+    private final int mutationK;
+    private final boolean adaptiveMutation;
+    private final String checkpointFile;
+    private final int checkpointInterval;
+    private final String initialPopulationFile;
+    private final int islands;
+    private final String migrationTopology;
+    private final int migrationInterval;
+    private final int migrants;
+    private final String migrationPeers;
+    private final int migrationRank;
+    private final String fitnessWorkers;
+    private final int fitnessChunkSize;
+    private final String statisticsFile;
+    private final int localSearchEvaluations;
+    private final int fitnessConnectTimeoutMillis;
+    private final int fitnessReadTimeoutMillis;
 
     public int getPopulationSize() {
         return populationSize;
@@ -36,12 +72,337 @@ public class PartitionOptimizerConfig {
         return tournamentArity;
     }
 
+    /**
+     * @return whether crossover and mutation relabel chromosomes in canonical form
+     * @see Partition#canonical()
+     */
+    public boolean isCanonicalLabels() {
+        return canonicalLabels;
+    }
+
+    /**
+     * @return 0 for lazy fitness evaluation, otherwise the number of threads used
+     *         to evaluate each generation eagerly
+     * @see PopulationEvaluator#forParallelism(int)
+     */
+    public int getEvaluationParallelism() {
+        return evaluationParallelism;
+    }
+
+    /**
+     * @return 0 unless fitness evaluations are I/O-bound, otherwise the maximum
+     *         number of evaluations run concurrently on virtual threads against
+     *         each fitness backend
+     * @see ExecutorPopulationEvaluator
+     */
+    public int getIoConcurrency() {
+        return ioConcurrency;
+    }
+
+    /**
+     * @return whether each generation is evaluated with one batch fitness call
+     * @see BatchPopulationEvaluator
+     */
+    public boolean isBatchEvaluation() {
+        return batchEvaluation;
+    }
+
+    /**
+     * @return 0 for generational evaluation, otherwise the maximum number of
+     *         fitness evaluations in flight in a pipelined GA
+     * @see PipelinedGeneticAlgorithm
+     */
+    public int getPipelineInFlight() {
+        return pipelineInFlight;
+    }
+
+    /**
+     * @return number of generations without improvement in best fitness to stop
+     *         after, or 0 to not stop on stagnation
+     * @see FitnessStagnation
+     */
+    public int getStagnationGenerations() {
+        return stagnationGenerations;
+    }
+
+    /**
+     * @return minimum increase in best fitness that counts as an improvement
+     */
+    public double getStagnationTolerance() {
+        return stagnationTolerance;
+    }
+
+    /**
+     * @return wall-clock seconds to stop after, or 0 for no deadline
+     */
+    public long getMaxElapsedSeconds() {
+        return maxElapsedSeconds;
+    }
+
+    /**
+     * @return number of fitness evaluations to stop after, or 0 for no limit
+     * @see FixedEvaluationCount
+     */
+    public long getMaxEvaluations() {
+        return maxEvaluations;
+    }
+
+    /**
+     * @return fitness at which to stop, or NaN for no target
+     * @see TargetFitness
+     */
+    public double getTargetFitness() {
+        return targetFitness;
+    }
+
+    /**
+     * @return maximum number of moves local search scores per chromosome, or 0
+     *         for no local search
+     * @see LocalSearch
+     */
+    public int getLocalSearchMoves() {
+        return localSearchMoves;
+    }
+
+    /**
+     * @return true if local search applies the first improving move instead of
+     *         the best one
+     */
+    public boolean isLocalSearchFirstImprovement() {
+        return localSearchFirstImprovement;
+    }
+
+    /**
+     * @return true if local search improves the elites of each generation
+     *         instead of the children
+     */
+    public boolean isLocalSearchElites() {
+        return localSearchElites;
+    }
+
+    /**
+     * @return crossover policy: "interleave" (default), "aligned" or "grouping"
+     * @see PartitionOptimizer#newCrossoverPolicy(PartitionOptimizerConfig, PartitionFitness)
+     */
+    public String getCrossover() {
+        return crossover;
+    }
+
+    /**
+     * @return how children that duplicate a partition already in their generation
+     *         are replaced: "none" (default, duplicates are kept), "mutated" or
+     *         "random"
+     * @see DuplicateElimination
+     */
+    public String getDeduplication() {
+        return deduplication;
+    }
+
+    /**
+     * @return selection policy: "tournament" (default) or "rank"
+     * @see PartitionOptimizer#newSelectionPolicy(PartitionOptimizerConfig)
+     */
+    public String getSelection() {
+        return selection;
+    }
+
+    /**
+     * @return selection pressure of rank selection, in [1, 2]
+     * @see RankSelection
+     */
+    public double getSelectionPressure() {
+        return selectionPressure;
+    }
+
+    /**
+     * @return seed for PartitionRandom, or 0 for an unseeded run
+     * @see PartitionRandom
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return mutation operator weights such as "move:1,kmove:1,swap:2", over
+     *         move, kmove, split, merge and swap; empty (default) for single
+     *         element moves only
+     * @see CompositePartitionMutation
+     */
+    public String getMutationOperators() {
+        return mutationOperators;
+    }
+
+    /**
+     * @return number of elements moved by the kmove mutation operator
+     * @see CompositePartitionMutation
+     */
+    public int getMutationK() {
+        return mutationK;
+    }
+
+    /**
+     * @return true if the mutation rate and operator weights adapt to the
+     *         success of mutants
+     * @see AdaptivePartitionMutation
+     */
+    public boolean isAdaptiveMutation() {
+        return adaptiveMutation;
+    }
+
+    /**
+     * @return file each checkpointInterval-th generation is checkpointed to, or
+     *         empty (default) for no checkpoints
+     * @see PopulationCheckpointer
+     */
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @return number of generations between checkpoints (default 1)
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * @return checkpoint file whose population starts new runs instead of random
+     *         partitions, or empty (default) for random partitions
+     * @see PopulationCheckpoint#toPopulation(IntPartitionFitness, int, double)
+     */
+    public String getInitialPopulationFile() {
+        return initialPopulationFile;
+    }
+
+    /**
+     * @return number of islands of an island-model run, or 0 or 1 (default) for
+     *         a single population
+     * @see IslandGeneticAlgorithm
+     */
+    public int getIslands() {
+        return islands;
+    }
+
+    /**
+     * @return island migration topology: "ring" (default) or "full"
+     * @see IslandGeneticAlgorithm.Topology
+     */
+    public String getMigrationTopology() {
+        return migrationTopology;
+    }
+
+    /**
+     * @return number of generations between island migrations (default 10)
+     */
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    /**
+     * @return number of chromosomes each island receives per migration (default
+     *         2)
+     */
+    public int getMigrants() {
+        return migrants;
+    }
+
+    /**
+     * @return comma-separated addresses ("host:port" or "unix:path") of the
+     *         processes of a multi-process island run, or empty (default) to
+     *         run in one process; the first address is the migration
+     *         coordinator's
+     */
+    public String getMigrationPeers() {
+        return migrationPeers;
+    }
+
+    /**
+     * @return rank of this process among the migration peers, from 0 to
+     *         the number of peers - 1; rank 0 runs the migration coordinator
+     */
+    public int getMigrationRank() {
+        return migrationRank;
+    }
+
+    /**
+     * @return comma-separated addresses ("host:port" or "unix:path") of
+     *         FitnessWorkers to evaluate fitness on, or empty (default) to
+     *         evaluate in this process
+     */
+    public String getFitnessWorkers() {
+        return fitnessWorkers;
+    }
+
+    /**
+     * @return number of partitions sent to a fitness worker at a time, or 0
+     *         (default) to cut each generation into about four chunks per
+     *         worker
+     */
+    public int getFitnessChunkSize() {
+        return fitnessChunkSize;
+    }
+
+    /**
+     * @return CSV file to write per-generation statistics to, or empty
+     *         (default) for none
+     */
+    public String getStatisticsFile() {
+        return statisticsFile;
+    }
+
+    /**
+     * @return maximum number of moves local search scores by full evaluation per
+     *         chromosome whose fitness function is not incremental; 0, the default,
+     *         leaves such chromosomes unsearched
+     * @see LocalSearch
+     */
+    public int getLocalSearchEvaluations() {
+        return localSearchEvaluations;
+    }
+
+    /**
+     * @return milliseconds allowed to connect to a fitness worker over TCP
+     *         (default 10000)
+     */
+    public int getFitnessConnectTimeoutMillis() {
+        return fitnessConnectTimeoutMillis;
+    }
+
+    /**
+     * @return milliseconds allowed for a fitness worker to answer a chunk
+     *         before it is disconnected and the chunk re-dispatched (default
+     *         300000)
+     */
+    public int getFitnessReadTimeoutMillis() {
+        return fitnessReadTimeoutMillis;
+    }
+
     public String toString() {
         return "Population size: " + populationSize + ", Number of generations: " + numGenerations
                 + ", Tournament arity: "
                 + tournamentArity + ", Mutation rate: " + mutationRate + ", Crossover rate: " + crossoverRate
                 + ", Elitism rate: "
-                + elitismRate;
+                + elitismRate + ", Canonical labels: " + canonicalLabels
+                + ", Evaluation parallelism: " + evaluationParallelism + ", I/O concurrency: " + ioConcurrency
+                + ", Batch evaluation: " + batchEvaluation + ", Pipeline in flight: " + pipelineInFlight
+                + ", Stagnation generations: " + stagnationGenerations + ", Stagnation tolerance: "
+                + stagnationTolerance + ", Max elapsed seconds: " + maxElapsedSeconds + ", Max evaluations: "
+                + maxEvaluations + ", Target fitness: " + targetFitness + ", Local search moves: " + localSearchMoves
+                + ", Local search first improvement: " + localSearchFirstImprovement
+                + ", Local search elites: " + localSearchElites + ", Crossover: " + crossover
+                + ", Deduplication: " + deduplication + ", Selection: " + selection
+                + ", Selection pressure: " + selectionPressure + ", Seed: " + seed
+                + ", Mutation operators: " + mutationOperators + ", Mutation k: " + mutationK
+                + ", Adaptive mutation: " + adaptiveMutation + ", Checkpoint file: " + checkpointFile
+                + ", Checkpoint interval: " + checkpointInterval
+                + ", Initial population file: " + initialPopulationFile + ", Islands: " + islands
+                + ", Migration topology: " + migrationTopology + ", Migration interval: " + migrationInterval
+                + ", Migrants: " + migrants + ", Migration peers: " + migrationPeers
+                + ", Migration rank: " + migrationRank + ", Fitness workers: " + fitnessWorkers
+                + ", Fitness chunk size: " + fitnessChunkSize + ", Statistics file: " + statisticsFile
+                + ", Local search evaluations: " + localSearchEvaluations
+                + ", Fitness connect timeout millis: " + fitnessConnectTimeoutMillis
+                + ", Fitness read timeout millis: " + fitnessReadTimeoutMillis;
     }
 
     /**
@@ -54,6 +415,42 @@ public class PartitionOptimizerConfig {
         this.mutationRate = builder.mutationRate;
         this.crossoverRate = builder.crossoverRate;
         this.elitismRate = builder.elitismRate;
+        this.canonicalLabels = builder.canonicalLabels;
+        this.evaluationParallelism = builder.evaluationParallelism;
+        this.ioConcurrency = builder.ioConcurrency;
+        this.batchEvaluation = builder.batchEvaluation;
+        this.pipelineInFlight = builder.pipelineInFlight;
+        this.stagnationGenerations = builder.stagnationGenerations;
+        this.stagnationTolerance = builder.stagnationTolerance;
+        this.maxElapsedSeconds = builder.maxElapsedSeconds;
+        this.maxEvaluations = builder.maxEvaluations;
+        this.targetFitness = builder.targetFitness;
+        this.localSearchMoves = builder.localSearchMoves;
+        this.localSearchFirstImprovement = builder.localSearchFirstImprovement;
+        this.localSearchElites = builder.localSearchElites;
+        this.crossover = builder.crossover;
+        this.deduplication = builder.deduplication;
+        this.selection = builder.selection;
+        this.selectionPressure = builder.selectionPressure;
+        this.seed = builder.seed;
+        this.mutationOperators = builder.mutationOperators;
+        this.mutationK = builder.mutationK;
+        this.adaptiveMutation = builder.adaptiveMutation;
+        this.checkpointFile = builder.checkpointFile;
+        this.checkpointInterval = builder.checkpointInterval;
+        this.initialPopulationFile = builder.initialPopulationFile;
+        this.islands = builder.islands;
+        this.migrationTopology = builder.migrationTopology;
+        this.migrationInterval = builder.migrationInterval;
+        this.migrants = builder.migrants;
+        this.migrationPeers = builder.migrationPeers;
+        this.migrationRank = builder.migrationRank;
+        this.fitnessWorkers = builder.fitnessWorkers;
+        this.fitnessChunkSize = builder.fitnessChunkSize;
+        this.statisticsFile = builder.statisticsFile;
+        this.localSearchEvaluations = builder.localSearchEvaluations;
+        this.fitnessConnectTimeoutMillis = builder.fitnessConnectTimeoutMillis;
+        this.fitnessReadTimeoutMillis = builder.fitnessReadTimeoutMillis;
     }
 
     /**
@@ -66,6 +463,42 @@ public class PartitionOptimizerConfig {
         private double mutationRate;
         private double crossoverRate;
         private double elitismRate;
+        private boolean canonicalLabels;
+        private int evaluationParallelism;
+        private int ioConcurrency;
+        private boolean batchEvaluation;
+        private int pipelineInFlight;
+        private int stagnationGenerations;
+        private double stagnationTolerance;
+        private long maxElapsedSeconds;
+        private long maxEvaluations;
+        private double targetFitness = Double.NaN;
+        private int localSearchMoves;
+        private boolean localSearchFirstImprovement;
+        private boolean localSearchElites;
+        private String crossover = "interleave";
+        private String deduplication = "none";
+        private String selection = "tournament";
+        private double selectionPressure = 2;
+        private long seed;
+        private String mutationOperators = "";
+        private int mutationK = 3;
+        private boolean adaptiveMutation;
+        private String checkpointFile = "";
+        private int checkpointInterval = 1;
+        private String initialPopulationFile = "";
+        private int islands;
+        private String migrationTopology = "ring";
+        private int migrationInterval = 10;
+        private int migrants = 2;
+        private String migrationPeers = "";
+        private int migrationRank;
+        private String fitnessWorkers = "";
+        private int fitnessChunkSize;
+        private String statisticsFile = "";
+        private int localSearchEvaluations;
+        private int fitnessConnectTimeoutMillis = RemotePartitionFitness.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        private int fitnessReadTimeoutMillis = RemotePartitionFitness.DEFAULT_READ_TIMEOUT_MILLIS;
 
         public Builder() {
         }
@@ -100,6 +533,186 @@ public class PartitionOptimizerConfig {
             return this;
         }
 
+        public Builder canonicalLabels(boolean canonicalLabels) {
+            this.canonicalLabels = canonicalLabels;
+            return this;
+        }
+
+        public Builder evaluationParallelism(int evaluationParallelism) {
+            this.evaluationParallelism = evaluationParallelism;
+            return this;
+        }
+
+        public Builder ioConcurrency(int ioConcurrency) {
+            this.ioConcurrency = ioConcurrency;
+            return this;
+        }
+
+        public Builder batchEvaluation(boolean batchEvaluation) {
+            this.batchEvaluation = batchEvaluation;
+            return this;
+        }
+
+        public Builder pipelineInFlight(int pipelineInFlight) {
+            this.pipelineInFlight = pipelineInFlight;
+            return this;
+        }
+
+        public Builder stagnationGenerations(int stagnationGenerations) {
+            this.stagnationGenerations = stagnationGenerations;
+            return this;
+        }
+
+        public Builder stagnationTolerance(double stagnationTolerance) {
+            this.stagnationTolerance = stagnationTolerance;
+            return this;
+        }
+
+        public Builder maxElapsedSeconds(long maxElapsedSeconds) {
+            this.maxElapsedSeconds = maxElapsedSeconds;
+            return this;
+        }
+
+        public Builder maxEvaluations(long maxEvaluations) {
+            this.maxEvaluations = maxEvaluations;
+            return this;
+        }
+
+        public Builder targetFitness(double targetFitness) {
+            this.targetFitness = targetFitness;
+            return this;
+        }
+
+        public Builder localSearchMoves(int localSearchMoves) {
+            this.localSearchMoves = localSearchMoves;
+            return this;
+        }
+
+        public Builder localSearchFirstImprovement(boolean localSearchFirstImprovement) {
+            this.localSearchFirstImprovement = localSearchFirstImprovement;
+            return this;
+        }
+
+        public Builder localSearchElites(boolean localSearchElites) {
+            this.localSearchElites = localSearchElites;
+            return this;
+        }
+
+        public Builder crossover(String crossover) {
+            this.crossover = crossover;
+            return this;
+        }
+
+        public Builder deduplication(String deduplication) {
+            this.deduplication = deduplication;
+            return this;
+        }
+
+        public Builder selection(String selection) {
+            this.selection = selection;
+            return this;
+        }
+
+        public Builder selectionPressure(double selectionPressure) {
+            this.selectionPressure = selectionPressure;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder mutationOperators(String mutationOperators) {
+            this.mutationOperators = mutationOperators;
+            return this;
+        }
+
+        public Builder mutationK(int mutationK) {
+            this.mutationK = mutationK;
+            return this;
+        }
+
+        public Builder adaptiveMutation(boolean adaptiveMutation) {
+            this.adaptiveMutation = adaptiveMutation;
+            return this;
+        }
+
+        public Builder checkpointFile(String checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        public Builder checkpointInterval(int checkpointInterval) {
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        public Builder initialPopulationFile(String initialPopulationFile) {
+            this.initialPopulationFile = initialPopulationFile;
+            return this;
+        }
+
+        public Builder islands(int islands) {
+            this.islands = islands;
+            return this;
+        }
+
+        public Builder migrationTopology(String migrationTopology) {
+            this.migrationTopology = migrationTopology;
+            return this;
+        }
+
+        public Builder migrationInterval(int migrationInterval) {
+            this.migrationInterval = migrationInterval;
+            return this;
+        }
+
+        public Builder migrants(int migrants) {
+            this.migrants = migrants;
+            return this;
+        }
+
+        public Builder migrationPeers(String migrationPeers) {
+            this.migrationPeers = migrationPeers;
+            return this;
+        }
+
+        public Builder migrationRank(int migrationRank) {
+            this.migrationRank = migrationRank;
+            return this;
+        }
+
+        public Builder fitnessWorkers(String fitnessWorkers) {
+            this.fitnessWorkers = fitnessWorkers;
+            return this;
+        }
+
+        public Builder fitnessChunkSize(int fitnessChunkSize) {
+            this.fitnessChunkSize = fitnessChunkSize;
+            return this;
+        }
+
+        public Builder statisticsFile(String statisticsFile) {
+            this.statisticsFile = statisticsFile;
+            return this;
+        }
+
+        public Builder localSearchEvaluations(int localSearchEvaluations) {
+            this.localSearchEvaluations = localSearchEvaluations;
+            return this;
+        }
+
+        public Builder fitnessConnectTimeoutMillis(int fitnessConnectTimeoutMillis) {
+            this.fitnessConnectTimeoutMillis = fitnessConnectTimeoutMillis;
+            return this;
+        }
+
+        public Builder fitnessReadTimeoutMillis(int fitnessReadTimeoutMillis) {
+            this.fitnessReadTimeoutMillis = fitnessReadTimeoutMillis;
+            return this;
+        }
+
         public PartitionOptimizerConfig build() {
             return new PartitionOptimizerConfig(this);
         }
@@ -0,0 +1,189 @@
+package com.steitz.ga;
+
+import java.util.SplittableRandom;
+
+import org.apache.commons.math3.random.AbstractRandomGenerator;
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Source of randomness for all partition operators.
+ * <p>
+ * Each thread draws from its own SplittableRandom stream, split from a shared
+ * root generator the first time the thread needs one, so parallel breeding
+ * and evaluation do not contend on a shared generator the way Math.random()
+ * does. Setting a seed replaces the root and makes every thread split a new
+ * stream from it on its next draw.
+ * <p>
+ * With a seed, a run is reproducible as long as threads first draw in the same
+ * order, which is the case when breeding and initialization run on one thread,
+ * as they do in PartitionGeneticAlgorithm. Tasks that move between pool
+ * threads, such as islands, get reproducible draws by carrying their own
+ * stream from newStream and installing it with setCurrent.
+ */
+public final class PartitionRandom {
+
+    /** Root generator that per-thread streams are split from */
+    private static SplittableRandom root = new SplittableRandom();
+
+    /** Incremented on every setSeed, to invalidate per-thread streams */
+    private static volatile long generation;
+
+    /** This thread's stream and the generation it was split in */
+    private static final ThreadLocal<Stream> STREAM = new ThreadLocal<>();
+
+    /**
+     * commons-math view of the calling thread's stream. Every draw, including
+     * nextGaussian, goes to the stream, so the view keeps no state of its own.
+     */
+    private static final RandomGenerator GENERATOR = new AbstractRandomGenerator() {
+        @Override
+        public void setSeed(long seed) {
+            PartitionRandom.setSeed(seed);
+        }
+
+        @Override
+        public double nextDouble() {
+            return current().nextDouble();
+        }
+
+        @Override
+        public int nextInt() {
+            return current().nextInt();
+        }
+
+        @Override
+        public int nextInt(int n) {
+            return current().nextInt(n);
+        }
+
+        @Override
+        public long nextLong() {
+            return current().nextLong();
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return current().nextBoolean();
+        }
+
+        @Override
+        public double nextGaussian() {
+            return current().nextGaussian();
+        }
+    };
+
+    private PartitionRandom() {
+    }
+
+    /**
+     * Seed the root generator. Every thread, including the caller, splits a new
+     * stream from the seeded root on its next draw.
+     *
+     * @param seed seed
+     */
+    public static synchronized void setSeed(long seed) {
+        root = new SplittableRandom(seed);
+        generation++;
+    }
+
+    /**
+     * Reseed the root generator with a seed drawn from it, as setSeed does, and
+     * return that seed. SplittableRandom state cannot be saved, so recording the
+     * returned seed and passing it to setSeed later reproduces the draws that
+     * follow this call.
+     *
+     * @return the new seed
+     */
+    public static synchronized long reseed() {
+        final long seed = root.nextLong();
+        setSeed(seed);
+        return seed;
+    }
+
+    /**
+     * Get the calling thread's stream. The stream must not be shared with other
+     * threads.
+     *
+     * @return this thread's random generator
+     */
+    public static SplittableRandom current() {
+        final Stream stream = STREAM.get();
+        if (stream != null && stream.generation == generation) {
+            return stream.random;
+        }
+        return split();
+    }
+
+    /**
+     * Split a new stream for the calling thread from the root.
+     */
+    private static synchronized SplittableRandom split() {
+        final Stream stream = new Stream(root.split(), generation);
+        STREAM.set(stream);
+        return stream.random;
+    }
+
+    /**
+     * Split a new stream from the root, for a task that may run on different
+     * threads over time. Streams split in the same order after the same seed
+     * are the same.
+     *
+     * @return a new stream
+     */
+    public static synchronized SplittableRandom newStream() {
+        return root.split();
+    }
+
+    /**
+     * Make a stream the calling thread's stream until the next setSeed or
+     * setCurrent. The stream must not be used by two threads at once.
+     *
+     * @param random stream, typically from newStream
+     */
+    public static void setCurrent(SplittableRandom random) {
+        STREAM.set(new Stream(random, generation));
+    }
+
+    /**
+     * @param bound upper bound, exclusive; must be positive
+     * @return a random int in {0, ..., bound - 1} from this thread's stream
+     */
+    public static int nextInt(int bound) {
+        return current().nextInt(bound);
+    }
+
+    /**
+     * @return a random double in [0, 1) from this thread's stream
+     */
+    public static double nextDouble() {
+        return current().nextDouble();
+    }
+
+    /**
+     * Get a commons-math RandomGenerator that draws from the calling thread's
+     * stream, for use with GeneticAlgorithm.setRandomGenerator. Seeding it seeds
+     * PartitionRandom.
+     *
+     * @return commons-math view of PartitionRandom
+     */
+    public static RandomGenerator generator() {
+        return GENERATOR;
+    }
+
+    /**
+     * A per-thread stream.
+     */
+    private static final class Stream {
+
+        /** Stream */
+        final SplittableRandom random;
+
+        /** Value of generation when the stream was split */
+        final long generation;
+
+        Stream(SplittableRandom random, long generation) {
+            this.random = random;
+            this.generation = generation;
+        }
+    }
+}
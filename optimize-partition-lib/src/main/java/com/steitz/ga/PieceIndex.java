@@ -0,0 +1,164 @@
+package com.steitz.ga;
+
+import java.util.Arrays;
+
+/**
+ * Piece membership of a partition in compressed sparse row form.
+ * <p>
+ * members holds the elements of the universe grouped by piece, in increasing
+ * order within each piece, and the elements of piece p are
+ * members[offsets[p]] .. members[offsets[p + 1] - 1]. Fitness functions can
+ * iterate over the pieces with plain int loops:
+ *
+ * <pre>
+ * for (int piece = 0; piece &lt; index.getM(); piece++) {
+ *     for (int k = index.start(piece); k &lt; index.end(piece); k++) {
+ *         final int element = index.member(k);
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * The index takes two int arrays of total length n + m + 1 and is built in
+ * O(n + m) time with a counting sort.
+ */
+public final class PieceIndex {
+
+    /** Start of each piece in members, plus n at the end */
+    private final int[] offsets;
+
+    /** Elements grouped by piece */
+    private final int[] members;
+
+    /** Number of pieces */
+    private final int m;
+
+    /** Size of the universe */
+    private final int n;
+
+    private PieceIndex(int[] offsets, int[] members, int m, int n) {
+        this.offsets = offsets;
+        this.members = members;
+        this.m = m;
+        this.n = n;
+    }
+
+    /**
+     * Build the piece index of a partition array.
+     *
+     * @param partition partition represented as an array of ints
+     * @return piece index with one piece for each label up to the largest
+     */
+    public static PieceIndex of(int[] partition) {
+        return of(partition, Partition.maxLabel(partition) + 1);
+    }
+
+    /**
+     * Build the piece index of a partition array whose labels are all less than m.
+     * Labels that do not occur are empty pieces of the index.
+     *
+     * @param partition partition represented as an array of ints
+     * @param m         one more than the largest label in partition
+     * @return piece index with m pieces
+     */
+    public static PieceIndex of(int[] partition, int m) {
+        return of(partition, m, null);
+    }
+
+    /**
+     * Build the piece index of a partition array, reusing the storage of a
+     * previously built index when it is large enough.
+     * <p>
+     * This lets a fitness function that evaluates many partitions (for example, a
+     * BatchPartitionFitness) build all of their indexes in the same arrays. The
+     * returned index may share storage with reuse, which must not be used
+     * afterwards.
+     *
+     * @param partition partition represented as an array of ints
+     * @param m         one more than the largest label in partition
+     * @param reuse     index whose storage may be reused, possibly null
+     * @return piece index with m pieces
+     */
+    public static PieceIndex of(int[] partition, int m, PieceIndex reuse) {
+        final int n = partition.length;
+        final int[] offsets = reuse != null && reuse.offsets.length > m ? reuse.offsets : new int[m + 1];
+        final int[] members = reuse != null && reuse.members.length >= n ? reuse.members : new int[n];
+        // Count the elements in each piece
+        Arrays.fill(offsets, 0, m + 1, 0);
+        for (int i = 0; i < n; i++) {
+            offsets[partition[i] + 1]++;
+        }
+        // Turn counts into offsets of the pieces in members
+        for (int piece = 0; piece < m; piece++) {
+            offsets[piece + 1] += offsets[piece];
+        }
+        // Fill members with element indexes grouped by piece, using the tail of
+        // offsets as the insertion cursor and then shifting it back
+        for (int i = 0; i < n; i++) {
+            members[offsets[partition[i]]++] = i;
+        }
+        for (int piece = m; piece > 0; piece--) {
+            offsets[piece] = offsets[piece - 1];
+        }
+        offsets[0] = 0;
+        return new PieceIndex(offsets, members, m, n);
+    }
+
+    /**
+     * @return the number of pieces
+     */
+    public int getM() {
+        return m;
+    }
+
+    /**
+     * @return the size of the universe
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * @param piece piece label
+     * @return position in the members array of the first element of piece
+     */
+    public int start(int piece) {
+        return offsets[piece];
+    }
+
+    /**
+     * @param piece piece label
+     * @return position in the members array just past the last element of piece
+     */
+    public int end(int piece) {
+        return offsets[piece + 1];
+    }
+
+    /**
+     * @param piece piece label
+     * @return the number of elements in piece
+     */
+    public int size(int piece) {
+        return offsets[piece + 1] - offsets[piece];
+    }
+
+    /**
+     * @param k position in the members array
+     * @return the element at position k
+     */
+    public int member(int k) {
+        return members[k];
+    }
+
+    /**
+     * Get the elements of a piece as a new array.
+     *
+     * @param piece piece label
+     * @return elements of piece in increasing order
+     */
+    public int[] members(int piece) {
+        final int[] out = new int[size(piece)];
+        System.arraycopy(members, offsets[piece], out, 0, out.length);
+        return out;
+    }
+}
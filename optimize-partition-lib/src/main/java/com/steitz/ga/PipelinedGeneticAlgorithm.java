@@ -0,0 +1,389 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+import org.apache.commons.math3.genetics.CrossoverPolicy;
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.GeneticAlgorithm;
+import org.apache.commons.math3.genetics.ListPopulation;
+import org.apache.commons.math3.genetics.MutationPolicy;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.SelectionPolicy;
+import org.apache.commons.math3.genetics.StoppingCondition;
+
+/**
+ * GeneticAlgorithm that overlaps breeding of the next generation with fitness
+ * evaluation of the current one.
+ * <p>
+ * Every new chromosome is evaluated asynchronously in a CompletableFuture on the
+ * given executor. Breeding of generation g + 1 starts as soon as minParents
+ * chromosomes of generation g have completed, and parents are selected from the
+ * chromosomes of generation g completed so far, so the selection pool grows
+ * while breeding proceeds. The elite carried over to generation g + 1 is the
+ * fittest of the chromosomes of generation g completed when breeding starts. Parents are
+ * selected from a read-only view of the completed chromosomes, which is
+ * replaced only when more of them complete, so selection copies no chromosome
+ * lists and policies that cache per-population state, like RankSelection,
+ * reuse it between completions.
+ * <p>
+ * At most maxInFlight evaluations are outstanding at any time. When the limit is
+ * reached, breeding blocks until an evaluation completes, which keeps the
+ * breeding thread from running ahead of a slow fitness service.
+ * <p>
+ * The stopping condition is checked against the completed part of each
+ * generation, once breeding of the next generation could start. evolve returns
+ * the last generation with every chromosome evaluated.
+ */
+public class PipelinedGeneticAlgorithm extends GeneticAlgorithm {
+
+    /**
+     * Executor that fitness evaluations run on, or null to start a thread per
+     * task executor for each call to evolve
+     */
+    private final Executor executor;
+
+    /** Permits for evaluations in flight */
+    private final Semaphore inFlight;
+
+    /** Minimum number of completed chromosomes to select parents from */
+    private final int minParents;
+
+    /** Number of generations evolved by the last call to evolve */
+    private int generationsEvolved;
+
+    /**
+     * Create a new pipelined genetic algorithm.
+     *
+     * @param crossoverPolicy crossover policy
+     * @param crossoverRate   crossover rate
+     * @param mutationPolicy  mutation policy
+     * @param mutationRate    mutation rate
+     * @param selectionPolicy selection policy, applied to the completed part of
+     *                        the previous generation
+     * @param executor        executor to evaluate fitness on; it is not shut
+     *                        down by evolve
+     * @param maxInFlight     maximum number of evaluations outstanding
+     * @param minParents      number of chromosomes of a generation that must be
+     *                        evaluated before breeding from it starts
+     */
+    public PipelinedGeneticAlgorithm(CrossoverPolicy crossoverPolicy, double crossoverRate,
+            MutationPolicy mutationPolicy, double mutationRate, SelectionPolicy selectionPolicy, Executor executor,
+            int maxInFlight, int minParents) {
+        super(crossoverPolicy, crossoverRate, mutationPolicy, mutationRate, selectionPolicy);
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum in-flight evaluations must be positive: " + maxInFlight);
+        }
+        if (minParents < 1) {
+            throw new IllegalArgumentException("Minimum parents must be positive: " + minParents);
+        }
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.minParents = minParents;
+    }
+
+    /**
+     * Create a new pipelined genetic algorithm that evaluates fitness on a thread
+     * per task executor started by each call to evolve and shut down when it
+     * returns.
+     *
+     * @param crossoverPolicy crossover policy
+     * @param crossoverRate   crossover rate
+     * @param mutationPolicy  mutation policy
+     * @param mutationRate    mutation rate
+     * @param selectionPolicy selection policy, applied to the completed part of
+     *                        the previous generation
+     * @param maxInFlight     maximum number of evaluations outstanding
+     * @param minParents      number of chromosomes of a generation that must be
+     *                        evaluated before breeding from it starts
+     */
+    public PipelinedGeneticAlgorithm(CrossoverPolicy crossoverPolicy, double crossoverRate,
+            MutationPolicy mutationPolicy, double mutationRate, SelectionPolicy selectionPolicy,
+            int maxInFlight, int minParents) {
+        this(crossoverPolicy, crossoverRate, mutationPolicy, mutationRate, selectionPolicy, null, maxInFlight,
+                minParents);
+    }
+
+    /**
+     * Evolve the given population until the stopping condition is satisfied.
+     *
+     * @param initial   initial population
+     * @param condition stopping condition
+     * @return the last generation, fully evaluated
+     */
+    @Override
+    public Population evolve(Population initial, StoppingCondition condition) {
+        final int size = initial.getPopulationLimit();
+        final double elitismRate = initial instanceof ElitisticListPopulation
+                ? ((ElitisticListPopulation) initial).getElitismRate()
+                : 0;
+        generationsEvolved = 0;
+
+        final ExecutorService owned = executor == null ? ExecutorPopulationEvaluator.newThreadPerTaskExecutor()
+                : null;
+        final Executor evaluator = owned == null ? executor : owned;
+        try {
+            Generation current = new Generation(initial.getPopulationSize());
+            for (Chromosome chromosome : initial) {
+                submit(evaluator, current, chromosome);
+            }
+            while (true) {
+                current.awaitCompleted(Math.min(minParents, current.size));
+                if (condition.isSatisfied(current.completedPopulation(size, elitismRate))) {
+                    break;
+                }
+                current = breed(evaluator, current, size, elitismRate);
+                generationsEvolved++;
+            }
+            current.awaitCompleted(current.size);
+            return current.completedPopulation(size, elitismRate);
+        } finally {
+            if (owned != null) {
+                owned.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Breed the next generation from the completed part of current, submitting
+     * each child for evaluation as soon as it is created.
+     */
+    private Generation breed(Executor evaluator, Generation current, int size, double elitismRate) {
+        final Generation next = new Generation(size);
+
+        // Carry over the elite, which is already evaluated
+        final int elite = (int) Math.floor(elitismRate * size);
+        for (Chromosome chromosome : current.fittest(elite)) {
+            next.carryOver(chromosome);
+        }
+
+        while (next.submitted() < size) {
+            // Select from the chromosomes completed so far
+            final ChromosomePair parents = getSelectionPolicy().select(current.selectionPool());
+            ChromosomePair pair = parents;
+            if (PartitionRandom.nextDouble() < getCrossoverRate()) {
+                pair = getCrossoverPolicy().crossover(parents.getFirst(), parents.getSecond());
+            }
+            submit(evaluator, next, mutate(pair.getFirst()));
+            if (next.submitted() < size) {
+                submit(evaluator, next, mutate(pair.getSecond()));
+            }
+        }
+        return next;
+    }
+
+    private Chromosome mutate(Chromosome chromosome) {
+        if (PartitionRandom.nextDouble() < getMutationRate()) {
+            return getMutationPolicy().mutate(chromosome);
+        }
+        return chromosome;
+    }
+
+    /**
+     * Evaluate chromosome asynchronously and add it to generation when done,
+     * blocking while maxInFlight evaluations are outstanding.
+     */
+    private void submit(Executor evaluator, Generation generation, Chromosome chromosome) {
+        generation.submit();
+        inFlight.acquireUninterruptibly();
+        try {
+            CompletableFuture.runAsync(chromosome::getFitness, evaluator).whenComplete((ignored, error) -> {
+                inFlight.release();
+                if (error != null) {
+                    generation.fail(error);
+                } else {
+                    generation.complete(chromosome);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of generations evolved by the last call to evolve
+     */
+    @Override
+    public int getGenerationsEvolved() {
+        return generationsEvolved;
+    }
+
+    /**
+     * Chromosomes of one generation, and which of them have been evaluated.
+     */
+    private static final class Generation {
+        /** Number of chromosomes in the generation */
+        private final int size;
+
+        /**
+         * Evaluated chromosomes, in order of completion. Slots below
+         * completedCount are never overwritten, so views of them stay valid.
+         */
+        private final Chromosome[] completed;
+
+        /** Number of chromosomes evaluated */
+        private int completedCount;
+
+        /** View of the completed chromosomes last selected from */
+        private CompletedView pool;
+
+        /** Number of chromosomes submitted or carried over */
+        private int submitted;
+
+        /** First evaluation failure, if any */
+        private Throwable failure;
+
+        Generation(int size) {
+            this.size = size;
+            this.completed = new Chromosome[size];
+        }
+
+        synchronized void submit() {
+            submitted++;
+        }
+
+        synchronized int submitted() {
+            return submitted;
+        }
+
+        synchronized void complete(Chromosome chromosome) {
+            completed[completedCount++] = chromosome;
+            notifyAll();
+        }
+
+        /**
+         * Add an evaluated chromosome without submitting it.
+         */
+        synchronized void carryOver(Chromosome chromosome) {
+            submitted++;
+            complete(chromosome);
+        }
+
+        synchronized void fail(Throwable error) {
+            if (failure == null) {
+                failure = error;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Wait until at least count chromosomes have been evaluated.
+         */
+        synchronized void awaitCompleted(int count) {
+            while (completedCount < count && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted waiting for fitness evaluations", e);
+                }
+            }
+            checkFailure();
+        }
+
+        private void checkFailure() {
+            if (failure != null) {
+                throw new RuntimeException("Fitness evaluation failed", failure);
+            }
+        }
+
+        /**
+         * @return population of the chromosomes evaluated so far
+         */
+        synchronized Population completedPopulation(int limit, double elitismRate) {
+            checkFailure();
+            return new ElitisticListPopulation(completedList(), Math.max(limit, completedCount), elitismRate);
+        }
+
+        /**
+         * @return read-only view of the chromosomes evaluated so far, the same
+         *         object until another chromosome completes
+         */
+        synchronized Population selectionPool() {
+            checkFailure();
+            if (pool == null || pool.getPopulationSize() != completedCount) {
+                pool = new CompletedView(completedList());
+            }
+            return pool;
+        }
+
+        /**
+         * @return the count fittest chromosomes evaluated so far
+         */
+        synchronized List<Chromosome> fittest(int count) {
+            final List<Chromosome> sorted = new ArrayList<>(completedList());
+            Collections.sort(sorted, Collections.reverseOrder());
+            return sorted.subList(0, Math.min(count, sorted.size()));
+        }
+
+        private List<Chromosome> completedList() {
+            return Arrays.asList(completed).subList(0, completedCount);
+        }
+    }
+
+    /**
+     * Read-only population over a fixed prefix of a generation's completed
+     * chromosomes, read in place.
+     */
+    private static final class CompletedView extends ListPopulation {
+        /** Chromosomes in the view */
+        private final List<Chromosome> chromosomes;
+
+        CompletedView(List<Chromosome> chromosomes) {
+            super(Math.max(chromosomes.size(), 1));
+            this.chromosomes = Collections.unmodifiableList(chromosomes);
+        }
+
+        @Override
+        public List<Chromosome> getChromosomes() {
+            return chromosomes;
+        }
+
+        @Override
+        public int getPopulationSize() {
+            return chromosomes.size();
+        }
+
+        @Override
+        public Iterator<Chromosome> iterator() {
+            return chromosomes.iterator();
+        }
+
+        @Override
+        public Chromosome getFittestChromosome() {
+            Chromosome fittest = chromosomes.get(0);
+            for (Chromosome chromosome : chromosomes) {
+                if (chromosome.compareTo(fittest) > 0) {
+                    fittest = chromosome;
+                }
+            }
+            return fittest;
+        }
+
+        @Override
+        public void addChromosome(Chromosome chromosome) {
+            throw new UnsupportedOperationException("Completed chromosome views are read-only");
+        }
+
+        @Override
+        public void addChromosomes(Collection<Chromosome> chromosomes) {
+            throw new UnsupportedOperationException("Completed chromosome views are read-only");
+        }
+
+        @Override
+        public Population nextGeneration() {
+            throw new UnsupportedOperationException("Completed chromosome views are read-only");
+        }
+    }
+}
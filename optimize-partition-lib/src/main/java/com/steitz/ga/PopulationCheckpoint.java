@@ -0,0 +1,225 @@
+package com.steitz.ga;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * Binary snapshot of a population of IntPartitionChromosomes, used to resume
+ * an interrupted run or to seed a new one.
+ * <p>
+ * A checkpoint holds the generation number, a PartitionRandom seed and, for
+ * each chromosome in population order, its cached fitness (NaN if it was not
+ * evaluated) and its labels as a PackedPartition. The file layout is:
+ * <pre>
+ * int    magic ("OPCK")
+ * int    format version
+ * int    generation
+ * long   seed
+ * int    number of chromosomes
+ * then for each chromosome:
+ * double fitness
+ *        PackedPartition binary form
+ * </pre>
+ * Files are written to a temporary file next to the target and then moved over
+ * it, so a crash while writing leaves the previous checkpoint intact. They are
+ * read through a read-only memory mapping.
+ * <p>
+ * SplittableRandom does not expose its state, so a checkpoint records a seed
+ * instead: writing a checkpoint reseeds PartitionRandom with a seed drawn from
+ * it, and resuming sets the same seed. Selection scratch state is reset at
+ * each generation, so a seeded run that breeds and evaluates on one thread,
+ * with a fixed mutation policy, continues after a resume as it did after the
+ * checkpoint was written.
+ * <p>
+ * Only the population is checkpointed. State that other components build up
+ * during a run restarts on resume: the rate and operator weights of an
+ * AdaptivePartitionMutation, the totals of a DuplicateElimination, the
+ * history of a FitnessStagnation and other stopping conditions, and which
+ * chromosomes LocalSearch has already searched. Incremental fitness state is
+ * rebuilt from the restored partitions, so fitness derived from it can differ
+ * from the original run's by rounding. Runs that use these components resume
+ * from the same population but can then diverge from the original run.
+ */
+public final class PopulationCheckpoint {
+
+    /** File magic, "OPCK" */
+    private static final int MAGIC = 0x4f50434b;
+
+    /** Format version */
+    private static final int VERSION = 1;
+
+    /** Generation the population was checkpointed at */
+    private final int generation;
+
+    /** PartitionRandom seed to continue from */
+    private final long seed;
+
+    /** Packed labels of the chromosomes, in population order */
+    private final PackedPartition[] partitions;
+
+    /** Cached fitness of the chromosomes, NaN for unevaluated ones */
+    private final double[] fitness;
+
+    private PopulationCheckpoint(int generation, long seed, PackedPartition[] partitions, double[] fitness) {
+        this.generation = generation;
+        this.seed = seed;
+        this.partitions = partitions;
+        this.fitness = fitness;
+    }
+
+    /**
+     * Write a checkpoint of a population, reseeding PartitionRandom with the seed
+     * recorded in it.
+     *
+     * @param file       file to write, replaced if it exists
+     * @param generation number of generations evolved to reach population
+     * @param population population of IntPartitionChromosomes
+     * @throws IOException              if the file cannot be written
+     * @throws IllegalArgumentException if population holds other chromosomes
+     */
+    public static void write(Path file, int generation, Population population) throws IOException {
+        final List<PackedPartition> partitions = new ArrayList<>();
+        final List<Double> fitness = new ArrayList<>();
+        int size = 3 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+        for (Chromosome chromosome : population) {
+            if (!(chromosome instanceof IntPartitionChromosome)) {
+                throw new IllegalArgumentException("Only IntPartitionChromosomes can be checkpointed: "
+                        + chromosome.getClass().getName());
+            }
+            final IntPartitionChromosome c = (IntPartitionChromosome) chromosome;
+            final PackedPartition packed = PackedPartition.pack(c.getRepresentation());
+            partitions.add(packed);
+            fitness.add(c.isEvaluated() ? c.fitness() : Double.NaN);
+            size += Double.BYTES + packed.getEncodedSize();
+        }
+        final long seed = PartitionRandom.reseed();
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(generation).putLong(seed).putInt(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            buffer.putDouble(fitness.get(i));
+            partitions.get(i).writeTo(buffer);
+        }
+        buffer.flip();
+        final Path parent = file.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read a checkpoint written by write.
+     *
+     * @param file checkpoint file
+     * @return checkpoint
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a checkpoint
+     */
+    public static PopulationCheckpoint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 3 * Integer.BYTES + Long.BYTES + Integer.BYTES || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a population checkpoint: " + file);
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported checkpoint version " + version + ": " + file);
+            }
+            final int generation = buffer.getInt();
+            final long seed = buffer.getLong();
+            final int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / Double.BYTES) {
+                throw new IllegalArgumentException("Invalid chromosome count " + count + ": " + file);
+            }
+            final PackedPartition[] partitions = new PackedPartition[count];
+            final double[] fitness = new double[count];
+            for (int i = 0; i < count; i++) {
+                fitness[i] = buffer.getDouble();
+                partitions[i] = PackedPartition.readFrom(buffer);
+            }
+            return new PopulationCheckpoint(generation, seed, partitions, fitness);
+        }
+    }
+
+    /**
+     * Rebuild the checkpointed population.
+     * <p>
+     * Chromosomes keep their checkpointed fitness, so they are not evaluated
+     * again. If there are more chromosomes than populationLimit, only the
+     * fittest populationLimit are kept; if there are fewer, the population is
+     * filled up by the next generation.
+     *
+     * @param fitnessFunction fitness function of the chromosomes
+     * @param populationLimit population limit
+     * @param elitismRate     elitism rate
+     * @return population, in checkpoint order unless it was truncated
+     */
+    public Population toPopulation(IntPartitionFitness fitnessFunction, int populationLimit, double elitismRate) {
+        int[] rows = new int[partitions.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        if (rows.length > populationLimit) {
+            final double[] keys = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                // Unevaluated chromosomes rank last
+                keys[i] = Double.isNaN(fitness[i]) ? Double.NEGATIVE_INFINITY : fitness[i];
+            }
+            IndexSort.sortDescending(keys, rows, 0, rows.length - 1);
+            final int[] fittest = new int[populationLimit];
+            System.arraycopy(rows, 0, fittest, 0, populationLimit);
+            rows = fittest;
+        }
+        final Population population = new ElitisticListPopulation(populationLimit, elitismRate);
+        for (int row : rows) {
+            final IntPartitionChromosome chromosome = new IntPartitionChromosome(partitions[row].unpack(),
+                    fitnessFunction);
+            if (!Double.isNaN(fitness[row])) {
+                chromosome.setFitness(fitness[row]);
+            }
+            population.addChromosome(chromosome);
+        }
+        return population;
+    }
+
+    /**
+     * @return the number of generations evolved to reach the checkpointed
+     *         population
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the PartitionRandom seed to continue from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of chromosomes in the checkpoint
+     */
+    public int size() {
+        return partitions.length;
+    }
+}
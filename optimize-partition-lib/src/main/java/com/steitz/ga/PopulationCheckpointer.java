@@ -0,0 +1,82 @@
+package com.steitz.ga;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * Writes a PopulationCheckpoint of every interval-th generation evolved by a
+ * PartitionGeneticAlgorithm, replacing the previous checkpoint.
+ */
+public class PopulationCheckpointer {
+
+    /** Checkpoint file */
+    private final Path file;
+
+    /** Number of generations between checkpoints */
+    private final int interval;
+
+    /** Generation number of the population the algorithm starts from */
+    private final int startGeneration;
+
+    /**
+     * @param file            checkpoint file
+     * @param interval        number of generations between checkpoints
+     * @param startGeneration generation number of the population evolution
+     *                        starts from, 0 unless resuming from a checkpoint
+     */
+    public PopulationCheckpointer(Path file, int interval, int startGeneration) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        this.file = file;
+        this.interval = interval;
+        this.startGeneration = startGeneration;
+    }
+
+    /**
+     * Checkpoint an evaluated generation if its generation number is a multiple
+     * of the interval.
+     *
+     * @param generationsEvolved number of generations evolved since the start
+     *                           population
+     * @param population         the generation
+     * @return true if a checkpoint was written
+     * @throws UncheckedIOException if the checkpoint cannot be written
+     */
+    public boolean generationEvaluated(int generationsEvolved, Population population) {
+        final int generation = startGeneration + generationsEvolved;
+        if (generation % interval != 0) {
+            return false;
+        }
+        try {
+            PopulationCheckpoint.write(file, generation, population);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write checkpoint " + file, ex);
+        }
+        return true;
+    }
+
+    /**
+     * @return the checkpoint file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of generations between checkpoints
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the generation number of the start population
+     */
+    public int getStartGeneration() {
+        return startGeneration;
+    }
+}
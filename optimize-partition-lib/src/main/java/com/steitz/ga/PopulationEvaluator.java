@@ -0,0 +1,75 @@
+package com.steitz.ga;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * Strategy for evaluating the fitness of the chromosomes of a population.
+ * <p>
+ * GeneticAlgorithm evaluates fitness lazily, one chromosome at a time, when
+ * selection or elitism first asks for it. PartitionGeneticAlgorithm instead
+ * hands each generation to a PopulationEvaluator before selection runs, so
+ * all fitness values of a generation can be computed up front, for example in
+ * parallel.
+ * <p>
+ * Evaluators call Chromosome.getFitness(), which caches the value in the
+ * chromosome, so chromosomes that are already evaluated (such as the elite
+ * carried over from the previous generation) are not evaluated again.
+ * <p>
+ * Evaluators that own threads release them on close. PartitionOptimizer closes
+ * the evaluators it creates when a run ends.
+ */
+public interface PopulationEvaluator extends AutoCloseable {
+
+    /**
+     * Evaluator that does nothing, leaving fitness to be computed lazily as in
+     * GeneticAlgorithm.
+     */
+    PopulationEvaluator LAZY = population -> {
+    };
+
+    /**
+     * Evaluator that computes all fitness values in the calling thread.
+     */
+    PopulationEvaluator SEQUENTIAL = population -> {
+        for (Chromosome chromosome : population) {
+            chromosome.getFitness();
+        }
+    };
+
+    /**
+     * Evaluate the fitness of every chromosome in population that is not already
+     * evaluated.
+     *
+     * @param population population to evaluate
+     */
+    void evaluate(Population population);
+
+    /**
+     * Release the threads this evaluator owns. Does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Get an evaluator for the given degree of parallelism.
+     *
+     * @param parallelism 0 for lazy evaluation, 1 for eager sequential evaluation,
+     *                    or the number of threads to evaluate with
+     * @return population evaluator
+     */
+    static PopulationEvaluator forParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Evaluation parallelism must be non-negative: " + parallelism);
+        }
+        switch (parallelism) {
+            case 0:
+                return LAZY;
+            case 1:
+                return SEQUENTIAL;
+            default:
+                return new ForkJoinPopulationEvaluator(parallelism);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.steitz.ga;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+import org.apache.commons.math3.genetics.ListPopulation;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.SelectionPolicy;
+
+/**
+ * Linear rank selection over a fitness-sorted index of the population.
+ * <p>
+ * The first time a population is selected from, its chromosome indexes are
+ * sorted by decreasing fitness into an int array. Each parent is then drawn by
+ * rank in O(1): with selection pressure s in [1, 2], the fittest chromosome is
+ * s times as likely to be drawn as the median one, and the least fit one
+ * 2 - s times as likely. Pressure 1 is uniform selection.
+ * <p>
+ * The index is rebuilt whenever selection moves to another population, or the
+ * population grows, so this policy suits generational algorithms that select
+ * many parents from each population.
+ */
+public class RankSelection implements SelectionPolicy {
+
+    /** Selection pressure, in [1, 2] */
+    private final double pressure;
+
+    /** Fitness-sorted index of the population last selected from */
+    private volatile Ranking ranking;
+
+    /**
+     * @param pressure selection pressure, the expected number of times the
+     *                 fittest chromosome is drawn per population size draws,
+     *                 in [1, 2]
+     */
+    public RankSelection(double pressure) {
+        if (!(pressure >= 1 && pressure <= 2)) {
+            throw new IllegalArgumentException("Selection pressure must be in [1, 2]: " + pressure);
+        }
+        this.pressure = pressure;
+    }
+
+    /**
+     * Select two parents by rank.
+     *
+     * @param population population to select from, a nonempty ListPopulation
+     * @throws IllegalArgumentException if population is not a ListPopulation or
+     *                                  is empty
+     */
+    @Override
+    public ChromosomePair select(Population population) {
+        if (!(population instanceof ListPopulation)) {
+            throw new IllegalArgumentException("Population must be a ListPopulation");
+        }
+        final List<Chromosome> chromosomes = ((ListPopulation) population).getChromosomes();
+        if (chromosomes.isEmpty()) {
+            throw new IllegalArgumentException("Population is empty");
+        }
+        Ranking current = ranking;
+        if (current == null || current.population != population || current.order.length != chromosomes.size()) {
+            current = new Ranking(population, chromosomes);
+            ranking = current;
+        }
+        final SplittableRandom random = PartitionRandom.current();
+        return new ChromosomePair(chromosomes.get(current.order[rank(current.order.length, random)]),
+                chromosomes.get(current.order[rank(current.order.length, random)]));
+    }
+
+    /**
+     * Draw a rank, 0 for the fittest, by inverting the linear ranking
+     * distribution.
+     *
+     * @param size   population size
+     * @param random random generator
+     * @return rank in 0, ..., size - 1
+     */
+    int rank(int size, SplittableRandom random) {
+        final double u = random.nextDouble();
+        final double fraction;
+        if (pressure == 1) {
+            fraction = u;
+        } else {
+            // Density on [0, 1] is pressure - 2 (pressure - 1) x
+            final double slope = pressure - 1;
+            fraction = (pressure - Math.sqrt(pressure * pressure - 4 * slope * u)) / (2 * slope);
+        }
+        return Math.min((int) (fraction * size), size - 1);
+    }
+
+    /**
+     * @return the selection pressure
+     */
+    public double getPressure() {
+        return pressure;
+    }
+
+    /**
+     * Chromosome indexes of a population in order of decreasing fitness.
+     */
+    private static final class Ranking {
+
+        /** Population ranked */
+        final Population population;
+
+        /** Chromosome indexes, fittest first */
+        final int[] order;
+
+        Ranking(Population population, List<Chromosome> chromosomes) {
+            this.population = population;
+            final int size = chromosomes.size();
+            final double[] fitness = new double[size];
+            order = new int[size];
+            for (int i = 0; i < size; i++) {
+                fitness[i] = chromosomes.get(i).getFitness();
+                order[i] = i;
+            }
+            IndexSort.sortDescending(fitness, order, 0, size - 1);
+        }
+    }
+}
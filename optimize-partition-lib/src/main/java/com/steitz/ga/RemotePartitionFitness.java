@@ -0,0 +1,675 @@
+package com.steitz.ga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * BatchPartitionFitness that evaluates partitions on FitnessWorkers in other
+ * processes, so one optimizer run can use the cores of several hosts.
+ * <p>
+ * A batch is cut into chunks of chunkSize partitions, which are dealt
+ * round-robin onto one deque per worker. Each worker is driven by its own
+ * thread over one connection, which sends the chunks at the head of its deque
+ * one at a time. A thread whose deque is empty steals from the tail of the
+ * longest other deque, so fast workers take over the work of slow ones. Once
+ * no chunk is left to take, idle threads speculatively re-send chunks still in
+ * flight on other workers, at most two copies of each, and the first answer
+ * wins. A batch returns as soon as every chunk has an answer, without waiting
+ * for the copies still in flight.
+ * <p>
+ * Connecting to a worker times out after connectTimeoutMillis, and a worker
+ * that has not answered a chunk within readTimeoutMillis is disconnected. If a
+ * worker cannot be reached or its connection fails, the chunk it was
+ * evaluating is put back on its deque for the other workers to steal, and the
+ * worker sits out the rest of the batch. It is reconnected at a later batch,
+ * after a delay that doubles with each consecutive failure up to a minute. A
+ * batch fails only if every worker has failed with chunks left. An error
+ * thrown by the fitness function on a worker is not re-dispatched: it fails
+ * the batch with an IllegalStateException.
+ * <p>
+ * Batches are evaluated one at a time; concurrent callers, such as islands,
+ * wait their turn. fitness(int[]) is a batch of one, so this function is best
+ * used with BatchPopulationEvaluator. The driver threads start with the first
+ * batch and stop when the function is closed; a later batch starts them again.
+ */
+public class RemotePartitionFitness implements BatchPartitionFitness, Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(RemotePartitionFitness.class);
+
+    /** Default time allowed to connect to a worker */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10_000;
+
+    /** Default time allowed for a worker to answer a chunk */
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 300_000;
+
+    /** Number of chunks per worker when chunkSize is automatic */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /** Most workers evaluating a chunk at once, counting speculative copies */
+    private static final int MAX_COPIES = 2;
+
+    /** Delay before reconnecting to a worker after its first failure */
+    private static final long MIN_RETRY_MILLIS = 1_000;
+
+    /** Longest delay before reconnecting to a failed worker */
+    private static final long MAX_RETRY_MILLIS = 60_000;
+
+    /** Longest wait between checks of the read deadlines */
+    private static final long DEADLINE_CHECK_MILLIS = 1_000;
+
+    /** Worker addresses */
+    private final List<SocketAddress> workers;
+
+    /** Partitions per chunk, or 0 to pick from the batch size */
+    private final int chunkSize;
+
+    /** Time allowed to connect to a worker */
+    private final int connectTimeoutMillis;
+
+    /** Time allowed for a worker to answer a chunk */
+    private final long readTimeoutMillis;
+
+    /** Number of partitions evaluated by each worker */
+    private final AtomicLong[] evaluated;
+
+    /** Number of chunks re-dispatched after a worker failed */
+    private final AtomicLong redispatched = new AtomicLong();
+
+    /** Number of speculative copies of chunks sent */
+    private final AtomicLong speculated = new AtomicLong();
+
+    /** Guards current and drivers; driver threads wait on it for a batch */
+    private final Object lock = new Object();
+
+    /** Batch being evaluated, or null */
+    private Batch current;
+
+    /** Driver of each worker, or null if not started */
+    private Driver[] drivers;
+
+    /**
+     * Create a function with the default connect and read timeouts.
+     *
+     * @param workers   worker addresses
+     * @param chunkSize number of partitions sent to a worker at a time, or 0 to
+     *                  cut each batch into about four chunks per worker
+     */
+    public RemotePartitionFitness(List<SocketAddress> workers, int chunkSize) {
+        this(workers, chunkSize, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param workers              worker addresses
+     * @param chunkSize            number of partitions sent to a worker at a
+     *                             time, or 0 to cut each batch into about four
+     *                             chunks per worker
+     * @param connectTimeoutMillis time allowed to connect to a worker over TCP
+     * @param readTimeoutMillis    time allowed for a worker to answer a chunk
+     *                             before it is disconnected
+     */
+    public RemotePartitionFitness(List<SocketAddress> workers, int chunkSize, int connectTimeoutMillis,
+            int readTimeoutMillis) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one fitness worker is required");
+        }
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("Chunk size must not be negative: " + chunkSize);
+        }
+        if (connectTimeoutMillis <= 0 || readTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeouts must be positive: connect " + connectTimeoutMillis
+                    + ", read " + readTimeoutMillis);
+        }
+        this.workers = new ArrayList<>(workers);
+        this.chunkSize = chunkSize;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.evaluated = new AtomicLong[workers.size()];
+        for (int i = 0; i < evaluated.length; i++) {
+            evaluated[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Parse a comma-separated list of worker addresses, each "host:port" or
+     * "unix:path".
+     *
+     * @param workers worker addresses
+     * @return parsed addresses
+     * @throws IllegalArgumentException if an address cannot be parsed
+     */
+    public static List<SocketAddress> parseWorkers(String workers) {
+        final List<SocketAddress> out = new ArrayList<>();
+        for (String worker : workers.split(",")) {
+            out.add(SocketMigrationTransport.parseAddress(worker));
+        }
+        return out;
+    }
+
+    @Override
+    public double fitness(int[] partition) {
+        return fitness(new int[][] { partition })[0];
+    }
+
+    /**
+     * Evaluate a batch on the workers.
+     *
+     * @throws IllegalStateException if every worker failed or the fitness
+     *                               function failed on a worker
+     */
+    @Override
+    public synchronized double[] fitness(int[][] partitions) {
+        final double[] out = new double[partitions.length];
+        if (partitions.length == 0) {
+            return out;
+        }
+        final Batch batch = new Batch(partitions, out);
+        final Driver[] started;
+        synchronized (lock) {
+            if (drivers == null) {
+                drivers = new Driver[workers.size()];
+                for (int i = 0; i < drivers.length; i++) {
+                    drivers[i] = new Driver(i);
+                    final Thread thread = new Thread(drivers[i], "remote-fitness-" + i);
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+            started = drivers;
+            current = batch;
+            lock.notifyAll();
+        }
+        try {
+            while (!batch.await(Math.min(readTimeoutMillis, DEADLINE_CHECK_MILLIS))) {
+                final long now = System.nanoTime();
+                for (Driver driver : started) {
+                    driver.expire(now);
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                current = null;
+            }
+        }
+        if (batch.error != null) {
+            throw new IllegalStateException("Remote fitness evaluation failed: " + batch.error);
+        }
+        return out;
+    }
+
+    /**
+     * Connect to an address, giving up after timeoutMillis for TCP. A Unix
+     * domain socket either connects or fails at once.
+     */
+    private static SocketChannel connect(SocketAddress address, int timeoutMillis) throws IOException {
+        if (!(address instanceof InetSocketAddress)) {
+            return SocketChannel.open(address);
+        }
+        final SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(address, timeoutMillis);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * @return the number of partitions evaluated by each worker whose answers
+     *         were used, in the order the workers were given
+     */
+    public long[] getEvaluated() {
+        final long[] out = new long[evaluated.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = evaluated[i].get();
+        }
+        return out;
+    }
+
+    /**
+     * @return the number of chunks re-dispatched after a worker failed
+     */
+    public long getRedispatched() {
+        return redispatched.get();
+    }
+
+    /**
+     * @return the number of speculative copies of chunks sent to idle workers
+     */
+    public long getSpeculated() {
+        return speculated.get();
+    }
+
+    /**
+     * @return the worker addresses
+     */
+    public List<SocketAddress> getWorkers() {
+        return Collections.unmodifiableList(workers);
+    }
+
+    /**
+     * Close the worker connections and stop the driver threads.
+     */
+    @Override
+    public synchronized void close() {
+        synchronized (lock) {
+            if (drivers == null) {
+                return;
+            }
+            for (Driver driver : drivers) {
+                driver.stopped = true;
+                driver.disconnect();
+            }
+            drivers = null;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Thread sending chunks to one worker over its connection.
+     */
+    private final class Driver implements Runnable {
+
+        /** Index of the worker */
+        final int worker;
+
+        /** Whether close() has stopped this driver; guarded by lock */
+        boolean stopped;
+
+        /** Connection to the worker, null if not connected */
+        volatile SocketChannel channel;
+
+        /** System.nanoTime() a chunk was sent at, or 0 if none is in flight */
+        volatile long sentAt;
+
+        /** Delay before the next reconnection, 0 if the worker has not failed */
+        long retryMillis;
+
+        /** System.nanoTime() before which the worker is not reconnected */
+        long retryAt;
+
+        Driver(int worker) {
+            this.worker = worker;
+        }
+
+        /**
+         * Drive each batch published in current until stopped.
+         */
+        @Override
+        public void run() {
+            Batch last = null;
+            try {
+                while (true) {
+                    final Batch batch;
+                    synchronized (lock) {
+                        while (!stopped && (current == null || current == last)) {
+                            lock.wait();
+                        }
+                        if (stopped) {
+                            return;
+                        }
+                        batch = current;
+                    }
+                    last = batch;
+                    drive(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+            }
+        }
+
+        /**
+         * Send chunks to the worker until the batch is done or the worker fails.
+         * An unexpected error, such as a partition that cannot be packed, fails
+         * the batch instead of ending the driver.
+         */
+        private void drive(Batch batch) {
+            try {
+                sendChunks(batch);
+            } catch (RuntimeException e) {
+                LOGGER.error("Fitness worker " + workers.get(worker) + " driver failed", e);
+                batch.fail(e.toString());
+            }
+        }
+
+        private void sendChunks(Batch batch) {
+            if (channel == null) {
+                if (!batch.pauseUntil(retryAt)) {
+                    return;
+                }
+                try {
+                    channel = connect(workers.get(worker), connectTimeoutMillis);
+                } catch (IOException e) {
+                    LOGGER.warn("Fitness worker " + workers.get(worker) + " cannot be reached", e);
+                    failed();
+                    batch.failed(worker, null);
+                    return;
+                }
+            }
+            Chunk chunk;
+            while ((chunk = batch.take(worker)) != null) {
+                try {
+                    final double[] fitness = evaluate(chunk);
+                    if (fitness == null) {
+                        return;
+                    }
+                    retryMillis = 0;
+                    batch.done(worker, chunk, fitness);
+                } catch (IOException e) {
+                    LOGGER.warn("Fitness worker " + workers.get(worker) + " failed; re-dispatching its work", e);
+                    disconnect();
+                    failed();
+                    batch.failed(worker, chunk);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Evaluate a chunk on the worker.
+         *
+         * @return fitness of the chunk's partitions, or null if the fitness
+         *         function failed, in which case the batch has been failed
+         */
+        private double[] evaluate(Chunk chunk) throws IOException {
+            final PackedPartition[] packed = new PackedPartition[chunk.end - chunk.start];
+            int size = Integer.BYTES;
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = PackedPartition.pack(chunk.batch.partitions[chunk.start + i]);
+                size += packed[i].getEncodedSize();
+            }
+            final ByteBuffer request = ByteBuffer.allocate(size).putInt(packed.length);
+            for (PackedPartition partition : packed) {
+                partition.writeTo(request);
+            }
+            final SocketChannel open = channel;
+            if (open == null) {
+                throw new IOException("Disconnected from fitness worker " + workers.get(worker));
+            }
+            final ByteBuffer reply;
+            sentAt = System.nanoTime();
+            try {
+                SocketFrames.write(open, request.flip());
+                reply = SocketFrames.read(open);
+            } finally {
+                sentAt = 0;
+            }
+            if (reply == null) {
+                throw new IOException("Connection closed by fitness worker " + workers.get(worker));
+            }
+            if (!reply.hasRemaining()) {
+                throw new IOException("Empty reply from fitness worker " + workers.get(worker));
+            }
+            if (reply.get() != FitnessWorker.OK) {
+                chunk.batch.fail(StandardCharsets.UTF_8.decode(reply).toString());
+                return null;
+            }
+            if (reply.remaining() != packed.length * Double.BYTES) {
+                throw new IOException("Fitness worker " + workers.get(worker) + " answered " + reply.remaining()
+                        + " bytes for " + packed.length + " partitions");
+            }
+            final double[] fitness = new double[packed.length];
+            reply.asDoubleBuffer().get(fitness);
+            return fitness;
+        }
+
+        /**
+         * Disconnect the worker if it has not answered its chunk within
+         * readTimeoutMillis of now, which makes the driver's read fail.
+         */
+        void expire(long now) {
+            final long sent = sentAt;
+            if (sent != 0 && now - sent > TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis)) {
+                LOGGER.warn("Fitness worker " + workers.get(worker) + " has not answered in " + readTimeoutMillis
+                        + " ms; disconnecting");
+                disconnect();
+            }
+        }
+
+        /**
+         * Put off reconnecting, doubling the delay since the last success.
+         */
+        private void failed() {
+            retryMillis = retryMillis == 0 ? MIN_RETRY_MILLIS : Math.min(2 * retryMillis, MAX_RETRY_MILLIS);
+            retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryMillis);
+        }
+
+        void disconnect() {
+            final SocketChannel open = channel;
+            if (open != null) {
+                try {
+                    open.close();
+                } catch (IOException e) {
+                    // already failed
+                }
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Chunks of a batch, dealt to per-worker deques.
+     */
+    private final class Batch {
+
+        /** Partitions to evaluate */
+        final int[][] partitions;
+
+        /** Fitness of each partition */
+        final double[] out;
+
+        /** Chunks waiting for each worker */
+        final List<Deque<Chunk>> queues = new ArrayList<>();
+
+        /** Chunks sent and not yet answered, oldest first */
+        final Set<Chunk> inFlight = new LinkedHashSet<>();
+
+        /** Whether each worker has failed in this batch */
+        final boolean[] failed = new boolean[workers.size()];
+
+        /** Number of chunks not yet evaluated */
+        int remaining;
+
+        /** Number of workers that have failed */
+        int failures;
+
+        /** Error that ended the batch, or null */
+        String error;
+
+        Batch(int[][] partitions, double[] out) {
+            this.partitions = partitions;
+            this.out = out;
+            final int size = chunkSize > 0 ? chunkSize
+                    : Math.max(1, -Math.floorDiv(-partitions.length, workers.size() * CHUNKS_PER_WORKER));
+            for (int i = 0; i < workers.size(); i++) {
+                queues.add(new ArrayDeque<>());
+            }
+            int next = 0;
+            for (int start = 0; start < partitions.length; start += size) {
+                queues.get(next).addLast(new Chunk(this, start, Math.min(start + size, partitions.length)));
+                next = (next + 1) % queues.size();
+                remaining++;
+            }
+        }
+
+        private boolean finished() {
+            return error != null || remaining == 0;
+        }
+
+        /**
+         * Wait for the batch to finish.
+         *
+         * @param millis longest time to wait
+         * @return whether the batch has finished
+         */
+        synchronized boolean await(long millis) {
+            if (!finished()) {
+                try {
+                    wait(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e.toString());
+                }
+            }
+            return finished();
+        }
+
+        /**
+         * Wait until a System.nanoTime() deadline.
+         *
+         * @return false if the batch finished first
+         */
+        synchronized boolean pauseUntil(long deadline) {
+            long left;
+            while (!finished() && (left = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e.toString());
+                }
+            }
+            return !finished();
+        }
+
+        /**
+         * Take the next chunk for a worker: the head of its own deque, or else
+         * the tail of the longest other deque, or else a copy of the oldest
+         * chunk in flight with fewer than MAX_COPIES copies. Waits while every
+         * chunk in flight has that many, since a failure puts a chunk back.
+         *
+         * @return a chunk, or null if the batch is done or has failed
+         */
+        synchronized Chunk take(int worker) {
+            while (true) {
+                if (finished()) {
+                    return null;
+                }
+                Chunk chunk = queues.get(worker).pollFirst();
+                if (chunk == null) {
+                    Deque<Chunk> victim = null;
+                    for (Deque<Chunk> queue : queues) {
+                        if (!queue.isEmpty() && (victim == null || queue.size() > victim.size())) {
+                            victim = queue;
+                        }
+                    }
+                    if (victim != null) {
+                        chunk = victim.pollLast();
+                    }
+                }
+                if (chunk != null) {
+                    inFlight.add(chunk);
+                    chunk.copies++;
+                    return chunk;
+                }
+                for (Chunk running : inFlight) {
+                    if (running.copies < MAX_COPIES) {
+                        running.copies++;
+                        speculated.incrementAndGet();
+                        return running;
+                    }
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e.toString());
+                }
+            }
+        }
+
+        /**
+         * Record a worker's answer to a chunk, unless another copy was answered
+         * first.
+         */
+        synchronized void done(int worker, Chunk chunk, double[] fitness) {
+            chunk.copies--;
+            if (chunk.done) {
+                return;
+            }
+            chunk.done = true;
+            inFlight.remove(chunk);
+            System.arraycopy(fitness, 0, out, chunk.start, fitness.length);
+            evaluated[worker].addAndGet(fitness.length);
+            remaining--;
+            notifyAll();
+        }
+
+        /**
+         * Put back the chunk a failed worker was evaluating, unless another
+         * copy is still in flight or answered, and fail the batch if no worker
+         * is left.
+         *
+         * @param chunk the chunk, or null if the worker could not be reached
+         */
+        synchronized void failed(int worker, Chunk chunk) {
+            failed[worker] = true;
+            failures++;
+            if (chunk != null && --chunk.copies == 0 && !chunk.done) {
+                inFlight.remove(chunk);
+                queues.get(worker).addFirst(chunk);
+                redispatched.incrementAndGet();
+            }
+            if (failures == failed.length) {
+                fail("all " + failures + " fitness workers failed");
+            }
+            notifyAll();
+        }
+
+        /**
+         * End the batch with an error.
+         */
+        synchronized void fail(String message) {
+            if (error == null) {
+                error = message;
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * A range of a batch's partitions.
+     */
+    private static final class Chunk {
+
+        /** Batch the chunk belongs to */
+        final Batch batch;
+
+        /** First partition */
+        final int start;
+
+        /** End of the range, exclusive */
+        final int end;
+
+        /** Number of workers evaluating the chunk; guarded by batch */
+        int copies;
+
+        /** Whether the chunk has been answered; guarded by batch */
+        boolean done;
+
+        Chunk(Batch batch, int start, int end) {
+            this.batch = batch;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.steitz.ga;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Length-prefixed messages over TCP or Unix domain socket channels, shared by
+ * the migration and fitness worker protocols. A frame is an int length
+ * followed by that many bytes, at most MAX_FRAME_BYTES, so a corrupt or
+ * hostile length cannot make the reader allocate an arbitrarily large buffer.
+ */
+final class SocketFrames {
+
+    /** Largest payload a frame may carry */
+    static final int MAX_FRAME_BYTES = 256 << 20;
+
+    private SocketFrames() {
+    }
+
+    /**
+     * Open a server channel bound to an address, removing a stale Unix domain
+     * socket file at the address first.
+     *
+     * @param address TCP or Unix domain socket address
+     * @return bound server channel
+     */
+    static ServerSocketChannel bind(SocketAddress address) throws IOException {
+        final ServerSocketChannel server;
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        return server.bind(address);
+    }
+
+    /**
+     * Close a server channel from bind, removing its Unix domain socket file if
+     * it has one.
+     */
+    static void unbind(ServerSocketChannel server, SocketAddress address) throws IOException {
+        server.close();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    /**
+     * Write a frame: the payload's length, then the payload.
+     *
+     * @throws IOException if the payload is longer than MAX_FRAME_BYTES
+     */
+    static void write(SocketChannel channel, ByteBuffer payload) throws IOException {
+        if (payload.remaining() > MAX_FRAME_BYTES) {
+            throw new IOException("Frame of " + payload.remaining() + " bytes exceeds " + MAX_FRAME_BYTES);
+        }
+        final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        header.putInt(payload.remaining()).flip();
+        final ByteBuffer[] buffers = { header, payload };
+        while (payload.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    /**
+     * Read a frame.
+     *
+     * @return the payload, or null if the channel was closed before a frame
+     *         started
+     * @throws EOFException if the channel was closed within a frame
+     * @throws IOException  if the frame length is negative or larger than
+     *                      MAX_FRAME_BYTES
+     */
+    static ByteBuffer read(SocketChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        if (!readFully(channel, header, true)) {
+            return null;
+        }
+        final int length = header.flip().getInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        final ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, false);
+        return payload.flip();
+    }
+
+    /**
+     * Read a frame of at most maxBytes, giving up after timeoutMillis. The
+     * channel is read in non-blocking mode and left in blocking mode.
+     *
+     * @return the payload, or null if the channel was closed before a frame
+     *         started
+     * @throws SocketTimeoutException if the frame is not complete in time
+     * @throws EOFException           if the channel was closed within a frame
+     * @throws IOException            if the frame length is negative or larger
+     *                                than maxBytes
+     */
+    static ByteBuffer read(SocketChannel channel, int maxBytes, long timeoutMillis) throws IOException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        channel.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            channel.register(selector, SelectionKey.OP_READ);
+            final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            if (!readFully(channel, header, true, selector, deadline)) {
+                return null;
+            }
+            final int length = header.flip().getInt();
+            if (length < 0 || length > maxBytes) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            final ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, false, selector, deadline);
+            return payload.flip();
+        } finally {
+            // The selector is closed by now, which deregisters the channel
+            channel.configureBlocking(true);
+        }
+    }
+
+    /**
+     * Fill buffer from a non-blocking channel registered with selector for
+     * reads, before a System.nanoTime() deadline.
+     */
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer, boolean eofAllowed,
+            Selector selector, long deadline) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer);
+            if (read < 0) {
+                if (eofAllowed && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Connection closed within a frame");
+            }
+            if (read == 0) {
+                final long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    throw new SocketTimeoutException("Timed out reading a frame");
+                }
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+                selector.selectedKeys().clear();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill buffer from channel.
+     *
+     * @param eofAllowed whether the channel may be closed before any byte is
+     *                   read
+     * @return false if the channel was closed before any byte was read
+     */
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer, boolean eofAllowed)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Connection closed within a frame");
+            }
+        }
+        return true;
+    }
+}
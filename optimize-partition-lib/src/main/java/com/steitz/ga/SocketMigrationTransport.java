@@ -0,0 +1,237 @@
+package com.steitz.ga;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.genetics.Chromosome;
+
+/**
+ * MigrationTransport that exchanges emigrants with the islands of other
+ * processes through a MigrationCoordinator, over TCP or a Unix domain socket.
+ * <p>
+ * Each process connects once, announcing its rank and number of islands, and
+ * then sends the emigrants of all its islands at every migration and blocks
+ * until the coordinator replies with their immigrants. Chromosomes travel as
+ * their fitness followed by the binary form of their PackedPartition, so a
+ * partition of n elements into m pieces takes about n * ceil(log2 m) / 8
+ * bytes.
+ * <p>
+ * Messages are SocketFrames:
+ * <pre>
+ * hello:     int magic ("OPMG"), int rank, int islands
+ * migration: int generation, int islands, then for each island
+ *            int count and count times (double fitness, PackedPartition)
+ * </pre>
+ * The coordinator replies to a migration with a migration message carrying
+ * the immigrants of the same islands.
+ */
+public class SocketMigrationTransport implements MigrationTransport {
+
+    /** Hello magic, "OPMG" */
+    static final int MAGIC = 0x4f504d47;
+
+    /** Pause between connection attempts, in milliseconds */
+    private static final long RETRY_MILLIS = 100;
+
+    /** Connection to the coordinator */
+    private final SocketChannel channel;
+
+    /** Fitness function of received chromosomes */
+    private final IntPartitionFitness fitnessFunction;
+
+    /**
+     * Connect to a coordinator, retrying until it accepts or the timeout
+     * expires, and announce this process.
+     *
+     * @param coordinator     coordinator address
+     * @param rank            rank of this process, unique among the processes
+     * @param islands         number of islands in this process
+     * @param fitnessFunction fitness function of received chromosomes
+     * @param timeoutMillis   how long to keep trying to connect
+     * @throws IOException if the coordinator cannot be reached in time
+     */
+    public SocketMigrationTransport(SocketAddress coordinator, int rank, int islands,
+            IntPartitionFitness fitnessFunction, long timeoutMillis) throws IOException {
+        this.fitnessFunction = fitnessFunction;
+        this.channel = connect(coordinator, timeoutMillis);
+        final ByteBuffer hello = ByteBuffer.allocate(3 * Integer.BYTES);
+        hello.putInt(MAGIC).putInt(rank).putInt(islands).flip();
+        SocketFrames.write(channel, hello);
+    }
+
+    /**
+     * @throws UncheckedIOException if the coordinator cannot be reached
+     */
+    @Override
+    public List<List<Chromosome>> exchange(int generation, List<List<Chromosome>> emigrants) {
+        final List<List<Migrant>> outgoing = new ArrayList<>();
+        for (List<Chromosome> island : emigrants) {
+            final List<Migrant> migrants = new ArrayList<>();
+            for (Chromosome chromosome : island) {
+                migrants.add(new Migrant(chromosome.getFitness(),
+                        PackedPartition.pack(((IntPartitionChromosome) chromosome).getRepresentation())));
+            }
+            outgoing.add(migrants);
+        }
+        try {
+            SocketFrames.write(channel, encode(generation, outgoing));
+            final ByteBuffer reply = SocketFrames.read(channel);
+            if (reply == null) {
+                throw new EOFException("Coordinator closed the connection");
+            }
+            final int replyGeneration = reply.getInt();
+            if (replyGeneration != generation) {
+                throw new IllegalStateException("Expected immigrants for generation " + generation + ", got "
+                        + replyGeneration);
+            }
+            final List<List<Chromosome>> immigrants = new ArrayList<>();
+            for (List<Migrant> island : decode(reply)) {
+                final List<Chromosome> chromosomes = new ArrayList<>();
+                for (Migrant migrant : island) {
+                    final IntPartitionChromosome chromosome = new IntPartitionChromosome(
+                            migrant.partition.unpack(), fitnessFunction);
+                    chromosome.setFitness(migrant.fitness);
+                    chromosomes.add(chromosome);
+                }
+                immigrants.add(chromosomes);
+            }
+            return immigrants;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Migration at generation " + generation + " failed", e);
+        }
+    }
+
+    /**
+     * Close the connection, which tells the coordinator this process has
+     * finished.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse a socket address: "unix:path" for a Unix domain socket, otherwise
+     * "host:port".
+     *
+     * @param address address string
+     * @return socket address
+     * @throws IllegalArgumentException if the address cannot be parsed
+     */
+    public static SocketAddress parseAddress(String address) {
+        final String trimmed = address.trim();
+        if (trimmed.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(trimmed.substring("unix:".length()));
+        }
+        final int colon = trimmed.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Address must be host:port or unix:path: " + address);
+        }
+        try {
+            return new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port in address: " + address);
+        }
+    }
+
+    /**
+     * Connect to address, retrying until timeoutMillis has passed.
+     */
+    private static SocketChannel connect(SocketAddress address, long timeoutMillis) throws IOException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            try {
+                return SocketChannel.open(address);
+            } catch (IOException e) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while connecting to " + address, e);
+            }
+        }
+    }
+
+    /**
+     * A chromosome in transit.
+     */
+    static final class Migrant {
+
+        /** Fitness */
+        final double fitness;
+
+        /** Labels */
+        final PackedPartition partition;
+
+        Migrant(double fitness, PackedPartition partition) {
+            this.fitness = fitness;
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * Encode a migration message.
+     *
+     * @param generation generation number
+     * @param islands    migrants of each island
+     * @return message, ready to be written
+     */
+    static ByteBuffer encode(int generation, List<List<Migrant>> islands) {
+        int size = 2 * Integer.BYTES;
+        for (List<Migrant> island : islands) {
+            size += Integer.BYTES;
+            for (Migrant migrant : island) {
+                size += Double.BYTES + migrant.partition.getEncodedSize();
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(generation).putInt(islands.size());
+        for (List<Migrant> island : islands) {
+            buffer.putInt(island.size());
+            for (Migrant migrant : island) {
+                buffer.putDouble(migrant.fitness);
+                migrant.partition.writeTo(buffer);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decode the islands of a migration message whose generation has already
+     * been read.
+     *
+     * @param buffer message positioned after the generation
+     * @return migrants of each island
+     */
+    static List<List<Migrant>> decode(ByteBuffer buffer) {
+        final int count = buffer.getInt();
+        final List<List<Migrant>> islands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int size = buffer.getInt();
+            final List<Migrant> island = new ArrayList<>();
+            for (int j = 0; j < size; j++) {
+                final double fitness = buffer.getDouble();
+                island.add(new Migrant(fitness, PackedPartition.readFrom(buffer)));
+            }
+            islands.add(island);
+        }
+        return islands;
+    }
+}
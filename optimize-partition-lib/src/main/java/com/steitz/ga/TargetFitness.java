@@ -0,0 +1,33 @@
+package com.steitz.ga;
+
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.StoppingCondition;
+
+/**
+ * Stops when the fittest chromosome of the population reaches a target
+ * fitness.
+ */
+public class TargetFitness implements StoppingCondition {
+
+    /** Fitness to stop at */
+    private final double target;
+
+    /**
+     * @param target fitness at or above which to stop
+     */
+    public TargetFitness(double target) {
+        this.target = target;
+    }
+
+    @Override
+    public boolean isSatisfied(Population population) {
+        return population.getFittestChromosome().getFitness() >= target;
+    }
+
+    /**
+     * @return the fitness to stop at
+     */
+    public double getTarget() {
+        return target;
+    }
+}
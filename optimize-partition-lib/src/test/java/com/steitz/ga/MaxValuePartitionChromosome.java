@@ -1,8 +1,6 @@
 package com.steitz.ga;
 
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * A PartitionChromosome that computes fitness by summing the max value of the
@@ -48,16 +46,17 @@ public class MaxValuePartitionChromosome extends PartitionChromosome {
     public static class MaxValuePartitionFitness implements PartitionFitness {
         @Override
         public double fitness(List<Integer> representation) {
-            final Partition partition = new Partition(representation);
-            // Get the subsets of the partition
-            final List<Set<Integer>> subsets = partition.asSets().values().stream().collect(Collectors.toList());
+            final PieceIndex pieces = new Partition(representation).pieceIndex();
 
             // Compute the sum of the max value for universe[i] for each i in the partition
             int sum = 0;
-            // Loop over the subsets
-            for (Set<Integer> subset : subsets) {
-                // Get the max value in the subset
-                int max = subset.stream().mapToInt(i -> universe[i]).max().getAsInt();
+            // Loop over the pieces
+            for (int piece = 0; piece < pieces.getM(); piece++) {
+                // Get the max value in the piece
+                int max = 0;
+                for (int k = pieces.start(piece); k < pieces.end(piece); k++) {
+                    max = Math.max(max, universe[pieces.member(k)]);
+                }
                 // Add the max value to the sum
                 sum += max;
             }
@@ -0,0 +1,51 @@
+package com.steitz.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.FixedGenerationCount;
+import org.apache.commons.math3.genetics.Population;
+
+/**
+ * One process of a multi-process island model, run in its own JVM by
+ * TestMigrationCoordinator. It evolves two islands of MaxValuePartition
+ * chromosomes, migrating through a coordinator, and prints its best fitness.
+ */
+public class MigrationPeer {
+
+    /** Fitness function of every peer */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    /**
+     * @param args coordinator address ("host:port" or "unix:path"), rank and
+     *             number of generations
+     * @throws Exception if the coordinator cannot be reached
+     */
+    public static void main(String[] args) throws Exception {
+        final int rank = Integer.parseInt(args[1]);
+        final int generations = Integer.parseInt(args[2]);
+        final Population initial = new ElitisticListPopulation(400, 0.1);
+        for (int i = 0; i < 400; i++) {
+            initial.addChromosome(new IntPartitionChromosome(Partition.randomPartition(100, 10).getPartition(),
+                    FITNESS));
+        }
+        final List<PartitionGeneticAlgorithm> islands = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            islands.add(new PartitionGeneticAlgorithm(
+                    new PartitionChromosomeCrossover(null),
+                    1,
+                    new PartitionChromosomeMutation(null),
+                    0.10,
+                    new IndexTournamentSelection(10),
+                    PopulationEvaluator.SEQUENTIAL));
+        }
+        try (SocketMigrationTransport transport = new SocketMigrationTransport(
+                SocketMigrationTransport.parseAddress(args[0]), rank, islands.size(), FITNESS, 30_000)) {
+            final IslandGeneticAlgorithm ga = new IslandGeneticAlgorithm(islands, transport, 2, 2, null, 0);
+            final Population last = ga.evolve(initial, new FixedGenerationCount(generations));
+            System.out.println("best=" + last.getFittestChromosome().getFitness());
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.steitz.ga;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Paths;
@@ -147,4 +150,21 @@ public class TestCmdPartitionChromosome {
         System.out.println("Best fitness: " + bestFinal.fitness());
         assertTrue(bestFinal.fitness() > -10);
     }
+
+    @Test
+    public void testBatchFitness() {
+        if (System.getProperty("os.name").contains("indows")) {
+            return;
+        }
+        final CmdPartitionFitness fitness = new CmdPartitionFitness(SUM_COMMAND, 2);
+        final int[][] partitions = { { 0, 1, 2 }, { 0, 0, 0 }, { 0, 1, 2 }, { 0, 1, 1 }, { 0, 1, 0 } };
+        assertArrayEquals(new double[] { 3, 0, 3, 2, 1 }, fitness.fitness(partitions), 0);
+        // Duplicates are evaluated once
+        assertEquals(4, fitness.fitnessCache.size());
+        // Cached values are reused
+        assertArrayEquals(new double[] { 2, 3 }, fitness.fitness(new int[][] { { 0, 1, 1 }, { 0, 1, 2 } }), 0);
+        // A command that fails fails the batch
+        final CmdPartitionFitness failing = new CmdPartitionFitness("false", 2);
+        assertThrows(RuntimeException.class, () -> failing.fitness(partitions));
+    }
 }
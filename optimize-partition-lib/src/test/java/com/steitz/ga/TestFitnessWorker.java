@@ -0,0 +1,58 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for FitnessWorker's request handling.
+ */
+public class TestFitnessWorker {
+
+    /** List-based fitness function adapted to int arrays */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    /**
+     * Malformed requests get an error reply and leave the connection and the
+     * worker usable.
+     */
+    @Test
+    public void testMalformedRequest(@TempDir Path dir) throws IOException {
+        final FitnessWorker worker = new FitnessWorker(UnixDomainSocketAddress.of(dir.resolve("worker.sock")),
+                FITNESS, 2);
+        worker.start();
+        try (SocketChannel channel = SocketChannel.open(worker.getAddress())) {
+            // Three partitions announced, none sent
+            assertEquals(FitnessWorker.ERROR, exchange(channel, ByteBuffer.allocate(4).putInt(3)).get());
+            // A partition header announcing far more labels than the frame holds
+            assertEquals(FitnessWorker.ERROR,
+                    exchange(channel, ByteBuffer.allocate(12).putInt(1).putInt(Integer.MAX_VALUE).putInt(2)).get());
+            // A negative count
+            assertEquals(FitnessWorker.ERROR, exchange(channel, ByteBuffer.allocate(4).putInt(-1)).get());
+
+            final int[] partition = Partition.randomPartition(100, 10).getPartition();
+            final PackedPartition packed = PackedPartition.pack(partition);
+            final ByteBuffer request = ByteBuffer.allocate(Integer.BYTES + packed.getEncodedSize()).putInt(1);
+            packed.writeTo(request);
+            final ByteBuffer reply = exchange(channel, request);
+            assertEquals(FitnessWorker.OK, reply.get());
+            assertEquals(FITNESS.fitness(partition), reply.getDouble(), 0.0);
+            assertEquals(1, worker.getEvaluated());
+        } finally {
+            worker.close();
+        }
+    }
+
+    private static ByteBuffer exchange(SocketChannel channel, ByteBuffer request) throws IOException {
+        SocketFrames.write(channel, request.flip());
+        return SocketFrames.read(channel);
+    }
+}
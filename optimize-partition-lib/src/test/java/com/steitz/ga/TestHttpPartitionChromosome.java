@@ -5,6 +5,11 @@ import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -93,4 +98,41 @@ public class TestHttpPartitionChromosome {
         // [0,1,0,2,0,3,0,4] -> 10
         assert (chromosome2.fitness() == 10.0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBatchFitness(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+        final WireMock wireMock = wmRuntimeInfo.getWireMock();
+        for (String partition : TEST_PARTITIONS) {
+            final String encodedPartition = URLEncoder.encode(getPartition(partition).toString(), "UTF-8");
+            wireMock.register(get("/instance-dsl/sum?partition=" + encodedPartition)
+                    .willReturn(aResponse().withBody(getSumString(partition))));
+        }
+        wireMock.register(get(urlPathEqualTo("/instance-dsl/missing"))
+                .willReturn(aResponse().withStatus(404).withBody("1.0")));
+
+        // Send all test partitions in one batch
+        final int[][] partitions = new int[TEST_PARTITIONS.length][];
+        final double[] expected = new double[TEST_PARTITIONS.length];
+        for (int i = 0; i < TEST_PARTITIONS.length; i++) {
+            partitions[i] = Partition.toIntArray(getPartition(TEST_PARTITIONS[i]));
+            expected[i] = getSum(TEST_PARTITIONS[i]);
+        }
+        try (HttpPartitionFitness fitness = new HttpPartitionFitness(
+                "http://localhost:" + wmRuntimeInfo.getHttpPort() + "/instance-dsl/sum", 2)) {
+            assertArrayEquals(expected, fitness.fitness(partitions), 0);
+            // Later batches reuse the client
+            assertArrayEquals(expected, fitness.fitness(partitions), 0);
+            // Single int[] evaluation sends the same request
+            assertEquals(10.0, fitness.fitness(partitions[1]), 0);
+            // A closed function starts a new client at its next batch
+            fitness.close();
+            assertArrayEquals(expected, fitness.fitness(partitions), 0);
+        }
+        // Error responses fail the batch even if their body parses
+        try (HttpPartitionFitness missing = new HttpPartitionFitness(
+                "http://localhost:" + wmRuntimeInfo.getHttpPort() + "/instance-dsl/missing", 2)) {
+            final RuntimeException e = assertThrows(RuntimeException.class, () -> missing.fitness(partitions));
+            assertTrue(e.getMessage().contains("404"), e.getMessage());
+        }
+    }
+}
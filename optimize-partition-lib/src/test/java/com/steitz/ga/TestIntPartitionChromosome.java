@@ -0,0 +1,193 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.FixedGenerationCount;
+import org.apache.commons.math3.genetics.GeneticAlgorithm;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.TournamentSelection;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for IntPartitionChromosome and the int array paths of the crossover and
+ * mutation policies.
+ */
+public class TestIntPartitionChromosome {
+
+    /** List-based fitness function adapted to int arrays */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    @Test
+    public void testInvalidRepresentation() {
+        // Piece 1 is missing
+        assertThrows(IllegalArgumentException.class,
+                () -> new IntPartitionChromosome(new int[] { 0, 2, 2 }, FITNESS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new IntPartitionChromosome(new int[] { 0, -1 }, FITNESS));
+    }
+
+    @Test
+    public void testCrossover() {
+        final IntPartitionChromosome first = new IntPartitionChromosome(new int[] { 0, 1, 2, 3 }, FITNESS);
+        final IntPartitionChromosome second = new IntPartitionChromosome(new int[] { 0, 0, 0, 0 }, FITNESS);
+        final ChromosomePair pair = new PartitionChromosomeCrossover(null).crossover(first, second);
+
+        // Children [0, 0, 2, 0] and [0, 1, 0, 3] have empty pieces, so they are
+        // relabeled.
+        final IntPartitionChromosome child1 = (IntPartitionChromosome) pair.getFirst();
+        final IntPartitionChromosome child2 = (IntPartitionChromosome) pair.getSecond();
+        assertEquals(2, new Partition(child1.getRepresentation()).getM());
+        assertEquals(3, new Partition(child2.getRepresentation()).getM());
+        assertSame(FITNESS, child1.getFitnessFunction());
+    }
+
+    @Test
+    public void testGroupingCrossover() {
+        final GroupingPartitionCrossover crossover = new GroupingPartitionCrossover(null, true);
+        // Crossing a partition with itself reproduces it
+        final int[] labels = Partition.randomPartition(50, 5).canonical().getPartition();
+        final IntPartitionChromosome parent = new IntPartitionChromosome(labels, FITNESS);
+        final ChromosomePair same = crossover.crossover(parent, parent);
+        assertArrayEquals(labels, ((IntPartitionChromosome) same.getFirst()).getRepresentation());
+        assertArrayEquals(labels, ((IntPartitionChromosome) same.getSecond()).getRepresentation());
+
+        for (int i = 0; i < 100; i++) {
+            final IntPartitionChromosome first = new IntPartitionChromosome(
+                    Partition.randomPartition(50, 5).getPartition(), FITNESS);
+            final IntPartitionChromosome second = new IntPartitionChromosome(
+                    Partition.randomPartition(50, 8).getPartition(), FITNESS);
+            final ChromosomePair pair = crossover.crossover(first, second);
+            final int[] child1 = ((IntPartitionChromosome) pair.getFirst()).getRepresentation();
+            final int[] child2 = ((IntPartitionChromosome) pair.getSecond()).getRepresentation();
+            // Children never have more pieces than the parent with more pieces
+            assertTrue(new Partition(child1).getM() <= 8);
+            assertTrue(new Partition(child2).getM() <= 8);
+            // Each child keeps at least one whole piece of its donor
+            assertTrue(keepsPiece(child1, second.getRepresentation()));
+            assertTrue(keepsPiece(child2, first.getRepresentation()));
+        }
+    }
+
+    @Test
+    public void testAlignedCrossover() {
+        // The same partition under permuted labels
+        final int[] labels = { 0, 0, 1, 1, 2, 2, 3, 3, 0, 1 };
+        final int[] permuted = { 2, 2, 3, 3, 0, 0, 1, 1, 2, 3 };
+        final ChromosomePair pair = new AlignedPartitionCrossover(null).crossover(
+                new IntPartitionChromosome(labels, FITNESS), new IntPartitionChromosome(permuted, FITNESS));
+        assertArrayEquals(labels, ((IntPartitionChromosome) pair.getFirst()).getRepresentation());
+        assertArrayEquals(labels, ((IntPartitionChromosome) pair.getSecond()).getRepresentation());
+
+        // Pieces of the second parent are matched by overlap, then get unused or
+        // new labels
+        assertArrayEquals(new int[] { 0, 0, 1, 2, 3 },
+                AlignedPartitionCrossover.align(new int[] { 0, 0, 1, 1, 1 }, 2, new int[] { 3, 3, 0, 1, 2 }, 4));
+    }
+
+    /**
+     * @return true if all members of some piece of donor have the same label in
+     *         child
+     */
+    private static boolean keepsPiece(int[] child, int[] donor) {
+        final PieceIndex pieces = PieceIndex.of(donor);
+        for (int piece = 0; piece < pieces.getM(); piece++) {
+            boolean whole = true;
+            final int label = child[pieces.member(pieces.start(piece))];
+            for (int k = pieces.start(piece); k < pieces.end(piece); k++) {
+                whole &= child[pieces.member(k)] == label;
+            }
+            if (whole) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testMutation() {
+        final IntPartitionChromosome original = new IntPartitionChromosome(new int[] { 0, 1, 2, 3, 4 }, FITNESS);
+        final PartitionChromosomeMutation mutation = new PartitionChromosomeMutation(null);
+        for (int i = 0; i < 100; i++) {
+            final IntPartitionChromosome mutant = (IntPartitionChromosome) mutation.mutate(original);
+            // At most one element changes, so at most one piece disappears
+            assertTrue(new Partition(mutant.getRepresentation()).getM() >= 4);
+        }
+        // The original is not modified
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, original.getRepresentation());
+    }
+
+    @Test
+    public void testCompositeMutation() {
+        final IntPartitionChromosome original = new IntPartitionChromosome(new int[] { 0, 0, 0, 1, 1, 1, 2, 2, 2 },
+                FITNESS);
+        final CompositePartitionMutation mutation = new CompositePartitionMutation(null, true, 2,
+                CompositePartitionMutation.parseWeights("move:1,kmove:1,split:1,merge:1,swap:1"));
+        for (int i = 0; i < 100; i++) {
+            // Merging two of three pieces leaves two
+            final int[] merged = ((IntPartitionChromosome) mutation.mutate(original,
+                    CompositePartitionMutation.Operator.MERGE)).getRepresentation();
+            assertEquals(2, Partition.maxLabel(merged) + 1);
+            // Splitting adds at most one piece, each within an original piece
+            final int[] split = ((IntPartitionChromosome) mutation.mutate(original,
+                    CompositePartitionMutation.Operator.SPLIT)).getRepresentation();
+            assertTrue(Partition.maxLabel(split) + 1 >= 3 && Partition.maxLabel(split) + 1 <= 4);
+            for (int j = 0; j < split.length; j++) {
+                for (int k = 0; k < split.length; k++) {
+                    assertTrue(split[j] != split[k] || j / 3 == k / 3);
+                }
+            }
+            // Swapping keeps piece sizes
+            final int[] swapped = ((IntPartitionChromosome) mutation.mutate(original,
+                    CompositePartitionMutation.Operator.SWAP)).getRepresentation();
+            final int[] sizes = new int[3];
+            for (int label : swapped) {
+                sizes[label]++;
+            }
+            assertArrayEquals(new int[] { 3, 3, 3 }, sizes);
+            // Moving two elements cannot empty a piece of three
+            final int[] moved = ((IntPartitionChromosome) mutation.mutate(original,
+                    CompositePartitionMutation.Operator.KMOVE)).getRepresentation();
+            assertEquals(3, Partition.maxLabel(moved) + 1);
+            assertTrue(mutation.mutate(original) instanceof IntPartitionChromosome);
+        }
+        // The original is not modified
+        assertArrayEquals(new int[] { 0, 0, 0, 1, 1, 1, 2, 2, 2 }, original.getRepresentation());
+
+        final double[] weights = CompositePartitionMutation.parseWeights("kmove:1,SWAP:3");
+        assertArrayEquals(new double[] { 0, 0.25, 0, 0, 0.75 },
+                new CompositePartitionMutation(null, false, 1, weights).getProbabilities(), 0.0);
+        assertThrows(IllegalArgumentException.class, () -> CompositePartitionMutation.parseWeights("shuffle:1"));
+        final double[] zero = CompositePartitionMutation.parseWeights("move:0");
+        assertThrows(IllegalArgumentException.class, () -> new CompositePartitionMutation(null, false, 1, zero));
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, using IntPartitionChromosomes.
+     */
+    @Test
+    public void testOptimizeMaxValuePartition() {
+        final Population initial = new ElitisticListPopulation(1000, 0.1);
+        for (int i = 0; i < 1000; i++) {
+            initial.addChromosome(new IntPartitionChromosome(Partition.randomPartition(100, 10).getPartition(),
+                    FITNESS));
+        }
+        final GeneticAlgorithm ga = new GeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new TournamentSelection(100));
+
+        final Population finalPopulation = ga.evolve(initial, new FixedGenerationCount(25));
+        final Chromosome bestFinal = finalPopulation.getFittestChromosome();
+        assertEquals(50.0, bestFinal.fitness(), 0.0);
+    }
+}
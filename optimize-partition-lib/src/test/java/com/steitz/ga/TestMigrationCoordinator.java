@@ -0,0 +1,162 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for MigrationCoordinator and its socket framing, including a run
+ * across separate JVMs.
+ */
+public class TestMigrationCoordinator {
+
+    /** List-based fitness function adapted to int arrays */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    /**
+     * Three MigrationPeer JVMs, each with its own PartitionRandom and static
+     * state, evolve together through a coordinator on a Unix domain socket.
+     */
+    @Test
+    public void testForkedProcessesEvolveTogether(@TempDir Path dir) throws Exception {
+        final Path socket = dir.resolve("migration.sock");
+        final MigrationCoordinator coordinator = new MigrationCoordinator(UnixDomainSocketAddress.of(socket), 3,
+                IslandGeneticAlgorithm.Topology.RING, 2);
+        final Thread thread = coordinator.start();
+        final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        final List<Process> processes = new ArrayList<>();
+        final List<Path> outputs = new ArrayList<>();
+        try {
+            for (int rank = 0; rank < 3; rank++) {
+                final Path output = dir.resolve("peer" + rank + ".out");
+                outputs.add(output);
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        MigrationPeer.class.getName(), "unix:" + socket, Integer.toString(rank), "30")
+                        .redirectErrorStream(true).redirectOutput(output.toFile()).start());
+            }
+            for (int rank = 0; rank < 3; rank++) {
+                final Process process = processes.get(rank);
+                assertTrue(process.waitFor(120, TimeUnit.SECONDS), "Peer " + rank + " did not finish");
+                final String output = new String(Files.readAllBytes(outputs.get(rank)), StandardCharsets.UTF_8);
+                assertEquals(0, process.exitValue(), output);
+                assertTrue(output.contains("best=50.0"), output);
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+        }
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+    }
+
+    /**
+     * A second process announcing a rank already taken is disconnected; the
+     * coordinator still waits for the missing rank and then migrates.
+     */
+    @Test
+    public void testRejectsDuplicateRank(@TempDir Path dir) throws Exception {
+        final MigrationCoordinator coordinator = new MigrationCoordinator(
+                UnixDomainSocketAddress.of(dir.resolve("migration.sock")), 2, IslandGeneticAlgorithm.Topology.RING,
+                1);
+        final Thread thread = coordinator.start();
+        final IntPartitionChromosome emigrant = new IntPartitionChromosome(
+                Partition.randomPartition(100, 10).getPartition(), FITNESS);
+        emigrant.fitness();
+        final List<List<Chromosome>> emigrants = List.of(List.of(emigrant));
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (SocketMigrationTransport first = new SocketMigrationTransport(coordinator.getAddress(), 0, 1, FITNESS,
+                10_000);
+                SocketMigrationTransport duplicate = new SocketMigrationTransport(coordinator.getAddress(), 0, 1,
+                        FITNESS, 10_000);
+                SocketMigrationTransport second = new SocketMigrationTransport(coordinator.getAddress(), 1, 1,
+                        FITNESS, 10_000)) {
+            assertThrows(UncheckedIOException.class, () -> duplicate.exchange(2, emigrants));
+            final Future<List<List<Chromosome>>> fromFirst = executor.submit(() -> first.exchange(2, emigrants));
+            final Future<List<List<Chromosome>>> fromSecond = executor.submit(() -> second.exchange(2, emigrants));
+            assertEquals(1, fromFirst.get(10, TimeUnit.SECONDS).get(0).size());
+            assertEquals(1, fromSecond.get(10, TimeUnit.SECONDS).get(0).size());
+        } finally {
+            executor.shutdown();
+        }
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+    }
+
+    /**
+     * Connections that send no hello, a malformed one or close before sending
+     * one are dropped one by one; the coordinator then accepts the real
+     * processes and migrates.
+     */
+    @Test
+    public void testRejectsBadHello(@TempDir Path dir) throws Exception {
+        final MigrationCoordinator coordinator = new MigrationCoordinator(
+                UnixDomainSocketAddress.of(dir.resolve("migration.sock")), 2, IslandGeneticAlgorithm.Topology.RING,
+                1);
+        coordinator.setHelloTimeoutMillis(200);
+        final Thread thread = coordinator.start();
+        final IntPartitionChromosome emigrant = new IntPartitionChromosome(
+                Partition.randomPartition(100, 10).getPartition(), FITNESS);
+        emigrant.fitness();
+        final List<List<Chromosome>> emigrants = List.of(List.of(emigrant));
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (SocketChannel silent = SocketChannel.open(coordinator.getAddress());
+                SocketChannel garbage = SocketChannel.open(coordinator.getAddress())) {
+            SocketChannel.open(coordinator.getAddress()).close();
+            garbage.write(ByteBuffer.allocate(8).putInt(4).putInt(0xdeadbeef).flip());
+            try (SocketMigrationTransport first = new SocketMigrationTransport(coordinator.getAddress(), 0, 1,
+                    FITNESS, 10_000);
+                    SocketMigrationTransport second = new SocketMigrationTransport(coordinator.getAddress(), 1, 1,
+                            FITNESS, 10_000)) {
+                final Future<List<List<Chromosome>>> fromFirst = executor.submit(() -> first.exchange(2, emigrants));
+                final Future<List<List<Chromosome>>> fromSecond = executor
+                        .submit(() -> second.exchange(2, emigrants));
+                assertEquals(1, fromFirst.get(10, TimeUnit.SECONDS).get(0).size());
+                assertEquals(1, fromSecond.get(10, TimeUnit.SECONDS).get(0).size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+    }
+
+    /**
+     * A frame header announcing more than MAX_FRAME_BYTES is rejected before
+     * any buffer is allocated for it.
+     */
+    @Test
+    public void testFrameLengthIsCapped(@TempDir Path dir) throws IOException {
+        final UnixDomainSocketAddress address = UnixDomainSocketAddress.of(dir.resolve("frames.sock"));
+        final ServerSocketChannel server = SocketFrames.bind(address);
+        try (SocketChannel client = SocketChannel.open(address); SocketChannel accepted = server.accept()) {
+            client.write(ByteBuffer.allocate(Integer.BYTES).putInt(SocketFrames.MAX_FRAME_BYTES + 1).flip());
+            assertThrows(IOException.class, () -> SocketFrames.read(accepted));
+        } finally {
+            SocketFrames.unbind(server, address);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for OffHeapPopulation and OffHeapGeneticAlgorithm.
+ */
+public class TestOffHeapPopulation {
+
+    /** List-based fitness function adapted to int arrays */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    @Test
+    public void testRowsAndSwap() {
+        final OffHeapPopulation population = new OffHeapPopulation(3, 4);
+        population.setRow(1, new int[] { 0, 1, 1, 2 }, 3);
+        assertArrayEquals(new int[] { 0, 1, 1, 2 }, population.readRow(1, new int[4]));
+        assertEquals(2, population.get(1, 3));
+        assertEquals(3, population.getPieceCount(1));
+        assertFalse(population.isEvaluated(1));
+
+        // Rows of the next generation are not visible until swap
+        population.setFitness(1, 7);
+        population.copyToNext(1, 0, new int[4]);
+        population.writeNextRow(2, new int[] { 0, 0, 0, 0 }, 1);
+        assertArrayEquals(new int[] { 0, 0, 0, 0 }, population.readRow(0, new int[4]));
+        population.swap();
+        assertArrayEquals(new int[] { 0, 1, 1, 2 }, population.readRow(0, new int[4]));
+        assertEquals(7, population.getFitness(0), 0);
+        assertFalse(population.isEvaluated(2));
+        assertEquals(0, population.fittestRow());
+    }
+
+    @Test
+    public void testRowsByFitness() {
+        final OffHeapPopulation population = new OffHeapPopulation(5, 1);
+        final double[] fitness = { 3, 1, 4, 1, 5 };
+        for (int row = 0; row < fitness.length; row++) {
+            population.setFitness(row, fitness[row]);
+        }
+        final int[] ranked = population.rowsByFitness();
+        assertEquals(4, ranked[0]);
+        assertEquals(2, ranked[1]);
+        assertEquals(0, ranked[2]);
+        for (int i = 1; i < ranked.length; i++) {
+            assertTrue(population.getFitness(ranked[i - 1]) >= population.getFitness(ranked[i]));
+        }
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, using an off-heap population.
+     */
+    @Test
+    public void testOptimizeMaxValuePartition() {
+        final OffHeapPopulation population = OffHeapPopulation.random(1000, 100, 10);
+        final OffHeapGeneticAlgorithm ga = new OffHeapGeneticAlgorithm(FITNESS, 1, 0.10, 100, 0.1, false);
+        ga.evolve(population, 25);
+        assertEquals(25, ga.getGenerationsEvolved());
+
+        final int best = population.fittestRow();
+        assertEquals(50.0, population.getFitness(best), 0.0);
+        // Rows remain valid partitions
+        final IntPartitionChromosome chromosome = population.toChromosome(best, FITNESS);
+        assertEquals(population.getPieceCount(best), new Partition(chromosome.getRepresentation()).getM());
+        assertEquals(50.0, chromosome.fitness(), 0.0);
+    }
+
+    /**
+     * A batch fitness function gets the unevaluated rows of a generation in
+     * one call.
+     */
+    @Test
+    public void testBatchEvaluation() {
+        final int[] calls = new int[1];
+        final BatchPartitionFitness batch = new BatchPartitionFitness() {
+            @Override
+            public double fitness(int[] partition) {
+                return FITNESS.fitness(partition);
+            }
+
+            @Override
+            public double[] fitness(int[][] partitions) {
+                calls[0]++;
+                return BatchPartitionFitness.super.fitness(partitions);
+            }
+        };
+        final OffHeapPopulation population = OffHeapPopulation.random(10, 20, 4);
+        population.setFitness(3, 1);
+        assertEquals(9, population.evaluate(batch));
+        assertEquals(1, calls[0]);
+        assertEquals(1, population.getFitness(3), 0);
+        final int[] row = new int[20];
+        assertEquals(FITNESS.fitness(population.readRow(0, row)), population.getFitness(0), 0);
+        assertEquals(0, population.evaluate(batch));
+        assertEquals(1, calls[0]);
+    }
+
+    /**
+     * A row too long for one direct buffer is rejected up front.
+     */
+    @Test
+    public void testRejectsOversizedRows() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapPopulation(1, Integer.MAX_VALUE));
+    }
+}
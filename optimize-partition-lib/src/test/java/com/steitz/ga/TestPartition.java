@@ -0,0 +1,180 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.apache.commons.math3.genetics.ChromosomePair;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for Partition relabeling and encoding.
+ */
+public class TestPartition {
+
+    @Test
+    public void testRemoveEmptyPieces() {
+        // Crossing [0,1,2] with [0,0,0] gives [0,0,2], which is recoded to [0,0,1]
+        final Partition partition = new Partition(new int[] { 0, 0, 2 });
+        assertArrayEquals(new int[] { 0, 0, 1 }, partition.getPartition());
+        assertEquals(2, partition.getM());
+    }
+
+    @Test
+    public void testCompactWithScratch() {
+        final int[] scratch = Partition.scratch(null, 6);
+        final int[] labels = { 5, 1, 5, 3 };
+        assertEquals(3, Partition.compact(labels, 6, scratch));
+        assertArrayEquals(new int[] { 2, 0, 2, 1 }, labels);
+
+        // A large enough table is reused, and no-op compaction leaves labels alone
+        assertSame(scratch, Partition.scratch(scratch, 3));
+        final int[] compact = { 0, 2, 1, 2 };
+        assertEquals(3, Partition.compact(compact, 3, scratch));
+        assertArrayEquals(new int[] { 0, 2, 1, 2 }, compact);
+    }
+
+    @Test
+    public void testCanonical() {
+        final Partition partition = new Partition(new int[] { 2, 2, 0, 1, 0 });
+        assertFalse(partition.isCanonical());
+        final Partition canonical = partition.canonical();
+        assertArrayEquals(new int[] { 0, 0, 1, 2, 1 }, canonical.getPartition());
+        assertTrue(canonical.isCanonical());
+        assertEquals(3, canonical.getM());
+        // Canonical partitions are their own canonical form
+        assertSame(canonical, canonical.canonical());
+    }
+
+    @Test
+    public void testCanonicalizeRemovesEmptyPieces() {
+        final int[] labels = { 5, 3, 5, 7 };
+        assertEquals(3, Partition.canonicalize(labels));
+        assertArrayEquals(new int[] { 0, 1, 0, 2 }, labels);
+    }
+
+    @Test
+    public void testLabelPermutationsShareCanonicalForm() {
+        // [0,0,1,1,2,2], [1,1,0,0,2,2] and [2,2,1,1,0,0] are the same partition
+        final int[] expected = { 0, 0, 1, 1, 2, 2 };
+        assertArrayEquals(expected, new Partition(new int[] { 0, 0, 1, 1, 2, 2 }).canonical().getPartition());
+        assertArrayEquals(expected, new Partition(new int[] { 1, 1, 0, 0, 2, 2 }).canonical().getPartition());
+        assertArrayEquals(expected, new Partition(new int[] { 2, 2, 1, 1, 0, 0 }).canonical().getPartition());
+    }
+
+    @Test
+    public void testPackRoundTrip() {
+        // 37 pieces need 6 bits, so labels straddle word boundaries
+        final Partition partition = Partition.randomPartition(1000, 37);
+        final PackedPartition packed = partition.toPacked();
+        assertEquals(6, packed.getBitsPerLabel());
+        assertArrayEquals(partition.getPartition(), packed.unpack());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(partition.getPartition()[i], packed.get(i));
+        }
+        assertArrayEquals(partition.getPartition(), Partition.fromPacked(packed).getPartition());
+
+        // Binary form round trips through a ByteBuffer
+        final ByteBuffer buffer = ByteBuffer.allocate(packed.getEncodedSize() + 1);
+        buffer.put((byte) 0);
+        packed.writeTo(buffer);
+        assertEquals(0, buffer.remaining());
+        buffer.flip().get();
+        final PackedPartition read = PackedPartition.readFrom(buffer);
+        assertEquals(packed, read);
+        assertEquals(packed.hashCode(), read.hashCode());
+        assertArrayEquals(partition.getPartition(), read.unpack());
+    }
+
+    @Test
+    public void testPackedEquality() {
+        final PackedPartition packed = PackedPartition.pack(new int[] { 0, 1, 1, 0 });
+        assertEquals(1, packed.getBitsPerLabel());
+        assertEquals(packed, PackedPartition.pack(new int[] { 0, 1, 1, 0 }));
+        assertNotEquals(packed, PackedPartition.pack(new int[] { 0, 1, 0, 1 }));
+        assertNotEquals(packed, PackedPartition.pack(new int[] { 0, 1, 1, 0, 0 }));
+        // Label permutations are equal once canonicalized
+        final int[] permuted = { 1, 0, 0, 1 };
+        Partition.canonicalize(permuted);
+        assertEquals(packed, PackedPartition.pack(permuted));
+    }
+
+    @Test
+    public void testBinaryString() {
+        final Partition partition = new Partition(new int[] { 0, 2, 1, 2 });
+        assertArrayEquals(partition.getPartition(),
+                Partition.fromBinaryString(partition.toBinaryString()).getPartition());
+    }
+
+    @Test
+    public void testFingerprint() {
+        final int[] labels = { 0, 1, 1, 2, 0 };
+        final long fingerprint = PartitionFingerprint.of(labels);
+        assertEquals(fingerprint, new Partition(labels).fingerprint());
+
+        // Moving element 3 from piece 2 to piece 0 is an O(1) update
+        final int[] moved = { 0, 1, 1, 0, 0 };
+        assertEquals(PartitionFingerprint.of(moved), PartitionFingerprint.update(fingerprint, 3, 2, 0));
+        assertNotEquals(fingerprint, PartitionFingerprint.of(moved));
+
+        // Canonical fingerprints do not depend on labeling
+        final int[] permuted = { 2, 0, 0, 1, 2 };
+        assertNotEquals(fingerprint, PartitionFingerprint.of(permuted));
+        assertEquals(fingerprint, PartitionFingerprint.ofCanonical(permuted));
+        assertEquals(PartitionFingerprint.ofCanonical(labels), PartitionFingerprint.ofCanonical(permuted));
+    }
+
+    @Test
+    public void testMutantFingerprint() {
+        final IntPartitionFitness fitness = partition -> 0;
+        for (boolean canonical : new boolean[] { false, true }) {
+            final PartitionChromosomeMutation mutation = new PartitionChromosomeMutation(null, canonical);
+            IntPartitionChromosome chromosome = new IntPartitionChromosome(
+                    Partition.randomPartition(20, 4).canonical().getPartition(), fitness);
+            chromosome.getFingerprint();
+            for (int i = 0; i < 200; i++) {
+                chromosome = (IntPartitionChromosome) mutation.mutate(chromosome);
+                assertEquals(PartitionFingerprint.of(chromosome.getRepresentation()), chromosome.getFingerprint());
+            }
+        }
+    }
+
+    @Test
+    public void testCanonicalCrossover() {
+        final IntPartitionFitness fitness = partition -> 0;
+        final IntPartitionChromosome first = new IntPartitionChromosome(new int[] { 3, 2, 1, 0, 3, 2 }, fitness);
+        final IntPartitionChromosome second = new IntPartitionChromosome(new int[] { 1, 1, 0, 0, 1, 0 }, fitness);
+        final ChromosomePair pair = new PartitionChromosomeCrossover(null, true).crossover(first, second);
+        // First child is [3, 1, 1, 0, 3, 0]
+        assertArrayEquals(new int[] { 0, 1, 1, 2, 0, 2 },
+                ((IntPartitionChromosome) pair.getFirst()).getRepresentation());
+        assertTrue(new Partition(((IntPartitionChromosome) pair.getSecond()).getRepresentation()).isCanonical());
+    }
+
+    @Test
+    public void testPieceIndex() {
+        final Partition partition = new Partition(new int[] { 1, 0, 2, 1, 0, 1 });
+        final PieceIndex index = partition.pieceIndex();
+        assertSame(index, partition.pieceIndex());
+        assertEquals(3, index.getM());
+        assertEquals(6, index.getN());
+        assertArrayEquals(new int[] { 1, 4 }, index.members(0));
+        assertArrayEquals(new int[] { 0, 3, 5 }, index.members(1));
+        assertArrayEquals(new int[] { 2 }, index.members(2));
+        assertArrayEquals(partition.pieceCounts(),
+                new int[] { index.size(0), index.size(1), index.size(2) });
+        assertEquals(partition.asSets().get(1).size(), index.end(1) - index.start(1));
+
+        // Unused labels are empty pieces
+        final PieceIndex sparse = PieceIndex.of(new int[] { 2, 2 }, 4);
+        assertEquals(4, sparse.getM());
+        assertEquals(0, sparse.size(0));
+        assertEquals(2, sparse.size(2));
+        assertEquals(1, sparse.member(sparse.start(2) + 1));
+    }
+}
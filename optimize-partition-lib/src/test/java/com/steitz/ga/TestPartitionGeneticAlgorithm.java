@@ -0,0 +1,919 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.math3.genetics.Chromosome;
+import org.apache.commons.math3.genetics.ChromosomePair;
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.FixedGenerationCount;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.TournamentSelection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for PartitionGeneticAlgorithm and population evaluators.
+ */
+public class TestPartitionGeneticAlgorithm {
+
+    /** List-based fitness function adapted to int arrays */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    private static Population randomPopulation(int size, IntPartitionFitness fitness) {
+        final Population population = new ElitisticListPopulation(size, 0.1);
+        for (int i = 0; i < size; i++) {
+            population.addChromosome(new IntPartitionChromosome(Partition.randomPartition(100, 10).getPartition(),
+                    fitness));
+        }
+        return population;
+    }
+
+    @Test
+    public void testForkJoinEvaluator() {
+        final AtomicInteger evaluations = new AtomicInteger();
+        final Population population = randomPopulation(200, partition -> {
+            evaluations.incrementAndGet();
+            return FITNESS.fitness(partition);
+        });
+        final PopulationEvaluator evaluator = PopulationEvaluator.forParallelism(4);
+        assertTrue(evaluator instanceof ForkJoinPopulationEvaluator);
+        evaluator.evaluate(population);
+        assertEquals(200, evaluations.get());
+
+        // Fitness is cached, so evaluating again does no work
+        evaluator.evaluate(population);
+        for (Chromosome chromosome : population) {
+            chromosome.getFitness();
+        }
+        assertEquals(200, evaluations.get());
+
+        // Closing shuts down the pool the evaluator created, but not a shared one
+        evaluator.close();
+        assertTrue(((ForkJoinPopulationEvaluator) evaluator).getPool().isShutdown());
+        final ForkJoinPopulationEvaluator shared = new ForkJoinPopulationEvaluator(ForkJoinPool.commonPool());
+        shared.close();
+        assertFalse(shared.getPool().isShutdown());
+    }
+
+    @Test
+    public void testExecutorEvaluatorCapsConcurrency() {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger evaluations = new AtomicInteger();
+        // Simulate a latency-bound backend
+        final Population population = randomPopulation(40, partition -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            evaluations.incrementAndGet();
+            return FITNESS.fitness(partition);
+        });
+        final ExecutorPopulationEvaluator evaluator = ExecutorPopulationEvaluator.virtualThreads(4);
+        evaluator.evaluate(population);
+        evaluator.shutdown();
+        assertEquals(40, evaluations.get());
+        assertTrue(maxInFlight.get() <= 4);
+        assertTrue(maxInFlight.get() > 1);
+    }
+
+    /**
+     * Each backend gets its own cap, wrapped in a CountingPartitionFitness or
+     * not.
+     */
+    @Test
+    public void testExecutorEvaluatorCapsEachBackend() {
+        final AtomicInteger totalInFlight = new AtomicInteger();
+        final AtomicInteger maxTotalInFlight = new AtomicInteger();
+        final AtomicInteger[] inFlight = { new AtomicInteger(), new AtomicInteger() };
+        final AtomicInteger[] maxInFlight = { new AtomicInteger(), new AtomicInteger() };
+        final IntPartitionFitness[] backends = new IntPartitionFitness[2];
+        for (int b = 0; b < 2; b++) {
+            final int backend = b;
+            backends[b] = partition -> {
+                maxInFlight[backend].accumulateAndGet(inFlight[backend].incrementAndGet(), Math::max);
+                maxTotalInFlight.accumulateAndGet(totalInFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                totalInFlight.decrementAndGet();
+                inFlight[backend].decrementAndGet();
+                return FITNESS.fitness(partition);
+            };
+        }
+        final IntPartitionFitness counted = new CountingPartitionFitness(backends[1]);
+        final Population population = new ElitisticListPopulation(40, 0.1);
+        for (int i = 0; i < 40; i++) {
+            population.addChromosome(new IntPartitionChromosome(Partition.randomPartition(100, 10).getPartition(),
+                    i % 2 == 0 ? backends[0] : counted));
+        }
+        final ExecutorPopulationEvaluator evaluator = ExecutorPopulationEvaluator.virtualThreads(3);
+        evaluator.evaluate(population);
+        evaluator.close();
+        assertTrue(maxInFlight[0].get() <= 3);
+        assertTrue(maxInFlight[1].get() <= 3);
+        assertTrue(maxTotalInFlight.get() > 3);
+    }
+
+    @Test
+    public void testBatchEvaluator() {
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger evaluations = new AtomicInteger();
+        final BatchPartitionFitness batchFitness = new BatchPartitionFitness() {
+            @Override
+            public double fitness(int[] partition) {
+                evaluations.incrementAndGet();
+                return FITNESS.fitness(partition);
+            }
+
+            @Override
+            public double[] fitness(int[][] partitions) {
+                batches.incrementAndGet();
+                return BatchPartitionFitness.super.fitness(partitions);
+            }
+        };
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new TournamentSelection(10),
+                new BatchPopulationEvaluator());
+
+        // One batch for the initial population and one per generation
+        final Population finalPopulation = ga.evolve(randomPopulation(100, batchFitness), new FixedGenerationCount(5));
+        assertEquals(6, batches.get());
+        // The elite is carried over without being evaluated again
+        assertTrue(evaluations.get() < 600);
+        final int evaluated = evaluations.get();
+        finalPopulation.getFittestChromosome();
+        assertEquals(evaluated, evaluations.get());
+    }
+
+    @Test
+    public void testForParallelism() {
+        assertSame(PopulationEvaluator.LAZY, PopulationEvaluator.forParallelism(0));
+        assertSame(PopulationEvaluator.SEQUENTIAL, PopulationEvaluator.forParallelism(1));
+        assertThrows(IllegalArgumentException.class, () -> PopulationEvaluator.forParallelism(-1));
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, evaluating generations in
+     * parallel.
+     */
+    @Test
+    public void testOptimizeMaxValuePartition() {
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new TournamentSelection(100),
+                new ForkJoinPopulationEvaluator(4));
+
+        final Population finalPopulation = ga.evolve(randomPopulation(1000, FITNESS), new FixedGenerationCount(25));
+        assertEquals(25, ga.getGenerationsEvolved());
+        assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+    }
+
+    @Test
+    public void testLocalSearch() {
+        for (boolean firstImprovement : new boolean[] { false, true }) {
+            final IntPartitionChromosome chromosome = new IntPartitionChromosome(
+                    Partition.randomPartition(100, 10).getPartition(), FITNESS);
+            // The fitness function is not incremental, so no move is scored by default
+            assertSame(chromosome, new LocalSearch(100000, firstImprovement, true).improve(chromosome));
+            assertFalse(chromosome.isEvaluated());
+            final IntPartitionChromosome improved = (IntPartitionChromosome) new LocalSearch(100000, 100000,
+                    firstImprovement, true).improve(chromosome.newChromosome(chromosome.getRepresentation()));
+            // Relocating the elements of value 10 to different pieces is optimal
+            assertTrue(improved.isEvaluated());
+            assertEquals(50.0, improved.getFitness(), 0.0);
+            assertEquals(50.0, FITNESS.fitness(improved.getRepresentation()), 0.0);
+            assertEquals(10, Partition.maxLabel(improved.getRepresentation()) + 1);
+            assertSame(improved, new LocalSearch(1000, 1000, firstImprovement, true).improve(improved));
+        }
+    }
+
+    /**
+     * Elites carried over unchanged are searched once, not every generation.
+     */
+    @Test
+    public void testLocalSearchSkipsSearchedChromosomes() {
+        final AtomicInteger evaluations = new AtomicInteger();
+        final IntPartitionFitness counted = partition -> {
+            evaluations.incrementAndGet();
+            return FITNESS.fitness(partition);
+        };
+        final LocalSearch search = new LocalSearch(50, 50, false, false);
+        final Chromosome searched = search.improve(new IntPartitionChromosome(
+                Partition.randomPartition(100, 10).getPartition(), counted));
+        final int spent = evaluations.get();
+        assertTrue(spent > 1 && spent <= 51);
+        assertSame(searched, search.improve(searched));
+        assertEquals(spent, evaluations.get());
+    }
+
+    /**
+     * Memetic optimization with a small move budget, searching the elites of
+     * each generation.
+     */
+    @Test
+    public void testOptimizeMaxValuePartitionMemetic() {
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new TournamentSelection(10),
+                PopulationEvaluator.SEQUENTIAL,
+                new LocalSearch(200, 200, true, false),
+                true);
+
+        final Population finalPopulation = ga.evolve(randomPopulation(100, FITNESS), new FixedGenerationCount(10));
+        assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+    }
+
+    @Test
+    public void testDuplicateElimination() {
+        for (DuplicateElimination.Replacement replacement : DuplicateElimination.Replacement.values()) {
+            final DuplicateElimination elimination = new DuplicateElimination(replacement,
+                    new PartitionChromosomeMutation(null));
+            final Population elites = new ElitisticListPopulation(4, 0.5);
+            elites.addChromosome(new IntPartitionChromosome(new int[] { 0, 0, 1, 1, 2, 2 }, FITNESS));
+            elimination.beginGeneration(elites);
+
+            // The same partition under other labels is a duplicate
+            final IntPartitionChromosome permuted = new IntPartitionChromosome(new int[] { 2, 2, 0, 0, 1, 1 },
+                    FITNESS);
+            final IntPartitionChromosome replaced = (IntPartitionChromosome) elimination.unique(permuted);
+            assertNotSame(permuted, replaced);
+            assertTrue(PartitionFingerprint.ofCanonical(replaced.getRepresentation()) != PartitionFingerprint
+                    .ofCanonical(permuted.getRepresentation()));
+            assertEquals(1, elimination.getEliminated());
+
+            // Children are recorded, so a second copy of a child is a duplicate
+            final IntPartitionChromosome child = new IntPartitionChromosome(new int[] { 0, 1, 0, 1, 0, 1 }, FITNESS);
+            assertSame(child, elimination.unique(child));
+            assertNotSame(child, elimination.unique(child));
+            assertEquals(2, elimination.getEliminated());
+
+            elimination.beginGeneration(elites);
+            assertEquals(0, elimination.getEliminated());
+            assertEquals(2, elimination.getTotalEliminated());
+        }
+    }
+
+    /**
+     * A GA with duplicate elimination produces generations without duplicate
+     * children.
+     */
+    @Test
+    public void testOptimizeWithDuplicateElimination() {
+        final DuplicateElimination elimination = new DuplicateElimination(DuplicateElimination.Replacement.MUTATED,
+                new PartitionChromosomeMutation(null, true));
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null, true),
+                1,
+                new PartitionChromosomeMutation(null, true),
+                0.10,
+                new TournamentSelection(100),
+                PopulationEvaluator.SEQUENTIAL,
+                null,
+                false,
+                elimination);
+
+        final Population finalPopulation = ga.evolve(randomPopulation(1000, FITNESS), new FixedGenerationCount(25));
+        assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+        final Set<Long> fingerprints = new HashSet<>();
+        for (Chromosome chromosome : finalPopulation) {
+            fingerprints.add(
+                    PartitionFingerprint.ofCanonical(((IntPartitionChromosome) chromosome).getRepresentation()));
+        }
+        // Only the elites carried over may duplicate each other
+        assertTrue(fingerprints.size() >= 900);
+        assertTrue(elimination.getTotalEliminated() > 0);
+    }
+
+    @Test
+    public void testIndexTournamentSelection() {
+        final Population population = randomPopulation(50, FITNESS);
+        final Chromosome fittest = population.getFittestChromosome();
+        // A tournament of the whole population is won by its fittest chromosome
+        final ChromosomePair pair = new IndexTournamentSelection(50).select(population);
+        assertEquals(fittest.getFitness(), pair.getFirst().getFitness(), 0.0);
+        assertEquals(fittest.getFitness(), pair.getSecond().getFitness(), 0.0);
+        assertThrows(IllegalArgumentException.class, () -> new IndexTournamentSelection(51).select(population));
+    }
+
+    @Test
+    public void testRankSelection() {
+        final SplittableRandom random = new SplittableRandom(1);
+        // With pressure 2 the density of rank fractions is 2 - 2x, with mean 1/3
+        final RankSelection rank = new RankSelection(2);
+        double sum = 0;
+        for (int i = 0; i < 100000; i++) {
+            sum += rank.rank(1000, random) / 1000.0;
+        }
+        assertEquals(1.0 / 3, sum / 100000, 0.01);
+        // With pressure 1 selection is uniform
+        sum = 0;
+        for (int i = 0; i < 100000; i++) {
+            sum += new RankSelection(1).rank(1000, random) / 1000.0;
+        }
+        assertEquals(0.5, sum / 100000, 0.01);
+        assertThrows(IllegalArgumentException.class, () -> new RankSelection(2.5));
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, with rank selection.
+     */
+    @Test
+    public void testOptimizeMaxValuePartitionRank() {
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new RankSelection(2),
+                PopulationEvaluator.SEQUENTIAL);
+
+        final Population finalPopulation = ga.evolve(randomPopulation(1000, FITNESS), new FixedGenerationCount(25));
+        assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+    }
+
+    @Test
+    public void testAdaptiveMutation() {
+        final AdaptivePartitionMutation mutation = new AdaptivePartitionMutation(null, false, 3,
+                CompositePartitionMutation.parseWeights("move:1,kmove:1,swap:1"), 0.5, 0.01, 1);
+        final Population population = randomPopulation(100, FITNESS);
+        // Outcomes are not recorded outside a generation
+        mutation.mutate(population.getFittestChromosome());
+        mutation.endGeneration();
+        assertEquals(0.5, mutation.getMutationRate(), 0.0);
+        assertTrue(Double.isNaN(mutation.getLastSuccessRatio()));
+
+        mutation.beginGeneration(population);
+        for (Chromosome chromosome : population) {
+            mutation.mutate(chromosome).getFitness();
+        }
+        mutation.endGeneration();
+        final double ratio = mutation.getLastSuccessRatio();
+        assertTrue(ratio >= 0 && ratio <= 1);
+        // 1/5th rule
+        if (ratio > 0.2) {
+            assertEquals(0.5 / 0.85, mutation.getMutationRate(), 1e-12);
+        } else if (ratio < 0.2) {
+            assertEquals(0.5 * 0.85, mutation.getMutationRate(), 1e-12);
+        }
+        // Disabled operators stay disabled and enabled ones keep a minimum probability
+        final double[] p = mutation.getProbabilities();
+        assertEquals(1.0, p[0] + p[1] + p[4], 1e-12);
+        assertEquals(0.0, p[2] + p[3], 0.0);
+        assertTrue(p[0] >= 0.05 && p[1] >= 0.05 && p[4] >= 0.05);
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, with adaptive mutation over all
+     * operators.
+     */
+    @Test
+    public void testOptimizeMaxValuePartitionAdaptive() {
+        final AdaptivePartitionMutation mutation = new AdaptivePartitionMutation(null, false, 3,
+                CompositePartitionMutation.parseWeights("move:1,kmove:1,split:1,merge:1,swap:1"), 0.10, 0.01, 1);
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                mutation,
+                0.10,
+                new IndexTournamentSelection(100),
+                PopulationEvaluator.SEQUENTIAL);
+
+        final Population finalPopulation = ga.evolve(randomPopulation(1000, FITNESS), new FixedGenerationCount(25));
+        assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+        assertEquals(mutation.getMutationRate(), ga.getMutationRate(), 0.0);
+        assertTrue(ga.getMutationRate() >= 0.01 && ga.getMutationRate() <= 1);
+    }
+
+    @Test
+    public void testCheckpointRoundTrip(@TempDir Path dir) throws IOException {
+        final Path file = dir.resolve("population.ckpt");
+        final Population population = new ElitisticListPopulation(21, 0.1);
+        for (Chromosome chromosome : randomPopulation(20, FITNESS)) {
+            chromosome.getFitness();
+            population.addChromosome(chromosome);
+        }
+        // Leave one chromosome unevaluated
+        population.addChromosome(new IntPartitionChromosome(new int[100], FITNESS));
+        PopulationCheckpoint.write(file, 7, population);
+        final PopulationCheckpoint checkpoint = PopulationCheckpoint.read(file);
+        assertEquals(7, checkpoint.getGeneration());
+        assertEquals(21, checkpoint.size());
+
+        final Iterator<Chromosome> restored = checkpoint.toPopulation(FITNESS, 21, 0.1).iterator();
+        for (Chromosome chromosome : population) {
+            final IntPartitionChromosome original = (IntPartitionChromosome) chromosome;
+            final IntPartitionChromosome copy = (IntPartitionChromosome) restored.next();
+            assertArrayEquals(original.getRepresentation(), copy.getRepresentation());
+            assertEquals(original.isEvaluated(), copy.isEvaluated());
+            assertEquals(original.getFitness(), copy.getFitness(), 0.0);
+        }
+        assertFalse(restored.hasNext());
+
+        // Truncating keeps the fittest chromosomes
+        final Population fittest = checkpoint.toPopulation(FITNESS, 5, 0.1);
+        assertEquals(5, fittest.getPopulationSize());
+        assertEquals(population.getFittestChromosome().getFitness(), fittest.getFittestChromosome().getFitness(),
+                0.0);
+
+        // A count larger than the file could hold is rejected before allocating
+        final byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(3 * Integer.BYTES + Long.BYTES, Integer.MAX_VALUE);
+        Files.write(file, bytes);
+        assertThrows(IllegalArgumentException.class, () -> PopulationCheckpoint.read(file));
+
+        Files.write(file, new byte[] { 1, 2, 3 });
+        assertThrows(IllegalArgumentException.class, () -> PopulationCheckpoint.read(file));
+    }
+
+    /**
+     * A seeded run resumed from a checkpoint ends with the same population as a
+     * single uninterrupted run that wrote the checkpoint along the way.
+     */
+    @Test
+    public void testResumeFromCheckpoint(@TempDir Path dir) throws IOException {
+        final Path file = dir.resolve("population.ckpt");
+        PartitionRandom.setSeed(11);
+        // Only generation 5 is checkpointed
+        final Population uninterrupted = checkpointedGeneticAlgorithm(new PopulationCheckpointer(file, 5, 0))
+                .evolve(randomPopulation(100, FITNESS), new FixedGenerationCount(9));
+
+        final PopulationCheckpoint checkpoint = PopulationCheckpoint.read(file);
+        assertEquals(5, checkpoint.getGeneration());
+        PartitionRandom.setSeed(checkpoint.getSeed());
+        final Population resumed = checkpointedGeneticAlgorithm(null)
+                .evolve(checkpoint.toPopulation(FITNESS, 100, 0.1), new FixedGenerationCount(4));
+
+        final Iterator<Chromosome> actual = resumed.iterator();
+        for (Chromosome chromosome : uninterrupted) {
+            assertArrayEquals(((IntPartitionChromosome) chromosome).getRepresentation(),
+                    ((IntPartitionChromosome) actual.next()).getRepresentation());
+        }
+        assertFalse(actual.hasNext());
+    }
+
+    private static PartitionGeneticAlgorithm checkpointedGeneticAlgorithm(PopulationCheckpointer checkpointer) {
+        return new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new IndexTournamentSelection(10),
+                PopulationEvaluator.SEQUENTIAL,
+                null,
+                false,
+                null,
+                checkpointer);
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, split over four islands with
+     * each topology.
+     */
+    @Test
+    public void testOptimizeMaxValuePartitionIslands() {
+        for (IslandGeneticAlgorithm.Topology topology : IslandGeneticAlgorithm.Topology.values()) {
+            final IslandGeneticAlgorithm ga = islandGeneticAlgorithm(topology);
+            final Population finalPopulation = ga.evolve(randomPopulation(1000, FITNESS),
+                    new FixedGenerationCount(25));
+            assertEquals(25, ga.getGenerationsEvolved());
+            assertEquals(1000, finalPopulation.getPopulationSize());
+            assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+        }
+    }
+
+    /**
+     * Seeded island runs are reproducible although islands run on several
+     * threads.
+     */
+    @Test
+    public void testSeededIslandRunsAreReproducible() {
+        final double[][] fitnesses = new double[2][];
+        for (int run = 0; run < 2; run++) {
+            PartitionRandom.setSeed(42);
+            final Population finalPopulation = islandGeneticAlgorithm(IslandGeneticAlgorithm.Topology.FULL)
+                    .evolve(randomPopulation(100, FITNESS), new FixedGenerationCount(5));
+            fitnesses[run] = new double[100];
+            int i = 0;
+            for (Chromosome chromosome : finalPopulation) {
+                fitnesses[run][i++] = chromosome.getFitness();
+            }
+        }
+        assertArrayEquals(fitnesses[0], fitnesses[1], 0.0);
+    }
+
+    /**
+     * Two processes exchange emigrants through a coordinator on a Unix domain
+     * socket; along a ring, each island receives the other's.
+     */
+    @Test
+    public void testSocketMigrationExchange(@TempDir Path dir) throws Exception {
+        final MigrationCoordinator coordinator = new MigrationCoordinator(
+                UnixDomainSocketAddress.of(dir.resolve("migration.sock")), 2, IslandGeneticAlgorithm.Topology.RING,
+                1);
+        final Thread thread = coordinator.start();
+        final IntPartitionChromosome[] emigrants = new IntPartitionChromosome[2];
+        final List<Future<List<List<Chromosome>>>> received = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int rank = 0; rank < 2; rank++) {
+                final int r = rank;
+                emigrants[rank] = new IntPartitionChromosome(Partition.randomPartition(100, 10).getPartition(),
+                        FITNESS);
+                emigrants[rank].fitness();
+                received.add(executor.submit(() -> {
+                    try (SocketMigrationTransport transport = new SocketMigrationTransport(
+                            coordinator.getAddress(), r, 1, FITNESS, 10_000)) {
+                        return transport.exchange(4, List.of(List.of(emigrants[r])));
+                    }
+                }));
+            }
+            for (int rank = 0; rank < 2; rank++) {
+                final List<List<Chromosome>> immigrants = received.get(rank).get();
+                assertEquals(1, immigrants.size());
+                assertEquals(1, immigrants.get(0).size());
+                final IntPartitionChromosome immigrant = (IntPartitionChromosome) immigrants.get(0).get(0);
+                final IntPartitionChromosome expected = emigrants[1 - rank];
+                assertArrayEquals(expected.getRepresentation(), immigrant.getRepresentation());
+                assertTrue(immigrant.isEvaluated());
+                assertEquals(expected.getFitness(), immigrant.getFitness(), 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+        assertFalse(Files.exists(dir.resolve("migration.sock")));
+    }
+
+    /**
+     * Three processes, simulated by threads with two islands each, evolve
+     * together over TCP on localhost.
+     */
+    @Test
+    public void testOptimizeMaxValuePartitionSocketIslands() throws Exception {
+        final MigrationCoordinator coordinator = new MigrationCoordinator(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 3, IslandGeneticAlgorithm.Topology.RING,
+                2);
+        final Thread thread = coordinator.start();
+        final List<Future<Population>> results = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int rank = 0; rank < 3; rank++) {
+                final int r = rank;
+                results.add(executor.submit(() -> {
+                    final SocketMigrationTransport transport = new SocketMigrationTransport(
+                            coordinator.getAddress(), r, 2, FITNESS, 10_000);
+                    final IslandGeneticAlgorithm ga = new IslandGeneticAlgorithm(islands(2), transport, 2, 2, null,
+                            0);
+                    try {
+                        return ga.evolve(randomPopulation(400, FITNESS), new FixedGenerationCount(30));
+                    } finally {
+                        transport.close();
+                    }
+                }));
+            }
+            for (Future<Population> result : results) {
+                assertEquals(400, result.get().getPopulationSize());
+                assertEquals(50.0, result.get().getFittestChromosome().fitness(), 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+    }
+
+    /**
+     * Listeners get statistics of every generation, and the CSV listener
+     * writes a row for each.
+     */
+    @Test
+    public void testGenerationStatistics() throws IOException {
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new IndexTournamentSelection(10),
+                PopulationEvaluator.SEQUENTIAL);
+        final List<GenerationStatistics> reported = new ArrayList<>();
+        ga.addGenerationListener((generation, statistics) -> {
+            assertEquals(reported.size(), generation);
+            reported.add(statistics);
+        });
+        final StringWriter csv = new StringWriter();
+        final CsvGenerationListener csvListener = new CsvGenerationListener(csv);
+        ga.addGenerationListener(csvListener);
+        ga.evolve(randomPopulation(100, FITNESS), new FixedGenerationCount(10));
+        csvListener.close();
+
+        assertEquals(11, reported.size());
+        assertEquals(100, reported.get(0).getEvaluations());
+        assertEquals(0, reported.get(0).getAlreadyEvaluated());
+        double best = Double.NEGATIVE_INFINITY;
+        for (GenerationStatistics statistics : reported) {
+            assertEquals(100, statistics.getPopulationSize());
+            assertEquals(100, statistics.getEvaluations() + statistics.getAlreadyEvaluated());
+            assertTrue(statistics.getBestFitness() >= statistics.getMeanFitness());
+            assertTrue(statistics.getMeanFitness() >= statistics.getWorstFitness());
+            // Elites carry the best fitness over
+            assertTrue(statistics.getBestFitness() >= best);
+            best = statistics.getBestFitness();
+            assertTrue(statistics.getSelectNanos() + statistics.getBreedNanos() + statistics.getEvaluateNanos()
+                    <= statistics.getWallNanos());
+        }
+        for (GenerationStatistics statistics : reported.subList(1, reported.size())) {
+            assertTrue(statistics.getAlreadyEvaluated() >= 10);
+            assertTrue(statistics.getSelectNanos() > 0);
+            assertTrue(statistics.getEvaluationsPerSecond() > 0);
+        }
+        final String[] lines = csv.toString().split("\n");
+        assertEquals(12, lines.length);
+        assertEquals(CsvGenerationListener.HEADER, lines[0]);
+        assertTrue(lines[11].startsWith("10,100," + reported.get(10).getBestFitness() + ","));
+
+        // An island model reports the union of its islands
+        final IslandGeneticAlgorithm islands = islandGeneticAlgorithm(IslandGeneticAlgorithm.Topology.RING);
+        final List<GenerationStatistics> combined = new ArrayList<>();
+        islands.addGenerationListener((generation, statistics) -> combined.add(statistics));
+        final Population finalPopulation = islands.evolve(randomPopulation(100, FITNESS),
+                new FixedGenerationCount(4));
+        assertEquals(5, combined.size());
+        for (GenerationStatistics statistics : combined) {
+            assertEquals(100, statistics.getPopulationSize());
+            assertEquals(100, statistics.getEvaluations() + statistics.getAlreadyEvaluated());
+        }
+        assertTrue(finalPopulation.getFittestChromosome().getFitness() >= combined.get(4).getBestFitness());
+    }
+
+    /**
+     * With an evaluation count, evaluations include the children local search
+     * scores while breeding, which reach the evaluator already evaluated.
+     */
+    @Test
+    public void testGenerationStatisticsCountBreedingEvaluations() {
+        final CountingPartitionFitness counting = new CountingPartitionFitness(FITNESS);
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new IndexTournamentSelection(10),
+                PopulationEvaluator.SEQUENTIAL,
+                new LocalSearch(2, 10, true, false),
+                false);
+        ga.setEvaluationCount(counting::getCount);
+        final List<Long> counts = new ArrayList<>();
+        final List<GenerationStatistics> reported = new ArrayList<>();
+        ga.addGenerationListener((generation, statistics) -> {
+            counts.add(counting.getCount());
+            reported.add(statistics);
+        });
+        ga.evolve(randomPopulation(100, counting), new FixedGenerationCount(5));
+
+        assertEquals(100, reported.get(0).getEvaluations());
+        for (int i = 1; i < reported.size(); i++) {
+            final GenerationStatistics statistics = reported.get(i);
+            assertEquals(counts.get(i) - counts.get(i - 1), statistics.getEvaluations());
+            // Local search scored the children, so the evaluator had almost nothing left
+            assertTrue(statistics.getAlreadyEvaluated() > 90, statistics.toString());
+            assertTrue(statistics.getEvaluations() > 100 - statistics.getAlreadyEvaluated(), statistics.toString());
+        }
+
+        // Islands sharing the count report the increase over each whole generation
+        final IslandGeneticAlgorithm islands = islandGeneticAlgorithm(IslandGeneticAlgorithm.Topology.RING);
+        islands.setEvaluationCount(counting::getCount);
+        final List<Long> islandCounts = new ArrayList<>();
+        final List<GenerationStatistics> combined = new ArrayList<>();
+        final long start = counting.getCount();
+        islands.addGenerationListener((generation, statistics) -> {
+            islandCounts.add(counting.getCount());
+            combined.add(statistics);
+        });
+        islands.evolve(randomPopulation(100, counting), new FixedGenerationCount(4));
+        assertEquals(islandCounts.get(0) - start, combined.get(0).getEvaluations());
+        for (int i = 1; i < combined.size(); i++) {
+            assertEquals(islandCounts.get(i) - islandCounts.get(i - 1), combined.get(i).getEvaluations());
+        }
+    }
+
+    /**
+     * Island models reject an empty island list, and islands too small for a
+     * tournament, before evolving anything.
+     */
+    @Test
+    public void testIslandValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new IslandGeneticAlgorithm(new ArrayList<>(),
+                new LocalMigrationTransport(IslandGeneticAlgorithm.Topology.RING, 1), 1, 1, null, 0));
+        final AtomicInteger evaluations = new AtomicInteger();
+        final Population initial = randomPopulation(39, partition -> {
+            evaluations.incrementAndGet();
+            return FITNESS.fitness(partition);
+        });
+        // Four islands of 39 chromosomes leave 9 for the last, below arity 10
+        assertThrows(IllegalArgumentException.class,
+                () -> islandGeneticAlgorithm(IslandGeneticAlgorithm.Topology.RING).evolve(initial,
+                        new FixedGenerationCount(1)));
+        assertEquals(0, evaluations.get());
+    }
+
+    private static IslandGeneticAlgorithm islandGeneticAlgorithm(IslandGeneticAlgorithm.Topology topology) {
+        return new IslandGeneticAlgorithm(islands(4), topology, 2, 2, null, 0);
+    }
+
+    private static List<PartitionGeneticAlgorithm> islands(int count) {
+        final List<PartitionGeneticAlgorithm> islands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            islands.add(new PartitionGeneticAlgorithm(
+                    new PartitionChromosomeCrossover(null),
+                    1,
+                    new PartitionChromosomeMutation(null),
+                    0.10,
+                    new IndexTournamentSelection(10),
+                    PopulationEvaluator.SEQUENTIAL));
+        }
+        return islands;
+    }
+
+    /**
+     * Seeded runs are reproducible.
+     */
+    @Test
+    public void testSeededRunsAreReproducible() {
+        final double[][] fitnesses = new double[2][];
+        for (int run = 0; run < 2; run++) {
+            PartitionRandom.setSeed(42);
+            final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                    new PartitionChromosomeCrossover(null),
+                    1,
+                    new PartitionChromosomeMutation(null),
+                    0.10,
+                    new IndexTournamentSelection(10),
+                    PopulationEvaluator.SEQUENTIAL);
+            final Population finalPopulation = ga.evolve(randomPopulation(100, FITNESS), new FixedGenerationCount(5));
+            fitnesses[run] = new double[100];
+            int i = 0;
+            for (Chromosome chromosome : finalPopulation) {
+                fitnesses[run][i++] = chromosome.getFitness();
+            }
+        }
+        assertArrayEquals(fitnesses[0], fitnesses[1], 0.0);
+
+        PartitionRandom.setSeed(7);
+        final int[] first = Partition.randomPartition(1000, 10).getPartition();
+        PartitionRandom.setSeed(7);
+        assertArrayEquals(first, Partition.randomPartition(1000, 10).getPartition());
+    }
+
+    @Test
+    public void testPipelinedBoundsInFlight() {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Population initial = randomPopulation(50, partition -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return FITNESS.fitness(partition);
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final PipelinedGeneticAlgorithm ga = new PipelinedGeneticAlgorithm(
+                    new PartitionChromosomeCrossover(null),
+                    1,
+                    new PartitionChromosomeMutation(null),
+                    0.10,
+                    new TournamentSelection(5),
+                    executor,
+                    3,
+                    5);
+            final Population finalPopulation = ga.evolve(initial, new FixedGenerationCount(5));
+            assertEquals(5, ga.getGenerationsEvolved());
+            assertEquals(50, finalPopulation.getPopulationSize());
+            assertTrue(maxInFlight.get() <= 3);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * With evaluation on the breeding thread every generation is complete
+     * before breeding from it, so each generation's parents are selected from
+     * one population view, read in place.
+     */
+    @Test
+    public void testPipelinedSelectsFromCompletedView() {
+        final Set<Population> pools = Collections.newSetFromMap(new IdentityHashMap<>());
+        final IndexTournamentSelection tournament = new IndexTournamentSelection(5);
+        final PipelinedGeneticAlgorithm ga = new PipelinedGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                population -> {
+                    pools.add(population);
+                    assertThrows(UnsupportedOperationException.class, () -> population.addChromosome(null));
+                    return tournament.select(population);
+                },
+                Runnable::run,
+                4,
+                5);
+        final Population finalPopulation = ga.evolve(randomPopulation(50, FITNESS), new FixedGenerationCount(4));
+        assertEquals(4, ga.getGenerationsEvolved());
+        assertEquals(4, pools.size());
+        assertEquals(50, finalPopulation.getPopulationSize());
+    }
+
+    /**
+     * Without an executor, each call to evolve evaluates on its own executor.
+     */
+    @Test
+    public void testPipelinedOwnsExecutor() {
+        final PipelinedGeneticAlgorithm ga = new PipelinedGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new IndexTournamentSelection(5),
+                4,
+                5);
+        for (int run = 0; run < 2; run++) {
+            assertEquals(50, ga.evolve(randomPopulation(50, FITNESS), new FixedGenerationCount(3))
+                    .getPopulationSize());
+            assertEquals(3, ga.getGenerationsEvolved());
+        }
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, with breeding overlapping
+     * evaluation.
+     */
+    @Test
+    public void testOptimizeMaxValuePartitionPipelined() {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final PipelinedGeneticAlgorithm ga = new PipelinedGeneticAlgorithm(
+                    new PartitionChromosomeCrossover(null),
+                    1,
+                    new PartitionChromosomeMutation(null),
+                    0.10,
+                    new TournamentSelection(100),
+                    executor,
+                    16,
+                    100);
+            final Population finalPopulation = ga.evolve(randomPopulation(1000, FITNESS),
+                    new FixedGenerationCount(25));
+            assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
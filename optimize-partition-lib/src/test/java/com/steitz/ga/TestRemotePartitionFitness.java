@@ -0,0 +1,280 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.FixedGenerationCount;
+import org.apache.commons.math3.genetics.Population;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for RemotePartitionFitness: work stealing, re-dispatch, speculation
+ * and deadlines.
+ */
+public class TestRemotePartitionFitness {
+
+    /** List-based fitness function adapted to int arrays */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    /** FITNESS, taking 2 ms per partition */
+    private static final IntPartitionFitness SLOW = partition -> {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return FITNESS.fitness(partition);
+    };
+
+    /**
+     * Batches evaluated on three workers over loopback TCP match local
+     * evaluation, and the two fast workers steal work from the slow one. A
+     * closed function starts again at its next batch.
+     */
+    @Test
+    public void testWorkStealing() throws Exception {
+        final List<FitnessWorker> workers = List.of(fitnessWorker(SLOW), fitnessWorker(FITNESS),
+                fitnessWorker(FITNESS));
+        final List<SocketAddress> addresses = new ArrayList<>();
+        for (FitnessWorker worker : workers) {
+            addresses.add(worker.getAddress());
+        }
+        try (RemotePartitionFitness remote = new RemotePartitionFitness(addresses, 10)) {
+            final int[][] partitions = randomPartitions(300);
+            final double[] fitness = remote.fitness(partitions);
+            for (int i = 0; i < partitions.length; i++) {
+                assertEquals(FITNESS.fitness(partitions[i]), fitness[i], 0.0);
+            }
+            final long[] evaluated = remote.getEvaluated();
+            assertEquals(300, evaluated[0] + evaluated[1] + evaluated[2]);
+            assertTrue(evaluated[0] < 100, "slow worker evaluated " + evaluated[0]);
+            assertEquals(0, remote.getRedispatched());
+
+            // A GA evaluating each generation on the workers
+            final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                    new PartitionChromosomeCrossover(null),
+                    1,
+                    new PartitionChromosomeMutation(null),
+                    0.10,
+                    new IndexTournamentSelection(10),
+                    new BatchPopulationEvaluator());
+            final Population finalPopulation = ga.evolve(randomPopulation(1000, remote),
+                    new FixedGenerationCount(25));
+            assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+
+            remote.close();
+            assertEquals(FITNESS.fitness(partitions[0]), remote.fitness(partitions[0]), 0.0);
+        } finally {
+            for (FitnessWorker worker : workers) {
+                worker.close();
+            }
+        }
+    }
+
+    /**
+     * A worker that cannot be reached sits the batch out, and the chunk of a
+     * worker whose connection drops is re-dispatched to the others; a batch
+     * fails only when no worker is left.
+     */
+    @Test
+    public void testRedispatch(@TempDir Path dir) throws Exception {
+        final FitnessWorker live = new FitnessWorker(UnixDomainSocketAddress.of(dir.resolve("live.sock")), SLOW,
+                2);
+        live.start();
+        final FitnessWorker dead = fitnessWorker(FITNESS);
+        dead.close();
+        final ServerSocketChannel dropping = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final Thread dropper = new Thread(() -> {
+            try {
+                while (true) {
+                    try (SocketChannel channel = dropping.accept()) {
+                        SocketFrames.read(channel);
+                    }
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        });
+        dropper.setDaemon(true);
+        dropper.start();
+        try (RemotePartitionFitness remote = new RemotePartitionFitness(
+                List.of(dead.getAddress(), dropping.getLocalAddress(), live.getAddress()), 5)) {
+            final int[][] partitions = randomPartitions(50);
+            final double[] fitness = remote.fitness(partitions);
+            for (int i = 0; i < partitions.length; i++) {
+                assertEquals(FITNESS.fitness(partitions[i]), fitness[i], 0.0);
+            }
+            assertEquals(1, remote.getRedispatched());
+            assertArrayEquals(new long[] { 0, 0, 50 }, remote.getEvaluated());
+            live.close();
+            assertThrows(IllegalStateException.class, () -> remote.fitness(partitions));
+        } finally {
+            dropping.close();
+        }
+    }
+
+    /**
+     * A worker that accepts chunks and never answers does not stall a batch:
+     * once the other worker has run out of chunks it re-runs the one in flight,
+     * and the batch returns without waiting for the hung worker.
+     */
+    @Test
+    public void testHungWorkerIsSpeculatedAround() throws Exception {
+        final FitnessWorker live = fitnessWorker(SLOW);
+        // Connections complete in the backlog, but nothing is ever read or answered
+        final ServerSocketChannel hung = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try (RemotePartitionFitness remote = new RemotePartitionFitness(
+                List.of(hung.getLocalAddress(), live.getAddress()), 5)) {
+            final int[][] partitions = randomPartitions(50);
+            final double[] fitness = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                    () -> remote.fitness(partitions));
+            for (int i = 0; i < partitions.length; i++) {
+                assertEquals(FITNESS.fitness(partitions[i]), fitness[i], 0.0);
+            }
+            assertArrayEquals(new long[] { 0, 50 }, remote.getEvaluated());
+            assertEquals(1, remote.getSpeculated());
+            assertEquals(0, remote.getRedispatched());
+        } finally {
+            hung.close();
+            live.close();
+        }
+    }
+
+    /**
+     * A worker that does not answer within the read timeout is disconnected
+     * and its chunk re-dispatched; with no other worker the batch fails.
+     */
+    @Test
+    public void testReadTimeout() throws Exception {
+        final ServerSocketChannel hung = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try (RemotePartitionFitness remote = new RemotePartitionFitness(List.of(hung.getLocalAddress()), 0,
+                1_000, 200)) {
+            final IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                    () -> assertThrows(IllegalStateException.class,
+                            () -> remote.fitness(Partition.randomPartition(100, 10).getPartition())));
+            assertTrue(e.getMessage().contains("all 1 fitness workers failed"), e.getMessage());
+            assertEquals(1, remote.getRedispatched());
+        } finally {
+            hung.close();
+        }
+    }
+
+    /**
+     * An error thrown by the fitness function on a worker fails the batch.
+     */
+    @Test
+    public void testFitnessError() throws Exception {
+        final FitnessWorker worker = fitnessWorker(partition -> {
+            throw new IllegalArgumentException("bad partition");
+        });
+        try (RemotePartitionFitness remote = new RemotePartitionFitness(List.of(worker.getAddress()), 0)) {
+            final IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> remote.fitness(Partition.randomPartition(100, 10).getPartition()));
+            assertTrue(e.getMessage().contains("bad partition"));
+            assertEquals(0, remote.getRedispatched());
+        } finally {
+            worker.close();
+        }
+    }
+
+    /**
+     * A worker whose reply is shorter than its chunk's fitness is treated as
+     * failed rather than killing its driver, so the batch fails instead of
+     * waiting forever.
+     */
+    @Test
+    public void testTruncatedReply() throws Exception {
+        final ServerSocketChannel truncating = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final Thread stub = new Thread(() -> {
+            try {
+                while (true) {
+                    try (SocketChannel channel = truncating.accept()) {
+                        while (SocketFrames.read(channel) != null) {
+                            SocketFrames.write(channel,
+                                    ByteBuffer.allocate(4).put(FitnessWorker.OK).put(new byte[3]).flip());
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        });
+        stub.setDaemon(true);
+        stub.start();
+        try (RemotePartitionFitness remote = new RemotePartitionFitness(List.of(truncating.getLocalAddress()),
+                0)) {
+            final IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                    () -> assertThrows(IllegalStateException.class,
+                            () -> remote.fitness(Partition.randomPartition(100, 10).getPartition())));
+            assertTrue(e.getMessage().contains("all 1 fitness workers failed"), e.getMessage());
+            assertEquals(1, remote.getRedispatched());
+        } finally {
+            truncating.close();
+        }
+    }
+
+    /**
+     * A partition that cannot be packed fails its batch, and the driver
+     * survives to evaluate the next one.
+     */
+    @Test
+    public void testUnpackablePartition() throws Exception {
+        final FitnessWorker worker = fitnessWorker(FITNESS);
+        try (RemotePartitionFitness remote = new RemotePartitionFitness(List.of(worker.getAddress()), 0)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(20),
+                    () -> assertThrows(IllegalStateException.class, () -> remote.fitness(new int[][] { null })));
+            final int[] partition = Partition.randomPartition(100, 10).getPartition();
+            assertEquals(FITNESS.fitness(partition),
+                    assertTimeoutPreemptively(Duration.ofSeconds(20), () -> remote.fitness(partition)), 0.0);
+        } finally {
+            worker.close();
+        }
+    }
+
+    private static FitnessWorker fitnessWorker(IntPartitionFitness fitness) throws IOException {
+        final FitnessWorker worker = new FitnessWorker(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                fitness, 2);
+        worker.start();
+        return worker;
+    }
+
+    private static int[][] randomPartitions(int count) {
+        final int[][] partitions = new int[count][];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = Partition.randomPartition(100, 10).getPartition();
+        }
+        return partitions;
+    }
+
+    private static Population randomPopulation(int size, IntPartitionFitness fitness) {
+        final Population population = new ElitisticListPopulation(size, 0.1);
+        for (int i = 0; i < size; i++) {
+            population.addChromosome(new IntPartitionChromosome(Partition.randomPartition(100, 10).getPartition(),
+                    fitness));
+        }
+        return population;
+    }
+}
@@ -0,0 +1,106 @@
+package com.steitz.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.commons.math3.genetics.ElitisticListPopulation;
+import org.apache.commons.math3.genetics.FixedGenerationCount;
+import org.apache.commons.math3.genetics.Population;
+import org.apache.commons.math3.genetics.TournamentSelection;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the stopping conditions and CountingPartitionFitness.
+ */
+public class TestStoppingConditions {
+
+    /** List-based fitness function adapted to int arrays */
+    private static final IntPartitionFitness FITNESS = PartitionFitnessAdapter
+            .adapt(new MaxValuePartitionChromosome.MaxValuePartitionFitness());
+
+    /**
+     * @return population with a single chromosome of the given fitness
+     */
+    private static Population withBest(double fitness) {
+        final Population population = new ElitisticListPopulation(1, 0);
+        population.addChromosome(new IntPartitionChromosome(new int[] { 0 }, partition -> fitness));
+        return population;
+    }
+
+    @Test
+    public void testStagnation() {
+        final FitnessStagnation stagnation = new FitnessStagnation(2, 0.5);
+        assertFalse(stagnation.isSatisfied(withBest(1)));
+        // Improvements within the tolerance do not count
+        assertFalse(stagnation.isSatisfied(withBest(1.2)));
+        assertFalse(stagnation.isSatisfied(withBest(2)));
+        assertFalse(stagnation.isSatisfied(withBest(2)));
+        assertTrue(stagnation.isSatisfied(withBest(2.4)));
+    }
+
+    @Test
+    public void testTargetFitness() {
+        final TargetFitness target = new TargetFitness(10);
+        assertFalse(target.isSatisfied(withBest(9)));
+        assertTrue(target.isSatisfied(withBest(10)));
+    }
+
+    @Test
+    public void testEvaluationCount() {
+        final CountingPartitionFitness counting = new CountingPartitionFitness(FITNESS);
+        final FixedEvaluationCount budget = new FixedEvaluationCount(counting::getCount, 3);
+        counting.fitness(new int[] { 0, 1 });
+        counting.fitness(new int[][] { { 0, 1 }, { 0, 0 } });
+        assertEquals(3, counting.getCount());
+        assertTrue(budget.isSatisfied(withBest(0)));
+    }
+
+    @Test
+    public void testCountingAsksForFingerprintOnlyIfUsed() {
+        assertFalse(new CountingPartitionFitness(FITNESS).usesFingerprint());
+        final FingerprintedPartitionFitness fingerprinted = (partition, fingerprint) -> fingerprint;
+        final CountingPartitionFitness counting = new CountingPartitionFitness(fingerprinted);
+        assertTrue(counting.usesFingerprint());
+        final int[] partition = { 0, 1, 1 };
+        assertEquals(PartitionFingerprint.of(partition),
+                new IntPartitionChromosome(partition, counting).fitness(), 0.0);
+        assertEquals(1, counting.getCount());
+    }
+
+    @Test
+    public void testAnyChecksAllConditions() {
+        final FixedGenerationCount generations = new FixedGenerationCount(5);
+        final AnyStoppingCondition any = new AnyStoppingCondition(new TargetFitness(0), generations);
+        assertTrue(any.isSatisfied(withBest(1)));
+        // The generation count is advanced even though the target was reached
+        assertEquals(1, generations.getNumGenerations());
+    }
+
+    /**
+     * Same optimization as TestOptimizePartition, stopping as soon as the optimum
+     * is found.
+     */
+    @Test
+    public void testStopAtTarget() {
+        final CountingPartitionFitness counting = new CountingPartitionFitness(FITNESS);
+        final Population initial = new ElitisticListPopulation(1000, 0.1);
+        for (int i = 0; i < 1000; i++) {
+            initial.addChromosome(new IntPartitionChromosome(Partition.randomPartition(100, 10).getPartition(),
+                    counting));
+        }
+        final PartitionGeneticAlgorithm ga = new PartitionGeneticAlgorithm(
+                new PartitionChromosomeCrossover(null),
+                1,
+                new PartitionChromosomeMutation(null),
+                0.10,
+                new TournamentSelection(100),
+                PopulationEvaluator.SEQUENTIAL);
+
+        final Population finalPopulation = ga.evolve(initial,
+                new AnyStoppingCondition(new FixedGenerationCount(1000), new TargetFitness(50)));
+        assertEquals(50.0, finalPopulation.getFittestChromosome().fitness(), 0.0);
+        assertTrue(ga.getGenerationsEvolved() < 1000);
+        assertTrue(counting.getCount() <= 1000 + 900L * ga.getGenerationsEvolved());
+    }
+}